@@ -0,0 +1,76 @@
+package com.personal.phonebook.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares a JMH JSON result ({@code -rf json}) with a stored baseline and fails when any benchmark present in both got
+ * slower than the threshold allows. Scores are read per the benchmark mode: lower is better for time per operation, higher
+ * for throughput.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.personal.phonebook.benchmark.BaselineCompare \
+ *     -Dbenchmark.args="src/jmh/baseline/baseline.json target/jmh-result.json 0.20"
+ * </pre>
+ */
+public final class BaselineCompare {
+
+    private static final double DEFAULT_THRESHOLD = 0.10;
+
+    private BaselineCompare () {
+    }
+
+    public static void main (String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineCompare <baseline.json> <result.json> [threshold, default " + DEFAULT_THRESHOLD + "]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD;
+        Map<String, JsonNode> baseline = read(new File(args[0]));
+        Map<String, JsonNode> current = read(new File(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-100s %12s%n", entry.getKey(), "new");
+                continue;
+            }
+            double change = change(before, entry.getValue());
+            boolean regressed = change > threshold;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-100s %+11.1f%%%s%n", entry.getKey(), change * 100, regressed ? "  REGRESSION" : "");
+        }
+        System.out.printf("%d benchmark(s) compared, %d regression(s) beyond %.0f%%%n", current.size(), regressions, threshold * 100);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    // Relative slowdown: positive means worse, whichever direction the mode counts as better
+    static double change (JsonNode before, JsonNode after) {
+        double baseScore = before.path("primaryMetric").path("score").asDouble();
+        double score = after.path("primaryMetric").path("score").asDouble();
+        double ratio = score / baseScore - 1;
+        return "thrpt".equals(after.path("mode").asText()) ? -ratio : ratio;
+    }
+
+    // Keyed by benchmark, mode and parameters, so the same method at different params is compared like for like
+    private static Map<String, JsonNode> read (File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText()).append(" [")
+                                                                                      .append(result.path("mode").asText());
+            result.path("params").fields().forEachRemaining(param -> key.append(", ").append(param.getKey()).append('=').append(param.getValue().asText()));
+            results.put(key.append(']').toString(), result);
+        }
+        return results;
+    }
+}
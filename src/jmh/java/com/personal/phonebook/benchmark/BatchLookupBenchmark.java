@@ -0,0 +1,96 @@
+package com.personal.phonebook.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.repository.ContactRepository;
+import com.personal.phonebook.search.PhoneNumbers;
+
+/**
+ * A batch of ids or phone numbers resolved with one {@code $in} query against the same batch resolved one key per query,
+ * as a client without the batch endpoint has to. Every invocation resolves a whole batch, so the scores compare directly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class BatchLookupBenchmark {
+
+    @Param({ "mongo", "memory" })
+    private String engine;
+
+    @Param({ "1000000" })
+    private int contacts;
+
+    @Param({ "10", "100", "1000" })
+    private int batchSize;
+
+    private StorageEngine storageEngine;
+
+    private ContactRepository contactRepository;
+
+    private List<String> ids;
+
+    private List<String> phones;
+
+    @Setup(Level.Trial)
+    public void setup () {
+        storageEngine = StorageEngine.open(engine, contacts);
+        contactRepository = storageEngine.contactRepository();
+        List<Contact> sample = contactRepository.findAll(PageRequest.of(0, batchSize)).getContent();
+        ids = sample.stream().map(Contact::getId).toList();
+        phones = sample.stream().map(contact -> PhoneNumbers.normalize(contact.getPhone())).toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown () {
+        storageEngine.close();
+    }
+
+    @Benchmark
+    public List<Contact> idsInOneQuery () {
+        return contactRepository.findByIds(ids);
+    }
+
+    @Benchmark
+    public List<Contact> idsOneByOne () {
+        List<Contact> contacts = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            contactRepository.findById(id).ifPresent(contacts::add);
+        }
+        return contacts;
+    }
+
+    @Benchmark
+    public List<Contact> phonesInOneQuery () {
+        return contactRepository.findByPhoneNumbers(phones);
+    }
+
+    @Benchmark
+    public List<Contact> phonesOneByOne () {
+        List<Contact> contacts = new ArrayList<>(phones.size());
+        for (String phone : phones) {
+            contacts.addAll(contactRepository.findByPhoneNumber(phone, Integer.MAX_VALUE));
+        }
+        return contacts;
+    }
+}
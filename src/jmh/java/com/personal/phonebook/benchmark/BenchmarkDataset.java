@@ -0,0 +1,239 @@
+package com.personal.phonebook.benchmark;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.personal.phonebook.cache.ContactCache;
+import com.personal.phonebook.cache.SearchKey;
+import com.personal.phonebook.controller.response.ContactsResponse;
+import com.personal.phonebook.metrics.ContactMetrics;
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.repository.ContactRepository;
+import com.personal.phonebook.repository.ContactRepositoryImpl;
+import com.personal.phonebook.search.PhoneNumbers;
+import com.personal.phonebook.search.SearchMode;
+import com.personal.phonebook.search.SearchTokenizer;
+import com.personal.phonebook.service.ContactService;
+import com.personal.phonebook.tenant.TenantContext;
+
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Synthetic contacts generated from a fixed seed, so every run of a given size sees the same data. Each size is kept in its
+ * own database next to the others and only regenerated when its count is off, with the same indexes the application
+ * creates. Runs against a local mongod ({@code -Dbenchmark.mongodb.uri}, default {@code mongodb://localhost:27017}) or, with
+ * {@code -Dbenchmark.mongodb.uri=memory}, against an in-process in-memory stand-in - which holds the whole dataset on the
+ * heap and does not use indexes, so it only suits the small datasets and relative comparisons. Contacts belong to the default
+ * tenant, or with more than one tenant to tenants of Zipf-distributed sizes: the first tenant is the largest, the k-th holds
+ * about 1/k of its contacts.
+ */
+final class BenchmarkDataset implements AutoCloseable {
+
+    static final String[] FIRST_NAMES = { "Alice", "Bob", "Charlie", "Diana", "Ethan", "Fiona", "George", "Hannah", "Ivan", "Julia",
+                "Kevin", "Laura", "Michael", "Nina", "Oscar", "Paula" };
+
+    static final String[] LAST_NAMES = { "Smith", "Johnson", "Williams", "Brown", "Jones", "Miller", "Davis", "Wilson", "Moore",
+                "Taylor", "Anderson", "Thomas", "Jackson", "White", "Harris", "Martin" };
+
+    static final String[] STREETS = { "Main St", "Oak Ave", "Pine Rd", "Maple Ln", "Cedar St", "Elm Blvd", "Birch St", "Willow St" };
+
+    private static final long SEED = 42;
+
+    private static final long TENANT_SEED = 7;
+
+    private static final int INSERT_BATCH_SIZE = 10_000;
+
+    private final MongoServer mongoServer;
+
+    private final MongoClient mongoClient;
+
+    private final MongoTemplate mongoTemplate;
+
+    private BenchmarkDataset (MongoServer mongoServer, MongoClient mongoClient, MongoTemplate mongoTemplate) {
+        this.mongoServer = mongoServer;
+        this.mongoClient = mongoClient;
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    static BenchmarkDataset open (int contacts) {
+        return open(contacts, 1);
+    }
+
+    static BenchmarkDataset open (int contacts, int tenants) {
+        String uri = System.getProperty("benchmark.mongodb.uri", "mongodb://localhost:27017");
+        MongoServer mongoServer = null;
+        if ("memory".equals(uri)) {
+            mongoServer = new MongoServer(new MemoryBackend());
+            InetSocketAddress address = mongoServer.bind();
+            uri = "mongodb://" + address.getHostString() + ":" + address.getPort();
+        }
+        MongoClient mongoClient = MongoClients.create(uri);
+        MongoTemplate mongoTemplate = new MongoTemplate(mongoClient, "contacts_benchmark_" + contacts + (tenants > 1 ? "_" + tenants + "_tenants" : ""));
+        BenchmarkDataset dataset = new BenchmarkDataset(mongoServer, mongoClient, mongoTemplate);
+        // datasets seeded before the phone keys or the tenants existed are reseeded too
+        Contact first = mongoTemplate.findOne(new Query(), Contact.class);
+        if (first == null || first.getPhoneNormalized() == null || first.getTenantId() == null
+            || mongoTemplate.count(new Query(), Contact.class) != contacts) {
+            dataset.seed(contacts, tenants);
+        }
+        return dataset;
+    }
+
+    /**
+     * The {@code count} first contacts of the dataset, without storing them.
+     */
+    static List<Contact> generate (int count) {
+        return generate(count, 1);
+    }
+
+    static List<Contact> generate (int count, int tenants) {
+        Random random = new Random(SEED);
+        Random tenantRandom = new Random(TENANT_SEED);
+        double[] tenantShares = tenantShares(tenants);
+        List<Contact> contacts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Contact contact = contact(random, i);
+            contact.setTenantId(tenantId(tenantRandom, tenantShares));
+            contacts.add(contact);
+        }
+        return contacts;
+    }
+
+    /**
+     * The id of the tenant of the given rank, 1 being the largest.
+     */
+    static String tenantId (int rank) {
+        return rank == 1 ? TenantContext.DEFAULT_TENANT : "tenant-" + rank;
+    }
+
+    MongoTemplate mongoTemplate () {
+        return mongoTemplate;
+    }
+
+    ContactRepository contactRepository () {
+        ContactRepositoryImpl fragment = new ContactRepositoryImpl();
+        ReflectionTestUtils.setField(fragment, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(fragment, "searchMongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(fragment, "contactMetrics", contactMetrics());
+        return new MongoRepositoryFactory(mongoTemplate).getRepository(ContactRepository.class, RepositoryFragments.just(fragment));
+    }
+
+    /**
+     * The service as configured by default, with the cache bypassed so that every invocation measures the store.
+     */
+    ContactService contactService () {
+        ContactService contactService = new ContactService();
+        ReflectionTestUtils.setField(contactService, "contactRepository", contactRepository());
+        ReflectionTestUtils.setField(contactService, "contactCache", new ContactCache() {
+
+            @Override
+            public ContactsResponse getSearch (SearchKey key, Supplier<ContactsResponse> loader) {
+                return loader.get();
+            }
+        });
+        ReflectionTestUtils.setField(contactService, "eventPublisher", (ApplicationEventPublisher) event -> {
+        });
+        ReflectionTestUtils.setField(contactService, "contactMetrics", contactMetrics());
+        ReflectionTestUtils.setField(contactService, "maxPageSize", 10);
+        ReflectionTestUtils.setField(contactService, "maxBatchKeys", 1000);
+        ReflectionTestUtils.setField(contactService, "searchMode", SearchMode.NGRAM);
+        ReflectionTestUtils.setField(contactService, "countEstimateLimit", 1000L);
+        return contactService;
+    }
+
+    @Override
+    public void close () {
+        mongoClient.close();
+        if (mongoServer != null) {
+            mongoServer.shutdown();
+        }
+    }
+
+    private ContactMetrics contactMetrics () {
+        ContactMetrics contactMetrics = new ContactMetrics();
+        ReflectionTestUtils.setField(contactMetrics, "meterRegistry", new SimpleMeterRegistry());
+        return contactMetrics;
+    }
+
+    private void seed (int contacts, int tenants) {
+        mongoTemplate.dropCollection(Contact.class);
+        ensureIndexes();
+        Random random = new Random(SEED);
+        Random tenantRandom = new Random(TENANT_SEED);
+        double[] tenantShares = tenantShares(tenants);
+        List<Contact> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 0; i < contacts; i++) {
+            Contact contact = contact(random, i);
+            contact.setTenantId(tenantId(tenantRandom, tenantShares));
+            contact.setSearchTokens(SearchTokenizer.tokenize(contact));
+            contact.setPhoneNormalized(PhoneNumbers.normalize(contact.getPhone()));
+            contact.setPhoneReversed(PhoneNumbers.reversed(contact.getPhone()));
+            batch.add(contact);
+            if (batch.size() == INSERT_BATCH_SIZE) {
+                mongoTemplate.insert(batch, Contact.class);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            mongoTemplate.insert(batch, Contact.class);
+        }
+    }
+
+    // The n-gram, sort and phone indexes of TextIndexConfig, SortIndexConfig and PhoneIndexConfig, so queries get the plans they get in production
+    private void ensureIndexes () {
+        for (String field : List.of("searchTokens", "phoneNormalized", "phoneReversed")) {
+            mongoTemplate.indexOps(Contact.class).ensureIndex(new Index().on("tenantId", Sort.Direction.ASC).on(field, Sort.Direction.ASC));
+        }
+        for (String field : ContactService.ALLOWED_SORT_FIELDS) {
+            mongoTemplate.indexOps(Contact.class)
+                         .ensureIndex(new Index().on("tenantId", Sort.Direction.ASC).on(field, Sort.Direction.ASC).on("_id", Sort.Direction.ASC));
+        }
+    }
+
+    // Cumulative Zipf shares, the k-th tenant weighing 1/k
+    private static double[] tenantShares (int tenants) {
+        double[] shares = new double[tenants];
+        double total = 0;
+        for (int rank = 1; rank <= tenants; rank++) {
+            total += 1.0 / rank;
+            shares[rank - 1] = total;
+        }
+        for (int i = 0; i < tenants; i++) {
+            shares[i] /= total;
+        }
+        return shares;
+    }
+
+    private static String tenantId (Random random, double[] tenantShares) {
+        if (tenantShares.length == 1) {
+            return TenantContext.DEFAULT_TENANT;
+        }
+        int index = Arrays.binarySearch(tenantShares, random.nextDouble());
+        return tenantId((index < 0 ? -index - 1 : index) + 1);
+    }
+
+    private static Contact contact (Random random, int i) {
+        return new Contact(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + i,
+                           LAST_NAMES[random.nextInt(LAST_NAMES.length)],
+                           // the last seven digits come from i, so numbers stay unique under the per-tenant unique index
+                           String.format("%03d-%03d-%04d", random.nextInt(1000), i / 10_000 % 1000, i % 10_000),
+                           (1 + random.nextInt(999)) + " " + STREETS[random.nextInt(STREETS.length)]);
+    }
+}
@@ -0,0 +1,144 @@
+package com.personal.phonebook.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load against a running instance, to compare the servlet and the reactive stack under the same number of
+ * concurrent in-flight searches. Each of the {@code concurrency} virtual users issues its next request as soon as the
+ * previous one completes, so throughput and latency are measured at a fixed concurrency rather than a fixed rate.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.personal.phonebook.benchmark.LoadTest \
+ *     -Dbenchmark.args="http://localhost:8080/phonebook/contacts?query=smith 2000 60"
+ * </pre>
+ *
+ * Several comma separated urls are loaded one after the other and summarized side by side - for example the default build
+ * next to {@code -Preactive} started with the {@code reactive} profile, or a platform-thread instance next to one started
+ * with the {@code virtual-threads} profile.
+ */
+public class LoadTest {
+
+    private static final int MAX_RECORDED = 5_000_000;
+
+    public static void main (String[] args) throws InterruptedException {
+        String urls = args.length > 0 ? args[0] : "http://localhost:8080/phonebook/contacts?query=smith";
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        Duration duration = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 30);
+
+        List<Result> results = new ArrayList<>();
+        for (String url : urls.split(",")) {
+            Result result = run(URI.create(url), concurrency, duration);
+            System.out.println(result);
+            results.add(result);
+        }
+        if (results.size() > 1) {
+            System.out.printf("%n%-60s %12s %10s %10s %8s%n", "target", "req/s", "p50 ms", "p99 ms", "errors");
+            results.forEach(result -> System.out.printf("%-60s %12.1f %10.1f %10.1f %8d%n",
+                                                        result.uri(),
+                                                        result.throughput(),
+                                                        result.p50(),
+                                                        result.p99(),
+                                                        result.errors()));
+        }
+    }
+
+    private static Result run (URI uri, int concurrency, Duration duration) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(60)).GET().build();
+        long[] latencies = new long[MAX_RECORDED];
+        AtomicLong completed = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        long deadline = System.nanoTime() + duration.toNanos();
+        CountDownLatch done = new CountDownLatch(concurrency);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < concurrency; i++) {
+            new VirtualUser(client, request, deadline, latencies, completed, errors, done).next();
+        }
+        done.await(duration.toSeconds() + 120, TimeUnit.SECONDS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int recorded = (int) Math.min(completed.get(), MAX_RECORDED);
+        long[] sorted = Arrays.copyOf(latencies, recorded);
+        Arrays.sort(sorted);
+        return new Result(uri,
+                          concurrency,
+                          duration,
+                          completed.get(),
+                          errors.get(),
+                          completed.get() / seconds,
+                          percentile(sorted, 0.50),
+                          percentile(sorted, 0.99),
+                          recorded == 0 ? 0 : sorted[recorded - 1] / 1e6);
+    }
+
+    private static double percentile (long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)] / 1e6;
+    }
+
+    private record Result(URI uri,
+                          int concurrency,
+                          Duration duration,
+                          long requests,
+                          long errors,
+                          double throughput,
+                          double p50,
+                          double p99,
+                          double max) {
+
+        @Override
+        public String toString () {
+            return String.format("%s with %d concurrent requests for %ds%\nrequests: %d, errors: %d, throughput: %.1f req/s%\n"
+                        + "latency ms - p50: %.1f, p99: %.1f, max: %.1f",
+                                 uri,
+                                 concurrency,
+                                 duration.toSeconds(),
+                                 requests,
+                                 errors,
+                                 throughput,
+                                 p50,
+                                 p99,
+                                 max);
+        }
+    }
+
+    private record VirtualUser(HttpClient client,
+                               HttpRequest request,
+                               long deadline,
+                               long[] latencies,
+                               AtomicLong completed,
+                               AtomicLong errors,
+                               CountDownLatch done) {
+
+        void next () {
+            if (System.nanoTime() >= deadline) {
+                done.countDown();
+                return;
+            }
+            long sent = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete( (response, failure) -> {
+                long index = completed.getAndIncrement();
+                if (index < latencies.length) {
+                    latencies[(int) index] = System.nanoTime() - sent;
+                }
+                if (failure != null || response.statusCode() != 200) {
+                    errors.incrementAndGet();
+                }
+                next();
+            });
+        }
+    }
+}
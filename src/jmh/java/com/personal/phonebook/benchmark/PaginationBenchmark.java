@@ -0,0 +1,91 @@
+package com.personal.phonebook.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.personal.phonebook.controller.request.ContactSearchRequest;
+import com.personal.phonebook.controller.response.ContactsResponse;
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.pagination.ContactCursor;
+import com.personal.phonebook.service.ContactService;
+
+/**
+ * The same page at increasing depth into the listing, reached by page number (skipping every contact before it) and by
+ * cursor (seeking straight to it through the sort index). Neither counts the total, so only reaching the page is compared.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class PaginationBenchmark {
+
+    private static final int PAGE_SIZE = 10;
+
+    private static final String SORT_BY = "lastName";
+
+    @Param({ "10000", "1000000", "10000000" })
+    private int contacts;
+
+    // position of the page as a fraction of the whole listing
+    @Param({ "0.0", "0.5", "0.99" })
+    private double depth;
+
+    private BenchmarkDataset dataset;
+
+    private ContactService contactService;
+
+    private ContactSearchRequest offsetRequest;
+
+    private ContactSearchRequest cursorRequest;
+
+    @Setup(Level.Trial)
+    public void setup () {
+        dataset = BenchmarkDataset.open(contacts);
+        contactService = dataset.contactService();
+        int page = (int) (contacts / PAGE_SIZE * depth);
+        offsetRequest = new ContactSearchRequest(null, null, page, PAGE_SIZE, "ASC", SORT_BY, null, "none");
+        cursorRequest = new ContactSearchRequest(null, null, 0, PAGE_SIZE, "ASC", SORT_BY, cursorBefore(page), "none");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown () {
+        dataset.close();
+    }
+
+    @Benchmark
+    public ContactsResponse offsetPage () {
+        return contactService.searchContacts(offsetRequest);
+    }
+
+    @Benchmark
+    public ContactsResponse cursorPage () {
+        return contactService.searchContacts(cursorRequest);
+    }
+
+    // Cursor of the last contact on the page before, as a client walking the listing would hold it
+    private String cursorBefore (int page) {
+        if (page == 0) {
+            return null;
+        }
+        Query last = new Query().with(Sort.by(Sort.Direction.ASC, SORT_BY, "id")).skip((long) page * PAGE_SIZE - 1).limit(1);
+        Contact contact = dataset.mongoTemplate().findOne(last, Contact.class);
+        return ContactCursor.after(contact, SORT_BY, Sort.Direction.ASC).encode();
+    }
+}
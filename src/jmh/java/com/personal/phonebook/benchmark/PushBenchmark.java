@@ -0,0 +1,80 @@
+package com.personal.phonebook.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.personal.phonebook.event.ContactChangedEvent;
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.push.ContactChangeBroadcaster;
+import com.personal.phonebook.push.OverflowPolicy;
+import com.personal.phonebook.repository.ContactFilter;
+import com.personal.phonebook.search.SearchMode;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * One contact update fanned out to every push subscriber, spread over a number of distinct query filters, each subscriber
+ * taking its message as soon as it is buffered. Run with {@code -prof gc} to see what a broadcast allocates per subscriber.
+ * Needs no database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class PushBenchmark {
+
+    @Param({ "1000", "10000", "50000" })
+    private int subscribers;
+
+    @Param({ "1", "100" })
+    private int filters;
+
+    @Param({ "COALESCE", "DROP_OLDEST" })
+    private OverflowPolicy policy;
+
+    private ContactChangeBroadcaster broadcaster;
+
+    private ContactChangedEvent event;
+
+    @Setup(Level.Trial)
+    public void setup (Blackhole blackhole) {
+        broadcaster = new ContactChangeBroadcaster();
+        ReflectionTestUtils.setField(broadcaster, "bufferSize", 256);
+        ReflectionTestUtils.setField(broadcaster, "objectMapper", Jackson2ObjectMapperBuilder.json().build());
+        ReflectionTestUtils.setField(broadcaster, "meterRegistry", new SimpleMeterRegistry());
+        broadcaster.init();
+        for (int i = 0; i < subscribers; i++) {
+            // every filter matches the contact, so every subscriber gets the update
+            ContactFilter filter = filters == 1 ? ContactFilter.all() : ContactFilter.matching("smith|" + (i % filters), SearchMode.REGEX);
+            broadcaster.subscribe(filter, policy, subscriber -> subscriber.drain( () -> true, blackhole::consume), () -> {});
+        }
+        Contact previous = BenchmarkDataset.generate(1).get(0);
+        previous.setLastName("Smith");
+        Contact current = BenchmarkDataset.generate(1).get(0);
+        current.setId(previous.getId());
+        current.setLastName("Smithson");
+        event = new ContactChangedEvent(previous, current);
+    }
+
+    @Benchmark
+    public void broadcastUpdate () {
+        broadcaster.onContactChanged(event);
+    }
+}
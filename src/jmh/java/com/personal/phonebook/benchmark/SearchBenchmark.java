@@ -0,0 +1,76 @@
+package com.personal.phonebook.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.repository.ContactRepository;
+import com.personal.phonebook.search.SearchTokenizer;
+
+/**
+ * Regex scan vs. n-gram token lookup for the same queries, on a {@link BenchmarkDataset}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({ "100000" })
+    private int contacts;
+
+    @Param({ "ali", "smi", "oak av", "555-01" })
+    private String query;
+
+    private BenchmarkDataset dataset;
+
+    private ContactRepository contactRepository;
+
+    private Pageable firstPage;
+
+    private List<String> queryTokens;
+
+    @Setup(Level.Trial)
+    public void setup () {
+        dataset = BenchmarkDataset.open(contacts);
+        contactRepository = dataset.contactRepository();
+        firstPage = PageRequest.of(0, 10, Sort.by("firstName"));
+        queryTokens = SearchTokenizer.queryTokens(query);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown () {
+        dataset.close();
+    }
+
+    @Benchmark
+    public Page<Contact> regexSearch () {
+        return contactRepository.searchContacts(query, firstPage);
+    }
+
+    @Benchmark
+    public Page<Contact> tokenSearch () {
+        return queryTokens.size() == 1 ? contactRepository.searchByToken(queryTokens.get(0), firstPage)
+                                       : contactRepository.searchByTokens(queryTokens, query, firstPage);
+    }
+}
@@ -0,0 +1,70 @@
+package com.personal.phonebook.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.personal.phonebook.controller.request.ContactSearchRequest;
+import com.personal.phonebook.controller.response.ContactsResponse;
+import com.personal.phonebook.service.ContactService;
+
+/**
+ * First page of {@link ContactService#searchContacts(ContactSearchRequest)}, including the exact total count, for every sort
+ * field and direction - listing everything and searching by a short and a multi-token query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class SearchContactsBenchmark {
+
+    @Param({ "10000", "1000000", "10000000" })
+    private int contacts;
+
+    // empty lists all contacts
+    @Param({ "", "smi", "oak av" })
+    private String query;
+
+    @Param({ "firstName", "lastName", "address" })
+    private String sortBy;
+
+    @Param({ "ASC", "DESC" })
+    private String direction;
+
+    private BenchmarkDataset dataset;
+
+    private ContactService contactService;
+
+    private ContactSearchRequest request;
+
+    @Setup(Level.Trial)
+    public void setup () {
+        dataset = BenchmarkDataset.open(contacts);
+        contactService = dataset.contactService();
+        request = new ContactSearchRequest(query.isEmpty() ? null : query, null, 0, 10, direction, sortBy, null, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown () {
+        dataset.close();
+    }
+
+    @Benchmark
+    public ContactsResponse searchContacts () {
+        return contactService.searchContacts(request);
+    }
+}
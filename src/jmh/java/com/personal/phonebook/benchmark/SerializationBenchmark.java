@@ -0,0 +1,52 @@
+package com.personal.phonebook.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.personal.phonebook.controller.response.ContactsResponse;
+
+/**
+ * JSON serialization of a {@link ContactsResponse} by an object mapper configured the way Spring Boot configures the one
+ * that writes responses. Needs no database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    private int contacts;
+
+    private ObjectMapper objectMapper;
+
+    private ContactsResponse response;
+
+    @Setup(Level.Trial)
+    public void setup () {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        response = new ContactsResponse(BenchmarkDataset.generate(contacts), 1_000_000L, false, "Y3Vyc29y");
+    }
+
+    @Benchmark
+    public byte[] serializeResponse () throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,125 @@
+package com.personal.phonebook.benchmark;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import com.personal.phonebook.metrics.ContactMetrics;
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.repository.ContactRepository;
+import com.personal.phonebook.repository.InMemoryContactRepository;
+import com.personal.phonebook.repository.MappedContactRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * The storage engines behind {@link ContactRepository}: MongoDB through {@link BenchmarkDataset}, and the {@code memory} and
+ * {@code mapped} engines opened on a directory under {@code target/benchmark-storage}. Like the MongoDB datasets, the files
+ * of each engine and size are kept and only rewritten when their count is off.
+ */
+final class StorageEngine implements AutoCloseable {
+
+    private static final Path STORAGE = Path.of("target", "benchmark-storage");
+
+    private static final int INSERT_BATCH_SIZE = 10_000;
+
+    private final BenchmarkDataset dataset;
+
+    private final ContactRepository contactRepository;
+
+    private StorageEngine (BenchmarkDataset dataset, ContactRepository contactRepository) {
+        this.dataset = dataset;
+        this.contactRepository = contactRepository;
+    }
+
+    /**
+     * Opens the engine over a store of the given size, seeding the store first when it does not hold that many contacts.
+     */
+    static StorageEngine open (String engine, int contacts) {
+        return open(engine, contacts, 1);
+    }
+
+    /**
+     * Opens the engine over a store of the given size spread over the given number of tenants, see {@link BenchmarkDataset}.
+     */
+    static StorageEngine open (String engine, int contacts, int tenants) {
+        StorageEngine storageEngine = openExisting(engine, contacts, tenants);
+        if (storageEngine.contactRepository.count() != contacts) {
+            storageEngine.seed(contacts, tenants);
+        }
+        return storageEngine;
+    }
+
+    /**
+     * Opens the engine over whatever its store holds, as the application does at startup.
+     */
+    static StorageEngine openExisting (String engine, int contacts) {
+        return openExisting(engine, contacts, 1);
+    }
+
+    private static StorageEngine openExisting (String engine, int contacts, int tenants) {
+        return switch (engine) {
+            case "mongo" -> {
+                BenchmarkDataset dataset = BenchmarkDataset.open(contacts, tenants);
+                yield new StorageEngine(dataset, dataset.contactRepository());
+            }
+            case "memory" -> {
+                InMemoryContactRepository repository = new InMemoryContactRepository();
+                ReflectionTestUtils.setField(repository, "contactMetrics", contactMetrics());
+                ReflectionTestUtils.setField(repository, "directory", directory(engine, contacts, tenants).toString());
+                ReflectionTestUtils.setField(repository, "snapshotAfter", 100_000L);
+                repository.init();
+                yield new StorageEngine(null, repository);
+            }
+            case "mapped" -> {
+                MappedContactRepository repository = new MappedContactRepository();
+                ReflectionTestUtils.setField(repository, "contactMetrics", contactMetrics());
+                ReflectionTestUtils.setField(repository, "directory", directory(engine, contacts, tenants).toString());
+                ReflectionTestUtils.setField(repository, "segmentSize", DataSize.ofMegabytes(64));
+                ReflectionTestUtils.setField(repository, "compactionThreshold", 0.5);
+                ReflectionTestUtils.setField(repository, "compactionInterval", Duration.ofMinutes(1));
+                repository.init();
+                yield new StorageEngine(null, repository);
+            }
+            default -> throw new IllegalArgumentException("Unknown storage engine " + engine);
+        };
+    }
+
+    ContactRepository contactRepository () {
+        return contactRepository;
+    }
+
+    @Override
+    public void close () {
+        if (dataset != null) {
+            dataset.close();
+        }
+        else if (contactRepository instanceof InMemoryContactRepository memory) {
+            memory.close();
+        }
+        else if (contactRepository instanceof MappedContactRepository mapped) {
+            mapped.close();
+        }
+    }
+
+    private static Path directory (String engine, int contacts, int tenants) {
+        return STORAGE.resolve(engine + "-" + contacts + (tenants > 1 ? "-" + tenants + "-tenants" : ""));
+    }
+
+    private void seed (int contacts, int tenants) {
+        contactRepository.deleteAll();
+        List<Contact> all = BenchmarkDataset.generate(contacts, tenants);
+        for (int from = 0; from < contacts; from += INSERT_BATCH_SIZE) {
+            contactRepository.bulkInsert(all.subList(from, Math.min(contacts, from + INSERT_BATCH_SIZE)));
+        }
+    }
+
+    private static ContactMetrics contactMetrics () {
+        ContactMetrics contactMetrics = new ContactMetrics();
+        ReflectionTestUtils.setField(contactMetrics, "meterRegistry", new SimpleMeterRegistry());
+        return contactMetrics;
+    }
+}
@@ -0,0 +1,85 @@
+package com.personal.phonebook.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.repository.ContactRepository;
+
+/**
+ * Reads and writes of single contacts through each storage engine: a lookup by id and an update of a whole contact, both
+ * cycling through the same sample of contacts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class StorageEngineBenchmark {
+
+    private static final int SAMPLE_SIZE = 1000;
+
+    @Param({ "mongo", "memory", "mapped" })
+    private String engine;
+
+    @Param({ "10000", "1000000" })
+    private int contacts;
+
+    private StorageEngine storageEngine;
+
+    private ContactRepository contactRepository;
+
+    private Contact[] sample;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup () {
+        storageEngine = StorageEngine.open(engine, contacts);
+        contactRepository = storageEngine.contactRepository();
+        List<Contact> first = contactRepository.findAll(PageRequest.of(0, SAMPLE_SIZE)).getContent();
+        sample = first.toArray(Contact[]::new);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown () {
+        storageEngine.close();
+    }
+
+    @Benchmark
+    public Contact findById () {
+        return contactRepository.findById(nextContact().getId()).orElseThrow();
+    }
+
+    // the saved contact carries the new version, so it is kept for the next update of the same id
+    @Benchmark
+    public Contact save () {
+        int index = next;
+        Contact contact = nextContact();
+        contact.setAddress(contact.getAddress() == null ? "1 Main St" : null);
+        sample[index] = contactRepository.save(contact);
+        return sample[index];
+    }
+
+    private Contact nextContact () {
+        Contact contact = sample[next];
+        next = (next + 1) % sample.length;
+        return contact;
+    }
+}
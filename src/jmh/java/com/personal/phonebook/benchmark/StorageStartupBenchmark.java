@@ -0,0 +1,54 @@
+package com.personal.phonebook.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time from opening a storage engine over an existing store to its first answer: connecting for MongoDB, loading the
+ * snapshot for the {@code memory} engine, and mapping the segments and rebuilding the indexes for the {@code mapped} one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StorageStartupBenchmark {
+
+    @Param({ "mongo", "memory", "mapped" })
+    private String engine;
+
+    @Param({ "10000", "1000000" })
+    private int contacts;
+
+    private StorageEngine opened;
+
+    @Setup(Level.Trial)
+    public void setup () {
+        StorageEngine.open(engine, contacts).close();
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeOpened () {
+        opened.close();
+    }
+
+    @Benchmark
+    public long open () {
+        opened = StorageEngine.openExisting(engine, contacts);
+        return opened.contactRepository().count();
+    }
+}
@@ -0,0 +1,101 @@
+package com.personal.phonebook.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Sort;
+
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.repository.ContactFilter;
+import com.personal.phonebook.repository.ContactRepository;
+import com.personal.phonebook.search.SearchMode;
+import com.personal.phonebook.tenant.Tenant;
+import com.personal.phonebook.tenant.TenantContext;
+
+/**
+ * Searches confined to one tenant of a store shared by tenants of Zipf-distributed sizes, for the largest tenant, the
+ * median one and the smallest one. With the tenant leading every index, the cost of a search follows the size of the
+ * tenant rather than the size of the store, which the spread between the three shows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class TenantBenchmark {
+
+    private static final Sort SORT = Sort.by("lastName").and(Sort.by("id"));
+
+    @Param({ "mongo", "memory" })
+    private String engine;
+
+    @Param({ "1000000" })
+    private int contacts;
+
+    @Param({ "100" })
+    private int tenants;
+
+    @Param({ "largest", "median", "smallest" })
+    private String tenant;
+
+    private StorageEngine storageEngine;
+
+    private ContactRepository contactRepository;
+
+    private Tenant scope;
+
+    @Setup(Level.Trial)
+    public void setup () {
+        storageEngine = StorageEngine.open(engine, contacts, tenants);
+        contactRepository = storageEngine.contactRepository();
+        int rank = switch (tenant) {
+            case "largest" -> 1;
+            case "median" -> (tenants + 1) / 2;
+            case "smallest" -> tenants;
+            default -> throw new IllegalArgumentException("Unknown tenant " + tenant);
+        };
+        scope = new Tenant(BenchmarkDataset.tenantId(rank), TenantContext.COLLECTION, null, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown () {
+        storageEngine.close();
+    }
+
+    @Benchmark
+    public List<Contact> firstPage () {
+        return TenantContext.callAs(scope, () -> contactRepository.findContacts(ContactFilter.all(), null, 0, SORT, 10));
+    }
+
+    @Benchmark
+    public List<Contact> tokenSearch () {
+        return TenantContext.callAs(scope,
+                                    () -> contactRepository.findContacts(ContactFilter.matching("smi", SearchMode.NGRAM), null, 0, SORT, 10));
+    }
+
+    // the unindexed regex has to look at every contact of the tenant, and only those
+    @Benchmark
+    public List<Contact> substringSearch () {
+        return TenantContext.callAs(scope,
+                                    () -> contactRepository.findContacts(ContactFilter.matching("oak a", SearchMode.REGEX), null, 0, SORT, 10));
+    }
+
+    @Benchmark
+    public long count () {
+        return TenantContext.callAs(scope, () -> contactRepository.countContacts(ContactFilter.all(), 0));
+    }
+}
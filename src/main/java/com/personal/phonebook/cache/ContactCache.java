@@ -0,0 +1,168 @@
+package com.personal.phonebook.cache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.personal.phonebook.controller.response.ContactsResponse;
+import com.personal.phonebook.event.ContactChangedEvent;
+import com.personal.phonebook.event.ContactsImportedEvent;
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.search.SearchMode;
+import com.personal.phonebook.tenant.TenantContext;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded in-process read-through cache for contact listings and single contacts. Entries expire after a fixed time, which
+ * also bounds how long writes made outside this instance stay invisible. Writes made through this instance invalidate
+ * precisely: a listing is only dropped when the changed contact matches (or matched) its query.
+ */
+@Slf4j
+@Component
+public class ContactCache {
+
+    @Value("${phonebook.cache.search.max-size:1000}")
+    private long searchMaxSize;
+
+    @Value("${phonebook.cache.search.ttl:30s}")
+    private Duration searchTtl;
+
+    @Value("${phonebook.cache.contact.max-size:10000}")
+    private long contactMaxSize;
+
+    @Value("${phonebook.cache.contact.ttl:5m}")
+    private Duration contactTtl;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // bumped before every invalidation, a load that overlaps one is not kept
+    private final AtomicLong generation = new AtomicLong();
+
+    private Cache<SearchKey, ContactsResponse> searches;
+
+    private Cache<String, Contact> contacts;
+
+    @PostConstruct
+    public void init () {
+        searches = Caffeine.newBuilder().maximumSize(searchMaxSize).expireAfterWrite(searchTtl).recordStats().build();
+        contacts = Caffeine.newBuilder().maximumSize(contactMaxSize).expireAfterWrite(contactTtl).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, searches, "contactSearches");
+        CaffeineCacheMetrics.monitor(meterRegistry, contacts, "contacts");
+        log.info("Contact cache enabled - searches: {} entries for {}, contacts: {} entries for {}",
+                 searchMaxSize,
+                 searchTtl,
+                 contactMaxSize,
+                 contactTtl);
+    }
+
+    public ContactsResponse getSearch (SearchKey key, Supplier<ContactsResponse> loader) {
+        return readThrough(searches, key, loader);
+    }
+
+    /**
+     * The contact with this id of the current tenant.
+     */
+    public Contact getContact (String id, Supplier<Contact> loader) {
+        return readThrough(contacts, contactKey(TenantContext.tenantId(), id), loader);
+    }
+
+    /**
+     * The contacts of the current tenant with these ids, keyed by id. Only the ids that are not cached are handed to
+     * {@code loader}, all at once; ids it returns no contact for are left out.
+     */
+    public Map<String, Contact> getContacts (Collection<String> ids, Function<Collection<String>, List<Contact>> loader) {
+        String tenantId = TenantContext.tenantId();
+        Map<String, Contact> found = new HashMap<>();
+        contacts.getAllPresent(ids.stream().map(id -> contactKey(tenantId, id)).toList())
+                .values()
+                .forEach(contact -> found.put(contact.getId(), contact));
+        List<String> missing = ids.stream().filter(id -> !found.containsKey(id)).toList();
+        if (missing.isEmpty()) {
+            return found;
+        }
+        long observed = generation.get();
+        List<Contact> loaded = loader.apply(missing);
+        loaded.forEach(contact -> {
+            contacts.put(contactKey(tenantId, contact.getId()), contact);
+            found.put(contact.getId(), contact);
+        });
+        // as in readThrough, entries loaded across an invalidation are not kept
+        if (generation.get() != observed) {
+            contacts.invalidateAll(missing.stream().map(id -> contactKey(tenantId, id)).toList());
+        }
+        return found;
+    }
+
+    /**
+     * The cached contact of the current tenant, or null - never loads.
+     */
+    public Contact peekContact (String id) {
+        return contacts.getIfPresent(contactKey(TenantContext.tenantId(), id));
+    }
+
+    @EventListener
+    public void onContactChanged (ContactChangedEvent event) {
+        generation.incrementAndGet();
+        Contact changed = event.getCurrent() != null ? event.getCurrent() : event.getPrevious();
+        contacts.invalidate(contactKey(TenantContext.tenantIdOf(changed), event.getId()));
+        searches.asMap().keySet().removeIf(key -> affects(key, event.getPrevious()) || affects(key, event.getCurrent()));
+    }
+
+    @EventListener
+    public void onContactsImported (ContactsImportedEvent event) {
+        // matching every cached query against a whole batch costs more than refilling the cache
+        generation.incrementAndGet();
+        searches.invalidateAll();
+    }
+
+    public void invalidateAll () {
+        generation.incrementAndGet();
+        searches.invalidateAll();
+        contacts.invalidateAll();
+    }
+
+    // ids are only unique within a tenant's namespace once tenants can live in separate collections or databases
+    private static String contactKey (String tenantId, String id) {
+        return tenantId + ":" + id;
+    }
+
+    private <K, V> V readThrough (Cache<K, V> cache, K key, Supplier<V> loader) {
+        V cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long observed = generation.get();
+        V loaded = loader.get();
+        cache.put(key, loaded);
+        // checked after the put, so an invalidation either sees the entry or is seen here
+        if (generation.get() != observed) {
+            cache.invalidate(key);
+        }
+        return loaded;
+    }
+
+    private static boolean affects (SearchKey key, Contact contact) {
+        if (contact == null || !key.getTenantId().equals(TenantContext.tenantIdOf(contact))) {
+            return false;
+        }
+        // full-text hits are stemmed whole words, whether a contact matches is only known to the text index
+        return key.getFilter().getMode() == SearchMode.TEXT || key.getFilter().matches(contact);
+    }
+}
@@ -0,0 +1,32 @@
+package com.personal.phonebook.cache;
+
+import org.springframework.data.domain.Sort;
+
+import com.personal.phonebook.pagination.TotalCountMode;
+import com.personal.phonebook.repository.ContactFilter;
+
+import lombok.Value;
+
+/**
+ * A validated contact listing request with every default resolved, so equivalent requests share one cache entry. Equal
+ * requests of different tenants list different contacts, so the tenant is part of the key.
+ */
+@Value
+public class SearchKey {
+
+    String tenantId;
+
+    ContactFilter filter;
+
+    int page;
+
+    int size;
+
+    Sort.Direction direction;
+
+    String sortBy;
+
+    String cursor;
+
+    TotalCountMode totalCountMode;
+}
@@ -0,0 +1,49 @@
+package com.personal.phonebook.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+
+import com.personal.phonebook.tenant.Tenant;
+import com.personal.phonebook.tenant.TenantContext;
+import com.personal.phonebook.tenant.TenantNamespaceInitializer;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Indexes on the folded form of the searchable fields within a tenant. A substring regex reads the index keys instead of the
+ * contacts, and an anchored one only a range of them. The index on the search version finds the contacts the backfill still
+ * has to fold.
+ */
+@Slf4j
+@Configuration
+@Profile("!memory & !mapped")
+public class FoldedFieldIndexConfig implements TenantNamespaceInitializer {
+
+    private static final String[] INDEXED_FIELDS = { "firstNameFolded", "lastNameFolded", "phoneFolded", "addressFolded", "searchVersion" };
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @PostConstruct
+    public void initIndices () {
+        ensureIndexes(mongoTemplate.indexOps(TenantContext.collection()));
+        log.info("Successfully created folded field indexes for contacts collection on fields: tenantId, {}", String.join(", ", INDEXED_FIELDS));
+    }
+
+    @Override
+    public void initialize (Tenant tenant) {
+        TenantContext.runAs(tenant, () -> ensureIndexes(mongoTemplate.indexOps(tenant.getCollection())));
+    }
+
+    private static void ensureIndexes (IndexOperations indexOps) {
+        for (String field : INDEXED_FIELDS) {
+            indexOps.ensureIndex(new Index().on("tenantId", Sort.Direction.ASC).on(field, Sort.Direction.ASC));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.personal.phonebook.config;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Removal of indexes that newer ones replace, so a collection indexed by an older version does not keep maintaining both.
+ * The index documents are read as they are rather than through IndexInfo, which only parses text indexes as MongoDB itself
+ * lists them.
+ */
+@Slf4j
+final class IndexMigrations {
+
+    private IndexMigrations () {
+    }
+
+    /**
+     * Drops the index on exactly these fields, in any order, if there is one. A text index is on the fields it weighs.
+     */
+    static void dropIndexOn (MongoTemplate mongoTemplate, String collection, List<String> fields) {
+        dropIndexOn(mongoTemplate, collection, fields, index -> true);
+    }
+
+    /**
+     * Drops the index on exactly these fields, in any order, if there is one and it is {@code replaced} - an index whose
+     * options changed has to go before the new one can be created on the same fields.
+     */
+    static void dropIndexOn (MongoTemplate mongoTemplate, String collection, List<String> fields, Predicate<Document> replaced) {
+        Set<String> wanted = Set.copyOf(fields);
+        for (Document index : mongoTemplate.getCollection(collection).listIndexes()) {
+            Set<String> indexed = new HashSet<>(index.get("key", Document.class).keySet());
+            if (indexed.remove("_fts")) {
+                indexed.remove("_ftsx");
+                Document weights = index.get("weights", Document.class);
+                if (weights != null) {
+                    indexed.addAll(weights.keySet());
+                }
+            }
+            if (indexed.equals(wanted) && replaced.test(index)) {
+                mongoTemplate.indexOps(collection).dropIndex(index.getString("name"));
+                log.info("Dropped index {}, replaced by a newer one", index.getString("name"));
+            }
+        }
+    }
+}
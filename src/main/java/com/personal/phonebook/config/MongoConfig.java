@@ -1,27 +1,206 @@
 package com.personal.phonebook.config;
 
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import org.springframework.util.ClassUtils;
 
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import com.mongodb.ReadPreference;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolListener;
+import com.personal.phonebook.tenant.TenantContext;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Client built from {@code spring.data.mongodb.uri} and {@link PhonebookMongoProperties}. Spring Boot's settings customizers
+ * are applied as well, which registers the driver's connection pool and command metrics.
+ */
+@Slf4j
 @Configuration
+@Profile("!memory & !mapped")
+@EnableConfigurationProperties(PhonebookMongoProperties.class)
 public class MongoConfig {
 
     @Value("${spring.data.mongodb.uri:mongodb://mongodb:27017/contacts}")
     private String mongoUri;
 
+    @Autowired
+    private PhonebookMongoProperties properties;
+
+    @Autowired
+    private ObjectProvider<MongoClientSettingsBuilderCustomizer> customizers;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Bean
+    public MongoClientSettings mongoClientSettings () {
+        MongoClientSettings.Builder builder = MongoClientSettings.builder().applyConnectionString(new ConnectionString(mongoUri));
+        builder.applyToSocketSettings(socket -> {
+            if (properties.getConnectTimeout() != null) {
+                socket.connectTimeout(properties.getConnectTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            }
+            if (properties.getSocketTimeout() != null) {
+                socket.readTimeout(properties.getSocketTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            }
+        });
+        if (properties.getServerSelectionTimeout() != null) {
+            builder.applyToClusterSettings(cluster -> cluster.serverSelectionTimeout(properties.getServerSelectionTimeout().toMillis(),
+                                                                                     TimeUnit.MILLISECONDS));
+        }
+        PhonebookMongoProperties.Pool pool = properties.getPool();
+        builder.applyToConnectionPoolSettings(settings -> {
+            settings.addConnectionPoolListener(new CheckoutTimer(meterRegistry));
+            if (pool.getMaxSize() != null) {
+                settings.maxSize(pool.getMaxSize());
+            }
+            if (pool.getMinSize() != null) {
+                settings.minSize(pool.getMinSize());
+            }
+            if (pool.getMaxWaitTime() != null) {
+                settings.maxWaitTime(pool.getMaxWaitTime().toMillis(), TimeUnit.MILLISECONDS);
+            }
+            if (pool.getMaxConnecting() != null) {
+                settings.maxConnecting(pool.getMaxConnecting());
+            }
+            if (pool.getMaxConnectionIdleTime() != null) {
+                settings.maxConnectionIdleTime(pool.getMaxConnectionIdleTime().toMillis(), TimeUnit.MILLISECONDS);
+            }
+            if (pool.getMaxConnectionLifeTime() != null) {
+                settings.maxConnectionLifeTime(pool.getMaxConnectionLifeTime().toMillis(), TimeUnit.MILLISECONDS);
+            }
+        });
+        if (!properties.getCompressors().isEmpty()) {
+            builder.compressorList(compressors(properties.getCompressors()));
+        }
+        customizers.orderedStream().forEach(customizer -> customizer.customize(builder));
+        MongoClientSettings settings = builder.build();
+        log.info("MongoDB client settings - pool: {}, compressors: {}, search reads: {}",
+                 settings.getConnectionPoolSettings(),
+                 settings.getCompressorList(),
+                 searchReadPreference(properties.getSearch()));
+        return settings;
+    }
+
     @Bean
     public MongoClient mongoClient () {
-        return MongoClients.create(mongoUri);
+        return MongoClients.create(mongoClientSettings());
     }
 
     @Bean
+    @Primary
     public MongoTemplate mongoTemplate () {
-        return new MongoTemplate(new SimpleMongoClientDatabaseFactory(mongoClient(), "contacts"));
+        return new MongoTemplate(new TenantDatabaseFactory(mongoClient(), properties.getDatabase()));
+    }
+
+    /**
+     * Template for listing, search, count and export reads, routed by {@code phonebook.mongodb.search}.
+     */
+    @Bean
+    public MongoTemplate searchMongoTemplate () {
+        MongoTemplate template = new MongoTemplate(new TenantDatabaseFactory(mongoClient(), properties.getDatabase()));
+        template.setReadPreference(searchReadPreference(properties.getSearch()));
+        return template;
+    }
+
+    static ReadPreference searchReadPreference (PhonebookMongoProperties.Search search) {
+        if (search.getMaxStaleness() == null) {
+            return ReadPreference.valueOf(search.getReadPreference());
+        }
+        return ReadPreference.valueOf(search.getReadPreference(), List.of(), search.getMaxStaleness().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    static List<MongoCompressor> compressors (List<String> names) {
+        return names.stream().map(name -> switch (name.toLowerCase()) {
+            case "zstd" -> {
+                requireCodec("com.github.luben.zstd.Zstd", name);
+                yield MongoCompressor.createZstdCompressor();
+            }
+            case "snappy" -> {
+                requireCodec("org.xerial.snappy.Snappy", name);
+                yield MongoCompressor.createSnappyCompressor();
+            }
+            case "zlib" -> MongoCompressor.createZlibCompressor();
+            default -> throw new IllegalArgumentException(String.format("Unsupported compressor '%s'. Allowed values are: [zstd, snappy, zlib]",
+                                                                        name));
+        }).toList();
+    }
+
+    private static void requireCodec (String className, String compressor) {
+        if (!ClassUtils.isPresent(className, MongoConfig.class.getClassLoader())) {
+            throw new IllegalStateException(String.format("Compressor '%s' needs %s on the classpath", compressor, className));
+        }
+    }
+
+    // The database of the current tenant, the configured one unless tenants are kept in databases of their own
+    private static class TenantDatabaseFactory extends SimpleMongoClientDatabaseFactory {
+
+        TenantDatabaseFactory (MongoClient mongoClient, String databaseName) {
+            super(mongoClient, databaseName);
+        }
+
+        @Override
+        public MongoDatabase getMongoDatabase () throws DataAccessException {
+            String database = TenantContext.current().getDatabase();
+            return database == null ? super.getMongoDatabase() : getMongoDatabase(database);
+        }
+    }
+
+    // Time spent waiting for a pooled connection, the first thing to grow when the pool is too small for the load. Every timer is
+    // registered up front, a checkout is too frequent to look one up in the registry each time.
+    private static final class CheckoutTimer implements ConnectionPoolListener {
+
+        private final Timer success;
+
+        private final Map<ConnectionCheckOutFailedEvent.Reason, Timer> failures = new EnumMap<>(ConnectionCheckOutFailedEvent.Reason.class);
+
+        CheckoutTimer (MeterRegistry meterRegistry) {
+            success = timer(meterRegistry, "success");
+            for (ConnectionCheckOutFailedEvent.Reason reason : ConnectionCheckOutFailedEvent.Reason.values()) {
+                failures.put(reason, timer(meterRegistry, reason.name().toLowerCase(Locale.ROOT)));
+            }
+        }
+
+        @Override
+        public void connectionCheckedOut (ConnectionCheckedOutEvent event) {
+            success.record(event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void connectionCheckOutFailed (ConnectionCheckOutFailedEvent event) {
+            failures.get(event.getReason()).record(event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        }
+
+        private static Timer timer (MeterRegistry meterRegistry, String outcome) {
+            return Timer.builder("phonebook.mongodb.pool.checkout")
+                        .description("Time spent waiting to check a connection out of the MongoDB pool")
+                        .tag("outcome", outcome)
+                        .register(meterRegistry);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,45 @@
+package com.personal.phonebook.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+
+import com.personal.phonebook.tenant.Tenant;
+import com.personal.phonebook.tenant.TenantContext;
+import com.personal.phonebook.tenant.TenantNamespaceInitializer;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Multikey indexes behind the fuzzy search, one per name: the phonetic codes and trigrams of the name within a tenant. A
+ * fuzzy query reads the union of both.
+ */
+@Slf4j
+@Configuration
+@Profile("!memory & !mapped")
+public class NameKeyIndexConfig implements TenantNamespaceInitializer {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @PostConstruct
+    public void initIndices () {
+        ensureIndexes(mongoTemplate.indexOps(TenantContext.collection()));
+        log.info("Successfully created name key indexes for contacts collection on fields: tenantId, firstNameKeys, lastNameKeys");
+    }
+
+    @Override
+    public void initialize (Tenant tenant) {
+        TenantContext.runAs(tenant, () -> ensureIndexes(mongoTemplate.indexOps(tenant.getCollection())));
+    }
+
+    private static void ensureIndexes (IndexOperations indexOps) {
+        indexOps.ensureIndex(new Index().on("tenantId", Sort.Direction.ASC).on("firstNameKeys", Sort.Direction.ASC));
+        indexOps.ensureIndex(new Index().on("tenantId", Sort.Direction.ASC).on("lastNameKeys", Sort.Direction.ASC));
+    }
+}
@@ -0,0 +1,72 @@
+package com.personal.phonebook.config;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+
+import com.personal.phonebook.tenant.Tenant;
+import com.personal.phonebook.tenant.TenantContext;
+import com.personal.phonebook.tenant.TenantNamespaceInitializer;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Indexes behind the reverse phone lookups: exact matches on the normalized number and suffix matches as prefix ranges of
+ * the reversed digits, both within a tenant. The normalized number is unique within a tenant, so a number identifies a single
+ * contact - only contacts that have one are indexed, a phone without digits normalizes to nothing. The non-unique index of
+ * earlier versions is replaced; while the collection still holds duplicate numbers the unique index cannot be built, the
+ * non-unique one is kept meanwhile and the next startup tries again.
+ */
+@Slf4j
+@Configuration
+@Profile("!memory & !mapped")
+public class PhoneIndexConfig implements TenantNamespaceInitializer {
+
+    private static final String TENANT_ID = "tenantId";
+
+    public static final String PHONE_NORMALIZED = "phoneNormalized";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @PostConstruct
+    public void initIndices () {
+        IndexOperations indexOps = mongoTemplate.indexOps(TenantContext.collection());
+        IndexMigrations.dropIndexOn(mongoTemplate, TenantContext.collection(), List.of("phoneNormalized"));
+        IndexMigrations.dropIndexOn(mongoTemplate, TenantContext.collection(), List.of("phoneReversed"));
+        IndexMigrations.dropIndexOn(mongoTemplate, TenantContext.collection(), List.of(TENANT_ID, PHONE_NORMALIZED), index -> !index.getBoolean("unique", false));
+        ensureIndexes(indexOps);
+        log.info("Successfully created phone lookup indexes for contacts collection on fields: tenantId, phoneNormalized, phoneReversed");
+    }
+
+    @Override
+    public void initialize (Tenant tenant) {
+        TenantContext.runAs(tenant, () -> ensureIndexes(mongoTemplate.indexOps(tenant.getCollection())));
+    }
+
+    private static void ensureIndexes (IndexOperations indexOps) {
+        try {
+            indexOps.ensureIndex(new Index().on(TENANT_ID, Sort.Direction.ASC)
+                                            .on(PHONE_NORMALIZED, Sort.Direction.ASC)
+                                            .unique()
+                                            .partial(PartialIndexFilter.of(where(PHONE_NORMALIZED).type(JsonSchemaObject.Type.STRING))));
+        }
+        catch (DuplicateKeyException e) {
+            log.error("Phone numbers are not unique within a tenant yet, resolve the duplicates to get the unique phone index: {}", e.getMessage());
+            indexOps.ensureIndex(new Index().on(TENANT_ID, Sort.Direction.ASC).on(PHONE_NORMALIZED, Sort.Direction.ASC));
+        }
+        indexOps.ensureIndex(new Index().on(TENANT_ID, Sort.Direction.ASC).on("phoneReversed", Sort.Direction.ASC));
+    }
+}
@@ -0,0 +1,65 @@
+package com.personal.phonebook.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Client settings applied on top of {@code spring.data.mongodb.uri}. An unset value keeps what the uri says, or the driver
+ * default.
+ */
+@Data
+@ConfigurationProperties("phonebook.mongodb")
+public class PhonebookMongoProperties {
+
+    private String database = "contacts";
+
+    private Duration connectTimeout;
+
+    // how long a single read may wait for the server, unbounded when unset
+    private Duration socketTimeout;
+
+    private Duration serverSelectionTimeout;
+
+    // tried in order, the first one the server also supports is used: zstd, snappy or zlib
+    private List<String> compressors = new ArrayList<>();
+
+    private final Pool pool = new Pool();
+
+    private final Search search = new Search();
+
+    @Data
+    public static class Pool {
+
+        private Integer maxSize;
+
+        private Integer minSize;
+
+        // how long a request waits for a free connection before failing
+        private Duration maxWaitTime;
+
+        private Integer maxConnecting;
+
+        private Duration maxConnectionIdleTime;
+
+        private Duration maxConnectionLifeTime;
+    }
+
+    /**
+     * Routing of listing, search, count and export reads. Writes always go to the primary, and so do single-contact reads, which
+     * have to see the caller's own writes.
+     */
+    @Data
+    public static class Search {
+
+        // primary, primaryPreferred, secondary, secondaryPreferred or nearest
+        private String readPreference = "primary";
+
+        // secondaries lagging further behind the primary are not read from, at least 90s when set
+        private Duration maxStaleness;
+    }
+}
@@ -0,0 +1,133 @@
+package com.personal.phonebook.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+
+import com.personal.phonebook.service.ContactService;
+import com.personal.phonebook.tenant.Tenant;
+import com.personal.phonebook.tenant.TenantContext;
+import com.personal.phonebook.tenant.TenantNamespaceInitializer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Creates a compound (tenantId, sort field, _id) index for every allowed sort field - walked forwards or backwards it serves
+ * both directions within a tenant - and checks with explain plans that no sort/direction combination needs an in-memory SORT
+ * stage.
+ */
+@Slf4j
+@Configuration
+@Profile("!memory & !mapped")
+public class SortIndexConfig implements TenantNamespaceInitializer {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${phonebook.pagination.max-page-size}")
+    private int maxPageSize;
+
+    private volatile List<String> unbackedSorts = List.of();
+
+    @PostConstruct
+    public void initIndices () {
+        IndexOperations indexOps = mongoTemplate.indexOps(TenantContext.collection());
+        for (String field : ContactService.ALLOWED_SORT_FIELDS) {
+            IndexMigrations.dropIndexOn(mongoTemplate, TenantContext.collection(), List.of(field, "_id"));
+        }
+        ensureIndexes(indexOps);
+        log.info("Successfully created sort indexes for contacts collection on fields: {}", ContactService.ALLOWED_SORT_FIELDS);
+        verifySortPlans();
+    }
+
+    @Override
+    public void initialize (Tenant tenant) {
+        TenantContext.runAs(tenant, () -> ensureIndexes(mongoTemplate.indexOps(tenant.getCollection())));
+    }
+
+    public List<String> getUnbackedSorts () {
+        return unbackedSorts;
+    }
+
+    private static void ensureIndexes (IndexOperations indexOps) {
+        for (String field : ContactService.ALLOWED_SORT_FIELDS) {
+            indexOps.ensureIndex(new Index().on("tenantId", Sort.Direction.ASC).on(field, Sort.Direction.ASC).on("_id", Sort.Direction.ASC));
+        }
+    }
+
+    // Planned for the default tenant, the plans of the others only differ in the tenant the index scan is bounded to
+    private void verifySortPlans () {
+        List<String> unbacked = new ArrayList<>();
+        for (String field : ContactService.ALLOWED_SORT_FIELDS) {
+            for (Sort.Direction direction : Sort.Direction.values()) {
+                String sort = field + " " + direction;
+                boolean backed;
+                try {
+                    backed = !requiresInMemorySort(explainSort(field, direction));
+                }
+                catch (RuntimeException e) {
+                    log.warn("Could not explain the query plan for sort {}", sort, e);
+                    backed = false;
+                }
+                if (!backed) {
+                    unbacked.add(sort);
+                }
+                Gauge.builder("phonebook.sort.index.backed", () -> unbackedSorts.contains(sort) ? 0 : 1)
+                     .description("1 when listing contacts in this order is served by an index, 0 when it needs an in-memory sort")
+                     .tag("field", field)
+                     .tag("direction", direction.name())
+                     .register(meterRegistry);
+            }
+        }
+        unbackedSorts = Collections.unmodifiableList(unbacked);
+
+        if (unbacked.isEmpty()) {
+            log.info("All allowed sort orders are backed by an index");
+        }
+        else {
+            log.warn("Sort orders not backed by an index, listing them will sort in memory: {}", unbacked);
+        }
+    }
+
+    private Document explainSort (String field, Sort.Direction direction) {
+        int order = direction.isAscending() ? 1 : -1;
+        Document find = new Document("find", TenantContext.collection()).append("filter", new Document("tenantId", TenantContext.tenantId()))
+                                                                        .append("sort", new Document(field, order).append("_id", order))
+                                                                        .append("limit", maxPageSize);
+        return mongoTemplate.getDb().runCommand(new Document("explain", find).append("verbosity", "queryPlanner"));
+    }
+
+    static boolean requiresInMemorySort (Document explain) {
+        Document queryPlanner = explain.get("queryPlanner", Document.class);
+        return queryPlanner == null || containsSortStage(queryPlanner.get("winningPlan"));
+    }
+
+    private static boolean containsSortStage (Object planNode) {
+        if (planNode instanceof Document document) {
+            if ("SORT".equals(document.get("stage"))) {
+                return true;
+            }
+            return document.values().stream().anyMatch(SortIndexConfig::containsSortStage);
+        }
+        if (planNode instanceof List<?> list) {
+            return list.stream().anyMatch(SortIndexConfig::containsSortStage);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,33 @@
+package com.personal.phonebook.config;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sorting in memory still works until Mongo's sort memory limit is hit, so unbacked sort orders are reported as a warning in
+ * the health details rather than taking the service down.
+ */
+@Component("sortIndexes")
+@Profile("!memory & !mapped")
+public class SortIndexHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private SortIndexConfig sortIndexConfig;
+
+    @Override
+    public Health health () {
+        List<String> unbackedSorts = sortIndexConfig.getUnbackedSorts();
+        if (unbackedSorts.isEmpty()) {
+            return Health.up().build();
+        }
+        return Health.up()
+                     .withDetail("warning", "Some sort orders are not backed by an index and are sorted in memory")
+                     .withDetail("unbackedSorts", unbackedSorts)
+                     .build();
+    }
+}
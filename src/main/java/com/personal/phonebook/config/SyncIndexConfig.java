@@ -0,0 +1,63 @@
+package com.personal.phonebook.config;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+
+import com.personal.phonebook.model.ContactTombstone;
+import com.personal.phonebook.tenant.Tenant;
+import com.personal.phonebook.tenant.TenantContext;
+import com.personal.phonebook.tenant.TenantNamespaceInitializer;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Indexes behind the change feed: the contacts and the tombstones of a tenant in (sequence, id) order, so a sync reads a
+ * range of them instead of sorting the tenant. The tombstones take the place of the deleted contacts in the same collection
+ * and expire after the retention, which is what bounds how old a sync token may be. Contacts have no deletion time and never
+ * expire.
+ */
+@Slf4j
+@Configuration
+@Profile("!memory & !mapped")
+public class SyncIndexConfig implements TenantNamespaceInitializer {
+
+    private static final String DELETED_AT = ContactTombstone.DELETED_AT;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${phonebook.sync.tombstone-retention:30d}")
+    private Duration tombstoneRetention;
+
+    @PostConstruct
+    public void initIndices () {
+        ensureIndexes(TenantContext.collection());
+        log.info("Successfully created change feed indexes on fields: tenantId, sequence, _id and tombstones expiring after {}", tombstoneRetention);
+    }
+
+    @Override
+    public void initialize (Tenant tenant) {
+        TenantContext.runAs(tenant, () -> ensureIndexes(tenant.getCollection()));
+    }
+
+    private void ensureIndexes (String collection) {
+        IndexOperations contacts = mongoTemplate.indexOps(collection);
+        contacts.ensureIndex(new Index().on("tenantId", Sort.Direction.ASC).on("sequence", Sort.Direction.ASC).on("_id", Sort.Direction.ASC));
+        // the expiry of an existing index cannot be changed by creating it again
+        IndexMigrations.dropIndexOn(mongoTemplate,
+                                    collection,
+                                    List.of(DELETED_AT),
+                                    index -> !(index.get("expireAfterSeconds") instanceof Number expiry && expiry.longValue() == tombstoneRetention.toSeconds()));
+        contacts.ensureIndex(new Index().on(DELETED_AT, Sort.Direction.ASC).expire(tombstoneRetention));
+    }
+}
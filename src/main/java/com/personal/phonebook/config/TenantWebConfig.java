@@ -0,0 +1,22 @@
+package com.personal.phonebook.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.personal.phonebook.tenant.TenantInterceptor;
+
+@Configuration
+@Profile("!reactive")
+public class TenantWebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private TenantInterceptor tenantInterceptor;
+
+    @Override
+    public void addInterceptors (InterceptorRegistry registry) {
+        registry.addInterceptor(tenantInterceptor).addPathPatterns("/phonebook/**");
+    }
+}
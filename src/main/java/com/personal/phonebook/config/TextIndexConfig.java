@@ -1,30 +1,58 @@
 package com.personal.phonebook.config;
 
+import java.util.List;
+
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.index.TextIndexDefinition;
-import org.springframework.data.mongodb.core.index.TextIndexDefinition.TextIndexDefinitionBuilder;
+import org.springframework.data.mongodb.core.index.CompoundIndexDefinition;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+
+import com.personal.phonebook.tenant.Tenant;
+import com.personal.phonebook.tenant.TenantContext;
+import com.personal.phonebook.tenant.TenantNamespaceInitializer;
 
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Text and n-gram indexes, both led by the tenant. A text index with a prefix only serves text queries with an equality on
+ * that prefix, which every query of a tenant has - and a collection can only hold one text index, so the one of an older
+ * version without the prefix is dropped first.
+ */
 @Slf4j
 @Configuration
-public class TextIndexConfig {
+@Profile("!memory & !mapped")
+public class TextIndexConfig implements TenantNamespaceInitializer {
+
+    private static final List<String> TEXT_FIELDS = List.of("firstName", "lastName", "phone", "address");
 
     @Autowired
     private MongoTemplate mongoTemplate;
 
     @PostConstruct
     public void initIndices () {
-        TextIndexDefinition textIndex = new TextIndexDefinitionBuilder().onField("firstName")
-                                                                        .onField("lastName")
-                                                                        .onField("phone")
-                                                                        .onField("address")
-                                                                        .build();
-
-        mongoTemplate.indexOps("contacts").ensureIndex(textIndex);
-        log.info("Successfully created text index for contacts collection on fields: firstName, lastName, phone, address");
+        IndexOperations indexOps = mongoTemplate.indexOps(TenantContext.collection());
+        IndexMigrations.dropIndexOn(mongoTemplate, TenantContext.collection(), TEXT_FIELDS);
+        IndexMigrations.dropIndexOn(mongoTemplate, TenantContext.collection(), List.of("searchTokens"));
+        ensureIndexes(indexOps);
+        log.info("Successfully created text index for contacts collection on fields: tenantId, firstName, lastName, phone, address");
+        log.info("Successfully created multikey index for contacts collection on fields: tenantId, searchTokens");
+    }
+
+    @Override
+    public void initialize (Tenant tenant) {
+        TenantContext.runAs(tenant, () -> ensureIndexes(mongoTemplate.indexOps(tenant.getCollection())));
+    }
+
+    private void ensureIndexes (IndexOperations indexOps) {
+        Document textIndex = new Document("tenantId", 1);
+        TEXT_FIELDS.forEach(field -> textIndex.append(field, "text"));
+        indexOps.ensureIndex(new CompoundIndexDefinition(textIndex));
+        indexOps.ensureIndex(new Index().on("tenantId", Sort.Direction.ASC).on("searchTokens", Sort.Direction.ASC));
     }
-}
\ No newline at end of file
+}
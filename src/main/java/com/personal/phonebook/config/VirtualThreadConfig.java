@@ -0,0 +1,47 @@
+package com.personal.phonebook.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.util.JsonRecyclerPools;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Virtual-thread execution mode - Tomcat and the application task executor and scheduler run every task on its own virtual
+ * thread ({@code spring.threads.virtual.enabled}), so a request waiting on MongoDB no longer holds a pooled thread.
+ */
+@Slf4j
+@Configuration
+@Profile("virtual-threads")
+public class VirtualThreadConfig {
+
+    @Autowired
+    private Environment environment;
+
+    @PostConstruct
+    public void verifyThreading () {
+        // below Java 21 Spring Boot silently keeps platform threads
+        if (!Threading.VIRTUAL.isActive(environment)) {
+            throw new IllegalStateException("The virtual-threads profile requires Java 21+ and spring.threads.virtual.enabled=true, running on Java "
+                        + Runtime.version().feature());
+        }
+        log.info("Serving requests on virtual threads");
+    }
+
+    /**
+     * Jackson recycles its buffers per thread by default, which a thread that lives for a single request never reuses - a
+     * shared pool keeps serialization from allocating fresh buffers on every request.
+     */
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer sharedBufferRecycling () {
+        return builder -> builder.factory(JsonFactory.builder().recyclerPool(JsonRecyclerPools.sharedConcurrentDequePool()).build());
+    }
+}
@@ -1,31 +1,111 @@
 package com.personal.phonebook.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.personal.phonebook.controller.request.ContactBatchRequest;
+import com.personal.phonebook.controller.request.ContactExportRequest;
+import com.personal.phonebook.controller.request.ContactSearchRequest;
+import com.personal.phonebook.controller.response.BatchLookupResponse;
 import com.personal.phonebook.controller.response.ContactsResponse;
+import com.personal.phonebook.controller.response.ImportResponse;
+import com.personal.phonebook.controller.response.Suggestion;
+import com.personal.phonebook.controller.response.SyncResponse;
+import com.personal.phonebook.export.ExportFormat;
 import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.service.ContactAutocompleteService;
+import com.personal.phonebook.service.ContactExportService;
+import com.personal.phonebook.service.ContactImportService;
+import com.personal.phonebook.service.ContactPushService;
 import com.personal.phonebook.service.ContactService;
+import com.personal.phonebook.service.ContactSyncService;
+
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/phonebook")
 public class ContactController {
 
     @Autowired
     private ContactService contactService;
 
+    @Autowired
+    private ContactImportService contactImportService;
+
+    @Autowired
+    private ContactExportService contactExportService;
+
+    @Autowired
+    private ContactAutocompleteService contactAutocompleteService;
+
+    @Autowired
+    private ContactSyncService contactSyncService;
+
+    @Autowired
+    private ContactPushService contactPushService;
+
     @PostMapping
     public ResponseEntity<Contact> createContact (@RequestBody Contact contact) {
         return ResponseEntity.status(HttpStatus.CREATED).body(contactService.createContact(contact));
     }
 
+    @PostMapping(path = "/import", consumes = "application/x-ndjson")
+    public ResponseEntity<ImportResponse> importNdjson (InputStream body) {
+        return ResponseEntity.ok().body(contactImportService.importNdjson(body));
+    }
+
+    @PostMapping(path = "/import", consumes = "text/csv")
+    public ResponseEntity<ImportResponse> importCsv (InputStream body) {
+        return ResponseEntity.ok().body(contactImportService.importCsv(body));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Object> getContact (@PathVariable String id,
+                                              @RequestParam(name = "fields", required = false) List<String> fields,
+                                              WebRequest webRequest) {
+        boolean projected = fields != null && !fields.isEmpty();
+        Contact contact = contactService.getContact(id, fields);
+        Map<String, Object> view = ContactRepresentation.view(contact, projected ? fields : ContactService.CONTACT_FIELDS);
+        String etag = ContactRepresentation.etag(view);
+        if (webRequest.checkNotModified(etag)) {
+            // 304 with the ETag header already set, the body is never serialized
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(projected ? view : contact);
+    }
+
+    // The precondition is the version in the body, or else the contact If-Match was read at
     @PutMapping("/{id}")
-    public ResponseEntity<Contact> updateContact (@PathVariable String id, @RequestBody Contact contact) {
+    public ResponseEntity<Contact> updateContact (@PathVariable String id,
+                                                  @RequestBody Contact contact,
+                                                  @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (ifMatch != null) {
+            long version = ContactRepresentation.matchedVersion(contactService.getContact(id), ifMatch);
+            if (contact.getVersion() == null) {
+                contact.setVersion(version);
+            }
+        }
         return ResponseEntity.ok().body(contactService.updateContact(id, contact));
     }
 
+    @PatchMapping(path = "/{id}", consumes = "application/merge-patch+json")
+    public ResponseEntity<Contact> patchContact (@PathVariable String id, @RequestBody Map<String, Object> patch) {
+        return ResponseEntity.ok().body(contactService.patchContact(id, patch));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteContact (@PathVariable String id) {
         contactService.deleteContact(id);
@@ -35,10 +115,63 @@ public class ContactController {
 
     @GetMapping("/contacts")
     public ResponseEntity<ContactsResponse> getContacts (@RequestParam(name = "query", required = false) String query,
+                                                         @RequestParam(name = "mode", required = false) String mode,
                                                          @RequestParam(name = "page", defaultValue = "0") int page,
                                                          @RequestParam(name = "size", defaultValue = "10") int size,
                                                          @RequestParam(name = "direction", defaultValue = "ASC") String direction,
-                                                         @RequestParam(name = "sortBy", defaultValue = "firstName") String sortBy) {
-        return ResponseEntity.ok().body(contactService.searchContacts(query, page, size, direction, sortBy));
+                                                         @RequestParam(name = "sortBy", defaultValue = "firstName") String sortBy,
+                                                         @RequestParam(name = "cursor", required = false) String cursor,
+                                                         @RequestParam(name = "total", required = false) String total) {
+        ContactSearchRequest request = new ContactSearchRequest(query, mode, page, size, direction, sortBy, cursor, total);
+        return ResponseEntity.ok().body(contactService.searchContacts(request));
+    }
+
+    @GetMapping("/lookup")
+    public ResponseEntity<ContactsResponse> lookupPhone (@RequestParam(name = "phone") String phone,
+                                                         @RequestParam(name = "match", required = false) String match,
+                                                         @RequestParam(name = "limit", defaultValue = "10") int limit) {
+        return ResponseEntity.ok().body(contactService.lookupPhone(phone, match, limit));
+    }
+
+    // POST because a batch of ids does not fit in a query string
+    @PostMapping("/batch")
+    public ResponseEntity<BatchLookupResponse> batchLookup (@RequestBody ContactBatchRequest request) {
+        return ResponseEntity.ok().body(contactService.batchLookup(request));
+    }
+
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<Suggestion>> autocomplete (@RequestParam(name = "prefix") String prefix,
+                                                          @RequestParam(name = "limit", defaultValue = "10") int limit) {
+        return ResponseEntity.ok().body(contactAutocompleteService.suggest(prefix, limit));
+    }
+
+    // Without a token every contact is a change, the first sync is a full one
+    @GetMapping("/sync")
+    public ResponseEntity<SyncResponse> sync (@RequestParam(name = "token", required = false) String token,
+                                              @RequestParam(name = "limit", defaultValue = "100") int limit) {
+        return ResponseEntity.ok().body(contactSyncService.sync(token, limit));
+    }
+
+    // Open until the client disconnects or the push timeout passes, the changes are written as they happen
+    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe (@RequestParam(name = "query", required = false) String query,
+                                 @RequestParam(name = "mode", required = false) String mode,
+                                 @RequestParam(name = "overflow", required = false) String overflow) {
+        return contactPushService.subscribe(query, mode, overflow);
+    }
+
+    @GetMapping("/export")
+    public void exportContacts (@RequestParam(name = "query", required = false) String query,
+                                @RequestParam(name = "mode", required = false) String mode,
+                                @RequestParam(name = "format", defaultValue = "ndjson") String format,
+                                @RequestParam(name = "direction", defaultValue = "ASC") String direction,
+                                @RequestParam(name = "sortBy", required = false) String sortBy,
+                                HttpServletResponse response) throws IOException {
+        ContactExportRequest request = new ContactExportRequest(query, mode, format, direction, sortBy);
+        ExportFormat exportFormat = contactExportService.validateExportInput(request);
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"contacts." + exportFormat.getExtension() + "\"");
+        contactExportService.exportContacts(request, response.getOutputStream());
     }
 }
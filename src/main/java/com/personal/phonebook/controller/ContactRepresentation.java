@@ -0,0 +1,53 @@
+package com.personal.phonebook.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.util.DigestUtils;
+
+import com.personal.phonebook.exception.ContactPreconditionFailedException;
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.service.ContactService;
+
+/**
+ * The body of a single-contact read - the id plus the requested fields - and its entity tag.
+ */
+final class ContactRepresentation {
+
+    private ContactRepresentation () {
+    }
+
+    static Map<String, Object> view (Contact contact, List<String> fields) {
+        BeanWrapperImpl bean = new BeanWrapperImpl(contact);
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("id", contact.getId());
+        for (String field : fields) {
+            view.put(field, bean.getPropertyValue(field));
+        }
+        return view;
+    }
+
+    // Strong validator of exactly the representation being returned, so each projection has its own
+    static String etag (Map<String, Object> view) {
+        StringBuilder content = new StringBuilder();
+        view.forEach( (field, value) -> content.append(field).append('\u0000').append(value == null ? "\u0001" : value).append('\u0000'));
+        return "\"" + DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * The version an {@code If-Match} header stands for: that of the current contact when one of its tags is the entity tag of
+     * the contact's full representation, or {@code *}. A contact stored before versioning is at version 0.
+     */
+    static long matchedVersion (Contact current, String ifMatch) {
+        String etag = etag(view(current, ContactService.CONTACT_FIELDS));
+        for (String tag : ifMatch.split(",")) {
+            if (tag.trim().equals("*") || tag.trim().equals(etag)) {
+                return current.getVersion() == null ? 0 : current.getVersion();
+            }
+        }
+        throw new ContactPreconditionFailedException(current.getId());
+    }
+}
@@ -2,6 +2,7 @@ package com.personal.phonebook.controller;
 
 import java.time.LocalDateTime;
 
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -9,11 +10,17 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
 
 import com.personal.phonebook.controller.response.ErrorResponse;
+import com.personal.phonebook.exception.ContactConflictException;
+import com.personal.phonebook.exception.ContactPreconditionFailedException;
+import com.personal.phonebook.exception.ContactVersionRequiredException;
 import com.personal.phonebook.exception.ContanctNotFoundException;
+import com.personal.phonebook.exception.DuplicatePhoneException;
 import com.personal.phonebook.exception.NotFoundException;
 import com.personal.phonebook.exception.PhonebookException;
+import com.personal.phonebook.exception.SyncTokenExpiredException;
 
 @RestControllerAdvice
+@Profile("!reactive")
 public class RestExceptionHandler {
 
     @ExceptionHandler({ IllegalArgumentException.class })
@@ -36,6 +43,46 @@ public class RestExceptionHandler {
         return new ResponseEntity<>(error, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler({ ContactConflictException.class, DuplicatePhoneException.class })
+    public ResponseEntity<ErrorResponse> handleConflict (PhonebookException ex, WebRequest request) {
+        ErrorResponse error = new ErrorResponse(LocalDateTime.now(),
+                                                HttpStatus.CONFLICT.value(),
+                                                "Conflict",
+                                                ex.getMessage(),
+                                                request.getDescription(false));
+        return new ResponseEntity<>(error, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler({ ContactPreconditionFailedException.class })
+    public ResponseEntity<ErrorResponse> handlePreconditionFailed (ContactPreconditionFailedException ex, WebRequest request) {
+        ErrorResponse error = new ErrorResponse(LocalDateTime.now(),
+                                                HttpStatus.PRECONDITION_FAILED.value(),
+                                                "Precondition Failed",
+                                                ex.getMessage(),
+                                                request.getDescription(false));
+        return new ResponseEntity<>(error, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @ExceptionHandler({ ContactVersionRequiredException.class })
+    public ResponseEntity<ErrorResponse> handlePreconditionRequired (ContactVersionRequiredException ex, WebRequest request) {
+        ErrorResponse error = new ErrorResponse(LocalDateTime.now(),
+                                                HttpStatus.PRECONDITION_REQUIRED.value(),
+                                                "Precondition Required",
+                                                ex.getMessage(),
+                                                request.getDescription(false));
+        return new ResponseEntity<>(error, HttpStatus.PRECONDITION_REQUIRED);
+    }
+
+    @ExceptionHandler({ SyncTokenExpiredException.class })
+    public ResponseEntity<ErrorResponse> handleGone (SyncTokenExpiredException ex, WebRequest request) {
+        ErrorResponse error = new ErrorResponse(LocalDateTime.now(),
+                                                HttpStatus.GONE.value(),
+                                                "Gone",
+                                                ex.getMessage(),
+                                                request.getDescription(false));
+        return new ResponseEntity<>(error, HttpStatus.GONE);
+    }
+
     @ExceptionHandler(PhonebookException.class)
     public ResponseEntity<ErrorResponse> handleInternalServerError (PhonebookException ex, WebRequest request) {
         ErrorResponse error = new ErrorResponse(LocalDateTime.now(),
@@ -0,0 +1,16 @@
+package com.personal.phonebook.controller.request;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Exactly one of the two lists is given
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContactBatchRequest {
+    private List<String> ids;
+    private List<String> phones;
+}
@@ -0,0 +1,14 @@
+package com.personal.phonebook.controller.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ContactExportRequest {
+    private String query;
+    private String mode;
+    private String format;
+    private String direction;
+    private String sortBy;
+}
@@ -0,0 +1,17 @@
+package com.personal.phonebook.controller.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ContactSearchRequest {
+    private String query;
+    private String mode;
+    private int page;
+    private int size;
+    private String direction;
+    private String sortBy;
+    private String cursor;
+    private String total;
+}
@@ -0,0 +1,20 @@
+package com.personal.phonebook.controller.response;
+
+import java.util.List;
+import java.util.Map;
+
+import com.personal.phonebook.model.Contact;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchLookupResponse {
+    // the contacts found for every requested id or phone number, keyed as requested and in request order
+    private Map<String, List<Contact>> matches;
+    // the requested keys nothing was found for
+    private List<String> missing;
+}
@@ -2,14 +2,27 @@ package com.personal.phonebook.controller.response;
 
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.personal.phonebook.model.Contact;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
+@NoArgsConstructor
 @AllArgsConstructor
 public class ContactsResponse {
     private List<Contact> contacts;
+    // -1 when the total was not requested
     private long totalCount;
-}
\ No newline at end of file
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private boolean totalCountEstimated;
+    // continuation token for the next page, absent on the last page
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
+
+    public ContactsResponse (List<Contact> contacts, long totalCount) {
+        this(contacts, totalCount, false, null);
+    }
+}
@@ -0,0 +1,28 @@
+package com.personal.phonebook.controller.response;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportResponse {
+    private long received;
+    private long imported;
+    private long failed;
+    private List<RowError> errors;
+    // true when more rows failed than phonebook.import.max-reported-errors
+    private boolean errorsTruncated;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        // 1-based data row, CSV header excluded
+        private long row;
+        private String message;
+    }
+}
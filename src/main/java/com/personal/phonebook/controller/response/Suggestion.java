@@ -0,0 +1,14 @@
+package com.personal.phonebook.controller.response;
+
+import lombok.Value;
+
+/**
+ * Autocomplete entry: the contact id and the name to show for it.
+ */
+@Value
+public class Suggestion {
+
+    String id;
+
+    String name;
+}
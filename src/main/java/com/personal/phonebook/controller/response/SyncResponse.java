@@ -0,0 +1,23 @@
+package com.personal.phonebook.controller.response;
+
+import java.util.List;
+
+import com.personal.phonebook.model.Contact;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncResponse {
+    // the contacts created or updated since the token, as they are now
+    private List<Contact> contacts;
+    // ids of the contacts deleted since the token
+    private List<String> deleted;
+    // what to send with the next sync
+    private String token;
+    // whether more changes are ready right away, the next sync should follow without waiting
+    private boolean hasMore;
+}
@@ -0,0 +1,21 @@
+package com.personal.phonebook.event;
+
+import com.personal.phonebook.model.Contact;
+
+import lombok.Value;
+
+/**
+ * Published after a single contact was written. {@code previous} is null for a created contact, {@code current} is null for a
+ * deleted one.
+ */
+@Value
+public class ContactChangedEvent {
+
+    Contact previous;
+
+    Contact current;
+
+    public String getId () {
+        return current != null ? current.getId() : previous.getId();
+    }
+}
@@ -0,0 +1,16 @@
+package com.personal.phonebook.event;
+
+import java.util.List;
+
+import com.personal.phonebook.model.Contact;
+
+import lombok.Value;
+
+/**
+ * Published after a bulk import batch was written, with the contacts that were actually inserted.
+ */
+@Value
+public class ContactsImportedEvent {
+
+    List<Contact> contacts;
+}
@@ -0,0 +1,7 @@
+package com.personal.phonebook.exception;
+
+public class ContactConflictException extends PhonebookException {
+    public ContactConflictException (String contactId, Long expectedVersion) {
+        super(String.format("Contact with id %s was modified concurrently, expected version %d is no longer current", contactId, expectedVersion));
+    }
+}
@@ -0,0 +1,7 @@
+package com.personal.phonebook.exception;
+
+public class ContactPreconditionFailedException extends PhonebookException {
+    public ContactPreconditionFailedException (String contactId) {
+        super(String.format("Contact with id %s no longer matches the If-Match precondition", contactId));
+    }
+}
@@ -0,0 +1,7 @@
+package com.personal.phonebook.exception;
+
+public class ContactVersionRequiredException extends PhonebookException {
+    public ContactVersionRequiredException (String contactId) {
+        super(String.format("Updating contact with id %s requires the version it was read at, in the body or as If-Match", contactId));
+    }
+}
@@ -0,0 +1,16 @@
+package com.personal.phonebook.exception;
+
+import org.springframework.dao.DuplicateKeyException;
+
+import com.personal.phonebook.config.PhoneIndexConfig;
+
+public class DuplicatePhoneException extends PhonebookException {
+    public DuplicatePhoneException (String phone) {
+        super(String.format("A contact with phone number %s already exists", phone));
+    }
+
+    // Both MongoDB and the in-memory engines name the violated key in the message
+    public static boolean violatedBy (DuplicateKeyException e) {
+        return e.getMessage() != null && e.getMessage().contains(PhoneIndexConfig.PHONE_NORMALIZED);
+    }
+}
@@ -0,0 +1,7 @@
+package com.personal.phonebook.exception;
+
+public class SyncTokenExpiredException extends PhonebookException {
+    public SyncTokenExpiredException () {
+        super("Sync token is older than the retained deletions, sync again without a token");
+    }
+}
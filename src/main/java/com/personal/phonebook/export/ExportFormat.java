@@ -0,0 +1,30 @@
+package com.personal.phonebook.export;
+
+public enum ExportFormat {
+    /**
+     * One JSON contact per line - the same shape the import endpoint accepts.
+     */
+    NDJSON("application/x-ndjson", "ndjson"),
+
+    /**
+     * Header row followed by one row per contact, empty cells for missing values.
+     */
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+
+    private final String extension;
+
+    ExportFormat (String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType () {
+        return contentType;
+    }
+
+    public String getExtension () {
+        return extension;
+    }
+}
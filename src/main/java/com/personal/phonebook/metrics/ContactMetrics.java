@@ -0,0 +1,82 @@
+package com.personal.phonebook.metrics;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Timers around the service and repository hot paths. Every timer gets an {@code outcome} tag, and an {@code exception} tag
+ * naming the exception class when the call failed. Callers only pass tags with a small fixed set of values - validated
+ * input, never raw request values - so the number of series stays bounded.
+ * <p>
+ * Prometheus requires all meters of a name to have the same tag keys, so every timer of a name gets all the keys of that
+ * name, the ones a call does not pass set to {@value #NONE}. A new tag key has to be added to {@link #TAG_KEYS} first.
+ */
+@Component
+public class ContactMetrics {
+
+    public static final String SERVICE = "phonebook.service";
+
+    public static final String REPOSITORY = "phonebook.repository";
+
+    private static final String NONE = "none";
+
+    private static final Map<String, List<String>> TAG_KEYS = Map.of(SERVICE,
+                                                                     List.of("operation", "search", "mode", "sortBy", "projected", "match", "key"),
+                                                                     REPOSITORY,
+                                                                     List.of("operation", "query"));
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    public <T> T record (String name, Tags tags, Supplier<T> call) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            T result = call.get();
+            sample.stop(timer(name, tags.and("outcome", "success", "exception", NONE)));
+            return result;
+        }
+        catch (RuntimeException e) {
+            sample.stop(timer(name, tags.and("outcome", "error", "exception", e.getClass().getSimpleName())));
+            throw e;
+        }
+    }
+
+    public void record (String name, Tags tags, Runnable call) {
+        record(name, tags, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    private Timer timer (String name, Tags tags) {
+        // registered once per tag combination, later calls are a lookup of the existing timer
+        return Timer.builder(name).tags(allKeys(name, tags)).register(meterRegistry);
+    }
+
+    private static Tags allKeys (String name, Tags tags) {
+        List<String> keys = TAG_KEYS.get(name);
+        Map<String, String> values = new HashMap<>();
+        for (Tag tag : tags) {
+            values.put(tag.getKey(), tag.getValue());
+        }
+        Tags complete = Tags.of("outcome", values.remove("outcome"), "exception", values.remove("exception"));
+        for (String key : keys) {
+            complete = complete.and(key, values.getOrDefault(key, NONE));
+        }
+        values.keySet().removeAll(keys);
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException(String.format("Tag keys %s are not among the keys of %s: %s", values.keySet(), name, keys));
+        }
+        return complete;
+    }
+}
@@ -1,15 +1,22 @@
 package com.personal.phonebook.model;
 
+import java.util.List;
 import java.util.UUID;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.TextScore;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 import lombok.Data;
 
 @Data
-@Document(collection = "contacts")
+// the collection of the current tenant, see TenancyStrategy
+@Document(collection = "#{T(com.personal.phonebook.tenant.TenantContext).collection()}")
 public class Contact {
     @Id
     private String id;
@@ -26,6 +33,60 @@ public class Contact {
     @TextIndexed
     private String address;
 
+    // set from the request on every write and matched by every read, null for contacts stored before tenancy (the default tenant)
+    @JsonIgnore
+    private String tenantId;
+
+    // incremented by every update, an update sent with a stale version is rejected instead of overwriting
+    @Version
+    private Long version;
+
+    // ChangeSequence of the last write, the position of the contact in the change feed - missing on contacts not written
+    // since the feed exists
+    @JsonIgnore
+    private Long sequence;
+
+    // n-grams of all searchable fields, maintained on every write by ContactIndexFieldsListener
+    @JsonIgnore
+    private List<String> searchTokens;
+
+    // PhoneNumbers.normalize of the phone, the key of exact reverse lookups, maintained like the search tokens
+    @JsonIgnore
+    private String phoneNormalized;
+
+    // digits of the phone back to front, a suffix of the number is a prefix of this
+    @JsonIgnore
+    private String phoneReversed;
+
+    // FuzzyNames.keys of the first name, phonetic codes and trigrams looked up by the fuzzy search
+    @JsonIgnore
+    private List<String> firstNameKeys;
+
+    @JsonIgnore
+    private List<String> lastNameKeys;
+
+    // TextFolding.fold of the searchable fields, what substring searches match, maintained like the search tokens
+    @JsonIgnore
+    private String firstNameFolded;
+
+    @JsonIgnore
+    private String lastNameFolded;
+
+    @JsonIgnore
+    private String phoneFolded;
+
+    @JsonIgnore
+    private String addressFolded;
+
+    // TextFolding.VERSION the folded fields, tokens and name keys were computed with - missing on contacts written before
+    @JsonIgnore
+    private Integer searchVersion;
+
+    // relevance of a full-text search hit, projected by the query and never stored
+    @TextScore
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Float score;
+
     public Contact (String firstName, String lastName, String phone, String address) {
         this.id = UUID.randomUUID().toString();
         this.firstName = firstName;
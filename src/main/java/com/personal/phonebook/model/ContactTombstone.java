@@ -0,0 +1,35 @@
+package com.personal.phonebook.model;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * What is left of a deleted contact for the change feed, until it expires after {@code phonebook.sync.tombstone-retention}.
+ * A deletion replaces the contact's document by its tombstone in a single write, so the tombstone keeps the contact's id
+ * and collection and a deletion can never miss the feed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "#{T(com.personal.phonebook.tenant.TenantContext).collection()}")
+public class ContactTombstone {
+
+    public static final String DELETED_AT = "deletedAt";
+
+    // the id of the deleted contact
+    @Id
+    private String id;
+
+    private String tenantId;
+
+    // the ChangeSequence of the deletion
+    private long sequence;
+
+    private Instant deletedAt;
+}
@@ -0,0 +1,74 @@
+package com.personal.phonebook.pagination;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.domain.Sort;
+
+import com.personal.phonebook.model.Contact;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Opaque continuation token for keyset pagination: the sort field value and id of the last contact of a page. The next page
+ * starts right after that position instead of skipping over all previous pages.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class ContactCursor {
+
+    private static final byte VERSION = 1;
+
+    String sortBy;
+
+    Sort.Direction direction;
+
+    String sortValue;
+
+    String id;
+
+    public static ContactCursor after (Contact contact, String sortBy, Sort.Direction direction) {
+        Object sortValue = new BeanWrapperImpl(contact).getPropertyValue(sortBy);
+        return new ContactCursor(sortBy, direction, sortValue == null ? null : sortValue.toString(), contact.getId());
+    }
+
+    public static ContactCursor decode (String token) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+            if (in.readByte() != VERSION) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            String sortBy = in.readUTF();
+            Sort.Direction direction = in.readBoolean() ? Sort.Direction.ASC : Sort.Direction.DESC;
+            String sortValue = in.readBoolean() ? in.readUTF() : null;
+            return new ContactCursor(sortBy, direction, sortValue, in.readUTF());
+        }
+        catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    public String encode () {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeUTF(sortBy);
+            out.writeBoolean(direction.isAscending());
+            out.writeBoolean(sortValue != null);
+            if (sortValue != null) {
+                out.writeUTF(sortValue);
+            }
+            out.writeUTF(id);
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Failed to encode cursor", e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+}
@@ -0,0 +1,18 @@
+package com.personal.phonebook.pagination;
+
+public enum TotalCountMode {
+    /**
+     * Count every matching contact - a second query over the whole match set.
+     */
+    EXACT,
+
+    /**
+     * Collection metadata for unfiltered listings, a count capped at {@code phonebook.pagination.count-estimate-limit} for searches.
+     */
+    ESTIMATE,
+
+    /**
+     * Skip the count altogether, the response reports {@code -1}.
+     */
+    NONE
+}
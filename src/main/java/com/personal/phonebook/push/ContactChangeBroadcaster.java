@@ -0,0 +1,184 @@
+package com.personal.phonebook.push;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.personal.phonebook.event.ContactChangedEvent;
+import com.personal.phonebook.event.ContactsImportedEvent;
+import com.personal.phonebook.exception.PhonebookException;
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.repository.ContactFilter;
+import com.personal.phonebook.search.SearchMode;
+import com.personal.phonebook.tenant.TenantContext;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Fans the contact changes made through this instance out to the push subscribers of their tenant. Subscribers with the same
+ * filter are grouped, so a change is matched once per distinct filter rather than once per subscriber, and each message is
+ * serialized once, however many subscribers get it. Handing a message to a subscriber only appends it to the subscriber's
+ * bounded buffer, so a slow subscriber never holds up a write or the other subscribers. Like the cache, writes made by other
+ * instances are not seen.
+ * <p>
+ * A subscriber with a filter sees its query's view of the phonebook: a contact that starts matching comes as created, and one
+ * that stops matching as deleted. Full-text filters are matched as substrings, as the in-process engines do.
+ * <p>
+ * The number of subscribers is published as the {@code phonebook.push.subscribers} gauge and the messages dropped for slow
+ * subscribers as the {@code phonebook.push.dropped} counter.
+ */
+@Component
+public class ContactChangeBroadcaster {
+
+    @Value("${phonebook.push.buffer-size:256}")
+    private int bufferSize;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // tenant id to the subscriber groups of the tenant by their filter
+    private final Map<String, Map<ContactFilter, FilterGroup>> tenants = new ConcurrentHashMap<>();
+
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    private Counter dropped;
+
+    @PostConstruct
+    public void init () {
+        Gauge.builder("phonebook.push.subscribers", subscribers::get).description("Subscribers to contact changes").register(meterRegistry);
+        dropped = Counter.builder("phonebook.push.dropped").description("Change messages dropped for slow subscribers").register(meterRegistry);
+    }
+
+    /**
+     * Subscribes to the changes of the current tenant's contacts matching the filter. {@code onReady} is called, on the
+     * writing thread, whenever messages arrive in the empty buffer of the subscriber, and must not block. {@code onClose} ends
+     * the subscriber's connection when the application shuts down.
+     */
+    public PushSubscriber subscribe (ContactFilter filter, OverflowPolicy policy, Consumer<PushSubscriber> onReady, Runnable onClose) {
+        PushSubscriber subscriber = new PushSubscriber(TenantContext.tenantId(), filter, policy, bufferSize, onReady, dropped::increment, onClose);
+        tenants.computeIfAbsent(subscriber.getTenantId(), tenantId -> new ConcurrentHashMap<>()).compute(filter, (key, group) -> {
+            FilterGroup joined = group == null ? new FilterGroup(key) : group;
+            joined.subscribers.add(subscriber);
+            return joined;
+        });
+        subscribers.incrementAndGet();
+        return subscriber;
+    }
+
+    public void unsubscribe (PushSubscriber subscriber) {
+        Map<ContactFilter, FilterGroup> groups = tenants.get(subscriber.getTenantId());
+        if (groups == null) {
+            return;
+        }
+        groups.computeIfPresent(subscriber.getFilter(), (key, group) -> {
+            if (group.subscribers.remove(subscriber)) {
+                subscribers.decrementAndGet();
+            }
+            return group.subscribers.isEmpty() ? null : group;
+        });
+    }
+
+    // Published before the web server waits for the requests in progress, which an open subscription would keep it doing
+    @EventListener(ContextClosedEvent.class)
+    public void closeAll () {
+        tenants.values().forEach(groups -> groups.values().forEach(group -> group.subscribers.forEach(subscriber -> {
+            unsubscribe(subscriber);
+            subscriber.close();
+        })));
+    }
+
+    @EventListener
+    public void onContactChanged (ContactChangedEvent event) {
+        broadcast(event.getPrevious(), event.getCurrent());
+    }
+
+    @EventListener
+    public void onContactsImported (ContactsImportedEvent event) {
+        event.getContacts().forEach(contact -> broadcast(null, contact));
+    }
+
+    private void broadcast (Contact previous, Contact current) {
+        Map<ContactFilter, FilterGroup> groups = tenants.get(TenantContext.tenantIdOf(current != null ? current : previous));
+        if (groups == null || groups.isEmpty()) {
+            return;
+        }
+        Messages messages = new Messages(previous, current);
+        for (FilterGroup group : groups.values()) {
+            boolean matchedBefore = previous != null && group.predicate.test(previous);
+            boolean matches = current != null && group.predicate.test(current);
+            if (!matchedBefore && !matches) {
+                continue;
+            }
+            PushMessage message = messages.of(matches ? (matchedBefore ? PushMessage.Type.UPDATED : PushMessage.Type.CREATED)
+                                                      : PushMessage.Type.DELETED);
+            for (PushSubscriber subscriber : group.subscribers) {
+                subscriber.offer(message);
+            }
+        }
+    }
+
+    private static final class FilterGroup {
+
+        // compiled once for the whole group
+        final Predicate<Contact> predicate;
+
+        final List<PushSubscriber> subscribers = new CopyOnWriteArrayList<>();
+
+        FilterGroup (ContactFilter filter) {
+            this.predicate = filter.getMode() == SearchMode.TEXT ? ContactFilter.matching(filter.getQuery(), SearchMode.REGEX).predicate()
+                                                                 : filter.predicate();
+        }
+    }
+
+    // The messages of one change, each serialized on first use
+    private final class Messages {
+
+        private final Contact previous;
+
+        private final Contact current;
+
+        private final PushMessage[] byType = new PushMessage[PushMessage.Type.values().length];
+
+        Messages (Contact previous, Contact current) {
+            this.previous = previous;
+            this.current = current;
+        }
+
+        PushMessage of (PushMessage.Type type) {
+            PushMessage message = byType[type.ordinal()];
+            if (message == null) {
+                String id = current != null ? current.getId() : previous.getId();
+                message = new PushMessage(type, id, type == PushMessage.Type.DELETED ? json(Map.of("id", id)) : json(current));
+                byType[type.ordinal()] = message;
+            }
+            return message;
+        }
+
+        private String json (Object value) {
+            try {
+                return objectMapper.writeValueAsString(value);
+            }
+            catch (JsonProcessingException e) {
+                throw new PhonebookException("Failed to serialize contact change", e);
+            }
+        }
+    }
+}
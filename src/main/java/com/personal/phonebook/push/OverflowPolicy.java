@@ -0,0 +1,27 @@
+package com.personal.phonebook.push;
+
+/**
+ * What a subscriber's buffer gives up once it is full because the subscriber reads slower than contacts change. Whatever is
+ * given up, the subscriber is told how many messages it missed before the next one it gets.
+ */
+public enum OverflowPolicy {
+    /**
+     * Replaces the buffered message of the same contact with the new one, so a contact changing over and over takes one
+     * slot. When no other message of the contact is buffered, the oldest message is dropped.
+     */
+    COALESCE,
+
+    /**
+     * Drops the oldest buffered message for the new one.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Drops the new message, keeping what is buffered.
+     */
+    DROP_NEWEST;
+
+    public static OverflowPolicy of (String policy) {
+        return policy == null ? COALESCE : valueOf(policy.toUpperCase().replace('-', '_'));
+    }
+}
@@ -0,0 +1,35 @@
+package com.personal.phonebook.push;
+
+import lombok.Value;
+
+/**
+ * A message for the subscribers of a tenant, serialized once however many subscribers it goes to.
+ */
+@Value
+public class PushMessage {
+
+    /**
+     * The event name of the message, as subscribers see it.
+     */
+    public enum Type {
+        CREATED, UPDATED, DELETED, OVERFLOW;
+
+        private final String event = name().toLowerCase();
+
+        public String event () {
+            return event;
+        }
+    }
+
+    Type type;
+
+    // the contact the message is about, null for an overflow
+    String id;
+
+    // the JSON payload: the contact, the id of a deleted one, or the number of dropped messages
+    String data;
+
+    public static PushMessage overflow (long dropped) {
+        return new PushMessage(Type.OVERFLOW, null, "{\"dropped\":" + dropped + "}");
+    }
+}
@@ -0,0 +1,142 @@
+package com.personal.phonebook.push;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import com.personal.phonebook.repository.ContactFilter;
+
+import lombok.Getter;
+
+/**
+ * One subscriber of the contact changes of a tenant, with a bounded buffer between the broadcast and the connection. The
+ * broadcast only ever appends to the buffer, whatever the connection does, and the connection is fed by
+ * {@link #drain(BooleanSupplier, Consumer)} at its own pace.
+ */
+public final class PushSubscriber {
+
+    @Getter
+    private final String tenantId;
+
+    @Getter
+    private final ContactFilter filter;
+
+    @Getter
+    private final OverflowPolicy policy;
+
+    private final int capacity;
+
+    private final Consumer<PushSubscriber> onReady;
+
+    private final Runnable onDrop;
+
+    private final Runnable onClose;
+
+    // guarded by this, appending to it allocates nothing once it has grown to the capacity
+    private final ArrayDeque<PushMessage> queue;
+
+    private long dropped;
+
+    // the drain loop is entered by one thread at a time, the others only make it go round once more
+    private final AtomicInteger drains = new AtomicInteger();
+
+    PushSubscriber (String tenantId,
+                    ContactFilter filter,
+                    OverflowPolicy policy,
+                    int capacity,
+                    Consumer<PushSubscriber> onReady,
+                    Runnable onDrop,
+                    Runnable onClose) {
+        this.tenantId = tenantId;
+        this.filter = filter;
+        this.policy = policy;
+        this.capacity = capacity;
+        this.onReady = onReady;
+        this.onDrop = onDrop;
+        this.onClose = onClose;
+        this.queue = new ArrayDeque<>(Math.min(capacity, 16));
+    }
+
+    /**
+     * Buffers the message without blocking, dropping one as the policy says when the buffer is full. The subscriber is only
+     * woken up when its buffer was empty, a drain in progress picks up everything added meanwhile.
+     */
+    void offer (PushMessage message) {
+        boolean wasEmpty;
+        boolean droppedOne = false;
+        synchronized (this) {
+            wasEmpty = isEmpty();
+            if (queue.size() < capacity) {
+                queue.add(message);
+            }
+            else if (policy == OverflowPolicy.DROP_NEWEST) {
+                droppedOne = true;
+            }
+            else {
+                // a full buffer is only searched for an older message of the contact when it has to give up one anyway
+                if (policy != OverflowPolicy.COALESCE || !removeMessageOf(message.getId())) {
+                    queue.poll();
+                    droppedOne = true;
+                }
+                queue.add(message);
+            }
+            if (droppedOne) {
+                dropped++;
+            }
+        }
+        if (droppedOne) {
+            onDrop.run();
+        }
+        if (wasEmpty) {
+            onReady.accept(this);
+        }
+    }
+
+    /**
+     * Hands the buffered messages to the connection while it is ready for more, preceded by an overflow message when some
+     * were dropped since the last drain. Calls made while another thread drains return right away, that drain goes on with
+     * what they would have handed over.
+     */
+    public void drain (BooleanSupplier ready, Consumer<PushMessage> send) {
+        if (drains.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            PushMessage next;
+            while (ready.getAsBoolean() && (next = poll()) != null) {
+                send.accept(next);
+            }
+        }
+        while (drains.decrementAndGet() != 0);
+    }
+
+    void close () {
+        onClose.run();
+    }
+
+    private synchronized PushMessage poll () {
+        if (dropped > 0) {
+            PushMessage overflow = PushMessage.overflow(dropped);
+            dropped = 0;
+            return overflow;
+        }
+        return queue.poll();
+    }
+
+    private boolean removeMessageOf (String id) {
+        Iterator<PushMessage> messages = queue.iterator();
+        while (messages.hasNext()) {
+            if (messages.next().getId().equals(id)) {
+                messages.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isEmpty () {
+        return dropped == 0 && queue.isEmpty();
+    }
+}
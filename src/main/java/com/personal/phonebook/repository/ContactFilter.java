@@ -0,0 +1,77 @@
+package com.personal.phonebook.repository;
+
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Stream;
+
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.search.FuzzyNames;
+import com.personal.phonebook.search.SearchMode;
+import com.personal.phonebook.search.TextFolding;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Which contacts a query should match, independent of how the store evaluates it.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class ContactFilter {
+
+    private static final ContactFilter ALL = new ContactFilter(null, null);
+
+    String query;
+
+    SearchMode mode;
+
+    public static ContactFilter all () {
+        return ALL;
+    }
+
+    public static ContactFilter matching (String query, SearchMode mode) {
+        return new ContactFilter(query, mode);
+    }
+
+    public boolean isAll () {
+        return query == null;
+    }
+
+    /**
+     * Evaluates the partial-match semantics of {@link SearchMode#REGEX} and {@link SearchMode#NGRAM} - the query is an
+     * unanchored regex over the searchable fields, both in their {@link TextFolding} form - and of {@link SearchMode#FUZZY}
+     * against a single contact.
+     * Full-text matching depends on the stemming of the text index and cannot be evaluated outside the store.
+     */
+    public boolean matches (Contact contact) {
+        return predicate().test(contact);
+    }
+
+    /**
+     * The semantics of {@link #matches(Contact)} with the query compiled once, for evaluating many contacts.
+     */
+    public Predicate<Contact> predicate () {
+        if (isAll()) {
+            return contact -> true;
+        }
+        if (mode == SearchMode.TEXT) {
+            throw new UnsupportedOperationException("Full-text matches can only be evaluated by the store");
+        }
+        if (mode == SearchMode.FUZZY) {
+            ToIntFunction<Contact> distance = FuzzyNames.distance(query);
+            return contact -> distance.applyAsInt(contact) >= 0;
+        }
+        Pattern pattern;
+        try {
+            pattern = Pattern.compile(TextFolding.foldPattern(query));
+        }
+        catch (PatternSyntaxException e) {
+            return contact -> false;
+        }
+        return contact -> Stream.of(contact.getFirstName(), contact.getLastName(), contact.getPhone(), contact.getAddress())
+                                .anyMatch(field -> field != null && pattern.matcher(TextFolding.fold(field)).find());
+    }
+}
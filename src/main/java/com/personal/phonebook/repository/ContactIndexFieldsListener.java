@@ -0,0 +1,43 @@
+package com.personal.phonebook.repository;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.stereotype.Component;
+
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.search.FuzzyNames;
+import com.personal.phonebook.search.PhoneNumbers;
+import com.personal.phonebook.search.SearchTokenizer;
+import com.personal.phonebook.search.TextFolding;
+import com.personal.phonebook.sync.ChangeSequence;
+import com.personal.phonebook.tenant.TenantContext;
+
+/**
+ * Fills in the fields that only exist for the indexes - the search tokens, the phone lookup keys, the name keys and the
+ * folded searchable fields - and the change sequence on every saved contact, and the tenant of the calling thread on a
+ * contact saved without one.
+ */
+@Component
+@Profile("!memory & !mapped")
+public class ContactIndexFieldsListener extends AbstractMongoEventListener<Contact> {
+
+    @Override
+    public void onBeforeConvert (BeforeConvertEvent<Contact> event) {
+        Contact contact = event.getSource();
+        if (contact.getTenantId() == null) {
+            contact.setTenantId(TenantContext.tenantId());
+        }
+        contact.setSequence(ChangeSequence.next());
+        contact.setSearchTokens(SearchTokenizer.tokenize(contact));
+        contact.setPhoneNormalized(PhoneNumbers.normalize(contact.getPhone()));
+        contact.setPhoneReversed(PhoneNumbers.reversed(contact.getPhone()));
+        contact.setFirstNameKeys(FuzzyNames.keys(contact.getFirstName()));
+        contact.setLastNameKeys(FuzzyNames.keys(contact.getLastName()));
+        contact.setFirstNameFolded(TextFolding.fold(contact.getFirstName()));
+        contact.setLastNameFolded(TextFolding.fold(contact.getLastName()));
+        contact.setPhoneFolded(TextFolding.fold(contact.getPhone()));
+        contact.setAddressFolded(TextFolding.fold(contact.getAddress()));
+        contact.setSearchVersion(TextFolding.VERSION);
+    }
+}
@@ -0,0 +1,299 @@
+package com.personal.phonebook.repository;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.personal.phonebook.model.Contact;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local-disk persistence of the in-memory engine: a snapshot of every contact plus an append-only log of the writes made since,
+ * both one JSON document per line. Every log entry carries the complete state it leaves behind (the contact as written, or its
+ * removal), so replaying the log over any snapshot at least as old as its first entry ends in the same state - a crash between
+ * writing a new snapshot and truncating the log loses nothing.
+ * <p>
+ * A snapshot is taken in two steps: {@link #rotate()} sets the log aside as the previous log and starts a new one, which only
+ * has to keep writes out for as long as it takes to rename a file, and {@link #snapshot(Collection)} then writes the contacts
+ * as they were at the rotation while the writes carry on into the new log. Loading replays the previous log before the
+ * current one. The log is guarded by a {@link ReentrantLock} rather than the monitor, so a virtual thread waiting on a write
+ * to the disk does not pin its carrier.
+ */
+@Slf4j
+final class ContactJournal {
+
+    private static final String SNAPSHOT = "contacts.snapshot";
+
+    private static final String LOG = "contacts.log";
+
+    // the log set aside by rotate, until the snapshot that contains its entries is written
+    private static final String PREVIOUS_LOG = "contacts.log.previous";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                                                                 .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                                                                 .addMixIn(Contact.class, StoredContact.class);
+
+    private final Path directory;
+
+    private final boolean syncWrites;
+
+    private final Lock lock = new ReentrantLock();
+
+    private FileOutputStream logStream;
+
+    private Writer logWriter;
+
+    private long loggedEntries;
+
+    ContactJournal (Path directory, boolean syncWrites) {
+        this.directory = directory;
+        this.syncWrites = syncWrites;
+    }
+
+    /**
+     * Loads the snapshot and replays the log on top of it, compacting both into a new snapshot. A last log line cut short by a
+     * crash is dropped - anything unreadable before it is corruption and fails the load.
+     */
+    void load (Map<String, Contact> contacts) {
+        locked( () -> {
+            try {
+                Files.createDirectories(directory);
+                Path snapshot = directory.resolve(SNAPSHOT);
+                if (Files.exists(snapshot)) {
+                    readLines(snapshot, line -> {
+                        Contact contact = MAPPER.readValue(line, Contact.class);
+                        contacts.put(contact.getId(), contact);
+                    });
+                }
+                boolean logged = false;
+                long replayed = 0;
+                for (Path logFile : List.of(directory.resolve(PREVIOUS_LOG), directory.resolve(LOG))) {
+                    if (Files.exists(logFile) && Files.size(logFile) > 0) {
+                        logged = true;
+                        replayed += readLines(logFile, line -> apply(MAPPER.readValue(line, Entry.class), contacts));
+                    }
+                }
+                if (logged) {
+                    log.info("Replayed {} logged writes from {}", replayed, directory);
+                    // the next restart starts from this snapshot, and nothing gets appended after a cut-off entry
+                    writeSnapshot(contacts.values());
+                    Files.deleteIfExists(directory.resolve(PREVIOUS_LOG));
+                    openLog(false);
+                }
+                else {
+                    openLog(true);
+                }
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Failed to load contacts from " + directory, e);
+            }
+            return null;
+        });
+    }
+
+    void put (Collection<Contact> contacts) {
+        append(contacts.stream().map(contact -> new Entry(contact, null, false)).toList());
+    }
+
+    void remove (Collection<String> ids) {
+        append(ids.stream().map(id -> new Entry(null, id, false)).toList());
+    }
+
+    void clear () {
+        append(List.of(new Entry(null, null, true)));
+    }
+
+    long loggedEntries () {
+        return locked( () -> loggedEntries);
+    }
+
+    /**
+     * Sets the log aside for the next {@link #snapshot(Collection)} and starts an empty one. The caller has to keep writes out
+     * until it has also taken the contacts to snapshot, so that every write is either in those contacts or in the new log. The
+     * log of a snapshot that failed is still set aside, and this one is appended to it.
+     */
+    void rotate () {
+        locked( () -> {
+            Path logFile = directory.resolve(LOG);
+            Path previous = directory.resolve(PREVIOUS_LOG);
+            try {
+                closeLog();
+                if (Files.exists(previous)) {
+                    try (FileChannel from = FileChannel.open(logFile, StandardOpenOption.READ);
+                         FileChannel to = FileChannel.open(previous, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                        from.transferTo(0, from.size(), to);
+                        to.force(false);
+                    }
+                    Files.delete(logFile);
+                }
+                else {
+                    Files.move(logFile, previous, StandardCopyOption.ATOMIC_MOVE);
+                }
+                openLog(false);
+                loggedEntries = 0;
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Failed to rotate contacts log in " + directory, e);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Writes the contacts taken at the last {@link #rotate()} as the new snapshot and drops the log set aside then. Writes go on
+     * meanwhile, into the new log. Only one snapshot may be written at a time.
+     */
+    void snapshot (Collection<Contact> contacts) {
+        try {
+            writeSnapshot(contacts);
+            Files.deleteIfExists(directory.resolve(PREVIOUS_LOG));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed to write contacts snapshot to " + directory, e);
+        }
+    }
+
+    void close () {
+        locked( () -> {
+            try {
+                closeLog();
+            }
+            catch (IOException e) {
+                log.warn("Failed to close contacts log in {}", directory, e);
+            }
+            return null;
+        });
+    }
+
+    private void writeSnapshot (Collection<Contact> contacts) throws IOException {
+        Path temporary = directory.resolve(SNAPSHOT + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temporary.toFile());
+             Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            for (Contact contact : contacts) {
+                writer.write(MAPPER.writeValueAsString(contact));
+                writer.write('\n');
+            }
+            writer.flush();
+            out.getChannel().force(true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Wrote snapshot of {} contacts to {}", contacts.size(), directory);
+    }
+
+    private <T> T locked (Supplier<T> action) {
+        lock.lock();
+        try {
+            return action.get();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private void append (List<Entry> entries) {
+        locked( () -> {
+            try {
+                for (Entry entry : entries) {
+                    logWriter.write(MAPPER.writeValueAsString(entry));
+                    logWriter.write('\n');
+                }
+                logWriter.flush();
+                if (syncWrites) {
+                    logStream.getChannel().force(false);
+                }
+                loggedEntries += entries.size();
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Failed to append to contacts log in " + directory, e);
+            }
+            return null;
+        });
+    }
+
+    private void openLog (boolean append) throws IOException {
+        logStream = new FileOutputStream(directory.resolve(LOG).toFile(), append);
+        logWriter = new BufferedWriter(new OutputStreamWriter(logStream, StandardCharsets.UTF_8));
+    }
+
+    private void closeLog () throws IOException {
+        if (logWriter != null) {
+            logWriter.close();
+            logWriter = null;
+        }
+    }
+
+    private static void apply (Entry entry, Map<String, Contact> contacts) {
+        if (entry.clear()) {
+            contacts.clear();
+        }
+        else if (entry.contact() != null) {
+            contacts.put(entry.contact().getId(), entry.contact());
+        }
+        else {
+            contacts.remove(entry.removed());
+        }
+    }
+
+    private static long readLines (Path file, LineHandler handler) throws IOException {
+        long count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            while (line != null) {
+                String next = reader.readLine();
+                if (!line.isBlank()) {
+                    try {
+                        handler.handle(line);
+                        count++;
+                    }
+                    catch (JsonProcessingException e) {
+                        if (next != null) {
+                            throw new IOException(String.format("Unreadable entry %d in %s", count + 1, file), e);
+                        }
+                        log.warn("Dropping incomplete last entry of {}", file);
+                    }
+                }
+                line = next;
+            }
+        }
+        return count;
+    }
+
+    // The tenant is kept out of the API but not out of the journal, contacts without one are the default tenant's
+    private abstract static class StoredContact {
+
+        @JsonIgnore(false)
+        private String tenantId;
+    }
+
+    // a line of the log: the contact as written, the id of a removed contact, or the removal of everything
+    private record Entry(Contact contact, String removed, boolean clear) {
+    }
+
+    @FunctionalInterface
+    private interface LineHandler {
+
+        void handle (String line) throws JsonProcessingException;
+    }
+}
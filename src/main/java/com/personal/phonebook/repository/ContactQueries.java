@@ -0,0 +1,342 @@
+package com.personal.phonebook.repository;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.personal.phonebook.model.ContactTombstone;
+import com.personal.phonebook.pagination.ContactCursor;
+import com.personal.phonebook.search.FuzzyNames;
+import com.personal.phonebook.search.PhoneNumbers;
+import com.personal.phonebook.search.SearchMode;
+import com.personal.phonebook.search.SearchTokenizer;
+import com.personal.phonebook.search.TextFolding;
+import com.personal.phonebook.sync.ChangeSequence;
+import com.personal.phonebook.sync.SyncToken;
+import com.personal.phonebook.tenant.TenantContext;
+
+/**
+ * Query and update documents for the contacts collection, shared by the blocking and the reactive template so both stacks
+ * hit the same indexes with the same shapes. Every query is confined to the tenant of the calling thread, see
+ * {@link TenantContext}.
+ */
+public final class ContactQueries {
+
+    private static final String PHONE = "phone";
+
+    private static final String FIRST_NAME = "firstName";
+
+    private static final String LAST_NAME = "lastName";
+
+    private static final String ADDRESS = "address";
+
+    private static final String[] SEARCHABLE_FIELDS = { FIRST_NAME, LAST_NAME, PHONE, ADDRESS };
+
+    // the TextFolding form of each searchable field, named after it
+    private static final String FOLDED = "Folded";
+
+    private static final String SEARCH_TOKENS = "searchTokens";
+
+    private static final String PHONE_NORMALIZED = "phoneNormalized";
+
+    private static final String PHONE_REVERSED = "phoneReversed";
+
+    private static final String FIRST_NAME_KEYS = "firstNameKeys";
+
+    private static final String LAST_NAME_KEYS = "lastNameKeys";
+
+    private static final String VERSION = "version";
+
+    private static final String TENANT_ID = "tenantId";
+
+    private static final String SEQUENCE = "sequence";
+
+    private static final String DELETED_AT = ContactTombstone.DELETED_AT;
+
+    private static final String SEARCH_VERSION = "searchVersion";
+
+    private static final String SHARED_TRIGRAMS = "sharedTrigrams";
+
+    // only needed by the indexes, no point in shipping them with every read
+    private static final String[] INDEX_FIELDS = { SEARCH_TOKENS, PHONE_REVERSED, FIRST_NAME_KEYS, LAST_NAME_KEYS, FIRST_NAME + FOLDED,
+                                                   LAST_NAME + FOLDED, PHONE + FOLDED, ADDRESS + FOLDED };
+
+    private ContactQueries () {
+    }
+
+    public static Query page (ContactFilter filter, ContactCursor after, long skip, Sort sort, int limit) {
+        Criteria criteria = filter(filter);
+        if (after != null) {
+            criteria = new Criteria().andOperator(criteria, keyset(after));
+        }
+        return withoutTokens(new Query(scoped(criteria)).with(sort).skip(skip).limit(limit));
+    }
+
+    public static Query stream (ContactFilter filter, Sort sort, int batchSize) {
+        return stream(filter, null, sort, batchSize);
+    }
+
+    // Every match after the cursor position when there is one, without a limit
+    public static Query stream (ContactFilter filter, ContactCursor after, Sort sort, int batchSize) {
+        Criteria criteria = filter(filter);
+        if (after != null) {
+            criteria = new Criteria().andOperator(criteria, keyset(after));
+        }
+        return withoutTokens(new Query(scoped(criteria)).with(sort).cursorBatchSize(batchSize));
+    }
+
+    public static Query count (ContactFilter filter, long limit) {
+        Query query = new Query(scoped(filter(filter)));
+        if (limit > 0) {
+            query.limit((int) Math.min(limit, Integer.MAX_VALUE));
+        }
+        return query;
+    }
+
+    public static Query byId (String id) {
+        return withoutTokens(new Query(scoped(where("_id").is(id))));
+    }
+
+    // The whole stored document, as the base repository methods return it
+    public static Query document (String id) {
+        return new Query(scoped(where("_id").is(id)));
+    }
+
+    // A single $in on _id, the whole batch in one round-trip
+    public static Query byIds (Collection<String> ids) {
+        return withoutTokens(new Query(scoped(where("_id").in(ids))));
+    }
+
+    // Served by the phoneNormalized index
+    public static Query phoneNumber (String normalizedPhone, int limit) {
+        return withoutTokens(new Query(scoped(where(PHONE_NORMALIZED).is(normalizedPhone))).limit(limit));
+    }
+
+    public static Query phoneNumbers (Collection<String> normalizedPhones) {
+        return withoutTokens(new Query(scoped(where(PHONE_NORMALIZED).in(normalizedPhones))));
+    }
+
+    // An anchored, case-sensitive regex is a range scan of the phoneReversed index
+    public static Query phoneSuffix (String reversedDigits, int limit) {
+        return withoutTokens(new Query(scoped(where(PHONE_REVERSED).regex("^" + reversedDigits))).limit(limit));
+    }
+
+    /**
+     * Up to {@code limit} contacts with one of the keys in either name, through the name key indexes - the candidates of a
+     * fuzzy search, leaving out the ones already found.
+     */
+    public static Query nameKeys (Collection<String> keys, Collection<String> excludedIds, int limit) {
+        Criteria criteria = new Criteria().orOperator(where(FIRST_NAME_KEYS).in(keys), where(LAST_NAME_KEYS).in(keys));
+        if (!excludedIds.isEmpty()) {
+            criteria = new Criteria().andOperator(criteria, where("_id").nin(excludedIds));
+        }
+        return withoutTokens(new Query(scoped(criteria)).limit(limit));
+    }
+
+    /**
+     * Up to {@code limit} contacts sharing one of the trigrams in either name, the ones sharing the most of them first - the
+     * spelled candidates of a fuzzy search, leaving out the ones already found. Only the contacts matched through the name key
+     * indexes are counted, and the ties are broken by id so that the same query always gets the same candidates.
+     */
+    public static Aggregation trigramCandidates (Collection<String> trigrams, Collection<String> excludedIds, int limit) {
+        Criteria criteria = new Criteria().orOperator(where(FIRST_NAME_KEYS).in(trigrams), where(LAST_NAME_KEYS).in(trigrams));
+        if (!excludedIds.isEmpty()) {
+            criteria = new Criteria().andOperator(criteria, where("_id").nin(excludedIds));
+        }
+        // the trigrams are padded with '$', which would otherwise read as field paths
+        Document nameKeys = new Document("$setUnion", List.of(new Document("$ifNull", List.of("$" + FIRST_NAME_KEYS, List.of())),
+                                                              new Document("$ifNull", List.of("$" + LAST_NAME_KEYS, List.of()))));
+        Document shared = new Document("$size", new Document("$setIntersection", List.of(nameKeys, new Document("$literal", trigrams))));
+        return Aggregation.newAggregation(Aggregation.match(scoped(criteria)),
+                                          Aggregation.addFields().addFieldWithValue(SHARED_TRIGRAMS, shared).build(),
+                                          Aggregation.sort(Sort.by(Sort.Direction.DESC, SHARED_TRIGRAMS).and(Sort.by("_id"))),
+                                          Aggregation.limit(limit),
+                                          Aggregation.project().andExclude(INDEX_FIELDS).andExclude(SHARED_TRIGRAMS));
+    }
+
+    public static Query projection (String id, Collection<String> fields) {
+        Query query = new Query(scoped(where("_id").is(id)));
+        query.fields().include(fields.toArray(String[]::new));
+        return query;
+    }
+
+    // A contact stored before versioning has no version, it is at version 0
+    public static Query versioned (String id, Long expectedVersion) {
+        Criteria criteria = where("_id").is(id);
+        if (expectedVersion != null && expectedVersion == 0) {
+            criteria = criteria.and(VERSION).in(0L, null);
+        }
+        else if (expectedVersion != null) {
+            criteria = criteria.and(VERSION).is(expectedVersion);
+        }
+        return withoutTokens(new Query(scoped(criteria)));
+    }
+
+    /**
+     * Contacts written after the position of the change feed, in feed order. Contacts without a sequence were written before
+     * the feed existed and come first, as sequence 0.
+     */
+    public static Query changedAfter (SyncToken after, int limit) {
+        Criteria criteria = new Criteria();
+        if (after.getSequence() == 0 && after.getId() != null) {
+            criteria = new Criteria().orOperator(where(SEQUENCE).gt(0), where(SEQUENCE).is(null).and("_id").gt(after.getId()));
+        }
+        else if (!after.isStart()) {
+            criteria = feedKeyset(after, "_id");
+        }
+        return withoutTokens(new Query(scoped(criteria)).with(Sort.by(SEQUENCE, "_id")).limit(limit));
+    }
+
+    // The tombstones share the contacts' (sequence, _id) index
+    public static Query deletedAfter (SyncToken after, int limit) {
+        Criteria criteria = after.isStart() ? new Criteria() : feedKeyset(after, "_id");
+        return new Query(deleted(criteria)).with(Sort.by(SEQUENCE, "_id")).limit(limit);
+    }
+
+    // The tombstone a contact re-created under its id replaces
+    public static Query tombstone (String id) {
+        return new Query(deleted(where("_id").is(id)));
+    }
+
+    /**
+     * The document a deleted contact is replaced by, without any of the fields the contact indexes are built on.
+     */
+    public static ContactTombstone tombstoneOf (String id, long sequence) {
+        return new ContactTombstone(id, TenantContext.tenantId(), sequence, Instant.now());
+    }
+
+    /**
+     * Full-text search, the tenant equality is what lets the tenant-led text index serve it at all.
+     */
+    public static TextQuery text (TextCriteria criteria) {
+        TextQuery query = TextQuery.queryText(criteria);
+        query.addCriteria(where(TENANT_ID).is(TenantContext.tenantId()).and(DELETED_AT).exists(false));
+        query.fields().exclude(INDEX_FIELDS);
+        return query;
+    }
+
+    /**
+     * Sets the given fields (a null value removes the field) and the search tokens of the resulting contact, increments the
+     * version and moves the contact to the end of the change feed. Updates bypass the mapping events, so the tokens, the phone
+     * and name keys, the folded fields and the sequence are not filled in by ContactIndexFieldsListener. The search version is
+     * only set when every searchable field is: a contact not folded yet still has its other fields to be folded by the backfill.
+     */
+    public static Update setFields (Map<String, String> fields, List<String> searchTokens) {
+        Update update = new Update();
+        fields.forEach( (field, value) -> {
+            if (value == null) {
+                update.unset(field).unset(field + FOLDED);
+            }
+            else {
+                update.set(field, value).set(field + FOLDED, TextFolding.fold(value));
+            }
+        });
+        if (fields.containsKey(PHONE)) {
+            update.set(PHONE_NORMALIZED, PhoneNumbers.normalize(fields.get(PHONE))).set(PHONE_REVERSED, PhoneNumbers.reversed(fields.get(PHONE)));
+        }
+        if (fields.containsKey(FIRST_NAME)) {
+            update.set(FIRST_NAME_KEYS, FuzzyNames.keys(fields.get(FIRST_NAME)));
+        }
+        if (fields.containsKey(LAST_NAME)) {
+            update.set(LAST_NAME_KEYS, FuzzyNames.keys(fields.get(LAST_NAME)));
+        }
+        if (fields.keySet().containsAll(Arrays.asList(SEARCHABLE_FIELDS))) {
+            update.set(SEARCH_VERSION, TextFolding.VERSION);
+        }
+        return update.set(SEARCH_TOKENS, searchTokens).set(SEQUENCE, ChangeSequence.next()).inc(VERSION, 1);
+    }
+
+    public static Criteria filter (ContactFilter filter) {
+        if (filter.isAll()) {
+            return new Criteria();
+        }
+        String text = filter.getQuery();
+        if (filter.getMode() == SearchMode.FUZZY) {
+            throw new UnsupportedOperationException("Fuzzy matches are ranked in memory, from the candidates of nameKeys");
+        }
+        if (filter.getMode() != SearchMode.NGRAM || !SearchTokenizer.supports(text)) {
+            return substring(text);
+        }
+        List<String> tokens = SearchTokenizer.queryTokens(text);
+        return tokens.size() == 1 ? token(tokens.get(0)) : tokens(tokens, text);
+    }
+
+    // The folded regex over the folded form of every searchable field - case-sensitive, so an anchored query is an index range
+    public static Criteria substring (String text) {
+        String folded = TextFolding.foldPattern(text);
+        return new Criteria().orOperator(Arrays.stream(SEARCHABLE_FIELDS).map(field -> where(field + FOLDED).regex(folded)).toList());
+    }
+
+    // Short queries are stored as whole n-grams, so a single exact lookup on the multikey index is enough
+    public static Criteria token (String token) {
+        return where(SEARCH_TOKENS).is(token);
+    }
+
+    // The token intersection narrows the candidates through the index, the regex keeps the substring semantics
+    public static Criteria tokens (List<String> tokens, String text) {
+        return new Criteria().andOperator(where(SEARCH_TOKENS).all(tokens), substring(text));
+    }
+
+    public static Query matching (Criteria criteria) {
+        return withoutTokens(new Query(scoped(criteria)));
+    }
+
+    /**
+     * The tenant is the leading key of every index, so the equality on it narrows every query before anything else does. The
+     * tombstones of deleted contacts are left out, they are only read by the change feed.
+     */
+    public static Criteria scoped (Criteria criteria) {
+        Criteria tenant = where(TENANT_ID).is(TenantContext.tenantId()).and(DELETED_AT).exists(false);
+        return criteria.getCriteriaObject().isEmpty() ? tenant : tenant.andOperator(criteria);
+    }
+
+    private static Criteria deleted (Criteria criteria) {
+        Criteria tenant = where(TENANT_ID).is(TenantContext.tenantId()).and(DELETED_AT).exists(true);
+        return criteria.getCriteriaObject().isEmpty() ? tenant : tenant.andOperator(criteria);
+    }
+
+    /**
+     * Everything strictly after the cursor position in (sort field, _id) order. Missing values sort before any string, so they
+     * come first ascending and last descending, and comparison operators never match them.
+     */
+    private static Criteria keyset (ContactCursor after) {
+        String field = after.getSortBy();
+        String value = after.getSortValue();
+        boolean ascending = after.getDirection().isAscending();
+
+        if (value == null) {
+            return ascending ? new Criteria().orOperator(where(field).ne(null), where(field).is(null).and("_id").gt(after.getId()))
+                             : where(field).is(null).and("_id").lt(after.getId());
+        }
+        if (ascending) {
+            return new Criteria().orOperator(where(field).gt(value), where(field).is(value).and("_id").gt(after.getId()));
+        }
+        return new Criteria().orOperator(where(field).lt(value), where(field).is(value).and("_id").lt(after.getId()), where(field).is(null));
+    }
+
+    // Strictly after the position in (sequence, id) order, after all of its sequence when it has no id
+    private static Criteria feedKeyset (SyncToken after, String idField) {
+        if (after.getId() == null) {
+            return where(SEQUENCE).gt(after.getSequence());
+        }
+        return new Criteria().orOperator(where(SEQUENCE).gt(after.getSequence()), where(SEQUENCE).is(after.getSequence()).and(idField).gt(after.getId()));
+    }
+
+    private static Query withoutTokens (Query query) {
+        query.fields().exclude(INDEX_FIELDS);
+        return query;
+    }
+}
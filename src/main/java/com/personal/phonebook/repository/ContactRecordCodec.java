@@ -0,0 +1,163 @@
+package com.personal.phonebook.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.tenant.TenantContext;
+
+/**
+ * Binary encoding of the records in the segment files of {@link ContactSegments}.
+ *
+ * <pre>
+ * record: body length (int) | CRC-32 of the body (int) | body
+ * body:   type (byte) | version (long, Long.MIN_VALUE when missing) | id | firstName | lastName | phone | address [| tenantId]
+ * string: UTF-8 length (unsigned short, 0xFFFF when missing) | UTF-8 bytes
+ * </pre>
+ *
+ * The tenant is left out for the default tenant, so records written before tenancy read back as the default tenant's.
+ *
+ * A removal carries only its type, a zero version and the id. A body length of zero marks the end of the written part of a
+ * segment, so the length is the last thing written for a record.
+ */
+final class ContactRecordCodec {
+
+    static final int HEADER_BYTES = 8;
+
+    static final byte PUT = 1;
+
+    static final byte REMOVE = 2;
+
+    static final byte CLEAR = 3;
+
+    private static final int MISSING = 0xFFFF;
+
+    private static final long NO_VERSION = Long.MIN_VALUE;
+
+    // type and version come before the id
+    private static final int ID_OFFSET = 9;
+
+    // strings every put carries, the tenant may follow them
+    private static final int FIELDS = 5;
+
+    private ContactRecordCodec () {
+    }
+
+    static byte[] put (Contact contact) {
+        boolean defaultTenant = TenantContext.DEFAULT_TENANT.equals(TenantContext.tenantIdOf(contact));
+        byte[][] fields = { utf8(contact.getId()), utf8(contact.getFirstName()), utf8(contact.getLastName()), utf8(contact.getPhone()),
+                            utf8(contact.getAddress()) };
+        if (!defaultTenant) {
+            fields = Arrays.copyOf(fields, FIELDS + 1);
+            fields[FIELDS] = utf8(contact.getTenantId());
+        }
+        int length = ID_OFFSET;
+        for (byte[] field : fields) {
+            length += 2 + (field == null ? 0 : field.length);
+        }
+        ByteBuffer body = ByteBuffer.allocate(length);
+        body.put(PUT).putLong(contact.getVersion() == null ? NO_VERSION : contact.getVersion());
+        for (byte[] field : fields) {
+            putString(body, field);
+        }
+        return record(body.array());
+    }
+
+    static byte[] remove (String id) {
+        byte[] utf8 = utf8(id);
+        ByteBuffer body = ByteBuffer.allocate(ID_OFFSET + 2 + utf8.length);
+        body.put(REMOVE).putLong(0);
+        putString(body, utf8);
+        return record(body.array());
+    }
+
+    static byte[] clear () {
+        return record(ByteBuffer.allocate(ID_OFFSET).put(CLEAR).putLong(0).array());
+    }
+
+    /**
+     * Length of the whole record at the position, or -1 when no intact record starts there - the end of the written part,
+     * or a record cut short while it was written.
+     */
+    static int recordLength (ByteBuffer segment, int position) {
+        if (position + HEADER_BYTES > segment.limit()) {
+            return -1;
+        }
+        int length = segment.getInt(position);
+        if (length <= 0 || position + HEADER_BYTES + length > segment.limit()) {
+            return -1;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(segment.slice(position + HEADER_BYTES, length));
+        return (int) crc.getValue() == segment.getInt(position + 4) ? HEADER_BYTES + length : -1;
+    }
+
+    static byte type (ByteBuffer segment, int position) {
+        return segment.get(position + HEADER_BYTES);
+    }
+
+    static String id (ByteBuffer segment, int position) {
+        return readString(segment, position + HEADER_BYTES + ID_OFFSET);
+    }
+
+    static Contact contact (ByteBuffer segment, int position) {
+        int end = position + HEADER_BYTES + segment.getInt(position);
+        int offset = position + HEADER_BYTES + 1;
+        long version = segment.getLong(offset);
+        offset += 8;
+        String[] fields = new String[FIELDS + 1];
+        for (int i = 0; i < fields.length && offset < end; i++) {
+            fields[i] = readString(segment, offset);
+            int length = Short.toUnsignedInt(segment.getShort(offset));
+            offset += 2 + (length == MISSING ? 0 : length);
+        }
+        Contact contact = new Contact();
+        contact.setId(fields[0]);
+        contact.setFirstName(fields[1]);
+        contact.setLastName(fields[2]);
+        contact.setPhone(fields[3]);
+        contact.setAddress(fields[4]);
+        contact.setVersion(version == NO_VERSION ? null : version);
+        contact.setTenantId(fields[FIELDS]);
+        return contact;
+    }
+
+    // CRC first and length last, see the class comment
+    private static byte[] record (byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return ByteBuffer.allocate(HEADER_BYTES + body.length).putInt(body.length).putInt((int) crc.getValue()).put(body).array();
+    }
+
+    private static byte[] utf8 (String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= MISSING) {
+            throw new IllegalArgumentException(String.format("Contact field of %d bytes exceeds the record limit of %d", bytes.length, MISSING - 1));
+        }
+        return bytes;
+    }
+
+    private static void putString (ByteBuffer body, byte[] utf8) {
+        if (utf8 == null) {
+            body.putShort((short) MISSING);
+        }
+        else {
+            body.putShort((short) utf8.length).put(utf8);
+        }
+    }
+
+    private static String readString (ByteBuffer segment, int offset) {
+        int length = Short.toUnsignedInt(segment.getShort(offset));
+        if (length == MISSING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        segment.get(offset + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
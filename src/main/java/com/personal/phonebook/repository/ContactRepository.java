@@ -1,16 +1,21 @@
 package com.personal.phonebook.repository;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import java.util.Optional;
+
 import org.springframework.data.mongodb.repository.MongoRepository;
-import org.springframework.data.mongodb.repository.Query;
 
 import com.personal.phonebook.model.Contact;
 
-public interface ContactRepository extends MongoRepository<Contact, String> {
+/**
+ * Writes and single-contact reads go to the primary. The listing and search reads of {@link ContactRepositoryCustom} follow
+ * the configured search read preference.
+ */
+public interface ContactRepository extends MongoRepository<Contact, String>, ContactRepositoryCustom {
+
+    // the tenant-scoped lookups of ContactRepositoryCustom take precedence over the ones of MongoRepository
+    @Override
+    Optional<Contact> findById (String id);
 
-    // Using regex for partial matching
-    @Query("{ $or: [ " + "{ 'firstName': { $regex: ?0, $options: 'i' } }, " + "{ 'lastName': { $regex: ?0, $options: 'i' } }, "
-                + "{ 'phone': { $regex: ?0, $options: 'i' } }, " + "{ 'address': { $regex: ?0, $options: 'i' } } " + "] }")
-    Page<Contact> searchContacts (String text, Pageable pageable);
+    @Override
+    boolean existsById (String id);
 }
@@ -0,0 +1,135 @@
+package com.personal.phonebook.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.pagination.ContactCursor;
+import com.personal.phonebook.sync.ContactChange;
+import com.personal.phonebook.sync.SyncToken;
+
+public interface ContactRepositoryCustom {
+
+    /**
+     * Page of all contacts. Overrides the repository's own {@code findAll(Pageable)} so that listings are routed like searches.
+     */
+    Page<Contact> findAll (Pageable pageable);
+
+    /**
+     * The contact with this id of the current tenant. Overrides the repository's own {@code findById}, which knows no tenants.
+     */
+    Optional<Contact> findById (String id);
+
+    boolean existsById (String id);
+
+    // Using regex for partial matching
+    Page<Contact> searchContacts (String text, Pageable pageable);
+
+    // Short queries are stored as whole n-grams, so a single exact lookup on the multikey index is enough
+    Page<Contact> searchByToken (String token, Pageable pageable);
+
+    // The token intersection narrows the candidates through the index, the regex keeps the substring semantics
+    Page<Contact> searchByTokens (List<String> tokens, String text, Pageable pageable);
+
+    // Served by the text index, the textScore is projected into Contact.score and ranks ahead of the pageable's sort
+    Page<Contact> findAllByOrderByScoreDesc (TextCriteria criteria, Pageable pageable);
+
+    /**
+     * Up to {@code limit} contacts matching the filter in the given sort order, starting right after {@code after} when a cursor
+     * is given and after skipping {@code skip} contacts otherwise. No count query is issued.
+     */
+    List<Contact> findContacts (ContactFilter filter, ContactCursor after, long skip, Sort sort, int limit);
+
+    /**
+     * Up to {@code limit} contacts whose phone has this {@link com.personal.phonebook.search.PhoneNumbers#normalize normalized}
+     * form.
+     */
+    List<Contact> findByPhoneNumber (String normalizedPhone, int limit);
+
+    /**
+     * Up to {@code limit} contacts whose phone ends with the digits given back to front.
+     */
+    List<Contact> findByPhoneSuffix (String reversedDigits, int limit);
+
+    /**
+     * Every contact whose phone has one of these normalized forms, read in a single round-trip.
+     */
+    List<Contact> findByPhoneNumbers (Collection<String> normalizedPhones);
+
+    /**
+     * Up to {@code limit} contacts sharing one of the {@link com.personal.phonebook.search.FuzzyNames FuzzyNames} phonetic
+     * keys in either name, filled up with contacts sharing one of the trigrams, the ones sharing the most trigrams first and
+     * by id among those sharing as many - the candidates of a fuzzy search.
+     */
+    List<Contact> findFuzzyCandidates (List<String> phoneticKeys, List<String> trigrams, int limit);
+
+    /**
+     * The contacts with these ids, in no particular order, read in a single round-trip. Ids with no contact are left out.
+     */
+    List<Contact> findByIds (Collection<String> ids);
+
+    /**
+     * Single contact by id with only the given fields (and the id) read from the store.
+     */
+    Optional<Contact> findContactById (String id, Collection<String> fields);
+
+    /**
+     * Atomically sets the given fields (a null value removes the field) together with the search tokens of the resulting
+     * contact, and increments the version - only when the stored version equals {@code expectedVersion}, if one is given.
+     *
+     * @return the contact as it was before the update, empty when no contact with this id (and version) exists
+     */
+    Optional<Contact> updateFields (String id, Long expectedVersion, Map<String, String> fields, List<String> searchTokens);
+
+    /**
+     * Atomically replaces the contact by its tombstone in the change feed, in a single write.
+     *
+     * @return the removed contact, empty when no contact with this id exists
+     */
+    Optional<Contact> deleteContactById (String id);
+
+    /**
+     * All contacts matching the filter, read lazily from a cursor fetching {@code batchSize} documents per round-trip. The stream
+     * holds the cursor open and has to be closed.
+     */
+    Stream<Contact> streamContacts (ContactFilter filter, Sort sort, int batchSize);
+
+    /**
+     * Number of contacts matching the filter, counting no further than {@code limit} when it is positive.
+     */
+    long countContacts (ContactFilter filter, long limit);
+
+    /**
+     * Number of contacts of the current tenant, from the collection metadata without scanning anything when the tenant has a
+     * collection of its own - which counts the tombstones of the recent deletions as well.
+     */
+    long estimateTotalCount ();
+
+    /**
+     * Up to {@code limit} entries of the current tenant's change feed after the given position, in {@link ContactChange#ORDER}:
+     * the contacts written since, as they are now, and the contacts deleted since.
+     */
+    List<ContactChange> findChanges (SyncToken after, int limit);
+
+    /**
+     * The sequence from which on every deletion is still known. A position of the change feed before it may have missed
+     * deletions whose tombstones are gone.
+     */
+    long changeHorizon ();
+
+    /**
+     * Inserts all contacts in one unordered bulk write - a failing contact does not stop the others. A contact with the id of a
+     * deleted one replaces its tombstone.
+     *
+     * @return the error message of every contact that was not inserted, keyed by its position in {@code contacts}
+     */
+    Map<Integer, String> bulkInsert (List<Contact> contacts);
+}
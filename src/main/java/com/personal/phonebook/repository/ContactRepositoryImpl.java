@@ -0,0 +1,269 @@
+package com.personal.phonebook.repository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import com.personal.phonebook.metrics.ContactMetrics;
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.model.ContactTombstone;
+import com.personal.phonebook.pagination.ContactCursor;
+import com.personal.phonebook.search.SearchMode;
+import com.personal.phonebook.search.SearchTokenizer;
+import com.personal.phonebook.sync.ChangeSequence;
+import com.personal.phonebook.sync.ContactChange;
+import com.personal.phonebook.sync.SyncToken;
+import com.personal.phonebook.tenant.TenantContext;
+
+import io.micrometer.core.instrument.Tags;
+
+public class ContactRepositoryImpl implements ContactRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    @Qualifier("searchMongoTemplate")
+    private MongoTemplate searchMongoTemplate;
+
+    @Autowired
+    private ContactMetrics contactMetrics;
+
+    @Value("${phonebook.sync.tombstone-retention:30d}")
+    private Duration tombstoneRetention;
+
+    @Override
+    public Page<Contact> findAll (Pageable pageable) {
+        return findPage("all", ContactQueries.matching(new Criteria()), pageable);
+    }
+
+    @Override
+    public Page<Contact> searchContacts (String text, Pageable pageable) {
+        return findPage("substring", ContactQueries.matching(ContactQueries.substring(text)), pageable);
+    }
+
+    @Override
+    public Page<Contact> searchByToken (String token, Pageable pageable) {
+        return findPage("token", ContactQueries.matching(ContactQueries.token(token)), pageable);
+    }
+
+    @Override
+    public Page<Contact> searchByTokens (List<String> tokens, String text, Pageable pageable) {
+        return findPage("tokens", ContactQueries.matching(ContactQueries.tokens(tokens, text)), pageable);
+    }
+
+    @Override
+    public Page<Contact> findAllByOrderByScoreDesc (TextCriteria criteria, Pageable pageable) {
+        return findPage("text", ContactQueries.text(criteria).sortByScore(), pageable);
+    }
+
+    @Override
+    public List<Contact> findContacts (ContactFilter filter, ContactCursor after, long skip, Sort sort, int limit) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY,
+                                     operation("find", queryShape(filter)),
+                                     () -> searchMongoTemplate.find(ContactQueries.page(filter, after, skip, sort, limit), Contact.class));
+    }
+
+    @Override
+    public List<Contact> findByPhoneNumber (String normalizedPhone, int limit) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY,
+                                     operation("find", "phone"),
+                                     () -> searchMongoTemplate.find(ContactQueries.phoneNumber(normalizedPhone, limit), Contact.class));
+    }
+
+    @Override
+    public List<Contact> findByPhoneSuffix (String reversedDigits, int limit) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY,
+                                     operation("find", "phoneSuffix"),
+                                     () -> searchMongoTemplate.find(ContactQueries.phoneSuffix(reversedDigits, limit), Contact.class));
+    }
+
+    @Override
+    public List<Contact> findByPhoneNumbers (Collection<String> normalizedPhones) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY,
+                                     operation("find", "phones"),
+                                     () -> searchMongoTemplate.find(ContactQueries.phoneNumbers(normalizedPhones), Contact.class));
+    }
+
+    // Contacts that sound like the query are far fewer than the ones sharing a trigram, so they are never crowded out by them
+    @Override
+    public List<Contact> findFuzzyCandidates (List<String> phoneticKeys, List<String> trigrams, int limit) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY, operation("find", "fuzzy"), () -> {
+            List<Contact> candidates = new ArrayList<>();
+            if (!phoneticKeys.isEmpty()) {
+                candidates.addAll(searchMongoTemplate.find(ContactQueries.nameKeys(phoneticKeys, List.of(), limit), Contact.class));
+            }
+            if (candidates.size() < limit && !trigrams.isEmpty()) {
+                List<String> found = candidates.stream().map(Contact::getId).toList();
+                candidates.addAll(searchMongoTemplate.aggregate(ContactQueries.trigramCandidates(trigrams, found, limit - candidates.size()),
+                                                                Contact.class,
+                                                                Contact.class)
+                                                     .getMappedResults());
+            }
+            return candidates;
+        });
+    }
+
+    @Override
+    public List<Contact> findByIds (Collection<String> ids) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY,
+                                     operation("findById", "ids"),
+                                     () -> mongoTemplate.find(ContactQueries.byIds(ids), Contact.class));
+    }
+
+    @Override
+    public Optional<Contact> findById (String id) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY,
+                                     operation("findById", "id"),
+                                     () -> Optional.ofNullable(mongoTemplate.findOne(ContactQueries.document(id), Contact.class)));
+    }
+
+    @Override
+    public boolean existsById (String id) {
+        return mongoTemplate.exists(ContactQueries.document(id), Contact.class);
+    }
+
+    @Override
+    public Optional<Contact> findContactById (String id, Collection<String> fields) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY,
+                                     operation("findById", "id"),
+                                     () -> Optional.ofNullable(mongoTemplate.findOne(ContactQueries.projection(id, fields), Contact.class)));
+    }
+
+    @Override
+    public Optional<Contact> updateFields (String id, Long expectedVersion, Map<String, String> fields, List<String> searchTokens) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY,
+                                     operation("update", "id"),
+                                     () -> Optional.ofNullable(mongoTemplate.findAndModify(ContactQueries.versioned(id, expectedVersion),
+                                                                                           ContactQueries.setFields(fields, searchTokens),
+                                                                                           FindAndModifyOptions.options().returnNew(false),
+                                                                                           Contact.class)));
+    }
+
+    @Override
+    public Optional<Contact> deleteContactById (String id) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY,
+                                     operation("delete", "id"),
+                                     () -> Optional.ofNullable(mongoTemplate.findAndReplace(ContactQueries.byId(id),
+                                                                                            ContactQueries.tombstoneOf(id, ChangeSequence.next()),
+                                                                                            FindAndReplaceOptions.none(),
+                                                                                            ContactTombstone.class,
+                                                                                            Contact.class)));
+    }
+
+    @Override
+    public Stream<Contact> streamContacts (ContactFilter filter, Sort sort, int batchSize) {
+        return searchMongoTemplate.stream(ContactQueries.stream(filter, sort, batchSize), Contact.class);
+    }
+
+    @Override
+    public long countContacts (ContactFilter filter, long limit) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY,
+                                     operation(limit > 0 ? "boundedCount" : "count", queryShape(filter)),
+                                     () -> searchMongoTemplate.count(ContactQueries.count(filter, limit), Contact.class));
+    }
+
+    // The metadata count is only the tenant's own when the collection holds no other tenant, otherwise the tenant's range of
+    // any tenant-led index is counted
+    @Override
+    public long estimateTotalCount () {
+        if (TenantContext.current().isShared()) {
+            return countContacts(ContactFilter.all(), 0);
+        }
+        return contactMetrics.record(ContactMetrics.REPOSITORY,
+                                     operation("estimatedCount", "all"),
+                                     () -> searchMongoTemplate.estimatedCount(Contact.class));
+    }
+
+    // Read from the primary, a lagging secondary would let the feed move past writes it has not seen yet
+    @Override
+    public List<ContactChange> findChanges (SyncToken after, int limit) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY,
+                                     operation("find", "changes"),
+                                     () -> ContactChange.merge(mongoTemplate.find(ContactQueries.changedAfter(after, limit), Contact.class),
+                                                               mongoTemplate.find(ContactQueries.deletedAfter(after, limit), ContactTombstone.class),
+                                                               limit));
+    }
+
+    // Tombstones are removed by a TTL index, which may run a little late but never early
+    @Override
+    public long changeHorizon () {
+        return ChangeSequence.at(Instant.now().minus(tombstoneRetention));
+    }
+
+    // The count is only issued when the page does not already tell the total
+    private Page<Contact> findPage (String queryShape, Query query, Pageable pageable) {
+        Query count = Query.of(query);
+        List<Contact> contacts = contactMetrics.record(ContactMetrics.REPOSITORY,
+                                                       operation("find", queryShape),
+                                                       () -> searchMongoTemplate.find(query.with(pageable), Contact.class));
+        return PageableExecutionUtils.getPage(contacts,
+                                              pageable,
+                                              () -> contactMetrics.record(ContactMetrics.REPOSITORY,
+                                                                          operation("count", queryShape),
+                                                                          () -> searchMongoTemplate.count(count, Contact.class)));
+    }
+
+    private static Tags operation (String operation, String queryShape) {
+        return Tags.of("operation", operation, "query", queryShape);
+    }
+
+    // Which of the query shapes of ContactQueries.filter the filter turns into
+    private static String queryShape (ContactFilter filter) {
+        if (filter.isAll()) {
+            return "all";
+        }
+        if (filter.getMode() != SearchMode.NGRAM || !SearchTokenizer.supports(filter.getQuery())) {
+            return "substring";
+        }
+        return SearchTokenizer.queryTokens(filter.getQuery()).size() == 1 ? "token" : "tokens";
+    }
+
+    @Override
+    public Map<Integer, String> bulkInsert (List<Contact> contacts) {
+        Map<Integer, String> failures = new LinkedHashMap<>();
+        try {
+            contactMetrics.record(ContactMetrics.REPOSITORY,
+                                  operation("bulkInsert", "none"),
+                                  () -> mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Contact.class).insert(contacts).execute());
+        }
+        catch (BulkOperationException e) {
+            e.getErrors().forEach(error -> failures.put(error.getIndex(), error.getMessage()));
+        }
+        // a contact imported again under the id of a deleted one takes the place of its tombstone
+        failures.keySet().removeIf(index -> contacts.get(index).getId() != null && replaceTombstone(contacts.get(index)));
+        return failures;
+    }
+
+    private boolean replaceTombstone (Contact contact) {
+        try {
+            return mongoTemplate.findAndReplace(ContactQueries.tombstone(contact.getId()), contact) != null;
+        }
+        catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+}
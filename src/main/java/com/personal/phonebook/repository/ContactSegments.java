@@ -0,0 +1,335 @@
+package com.personal.phonebook.repository;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import com.personal.phonebook.model.Contact;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Contacts kept in append-only, memory-mapped segment files of {@link ContactRecordCodec} records, with an off-heap
+ * {@link OffsetIndex} from id to the live record. Opening the segments maps them and walks them record by record, reading
+ * only the ids to rebuild the offset index. A contact is decoded when it is read - the heap indexes of the repository are
+ * the exception, they are rebuilt at startup from {@link #contacts()}, which decodes every live contact once.
+ * <p>
+ * Writes append to the newest segment and roll over to a new one when it is full. An update or removal leaves the earlier
+ * record behind as garbage, which {@link #compact(double)} reclaims by copying the live records of a mostly-garbage segment
+ * forward and deleting its file. Removal records are copied forward as well unless they are in the oldest segment, since
+ * an older segment could still hold the record they remove. Clearing the store writes a clear record to a new segment and
+ * deletes all older ones, so a clear record is only ever found in the oldest segment.
+ * <p>
+ * Not thread-safe, the repository serializes writes and compaction against reads.
+ */
+@Slf4j
+final class ContactSegments {
+
+    private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d{10})\\.dat");
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final boolean syncWrites;
+
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+
+    private final OffsetIndex index = new OffsetIndex(1024, this::idAt);
+
+    private Segment active;
+
+    ContactSegments (Path directory, int segmentSize, boolean syncWrites) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.syncWrites = syncWrites;
+    }
+
+    void open () {
+        try {
+            Files.createDirectories(directory);
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(directory)) {
+                files = listing.filter(file -> SEGMENT_FILE.matcher(file.getFileName().toString()).matches()).sorted().toList();
+            }
+            int cleared = -1;
+            for (int i = 0; i < files.size(); i++) {
+                Matcher name = SEGMENT_FILE.matcher(files.get(i).getFileName().toString());
+                name.matches();
+                Segment segment = map(Integer.parseInt(name.group(1)), files.get(i), Files.size(files.get(i)));
+                segments.put(segment.number, segment);
+                if (scan(segment, i == files.size() - 1)) {
+                    cleared = segment.number;
+                }
+            }
+            // left behind by a clear that did not get to delete them
+            for (Segment segment : List.copyOf(segments.headMap(cleared).values())) {
+                delete(segment);
+            }
+            active = segments.isEmpty() ? create(0) : segments.lastEntry().getValue();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed to open contact segments in " + directory, e);
+        }
+        log.info("Mapped {} contact segments in {} with {} live contacts", segments.size(), directory, index.size());
+    }
+
+    Contact get (String id) {
+        long location = index.get(id);
+        return location == OffsetIndex.ABSENT ? null : ContactRecordCodec.contact(segment(location).buffer, offset(location));
+    }
+
+    /**
+     * Live contacts in the order their records were written, decoded as the stream is consumed.
+     */
+    Stream<Contact> contacts () {
+        return List.copyOf(segments.values())
+                   .stream()
+                   .flatMap(segment -> records(segment).filter(offset -> ContactRecordCodec.type(segment.buffer, offset) == ContactRecordCodec.PUT)
+                                                       .filter(offset -> isLive(segment, offset))
+                                                       .map(offset -> ContactRecordCodec.contact(segment.buffer, offset)));
+    }
+
+    int size () {
+        return index.size();
+    }
+
+    void put (List<Contact> contacts) {
+        for (Contact contact : contacts) {
+            long location = append(ContactRecordCodec.put(contact));
+            live(contact.getId(), location);
+        }
+    }
+
+    void remove (List<String> ids) {
+        for (String id : ids) {
+            append(ContactRecordCodec.remove(id));
+            dead(index.remove(id));
+        }
+    }
+
+    void clear () {
+        List<Segment> previous = List.copyOf(segments.values());
+        active = create(active.number + 1);
+        append(ContactRecordCodec.clear());
+        index.clear();
+        previous.forEach(this::delete);
+    }
+
+    /**
+     * Reclaims the sealed segment with the smallest share of live bytes, when that share is below the threshold.
+     *
+     * @return whether a segment was compacted
+     */
+    boolean compact (double threshold) {
+        Segment candidate = segments.values()
+                                    .stream()
+                                    .filter(segment -> segment != active && liveShare(segment) < threshold)
+                                    .min(Comparator.comparingDouble(ContactSegments::liveShare))
+                                    .orElse(null);
+        if (candidate == null) {
+            return false;
+        }
+        boolean oldest = candidate.number == segments.firstKey();
+        long live = candidate.liveBytes;
+        records(candidate).forEach(offset -> {
+            byte type = ContactRecordCodec.type(candidate.buffer, offset);
+            String id = type == ContactRecordCodec.CLEAR ? null : ContactRecordCodec.id(candidate.buffer, offset);
+            if (type == ContactRecordCodec.PUT && isLive(candidate, offset)) {
+                live(id, append(copy(candidate, offset)));
+            }
+            else if (type == ContactRecordCodec.REMOVE && !oldest && index.get(id) == OffsetIndex.ABSENT) {
+                append(copy(candidate, offset));
+            }
+        });
+        delete(candidate);
+        log.info("Compacted contact segment {}, kept {} of its {} bytes", candidate.number, live, candidate.end);
+        return true;
+    }
+
+    void close () {
+        segments.values().forEach(segment -> segment.buffer.force());
+        segments.clear();
+    }
+
+    // Whether the segment ends in a clear record, which makes every earlier record irrelevant
+    private boolean scan (Segment segment, boolean last) {
+        boolean cleared = false;
+        int offset = 0;
+        int length;
+        while ((length = ContactRecordCodec.recordLength(segment.buffer, offset)) > 0) {
+            byte type = ContactRecordCodec.type(segment.buffer, offset);
+            long location = location(segment.number, offset);
+            if (type == ContactRecordCodec.PUT) {
+                live(ContactRecordCodec.id(segment.buffer, offset), location);
+            }
+            else if (type == ContactRecordCodec.REMOVE) {
+                dead(index.remove(ContactRecordCodec.id(segment.buffer, offset)));
+            }
+            else {
+                index.clear();
+                segments.values().forEach(previous -> previous.liveBytes = 0);
+                cleared = true;
+            }
+            offset += length;
+        }
+        segment.end = offset;
+        if (last) {
+            // a record cut short by a crash - possibly before its length, with the rest of it written - is cleared, so that
+            // none of it is left behind the end once a later append rolls over to a new segment
+            if (!isZero(segment.buffer, offset)) {
+                log.warn("Discarding incomplete record at offset {} of {}", offset, segment.file);
+                for (int i = offset; i < segment.buffer.limit(); i++) {
+                    segment.buffer.put(i, (byte) 0);
+                }
+            }
+        }
+        else if (offset + Integer.BYTES <= segment.buffer.limit() && segment.buffer.getInt(offset) != 0) {
+            throw new IllegalStateException(String.format("Contact segment %s is corrupt at offset %d", segment.file, offset));
+        }
+        return cleared;
+    }
+
+    private static boolean isZero (MappedByteBuffer buffer, int from) {
+        for (int i = from; i < buffer.limit(); i++) {
+            if (buffer.get(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long append (byte[] record) {
+        if (record.length > segmentSize) {
+            throw new IllegalArgumentException(String.format("Contact record of %d bytes does not fit a segment of %d bytes", record.length, segmentSize));
+        }
+        if (active.end + record.length > active.buffer.limit()) {
+            active = create(active.number + 1);
+        }
+        int offset = active.end;
+        // everything but the length first, a record only counts once its length is there
+        active.buffer.put(offset + Integer.BYTES, record, Integer.BYTES, record.length - Integer.BYTES);
+        active.buffer.putInt(offset, record.length - ContactRecordCodec.HEADER_BYTES);
+        if (syncWrites) {
+            active.buffer.force(offset, record.length);
+        }
+        active.end += record.length;
+        return location(active.number, offset);
+    }
+
+    private void live (String id, long location) {
+        dead(index.put(id, location));
+        segment(location).liveBytes += length(location);
+    }
+
+    private void dead (long location) {
+        if (location != OffsetIndex.ABSENT) {
+            segment(location).liveBytes -= length(location);
+        }
+    }
+
+    private boolean isLive (Segment segment, int offset) {
+        return index.get(ContactRecordCodec.id(segment.buffer, offset)) == location(segment.number, offset);
+    }
+
+    private Stream<Integer> records (Segment segment) {
+        return Stream.iterate(0, offset -> offset < segment.end, offset -> offset + length(segment.buffer, offset));
+    }
+
+    private String idAt (long location) {
+        return ContactRecordCodec.id(segment(location).buffer, offset(location));
+    }
+
+    private Segment segment (long location) {
+        return segments.get((int) (location >>> 32));
+    }
+
+    private long length (long location) {
+        return length(segment(location).buffer, offset(location));
+    }
+
+    private static int length (MappedByteBuffer buffer, int offset) {
+        return ContactRecordCodec.HEADER_BYTES + buffer.getInt(offset);
+    }
+
+    private static byte[] copy (Segment segment, int offset) {
+        byte[] record = new byte[length(segment.buffer, offset)];
+        segment.buffer.get(offset, record);
+        return record;
+    }
+
+    private static double liveShare (Segment segment) {
+        return segment.end == 0 ? 0 : (double) segment.liveBytes / segment.end;
+    }
+
+    private static long location (int segment, int offset) {
+        return ((long) segment << 32) | offset;
+    }
+
+    private static int offset (long location) {
+        return (int) location;
+    }
+
+    private Segment create (int number) {
+        Path file = directory.resolve(String.format("segment-%010d.dat", number));
+        try {
+            Segment segment = map(number, file, segmentSize);
+            segments.put(number, segment);
+            return segment;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed to create contact segment " + file, e);
+        }
+    }
+
+    // The mapping stays valid after the channel is closed
+    private static Segment map (int number, Path file, long size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw"); FileChannel channel = raf.getChannel()) {
+            if (raf.length() < size) {
+                raf.setLength(size);
+            }
+            return new Segment(number, file, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+
+    // The mapping itself is released once the buffer is collected
+    private void delete (Segment segment) {
+        segments.remove(segment.number);
+        try {
+            Files.deleteIfExists(segment.file);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete contact segment " + segment.file, e);
+        }
+    }
+
+    private static final class Segment {
+
+        private final int number;
+
+        private final Path file;
+
+        private final MappedByteBuffer buffer;
+
+        // end of the written records
+        private int end;
+
+        private long liveBytes;
+
+        private Segment (int number, Path file, MappedByteBuffer buffer) {
+            this.number = number;
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+}
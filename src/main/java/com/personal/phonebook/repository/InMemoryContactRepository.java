@@ -0,0 +1,167 @@
+package com.personal.phonebook.repository;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+
+import com.personal.phonebook.model.Contact;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Storage engine for a phonebook that fits in memory, selected by the {@code memory} profile in place of MongoDB. The contacts
+ * are held on the heap, queried through the indexes of {@link IndexedContactRepository}.
+ * <p>
+ * With {@code phonebook.storage.memory.directory} set, every write is appended to a {@link ContactJournal} before it is
+ * applied, and the log is compacted into a snapshot every {@code snapshot-after} writes and on shutdown. The periodic snapshots
+ * are written by a thread of their own, the write that reaches the threshold only hands it over.
+ */
+@Slf4j
+@Repository
+@Profile("memory")
+public class InMemoryContactRepository extends IndexedContactRepository {
+
+    @Value("${phonebook.storage.memory.directory:}")
+    private String directory;
+
+    @Value("${phonebook.storage.memory.snapshot-after:10000}")
+    private long snapshotAfter;
+
+    @Value("${phonebook.storage.memory.sync-writes:false}")
+    private boolean syncWrites;
+
+    // insertion order stands in for the natural order of unsorted reads
+    private final Map<String, Contact> contacts = new LinkedHashMap<>();
+
+    private final AtomicBoolean snapshotting = new AtomicBoolean();
+
+    private ContactJournal journal;
+
+    private ExecutorService snapshotter;
+
+    @PostConstruct
+    public void init () {
+        if (!StringUtils.hasText(directory)) {
+            log.info("In-memory contact storage without persistence");
+            return;
+        }
+        journal = new ContactJournal(Path.of(directory), syncWrites);
+        journal.load(contacts);
+        snapshotter = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "contact-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        index(contacts.values().stream());
+        log.info("In-memory contact storage loaded {} contacts from {}", contacts.size(), directory);
+    }
+
+    @PreDestroy
+    public void close () {
+        if (journal != null) {
+            snapshotter.shutdown();
+            try {
+                snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            snapshot();
+            journal.close();
+        }
+    }
+
+    /**
+     * Compacts the log into a new snapshot. Writes only wait for the log to be rotated and the contacts to be taken, not for
+     * the snapshot to be written.
+     */
+    public void snapshot () {
+        if (journal != null && snapshotting.compareAndSet(false, true)) {
+            writeSnapshot();
+        }
+    }
+
+    private void writeSnapshot () {
+        try {
+            // the stored contacts are replaced on every write, never changed, so the references are the state at the rotation
+            List<Contact> taken = read( () -> {
+                journal.rotate();
+                return List.copyOf(contacts.values());
+            });
+            journal.snapshot(taken);
+        }
+        catch (UncheckedIOException e) {
+            // the logs are kept until a snapshot succeeds, nothing is lost
+            log.warn("Failed to snapshot the in-memory contacts", e);
+        }
+        finally {
+            snapshotting.set(false);
+        }
+    }
+
+    @Override
+    protected Contact stored (String id) {
+        return contacts.get(id);
+    }
+
+    @Override
+    protected Stream<Contact> storedContacts () {
+        return contacts.values().stream();
+    }
+
+    @Override
+    protected int storedCount () {
+        return contacts.size();
+    }
+
+    @Override
+    protected void store (List<Contact> written) {
+        if (journal != null) {
+            journal.put(written);
+        }
+        written.forEach(contact -> contacts.put(contact.getId(), contact));
+    }
+
+    @Override
+    protected void remove (List<String> ids) {
+        if (journal != null) {
+            journal.remove(ids);
+        }
+        ids.forEach(contacts::remove);
+    }
+
+    @Override
+    protected void removeAll () {
+        if (journal != null) {
+            journal.clear();
+        }
+        contacts.clear();
+    }
+
+    // the stored contact itself, the sort indexes add no copies
+    @Override
+    protected Contact indexKey (Contact contact, String field) {
+        return contact;
+    }
+
+    @Override
+    protected void afterWrite () {
+        if (journal != null && journal.loggedEntries() >= snapshotAfter && snapshotting.compareAndSet(false, true)) {
+            snapshotter.execute(this::writeSnapshot);
+        }
+    }
+}
@@ -0,0 +1,967 @@
+package com.personal.phonebook.repository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.repository.query.FluentQuery;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import com.personal.phonebook.metrics.ContactMetrics;
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.pagination.ContactCursor;
+import com.personal.phonebook.search.FuzzyNames;
+import com.personal.phonebook.search.PhoneNumbers;
+import com.personal.phonebook.search.SearchMode;
+import com.personal.phonebook.search.SearchTokenizer;
+import com.personal.phonebook.search.TextFolding;
+import com.personal.phonebook.service.ContactService;
+import com.personal.phonebook.sync.ChangeSequence;
+import com.personal.phonebook.sync.ContactChange;
+import com.personal.phonebook.sync.SyncToken;
+import com.personal.phonebook.tenant.TenantContext;
+
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Query side of the local storage engines, independent of where they keep the contacts themselves.
+ * <p>
+ * Every allowed sort field has a sorted (field, id) index, so pages and cursors are read by walking it instead of sorting,
+ * and an n-gram index maps every {@link SearchTokenizer} token to the ids of the contacts containing it, so searches only
+ * look at candidates. Phone lookups go through a sorted index of the reversed phone digits, fuzzy searches through an index of
+ * the {@link FuzzyNames} keys of the names. Results follow the MongoDB repository: missing values sort first, searches keep
+ * the substring semantics of {@link ContactFilter}, and versioned saves and updates fail the same way. The folded fields are
+ * not stored, candidates are folded as they are confirmed. Full-text search matches whole words, without the stemming and
+ * stop words of a text index, and like the text index ignores accents.
+ * <p>
+ * The indexes are kept per tenant, so the reads of a tenant only ever walk its own contacts whatever the tenancy strategy -
+ * the contacts of all tenants are stored together, ids are unique across them, and a contact of another tenant is treated
+ * as missing.
+ * <p>
+ * Every write takes the next {@link ChangeSequence} under the lock, so the change feed of a tenant is in the order of its
+ * writes. The feed and its tombstones are only kept on the heap: the contacts loaded at startup enter the feed in load
+ * order, and positions from before the startup are behind the {@link #changeHorizon() horizon}.
+ * <p>
+ * Reads share a lock and writes hold it exclusively, so the engine behind the storage hooks needs no locking of its own.
+ * The search tokens, phone keys and name keys are derived from the stored fields and never stored.
+ */
+public abstract class IndexedContactRepository implements ContactRepository {
+
+    // a match on more than this share of all contacts is cheaper to find by walking the sort index than by sorting it
+    private static final int BROAD_MATCH_DIVISOR = 8;
+
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Map<String, Function<Contact, String>> PROPERTIES = Map.of("id",
+                                                                                    Contact::getId,
+                                                                                    "_id",
+                                                                                    Contact::getId,
+                                                                                    "firstName",
+                                                                                    Contact::getFirstName,
+                                                                                    "lastName",
+                                                                                    Contact::getLastName,
+                                                                                    "phone",
+                                                                                    Contact::getPhone,
+                                                                                    "address",
+                                                                                    Contact::getAddress);
+
+    @Autowired
+    private ContactMetrics contactMetrics;
+
+    @Value("${phonebook.sync.tombstone-retention:30d}")
+    private Duration tombstoneRetention = Duration.ofDays(30);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // keyed by tenant id
+    private final Map<String, Partition> partitions = new HashMap<>();
+
+    // what the reads of a tenant without contacts see, never written to
+    private final Partition empty = new Partition();
+
+    // deletions before it are not in the feed, they happened before the engine loaded or the store was cleared
+    private long horizon = ChangeSequence.next();
+
+    /**
+     * The stored contact with this id, null when there is none. The result is only read, never changed or handed out.
+     */
+    protected abstract Contact stored (String id);
+
+    /**
+     * Every stored contact, in the order unsorted reads return them.
+     */
+    protected abstract Stream<Contact> storedContacts ();
+
+    protected abstract int storedCount ();
+
+    /**
+     * Durably stores the contacts, replacing any stored under the same ids.
+     */
+    protected abstract void store (List<Contact> contacts);
+
+    protected abstract void remove (List<String> ids);
+
+    protected abstract void removeAll ();
+
+    /**
+     * What the sort index of the field holds for the contact - it has to carry at least the id and that field.
+     */
+    protected abstract Contact indexKey (Contact contact, String field);
+
+    /**
+     * Runs after every write, outside the lock.
+     */
+    protected void afterWrite () {
+    }
+
+    /**
+     * Adds contacts that are already stored to the sort and search indexes, when the engine loads.
+     */
+    protected void index (Stream<Contact> contacts) {
+        contacts.forEach(this::index);
+    }
+
+    @Override
+    public <S extends Contact> S save (S entity) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY, operation("save", "id"), () -> write( () -> {
+            Contact stored = entity.getVersion() == null ? prepareInsert(entity) : prepareSave(entity);
+            replace(List.of(stored));
+            return entity;
+        }));
+    }
+
+    @Override
+    public <S extends Contact> List<S> saveAll (Iterable<S> entities) {
+        return StreamSupport.stream(entities.spliterator(), false).map(this::save).toList();
+    }
+
+    @Override
+    public <S extends Contact> S insert (S entity) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY, operation("insert", "id"), () -> write( () -> {
+            replace(List.of(prepareInsert(entity)));
+            return entity;
+        }));
+    }
+
+    @Override
+    public <S extends Contact> List<S> insert (Iterable<S> entities) {
+        return StreamSupport.stream(entities.spliterator(), false).map(this::insert).toList();
+    }
+
+    @Override
+    public Optional<Contact> findById (String id) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY,
+                                     operation("findById", "id"),
+                                     () -> read( () -> Optional.ofNullable(visible(id)).map(IndexedContactRepository::copyWithTokens)));
+    }
+
+    @Override
+    public boolean existsById (String id) {
+        return read( () -> visible(id) != null);
+    }
+
+    @Override
+    public List<Contact> findAll () {
+        return read( () -> storedContacts().map(IndexedContactRepository::copy).toList());
+    }
+
+    @Override
+    public List<Contact> findAll (Sort sort) {
+        return read( () -> select(ContactFilter.all(), sort, null).map(IndexedContactRepository::copy).toList());
+    }
+
+    @Override
+    public List<Contact> findAllById (Iterable<String> ids) {
+        return read( () -> StreamSupport.stream(ids.spliterator(), false)
+                                        .map(this::visible)
+                                        .filter(Objects::nonNull)
+                                        .map(IndexedContactRepository::copy)
+                                        .toList());
+    }
+
+    @Override
+    public long count () {
+        return read(this::storedCount);
+    }
+
+    @Override
+    public void deleteById (String id) {
+        deleteContactById(id);
+    }
+
+    @Override
+    public void delete (Contact entity) {
+        write( () -> {
+            Contact stored = visible(entity.getId());
+            boolean matches = stored != null && (entity.getVersion() == null || entity.getVersion().equals(stored.getVersion()));
+            if (matches) {
+                discard(List.of(stored));
+            }
+            else if (entity.getVersion() != null) {
+                throw new OptimisticLockingFailureException(String.format("The entity with id %s with version %s was already deleted or changed",
+                                                                          entity.getId(),
+                                                                          entity.getVersion()));
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteAllById (Iterable<? extends String> ids) {
+        write( () -> {
+            List<Contact> present = StreamSupport.stream(ids.spliterator(), false)
+                                                 .map(id -> visible(id))
+                                                 .filter(Objects::nonNull)
+                                                 .toList();
+            discard(present);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteAll (Iterable<? extends Contact> entities) {
+        entities.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll () {
+        write( () -> {
+            removeAll();
+            partitions.clear();
+            horizon = ChangeSequence.next();
+            return null;
+        });
+    }
+
+    @Override
+    public Page<Contact> findAll (Pageable pageable) {
+        return findPage("all", ContactFilter.all(), pageable);
+    }
+
+    @Override
+    public Page<Contact> searchContacts (String text, Pageable pageable) {
+        return findPage("substring", ContactFilter.matching(text, SearchMode.REGEX), pageable);
+    }
+
+    @Override
+    public Page<Contact> searchByToken (String token, Pageable pageable) {
+        return findPage("token", ContactFilter.matching(token, SearchMode.NGRAM), pageable);
+    }
+
+    @Override
+    public Page<Contact> searchByTokens (List<String> tokens, String text, Pageable pageable) {
+        return findPage("tokens", ContactFilter.matching(text, SearchMode.NGRAM), pageable);
+    }
+
+    @Override
+    public Page<Contact> findAllByOrderByScoreDesc (TextCriteria criteria, Pageable pageable) {
+        Set<String> terms = new HashSet<>(words(criteria.getCriteriaObject().get("$text", Document.class).getString("$search")));
+        return contactMetrics.record(ContactMetrics.REPOSITORY, operation("find", "text"), () -> read( () -> {
+            Map<Contact, Float> scores = new IdentityHashMap<>();
+            partitionContacts().forEach(contact -> {
+                float score = Stream.of(contact.getFirstName(), contact.getLastName(), contact.getPhone(), contact.getAddress())
+                                    .filter(Objects::nonNull)
+                                    .flatMap(field -> words(field).stream())
+                                    .filter(terms::contains)
+                                    .count();
+                if (score > 0) {
+                    scores.put(contact, score);
+                }
+            });
+            Comparator<Contact> byScore = Comparator.comparing(scores::get, Comparator.reverseOrder());
+            Comparator<Contact> order = comparator(pageable.getSort());
+            List<Contact> matches = scores.keySet()
+                                          .stream()
+                                          .sorted(order == null ? byScore : byScore.thenComparing(order))
+                                          .skip(pageable.isPaged() ? pageable.getOffset() : 0)
+                                          .limit(pageable.isPaged() ? pageable.getPageSize() : Long.MAX_VALUE)
+                                          .map(contact -> {
+                                              Contact copy = copy(contact);
+                                              copy.setScore(scores.get(contact));
+                                              return copy;
+                                          })
+                                          .toList();
+            return PageableExecutionUtils.getPage(matches, pageable, scores::size);
+        }));
+    }
+
+    @Override
+    public List<Contact> findContacts (ContactFilter filter, ContactCursor after, long skip, Sort sort, int limit) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY,
+                                     operation("find", queryShape(filter)),
+                                     () -> read( () -> select(filter, sort, after).skip(skip).limit(limit).map(IndexedContactRepository::copy).toList()));
+    }
+
+    @Override
+    public List<Contact> findByPhoneNumber (String normalizedPhone, int limit) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY,
+                                     operation("find", "phone"),
+                                     () -> read( () -> withPhoneNumber(normalizedPhone).limit(limit).map(IndexedContactRepository::copy).toList()));
+    }
+
+    @Override
+    public List<Contact> findByPhoneNumbers (Collection<String> normalizedPhones) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY,
+                                     operation("find", "phones"),
+                                     () -> read( () -> normalizedPhones.stream()
+                                                                       .distinct()
+                                                                       .flatMap(this::withPhoneNumber)
+                                                                       .map(IndexedContactRepository::copy)
+                                                                       .toList()));
+    }
+
+    @Override
+    public List<Contact> findByPhoneSuffix (String reversedDigits, int limit) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY,
+                                     operation("find", "phoneSuffix"),
+                                     () -> read( () -> partition().phoneIndex.subMap(reversedDigits, true, reversedDigits + Character.MAX_VALUE, false)
+                                                                             .values()
+                                                                             .stream()
+                                                                             .flatMap(Set::stream)
+                                                                             .limit(limit)
+                                                                             .map(this::stored)
+                                                                             .map(IndexedContactRepository::copy)
+                                                                             .toList()));
+    }
+
+    // Phonetic matches first, then the most trigrams shared, as the MongoDB repository finds them
+    @Override
+    public List<Contact> findFuzzyCandidates (List<String> phoneticKeys, List<String> trigrams, int limit) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY, operation("find", "fuzzy"), () -> read( () -> {
+            Map<String, Set<String>> nameKeyIndex = partition().nameKeyIndex;
+            Set<String> phonetic = phoneticKeys.stream()
+                                               .flatMap(key -> nameKeyIndex.getOrDefault(key, Set.of()).stream())
+                                               .distinct()
+                                               .limit(limit)
+                                               .collect(Collectors.toCollection(LinkedHashSet::new));
+            Map<String, Integer> sharedTrigrams = new HashMap<>();
+            for (String trigram : new LinkedHashSet<>(trigrams)) {
+                for (String id : nameKeyIndex.getOrDefault(trigram, Set.of())) {
+                    if (!phonetic.contains(id)) {
+                        sharedTrigrams.merge(id, 1, Integer::sum);
+                    }
+                }
+            }
+            Stream<String> spelled = sharedTrigrams.entrySet()
+                                                   .stream()
+                                                   .sorted(Map.Entry.<String, Integer> comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                                                   .map(Map.Entry::getKey);
+            return Stream.concat(phonetic.stream(), spelled)
+                         .limit(limit)
+                         .map(this::stored)
+                         .map(IndexedContactRepository::copy)
+                         .toList();
+        }));
+    }
+
+    @Override
+    public List<Contact> findByIds (Collection<String> ids) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY,
+                                     operation("findById", "ids"),
+                                     () -> read( () -> ids.stream()
+                                                          .distinct()
+                                                          .map(this::visible)
+                                                          .filter(Objects::nonNull)
+                                                          .map(IndexedContactRepository::copy)
+                                                          .toList()));
+    }
+
+    @Override
+    public Optional<Contact> findContactById (String id, Collection<String> fields) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY, operation("findById", "id"), () -> read( () -> {
+            Contact contact = visible(id);
+            if (contact == null) {
+                return Optional.<Contact> empty();
+            }
+            Contact projection = new Contact();
+            projection.setId(contact.getId());
+            BeanWrapperImpl source = new BeanWrapperImpl(contact);
+            BeanWrapperImpl target = new BeanWrapperImpl(projection);
+            fields.forEach(field -> target.setPropertyValue(field, source.getPropertyValue(field)));
+            return Optional.of(projection);
+        }));
+    }
+
+    @Override
+    public Optional<Contact> updateFields (String id, Long expectedVersion, Map<String, String> fields, List<String> searchTokens) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY, operation("update", "id"), () -> write( () -> {
+            Contact previous = visible(id);
+            // a contact stored before versioning is at version 0
+            if (previous == null || (expectedVersion != null && !expectedVersion.equals(Objects.requireNonNullElse(previous.getVersion(), 0L)))) {
+                return Optional.<Contact> empty();
+            }
+            Contact updated = copy(previous);
+            BeanWrapperImpl bean = new BeanWrapperImpl(updated);
+            fields.forEach(bean::setPropertyValue);
+            updated.setVersion(previous.getVersion() == null ? 1 : previous.getVersion() + 1);
+            replace(List.of(updated));
+            return Optional.of(copy(previous));
+        }));
+    }
+
+    @Override
+    public Optional<Contact> deleteContactById (String id) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY, operation("delete", "id"), () -> write( () -> {
+            Contact previous = visible(id);
+            if (previous == null) {
+                return Optional.<Contact> empty();
+            }
+            discard(List.of(previous));
+            return Optional.of(copy(previous));
+        }));
+    }
+
+    /**
+     * Read from a copy of the matching contacts taken at the call, so the stream holds no lock while it is consumed.
+     */
+    @Override
+    public Stream<Contact> streamContacts (ContactFilter filter, Sort sort, int batchSize) {
+        return read( () -> select(filter, sort, null).map(IndexedContactRepository::copy).toList()).stream();
+    }
+
+    @Override
+    public long countContacts (ContactFilter filter, long limit) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY,
+                                     operation(limit > 0 ? "boundedCount" : "count", queryShape(filter)),
+                                     () -> read( () -> count(filter, limit)));
+    }
+
+    @Override
+    public long estimateTotalCount () {
+        return contactMetrics.record(ContactMetrics.REPOSITORY, operation("estimatedCount", "all"), () -> read( () -> (long) partition().ids.size()));
+    }
+
+    @Override
+    public List<ContactChange> findChanges (SyncToken after, int limit) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY, operation("find", "changes"), () -> read( () -> {
+            // sequences are unique within the process, so the id of the position adds nothing to its sequence
+            Partition partition = partition();
+            List<ContactChange> changes = new ArrayList<>();
+            partition.changes.tailMap(after.getSequence(), false)
+                             .entrySet()
+                             .stream()
+                             .limit(limit)
+                             .forEach(change -> changes.add(ContactChange.written(change.getKey(), copy(stored(change.getValue())))));
+            partition.tombstones.tailMap(after.getSequence(), false)
+                                .entrySet()
+                                .stream()
+                                .limit(limit)
+                                .forEach(tombstone -> changes.add(ContactChange.deleted(tombstone.getKey(), tombstone.getValue())));
+            changes.sort(ContactChange.ORDER);
+            return changes.size() > limit ? changes.subList(0, limit) : changes;
+        }));
+    }
+
+    @Override
+    public long changeHorizon () {
+        return read( () -> Math.max(horizon, retainedSince()));
+    }
+
+    @Override
+    public Map<Integer, String> bulkInsert (List<Contact> batch) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY, operation("bulkInsert", "none"), () -> write( () -> {
+            Map<Integer, String> failures = new LinkedHashMap<>();
+            Map<String, Contact> inserted = new LinkedHashMap<>();
+            Set<String> insertedPhones = new HashSet<>();
+            for (int i = 0; i < batch.size(); i++) {
+                Contact contact = batch.get(i);
+                if (contact.getId() != null && (stored(contact.getId()) != null || inserted.containsKey(contact.getId()))) {
+                    failures.put(i, duplicateMessage(contact.getId()));
+                    continue;
+                }
+                if (phoneTaken(contact, insertedPhones)) {
+                    failures.put(i, duplicatePhoneMessage(contact.getPhone()));
+                    continue;
+                }
+                Contact stored = prepareInsert(contact);
+                inserted.put(stored.getId(), stored);
+                insertedPhones.add(PhoneNumbers.normalize(stored.getPhone()));
+            }
+            replace(new ArrayList<>(inserted.values()));
+            return failures;
+        }));
+    }
+
+    @Override
+    public <S extends Contact> Optional<S> findOne (Example<S> example) {
+        throw queryByExample();
+    }
+
+    @Override
+    public <S extends Contact> List<S> findAll (Example<S> example) {
+        throw queryByExample();
+    }
+
+    @Override
+    public <S extends Contact> List<S> findAll (Example<S> example, Sort sort) {
+        throw queryByExample();
+    }
+
+    @Override
+    public <S extends Contact> Page<S> findAll (Example<S> example, Pageable pageable) {
+        throw queryByExample();
+    }
+
+    @Override
+    public <S extends Contact> long count (Example<S> example) {
+        throw queryByExample();
+    }
+
+    @Override
+    public <S extends Contact> boolean exists (Example<S> example) {
+        throw queryByExample();
+    }
+
+    @Override
+    public <S extends Contact, R> R findBy (Example<S> example, Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        throw queryByExample();
+    }
+
+    protected <T> T read (Supplier<T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.get();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    protected <T> T write (Supplier<T> writer) {
+        lock.writeLock().lock();
+        T result;
+        try {
+            result = writer.get();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+        afterWrite();
+        return result;
+    }
+
+    // Matching contacts in sort order, strictly after the cursor position when one is given - only valid under the lock
+    private Stream<Contact> select (ContactFilter filter, Sort sort, ContactCursor after) {
+        Set<String> candidates = candidates(filter);
+        Predicate<Contact> matches = exactCandidates(filter) ? contact -> true : predicate(filter);
+        Comparator<Contact> order = comparator(sort);
+        Contact position = after == null ? null : position(after);
+        Partition partition = partition();
+        NavigableSet<Contact> index = sortIndex(partition, sort);
+
+        if (index != null && (candidates == null || (long) candidates.size() * BROAD_MATCH_DIVISOR > partition.ids.size())) {
+            Stream<String> ids = (position == null ? index : index.tailSet(position, false)).stream().map(Contact::getId);
+            if (candidates != null) {
+                ids = ids.filter(candidates::contains);
+            }
+            return ids.map(this::stored).filter(matches);
+        }
+        Stream<Contact> matching = (candidates == null ? partitionContacts() : candidates.stream().map(this::stored)).filter(matches);
+        if (order == null) {
+            return matching;
+        }
+        if (position != null) {
+            matching = matching.filter(contact -> order.compare(contact, position) > 0);
+        }
+        return matching.sorted(order);
+    }
+
+    private long count (ContactFilter filter, long limit) {
+        long bound = limit > 0 ? limit : Long.MAX_VALUE;
+        if (filter.isAll()) {
+            return Math.min(bound, partition().ids.size());
+        }
+        Set<String> candidates = candidates(filter);
+        if (candidates != null && exactCandidates(filter)) {
+            return Math.min(bound, candidates.size());
+        }
+        Stream<Contact> matching = candidates == null ? partitionContacts() : candidates.stream().map(this::stored);
+        return matching.filter(predicate(filter)).limit(bound).count();
+    }
+
+    // The count is only computed when the page does not already tell the total
+    private Page<Contact> findPage (String queryShape, ContactFilter filter, Pageable pageable) {
+        return contactMetrics.record(ContactMetrics.REPOSITORY, operation("find", queryShape), () -> read( () -> {
+            Stream<Contact> matching = select(filter, pageable.getSort(), null);
+            if (pageable.isPaged()) {
+                matching = matching.skip(pageable.getOffset()).limit(pageable.getPageSize());
+            }
+            List<Contact> page = matching.map(IndexedContactRepository::copy).toList();
+            return PageableExecutionUtils.getPage(page, pageable, () -> count(filter, 0));
+        }));
+    }
+
+    // Ids of the tenant's contacts holding every n-gram of the query, or one of the name keys of a fuzzy query, null when the
+    // query cannot be looked up by either
+    private Set<String> candidates (ContactFilter filter) {
+        if (filter.isAll()) {
+            return null;
+        }
+        if (filter.getMode() == SearchMode.FUZZY) {
+            Set<String> candidates = new HashSet<>();
+            Map<String, Set<String>> nameKeyIndex = partition().nameKeyIndex;
+            Stream.concat(FuzzyNames.phoneticKeys(filter.getQuery()).stream(), FuzzyNames.trigrams(filter.getQuery()).stream())
+                  .forEach(key -> candidates.addAll(nameKeyIndex.getOrDefault(key, Set.of())));
+            return candidates;
+        }
+        if (!SearchTokenizer.supports(filter.getQuery())) {
+            return null;
+        }
+        Map<String, Set<String>> tokenIndex = partition().tokenIndex;
+        List<Set<String>> postings = SearchTokenizer.queryTokens(filter.getQuery())
+                                                    .stream()
+                                                    .map(token -> tokenIndex.getOrDefault(token, Set.of()))
+                                                    .sorted(Comparator.comparingInt(Set::size))
+                                                    .toList();
+        if (postings.size() == 1) {
+            return postings.get(0);
+        }
+        Set<String> intersection = new HashSet<>(postings.get(0));
+        for (int i = 1; i < postings.size() && !intersection.isEmpty(); i++) {
+            intersection.retainAll(postings.get(i));
+        }
+        return intersection;
+    }
+
+    // Whether another contact of the tenant, stored or among the phones about to be, has the same normalized phone - the
+    // unique key of the MongoDB phone index
+    private boolean phoneTaken (Contact contact, Set<String> pendingPhones) {
+        String normalizedPhone = PhoneNumbers.normalize(contact.getPhone());
+        if (normalizedPhone == null) {
+            return false;
+        }
+        return pendingPhones.contains(normalizedPhone) || withPhoneNumber(normalizedPhone).anyMatch(other -> !other.getId().equals(contact.getId()));
+    }
+
+    // A query that is a single n-gram is matched by its token alone, longer ones still have to be confirmed as a substring
+    // the index is keyed by digits only, so numbers with and without a country prefix share an entry
+    private Stream<Contact> withPhoneNumber (String normalizedPhone) {
+        return partition().phoneIndex.getOrDefault(PhoneNumbers.reversed(normalizedPhone), Set.of())
+                         .stream()
+                         .map(this::stored)
+                         .filter(contact -> normalizedPhone.equals(PhoneNumbers.normalize(contact.getPhone())));
+    }
+
+    private static boolean exactCandidates (ContactFilter filter) {
+        return filter.isAll()
+               || (filter.getMode() != SearchMode.FUZZY && SearchTokenizer.supports(filter.getQuery())
+                   && SearchTokenizer.queryTokens(filter.getQuery()).size() == 1);
+    }
+
+    // Full-text filters outside of a text search are substring matches, as they are in ContactQueries
+    private static Predicate<Contact> predicate (ContactFilter filter) {
+        return filter.getMode() == SearchMode.TEXT ? ContactFilter.matching(filter.getQuery(), SearchMode.REGEX).predicate() : filter.predicate();
+    }
+
+    // The sort index in the requested direction, when the sort is an allowed field optionally followed by id the same way
+    private static NavigableSet<Contact> sortIndex (Partition partition, Sort sort) {
+        List<Sort.Order> orders = sort.toList();
+        if (orders.isEmpty() || orders.size() > 2 || orders.stream().anyMatch(Sort.Order::isIgnoreCase)) {
+            return null;
+        }
+        Sort.Order first = orders.get(0);
+        NavigableSet<Contact> index = partition.sortIndexes.get(first.getProperty());
+        if (index == null) {
+            return null;
+        }
+        if (orders.size() == 2 && !(orders.get(1).getProperty().equals("id") && orders.get(1).getDirection() == first.getDirection())) {
+            return null;
+        }
+        return first.isAscending() ? index : index.descendingSet();
+    }
+
+    private static Comparator<Contact> indexOrder (String field) {
+        return Comparator.comparing(PROPERTIES.get(field), Comparator.nullsFirst(Comparator.<String> naturalOrder())).thenComparing(Contact::getId);
+    }
+
+    // Missing values sort before any string; a property contacts do not have is missing everywhere and orders nothing
+    private static Comparator<Contact> comparator (Sort sort) {
+        Comparator<Contact> comparator = null;
+        for (Sort.Order order : sort) {
+            Function<Contact, String> property = PROPERTIES.getOrDefault(order.getProperty(), contact -> null);
+            Comparator<Contact> next = Comparator.comparing(property, Comparator.nullsFirst(Comparator.<String> naturalOrder()));
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator;
+    }
+
+    private static Contact position (ContactCursor after) {
+        Contact position = new Contact();
+        position.setId(after.getId());
+        BeanWrapperImpl bean = new BeanWrapperImpl(position);
+        if (PROPERTIES.containsKey(after.getSortBy()) && bean.isWritableProperty(after.getSortBy())) {
+            bean.setPropertyValue(after.getSortBy(), after.getSortValue());
+        }
+        return position;
+    }
+
+    // Sets the id, tenant, version and tokens on the entity, as a MongoDB insert does, and returns the copy to store
+    private Contact prepareInsert (Contact entity) {
+        if (entity.getId() == null) {
+            entity.setId(new ObjectId().toHexString());
+        }
+        else if (stored(entity.getId()) != null) {
+            throw new DuplicateKeyException(duplicateMessage(entity.getId()));
+        }
+        if (entity.getTenantId() == null) {
+            entity.setTenantId(TenantContext.tenantId());
+        }
+        if (entity.getVersion() == null) {
+            entity.setVersion(0L);
+        }
+        entity.setSearchTokens(SearchTokenizer.tokenize(entity));
+        return copy(entity);
+    }
+
+    // A versioned save only replaces the contact still stored at the entity's version
+    private Contact prepareSave (Contact entity) {
+        Contact stored = visible(entity.getId());
+        if (stored == null || !entity.getVersion().equals(stored.getVersion())) {
+            throw new OptimisticLockingFailureException(String.format("Cannot save entity %s with version %s to collection contacts; Has it been modified meanwhile",
+                                                                      entity.getId(),
+                                                                      entity.getVersion()));
+        }
+        entity.setVersion(entity.getVersion() + 1);
+        entity.setSearchTokens(SearchTokenizer.tokenize(entity));
+        return copy(entity);
+    }
+
+    // Stored contacts are never changed in place, the indexes find them by the values they were added with
+    private void replace (List<Contact> contacts) {
+        for (Contact contact : contacts) {
+            if (phoneTaken(contact, Set.of())) {
+                throw new DuplicateKeyException(duplicatePhoneMessage(contact.getPhone()));
+            }
+        }
+        List<Contact> previous = contacts.stream().map(contact -> stored(contact.getId())).filter(Objects::nonNull).toList();
+        store(contacts);
+        previous.forEach(this::unindex);
+        contacts.forEach(this::index);
+    }
+
+    private void discard (List<Contact> contacts) {
+        if (contacts.isEmpty()) {
+            return;
+        }
+        remove(contacts.stream().map(Contact::getId).toList());
+        contacts.forEach(this::unindex);
+        long retainedSince = retainedSince();
+        for (Contact contact : contacts) {
+            NavigableMap<Long, String> tombstones = partitions.get(TenantContext.tenantIdOf(contact)).tombstones;
+            tombstones.headMap(retainedSince).clear();
+            tombstones.put(ChangeSequence.next(), contact.getId());
+        }
+    }
+
+    private long retainedSince () {
+        return ChangeSequence.at(Instant.now().minus(tombstoneRetention));
+    }
+
+    private void index (Contact contact) {
+        Partition partition = partitions.computeIfAbsent(TenantContext.tenantIdOf(contact), tenantId -> new Partition());
+        partition.ids.add(contact.getId());
+        long sequence = ChangeSequence.next();
+        partition.sequences.put(contact.getId(), sequence);
+        partition.changes.put(sequence, contact.getId());
+        partition.sortIndexes.forEach( (field, index) -> index.add(indexKey(contact, field)));
+        for (String token : SearchTokenizer.tokenize(contact)) {
+            partition.tokenIndex.computeIfAbsent(token, key -> new HashSet<>()).add(contact.getId());
+        }
+        String phoneKey = PhoneNumbers.reversed(contact.getPhone());
+        if (phoneKey != null) {
+            partition.phoneIndex.computeIfAbsent(phoneKey, key -> new LinkedHashSet<>()).add(contact.getId());
+        }
+        for (String nameKey : nameKeys(contact)) {
+            partition.nameKeyIndex.computeIfAbsent(nameKey, key -> new HashSet<>()).add(contact.getId());
+        }
+    }
+
+    private void unindex (Contact contact) {
+        Partition partition = partitions.get(TenantContext.tenantIdOf(contact));
+        if (partition == null) {
+            return;
+        }
+        partition.ids.remove(contact.getId());
+        Long sequence = partition.sequences.remove(contact.getId());
+        if (sequence != null) {
+            partition.changes.remove(sequence);
+        }
+        partition.sortIndexes.forEach( (field, index) -> index.remove(indexKey(contact, field)));
+        for (String token : SearchTokenizer.tokenize(contact)) {
+            Set<String> ids = partition.tokenIndex.get(token);
+            if (ids != null && ids.remove(contact.getId()) && ids.isEmpty()) {
+                partition.tokenIndex.remove(token);
+            }
+        }
+        String phoneKey = PhoneNumbers.reversed(contact.getPhone());
+        Set<String> ids = phoneKey == null ? null : partition.phoneIndex.get(phoneKey);
+        if (ids != null && ids.remove(contact.getId()) && ids.isEmpty()) {
+            partition.phoneIndex.remove(phoneKey);
+        }
+        for (String nameKey : nameKeys(contact)) {
+            Set<String> named = partition.nameKeyIndex.get(nameKey);
+            if (named != null && named.remove(contact.getId()) && named.isEmpty()) {
+                partition.nameKeyIndex.remove(nameKey);
+            }
+        }
+    }
+
+    private Partition partition () {
+        return partitions.getOrDefault(TenantContext.tenantId(), empty);
+    }
+
+    // The tenant's contacts, in the order they were first stored
+    private Stream<Contact> partitionContacts () {
+        return partition().ids.stream().map(this::stored);
+    }
+
+    // The stored contact with this id when it is one of the current tenant's, null otherwise
+    private Contact visible (String id) {
+        Contact contact = stored(id);
+        return contact != null && TenantContext.tenantId().equals(TenantContext.tenantIdOf(contact)) ? contact : null;
+    }
+
+    // the entity as MongoDB loads it by id, tokens, phone and name keys and folded fields included
+    private static Contact copyWithTokens (Contact contact) {
+        Contact copy = copy(contact);
+        copy.setSearchTokens(SearchTokenizer.tokenize(copy));
+        copy.setPhoneNormalized(PhoneNumbers.normalize(copy.getPhone()));
+        copy.setPhoneReversed(PhoneNumbers.reversed(copy.getPhone()));
+        copy.setFirstNameKeys(FuzzyNames.keys(copy.getFirstName()));
+        copy.setLastNameKeys(FuzzyNames.keys(copy.getLastName()));
+        copy.setFirstNameFolded(TextFolding.fold(copy.getFirstName()));
+        copy.setLastNameFolded(TextFolding.fold(copy.getLastName()));
+        copy.setPhoneFolded(TextFolding.fold(copy.getPhone()));
+        copy.setAddressFolded(TextFolding.fold(copy.getAddress()));
+        copy.setSearchVersion(TextFolding.VERSION);
+        return copy;
+    }
+
+    private static Contact copy (Contact contact) {
+        Contact copy = new Contact();
+        copy.setId(contact.getId());
+        copy.setTenantId(contact.getTenantId());
+        copy.setFirstName(contact.getFirstName());
+        copy.setLastName(contact.getLastName());
+        copy.setPhone(contact.getPhone());
+        copy.setAddress(contact.getAddress());
+        copy.setVersion(contact.getVersion());
+        return copy;
+    }
+
+    private static Set<String> nameKeys (Contact contact) {
+        Set<String> keys = new HashSet<>(FuzzyNames.keys(contact.getFirstName()));
+        keys.addAll(FuzzyNames.keys(contact.getLastName()));
+        return keys;
+    }
+
+    private static List<String> words (String text) {
+        List<String> words = new ArrayList<>();
+        for (String word : WORD_SEPARATOR.split(TextFolding.fold(text))) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static String duplicateMessage (String id) {
+        return String.format("Duplicate key: a contact with id '%s' already exists", id);
+    }
+
+    private static String duplicatePhoneMessage (String phone) {
+        return String.format("Duplicate key on phoneNormalized: a contact with phone '%s' already exists", phone);
+    }
+
+    private static UnsupportedOperationException queryByExample () {
+        return new UnsupportedOperationException("Query by example is not supported by the local contact storage");
+    }
+
+    private static Tags operation (String operation, String queryShape) {
+        return Tags.of("operation", operation, "query", queryShape);
+    }
+
+    // Which index serves the filter, named like the query shapes of the MongoDB repository
+    private static String queryShape (ContactFilter filter) {
+        if (filter.isAll()) {
+            return "all";
+        }
+        if (filter.getMode() == SearchMode.FUZZY) {
+            return "fuzzy";
+        }
+        if (!SearchTokenizer.supports(filter.getQuery())) {
+            return "substring";
+        }
+        return SearchTokenizer.queryTokens(filter.getQuery()).size() == 1 ? "token" : "tokens";
+    }
+
+    // The indexes of one tenant's contacts
+    private static class Partition {
+
+        final Set<String> ids = new LinkedHashSet<>();
+
+        final Map<String, NavigableSet<Contact>> sortIndexes = new HashMap<>();
+
+        final Map<String, Set<String>> tokenIndex = new HashMap<>();
+
+        // reversed phone digits to ids, a suffix lookup is a range of it
+        final NavigableMap<String, Set<String>> phoneIndex = new TreeMap<>();
+
+        // phonetic codes and trigrams of both names to ids
+        final Map<String, Set<String>> nameKeyIndex = new HashMap<>();
+
+        // the sequence of every contact's last write, and those writes in feed order
+        final Map<String, Long> sequences = new HashMap<>();
+
+        final NavigableMap<Long, String> changes = new TreeMap<>();
+
+        // ids of deleted contacts by the sequence of the deletion, pruned once older than the retention
+        final NavigableMap<Long, String> tombstones = new TreeMap<>();
+
+        Partition () {
+            for (String field : ContactService.ALLOWED_SORT_FIELDS) {
+                sortIndexes.put(field, new TreeSet<>(indexOrder(field)));
+            }
+        }
+    }
+}
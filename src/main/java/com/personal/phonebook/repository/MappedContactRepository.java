@@ -0,0 +1,149 @@
+package com.personal.phonebook.repository;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.unit.DataSize;
+
+import com.personal.phonebook.model.Contact;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Durable single-node storage engine, selected by the {@code mapped} profile in place of MongoDB. The contacts live in
+ * memory-mapped {@link ContactSegments} rather than on the heap - the heap only holds the sort keys and search tokens of
+ * {@link IndexedContactRepository}. Every write is in the mapped files when it returns, so it survives the process; with
+ * {@code sync-writes} it is also forced to disk.
+ * <p>
+ * The heap indexes are not persisted. Startup decodes every live contact once to rebuild them, so it takes time in
+ * proportion to the number of contacts, though nothing beyond the indexes stays on the heap.
+ * <p>
+ * A background task compacts the segment with the most garbage every {@code compaction-interval}. Each segment is copied
+ * under the write lock, so writes pause for about the time it takes to copy one segment in memory.
+ */
+@Slf4j
+@Repository
+@Profile("mapped")
+public class MappedContactRepository extends IndexedContactRepository {
+
+    @Value("${phonebook.storage.mapped.directory}")
+    private String directory;
+
+    @Value("${phonebook.storage.mapped.segment-size:64MB}")
+    private DataSize segmentSize;
+
+    @Value("${phonebook.storage.mapped.sync-writes:false}")
+    private boolean syncWrites;
+
+    // a sealed segment with a smaller share of live records is compacted
+    @Value("${phonebook.storage.mapped.compaction-threshold:0.5}")
+    private double compactionThreshold;
+
+    @Value("${phonebook.storage.mapped.compaction-interval:1m}")
+    private Duration compactionInterval;
+
+    private ContactSegments segments;
+
+    private ScheduledExecutorService compactor;
+
+    @PostConstruct
+    public void init () {
+        segments = new ContactSegments(Path.of(directory), Math.toIntExact(segmentSize.toBytes()), syncWrites);
+        segments.open();
+        index(segments.contacts());
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "contact-segment-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compactQuietly,
+                                         compactionInterval.toMillis(),
+                                         compactionInterval.toMillis(),
+                                         TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close () {
+        compactor.shutdownNow();
+        write( () -> {
+            segments.close();
+            return null;
+        });
+    }
+
+    /**
+     * Compacts segments until none is below the threshold.
+     *
+     * @return the number of segments compacted
+     */
+    public int compact () {
+        int compacted = 0;
+        while (write( () -> segments.compact(compactionThreshold))) {
+            compacted++;
+        }
+        return compacted;
+    }
+
+    @Override
+    protected Contact stored (String id) {
+        return segments.get(id);
+    }
+
+    @Override
+    protected Stream<Contact> storedContacts () {
+        return segments.contacts();
+    }
+
+    @Override
+    protected int storedCount () {
+        return segments.size();
+    }
+
+    @Override
+    protected void store (List<Contact> contacts) {
+        segments.put(contacts);
+    }
+
+    @Override
+    protected void remove (List<String> ids) {
+        segments.remove(ids);
+    }
+
+    @Override
+    protected void removeAll () {
+        segments.clear();
+    }
+
+    // only the id and the sorted field stay on the heap
+    @Override
+    protected Contact indexKey (Contact contact, String field) {
+        Contact key = new Contact();
+        key.setId(contact.getId());
+        switch (field) {
+            case "firstName" -> key.setFirstName(contact.getFirstName());
+            case "lastName" -> key.setLastName(contact.getLastName());
+            case "address" -> key.setAddress(contact.getAddress());
+            default -> throw new IllegalArgumentException("No sort index on " + field);
+        }
+        return key;
+    }
+
+    private void compactQuietly () {
+        try {
+            compact();
+        }
+        catch (RuntimeException e) {
+            log.error("Compaction of contact segments in {} failed", directory, e);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.personal.phonebook.repository;
+
+import java.nio.ByteBuffer;
+import java.util.function.LongFunction;
+
+/**
+ * Off-heap map from contact id to the location of its live record, an open-addressing hash table in a direct buffer. Each slot
+ * holds a 64-bit hash of the id and the record location; the id itself stays in the record and is read back from there to
+ * tell apart ids whose hashes collide, so the table costs 16 bytes per slot whatever the id length.
+ */
+final class OffsetIndex {
+
+    static final long ABSENT = -1;
+
+    private static final int SLOT_BYTES = 16;
+
+    private static final double MAX_LOAD = 0.7;
+
+    // a slot whose id was removed, probing carries on past it
+    private static final long REMOVED = -1;
+
+    private final LongFunction<String> idAt;
+
+    private ByteBuffer slots;
+
+    private int capacity;
+
+    private int size;
+
+    // live and removed slots, bounds the probe length
+    private int used;
+
+    OffsetIndex (int expectedSize, LongFunction<String> idAt) {
+        this.idAt = idAt;
+        allocate(Math.max(16, Integer.highestOneBit((int) Math.max(1, expectedSize / MAX_LOAD)) << 1));
+    }
+
+    long get (String id) {
+        int slot = find(id, hash(id));
+        return slot < 0 ? ABSENT : location(slot);
+    }
+
+    /**
+     * @return the previous location of the id, {@link #ABSENT} when it had none
+     */
+    long put (String id, long location) {
+        long hash = hash(id);
+        int slot = find(id, hash);
+        if (slot >= 0) {
+            long previous = location(slot);
+            slots.putLong(slot * SLOT_BYTES + 8, location);
+            return previous;
+        }
+        if (used + 1 > capacity * MAX_LOAD) {
+            allocate(size + 1 > capacity * MAX_LOAD / 2 ? capacity * 2 : capacity);
+        }
+        insert(hash, location);
+        size++;
+        return ABSENT;
+    }
+
+    long remove (String id) {
+        int slot = find(id, hash(id));
+        if (slot < 0) {
+            return ABSENT;
+        }
+        long previous = location(slot);
+        slots.putLong(slot * SLOT_BYTES + 8, REMOVED);
+        size--;
+        return previous;
+    }
+
+    void clear () {
+        slots = null;
+        allocate(16);
+    }
+
+    int size () {
+        return size;
+    }
+
+    private int find (String id, long hash) {
+        int mask = capacity - 1;
+        for (int slot = (int) hash & mask;; slot = (slot + 1) & mask) {
+            long slotHash = slots.getLong(slot * SLOT_BYTES);
+            if (slotHash == 0) {
+                return -1;
+            }
+            long location = location(slot);
+            if (slotHash == hash && location != REMOVED && id.equals(idAt.apply(location))) {
+                return slot;
+            }
+        }
+    }
+
+    // only called for ids that are not in the table
+    private void insert (long hash, long location) {
+        int mask = capacity - 1;
+        int slot = (int) hash & mask;
+        while (slots.getLong(slot * SLOT_BYTES) != 0 && location(slot) != REMOVED) {
+            slot = (slot + 1) & mask;
+        }
+        if (slots.getLong(slot * SLOT_BYTES) == 0) {
+            used++;
+        }
+        slots.putLong(slot * SLOT_BYTES, hash).putLong(slot * SLOT_BYTES + 8, location);
+    }
+
+    // Rehashes the live slots into a fresh table, which also drops the removed ones
+    private void allocate (int newCapacity) {
+        ByteBuffer previous = slots;
+        int previousCapacity = capacity;
+        slots = ByteBuffer.allocateDirect(newCapacity * SLOT_BYTES);
+        capacity = newCapacity;
+        used = 0;
+        if (previous == null) {
+            size = 0;
+            return;
+        }
+        for (int slot = 0; slot < previousCapacity; slot++) {
+            long hash = previous.getLong(slot * SLOT_BYTES);
+            long location = previous.getLong(slot * SLOT_BYTES + 8);
+            if (hash != 0 && location != REMOVED) {
+                insert(hash, location);
+            }
+        }
+    }
+
+    private long location (int slot) {
+        return slots.getLong(slot * SLOT_BYTES + 8);
+    }
+
+    // FNV-1a over the chars with a final avalanche, zero is reserved for empty slots
+    private static long hash (String id) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            hash ^= id.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+}
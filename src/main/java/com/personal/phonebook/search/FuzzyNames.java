@@ -0,0 +1,180 @@
+package com.personal.phonebook.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+import java.util.regex.Pattern;
+
+import org.apache.commons.codec.language.DoubleMetaphone;
+
+import com.personal.phonebook.model.Contact;
+
+/**
+ * Keys and ranking of the fuzzy name search, which finds names spelled differently from the query - "Jon" finds "John" and
+ * "Shmit" finds "Smith".
+ * <p>
+ * Every word of a first or last name is keyed by its Double Metaphone codes, which spellings that sound alike share, and by
+ * its trigrams, padded with two {@value #PAD} on both ends so that a word of three letters keeps two of its five trigrams
+ * through any single edit. A query looks up the contacts sharing a key with one of its words, and the candidates are ranked
+ * in memory: every word of the query has to sound like a word of the names, or be within {@link #maxEdits(int)} edits of
+ * one, and the fewer edits in total the better the match.
+ */
+public final class FuzzyNames {
+
+    // marks the phonetic codes, so that they never collide with a trigram among the keys of a name
+    private static final String PHONETIC = "#";
+
+    private static final char PAD = '$';
+
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // only configured once, encoding keeps no state
+    private static final DoubleMetaphone METAPHONE = new DoubleMetaphone();
+
+    private FuzzyNames () {
+    }
+
+    /**
+     * The phonetic codes and trigrams of every word of the name, stored with the contact. Empty for a missing name.
+     */
+    public static List<String> keys (String name) {
+        Set<String> keys = new LinkedHashSet<>(phoneticKeys(name));
+        keys.addAll(trigrams(name));
+        return new ArrayList<>(keys);
+    }
+
+    public static List<String> phoneticKeys (String value) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (String word : words(value)) {
+            for (String code : codes(word)) {
+                keys.add(PHONETIC + code);
+            }
+        }
+        return new ArrayList<>(keys);
+    }
+
+    public static List<String> trigrams (String value) {
+        Set<String> trigrams = new LinkedHashSet<>();
+        for (String word : words(value)) {
+            String padded = "" + PAD + PAD + word + PAD + PAD;
+            for (int start = 0; start + 3 <= padded.length(); start++) {
+                trigrams.add(padded.substring(start, start + 3));
+            }
+        }
+        return new ArrayList<>(trigrams);
+    }
+
+    /**
+     * The total edits between the words of the query and the closest words of the contact's names, -1 when some word of the
+     * query neither sounds like nor is close enough to any of them. The query is prepared once, for rating many contacts.
+     */
+    public static ToIntFunction<Contact> distance (String query) {
+        List<String> queryWords = words(query);
+        List<Set<String>> queryCodes = queryWords.stream().map(FuzzyNames::codes).toList();
+        return contact -> {
+            List<String> names = new ArrayList<>(words(contact.getFirstName()));
+            names.addAll(words(contact.getLastName()));
+            if (queryWords.isEmpty() || names.isEmpty()) {
+                return -1;
+            }
+            List<Set<String>> nameCodes = names.stream().map(FuzzyNames::codes).toList();
+            int total = 0;
+            for (int i = 0; i < queryWords.size(); i++) {
+                String word = queryWords.get(i);
+                int best = -1;
+                for (int j = 0; j < names.size(); j++) {
+                    int edits = editDistance(word, names.get(j));
+                    boolean close = edits <= maxEdits(word.length()) || queryCodes.get(i).stream().anyMatch(nameCodes.get(j)::contains);
+                    if (close && (best < 0 || edits < best)) {
+                        best = edits;
+                    }
+                }
+                if (best < 0) {
+                    return -1;
+                }
+                total += best;
+            }
+            return total;
+        };
+    }
+
+    /**
+     * The candidates matching the query, closest first - candidates as close as each other keep the order they came in.
+     */
+    public static List<Contact> rank (String query, List<Contact> candidates) {
+        ToIntFunction<Contact> distance = distance(query);
+        Map<Contact, Integer> distances = new IdentityHashMap<>();
+        for (Contact candidate : candidates) {
+            int edits = distance.applyAsInt(candidate);
+            if (edits >= 0) {
+                distances.put(candidate, edits);
+            }
+        }
+        return candidates.stream().filter(distances::containsKey).sorted(Comparator.comparing(distances::get)).toList();
+    }
+
+    /**
+     * Edits a word of this length may be away from a name and still match it: none up to two letters, where one edit makes
+     * another name, one up to five letters and two beyond.
+     */
+    static int maxEdits (int length) {
+        return length <= 2 ? 0 : length <= 5 ? 1 : 2;
+    }
+
+    // Insertions, deletions, substitutions and transpositions of adjacent letters, each counting as one edit
+    static int editDistance (String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        int[] next = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            current[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            next[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                next[j] = Math.min(Math.min(next[j - 1] + 1, current[j] + 1), current[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    next[j] = Math.min(next[j], previous[j - 2] + 1);
+                }
+            }
+            int[] recycled = previous;
+            previous = current;
+            current = next;
+            next = recycled;
+        }
+        return current[b.length()];
+    }
+
+    // Names that sound alike share their primary or their alternate code, none for words without letters it knows
+    private static Set<String> codes (String word) {
+        Set<String> codes = new LinkedHashSet<>(2);
+        String primary = METAPHONE.doubleMetaphone(word);
+        String alternate = METAPHONE.doubleMetaphone(word, true);
+        if (primary != null && !primary.isEmpty()) {
+            codes.add(primary);
+        }
+        if (alternate != null && !alternate.isEmpty()) {
+            codes.add(alternate);
+        }
+        return codes;
+    }
+
+    private static List<String> words (String value) {
+        if (value == null) {
+            return List.of();
+        }
+        List<String> words = new ArrayList<>();
+        for (String word : WORD_SEPARATOR.split(TextFolding.fold(value))) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+}
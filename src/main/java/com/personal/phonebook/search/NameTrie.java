@@ -0,0 +1,235 @@
+package com.personal.phonebook.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.personal.phonebook.controller.response.Suggestion;
+
+/**
+ * Prefix tree over contact names for autocomplete. A name is indexed from the start of each of its words, so "Mary Ann Smith"
+ * is found by "mar", "ann s" and "smi". Lookups are case- and accent-insensitive, see {@link TextFolding}.
+ * <p>
+ * Nodes keep their children in exactly-sized arrays sorted by character, which keeps the tree small at the cost of copying
+ * an array when a child is added. Suggestions are returned in the order of their matched key, and a shorter key comes
+ * before any key that extends it. A lookup visits only the nodes until the limit is reached, not the whole subtree.
+ * <p>
+ * Not thread-safe.
+ */
+public final class NameTrie {
+
+    // object header and three references, with compressed oops
+    private static final long NODE_BYTES = 24;
+
+    private static final long ARRAY_BYTES = 16;
+
+    private static final long SUGGESTION_BYTES = 24;
+
+    // a String with its value array, before the characters
+    private static final long STRING_BYTES = 40;
+
+    private static final char[] NO_LABELS = new char[0];
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private static final Suggestion[] NO_SUGGESTIONS = new Suggestion[0];
+
+    private final Node root = new Node();
+
+    private int nodes = 1;
+
+    private int suggestions;
+
+    private long edges;
+
+    private long entries;
+
+    private long characters;
+
+    /**
+     * The name shown for a contact, its first and last name - null when it has neither.
+     */
+    public static String displayName (String firstName, String lastName) {
+        String name = Stream.of(firstName, lastName)
+                            .filter(part -> part != null && !part.isBlank())
+                            .map(String::strip)
+                            .collect(Collectors.joining(" "));
+        return name.isEmpty() ? null : name;
+    }
+
+    public void put (Suggestion suggestion) {
+        for (String key : keys(suggestion.getName())) {
+            Node node = root;
+            for (int i = 0; i < key.length(); i++) {
+                node = node.childOrCreate(key.charAt(i), this);
+            }
+            node.suggestions = Arrays.copyOf(node.suggestions, node.suggestions.length + 1);
+            node.suggestions[node.suggestions.length - 1] = suggestion;
+            entries++;
+        }
+        suggestions++;
+        characters += suggestion.getId().length() + suggestion.getName().length();
+    }
+
+    /**
+     * Removes the suggestion of the contact with this id that was put under this name, if there is one.
+     */
+    public void remove (String id, String name) {
+        boolean removed = false;
+        for (String key : keys(name)) {
+            removed |= remove(root, key, 0, id);
+        }
+        if (removed) {
+            suggestions--;
+            characters -= id.length() + name.length();
+        }
+    }
+
+    /**
+     * Up to {@code limit} distinct suggestions whose name has a word starting with the prefix.
+     */
+    public List<Suggestion> find (String prefix, int limit) {
+        Node node = root;
+        String key = normalize(prefix);
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        Set<Suggestion> found = new LinkedHashSet<>();
+        if (node != null) {
+            collect(node, found, limit);
+        }
+        return new ArrayList<>(found);
+    }
+
+    public int size () {
+        return suggestions;
+    }
+
+    public int nodeCount () {
+        return nodes;
+    }
+
+    /**
+     * Estimated heap taken by the tree, its suggestions and their strings.
+     */
+    public long estimatedBytes () {
+        return nodes * (NODE_BYTES + 3 * ARRAY_BYTES)
+               + edges * (Character.BYTES + Integer.BYTES)
+               + entries * Integer.BYTES
+               + suggestions * (SUGGESTION_BYTES + 2 * STRING_BYTES)
+               + characters;
+    }
+
+    private static void collect (Node node, Set<Suggestion> found, int limit) {
+        for (Suggestion suggestion : node.suggestions) {
+            if (found.size() == limit) {
+                return;
+            }
+            found.add(suggestion);
+        }
+        for (Node child : node.children) {
+            if (found.size() == limit) {
+                return;
+            }
+            collect(child, found, limit);
+        }
+    }
+
+    // Whether the suggestion was found under the key, prunes the nodes left empty on the way back
+    private boolean remove (Node node, String key, int depth, String id) {
+        if (depth == key.length()) {
+            for (int i = 0; i < node.suggestions.length; i++) {
+                if (node.suggestions[i].getId().equals(id)) {
+                    Suggestion[] remaining = new Suggestion[node.suggestions.length - 1];
+                    System.arraycopy(node.suggestions, 0, remaining, 0, i);
+                    System.arraycopy(node.suggestions, i + 1, remaining, i, remaining.length - i);
+                    node.suggestions = remaining.length == 0 ? NO_SUGGESTIONS : remaining;
+                    entries--;
+                    return true;
+                }
+            }
+            return false;
+        }
+        int index = Arrays.binarySearch(node.labels, key.charAt(depth));
+        if (index < 0) {
+            return false;
+        }
+        Node child = node.children[index];
+        boolean removed = remove(child, key, depth + 1, id);
+        if (child.children.length == 0 && child.suggestions.length == 0) {
+            node.removeChild(index);
+            nodes--;
+            edges--;
+        }
+        return removed;
+    }
+
+    private static List<String> keys (String name) {
+        if (name == null) {
+            return List.of();
+        }
+        String normalized = normalize(name);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < normalized.length(); i++) {
+            if (!Character.isWhitespace(normalized.charAt(i)) && (i == 0 || Character.isWhitespace(normalized.charAt(i - 1)))) {
+                keys.add(normalized.substring(i));
+            }
+        }
+        return keys;
+    }
+
+    private static String normalize (String value) {
+        return TextFolding.fold(value.strip());
+    }
+
+    private static final class Node {
+
+        private char[] labels = NO_LABELS;
+
+        private Node[] children = NO_CHILDREN;
+
+        private Suggestion[] suggestions = NO_SUGGESTIONS;
+
+        private Node child (char label) {
+            int index = Arrays.binarySearch(labels, label);
+            return index < 0 ? null : children[index];
+        }
+
+        private Node childOrCreate (char label, NameTrie trie) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertion = -index - 1;
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, insertion);
+            System.arraycopy(children, 0, newChildren, 0, insertion);
+            System.arraycopy(labels, insertion, newLabels, insertion + 1, labels.length - insertion);
+            System.arraycopy(children, insertion, newChildren, insertion + 1, children.length - insertion);
+            Node child = new Node();
+            newLabels[insertion] = label;
+            newChildren[insertion] = child;
+            labels = newLabels;
+            children = newChildren;
+            trie.nodes++;
+            trie.edges++;
+            return child;
+        }
+
+        private void removeChild (int index) {
+            char[] newLabels = new char[labels.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(labels, index + 1, newLabels, index, newLabels.length - index);
+            System.arraycopy(children, index + 1, newChildren, index, newChildren.length - index);
+            labels = newLabels.length == 0 ? NO_LABELS : newLabels;
+            children = newChildren.length == 0 ? NO_CHILDREN : newChildren;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.personal.phonebook.search;
+
+public enum PhoneMatch {
+    /**
+     * The whole number, compared by its {@link PhoneNumbers#normalize normalized} form.
+     */
+    EXACT,
+
+    /**
+     * Numbers ending with the given digits, at least {@value PhoneNumbers#MIN_SUFFIX_DIGITS} of them - a caller id without
+     * the country or area code still finds the contact.
+     */
+    SUFFIX
+}
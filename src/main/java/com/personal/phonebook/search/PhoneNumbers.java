@@ -0,0 +1,62 @@
+package com.personal.phonebook.search;
+
+/**
+ * Lookup keys of phone numbers, independent of how the number was formatted.
+ * <p>
+ * The normalized form keeps only the digits, with a leading {@code +} when the number was written with its country code
+ * ({@code +} or {@code 00} in front) - so {@code +1 (555) 010-9999} becomes {@code +15550109999} as in E.164, and
+ * {@code 555-010-9999} becomes {@code 5550109999}. No numbering plan is applied, a number written without its country code
+ * stays national. The reversed form holds the digits back to front, which turns "ends with" into "starts with" and lets a
+ * suffix lookup use an ordinary index.
+ */
+public final class PhoneNumbers {
+
+    // shorter suffixes match too large a share of all numbers to be worth a lookup
+    public static final int MIN_SUFFIX_DIGITS = 4;
+
+    private PhoneNumbers () {
+    }
+
+    /**
+     * The normalized form, null when the value has no digits.
+     */
+    public static String normalize (String phone) {
+        if (phone == null) {
+            return null;
+        }
+        String digits = digits(phone);
+        if (digits.isEmpty()) {
+            return null;
+        }
+        String trimmed = phone.strip();
+        if (trimmed.startsWith("+")) {
+            return "+" + digits;
+        }
+        if (digits.startsWith("00") && trimmed.startsWith("00")) {
+            return "+" + digits.substring(2);
+        }
+        return digits;
+    }
+
+    /**
+     * The digits of the value back to front, null when it has none.
+     */
+    public static String reversed (String phone) {
+        if (phone == null) {
+            return null;
+        }
+        String digits = digits(phone);
+        return digits.isEmpty() ? null : new StringBuilder(digits).reverse().toString();
+    }
+
+    public static String digits (String value) {
+        StringBuilder digits = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+}
@@ -0,0 +1,34 @@
+package com.personal.phonebook.search;
+
+public enum SearchMode {
+    /**
+     * Unanchored regex over the {@link TextFolding folded} fields, so case and accents do not matter. Read from the folded
+     * field indexes rather than the contacts, and only a range of them when the query is anchored.
+     */
+    REGEX,
+
+    /**
+     * Lookup of the stored n-gram tokens through the multikey index, same partial-match semantics as {@link #REGEX}.
+     */
+    NGRAM,
+
+    /**
+     * MongoDB $text query on the text index, ordered by relevance. Matches whole (stemmed) words only, so a query that finds
+     * nothing is treated as a fragment and retried through the substring search.
+     */
+    TEXT,
+
+    /**
+     * Names spelled like or sounding like the query, looked up through the phonetic and trigram keys stored with each
+     * contact and ordered by edit distance, see {@link FuzzyNames}. Only the first and last names are matched.
+     */
+    FUZZY;
+
+    /**
+     * Whether matches are ordered by how well they match ahead of the requested sort, which leaves a page without a keyset
+     * position to continue from.
+     */
+    public boolean isRanked () {
+        return this == TEXT || this == FUZZY;
+    }
+}
@@ -0,0 +1,78 @@
+package com.personal.phonebook.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.personal.phonebook.model.Contact;
+
+/**
+ * Builds the n-gram tokens stored on each contact and the tokens a search query is matched with.
+ * <p>
+ * Every substring of {@value #MIN_GRAM} to {@value #MAX_GRAM} characters of a field is stored, so a query up to
+ * {@value #MAX_GRAM} characters long is a single exact token lookup. Longer queries are narrowed by the intersection of their
+ * {@value #MAX_GRAM}-grams and then confirmed against the field values, which keeps the results identical to the substring regex.
+ * Values and queries are tokenized in their {@link TextFolding} form, the form the substring regex matches.
+ */
+public final class SearchTokenizer {
+
+    public static final int MIN_GRAM = 2;
+
+    public static final int MAX_GRAM = 3;
+
+    private SearchTokenizer () {
+    }
+
+    public static List<String> tokenize (Contact contact) {
+        return tokenize(contact.getFirstName(), contact.getLastName(), contact.getPhone(), contact.getAddress());
+    }
+
+    public static List<String> tokenize (String... values) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String value : values) {
+            if (value == null) {
+                continue;
+            }
+            int[] codePoints = normalize(value).codePoints().toArray();
+            for (int length = MIN_GRAM; length <= MAX_GRAM; length++) {
+                for (int start = 0; start + length <= codePoints.length; start++) {
+                    tokens.add(new String(codePoints, start, length));
+                }
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    /**
+     * The token path only covers literal queries of at least {@value #MIN_GRAM} characters - anything else (single characters,
+     * queries relying on regex syntax) has to go through the regex search.
+     */
+    public static boolean supports (String query) {
+        if (query == null) {
+            return false;
+        }
+        // folding drops combining marks and turns full-width forms into ASCII, so the folded query is the one to check
+        String folded = normalize(query);
+        if (TextFolding.REGEX_META_CHARACTERS.matcher(folded).find()) {
+            return false;
+        }
+        return folded.codePointCount(0, folded.length()) >= MIN_GRAM;
+    }
+
+    public static List<String> queryTokens (String query) {
+        int[] codePoints = normalize(query).codePoints().toArray();
+        if (codePoints.length <= MAX_GRAM) {
+            return List.of(new String(codePoints, 0, codePoints.length));
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        for (int start = 0; start + MAX_GRAM <= codePoints.length; start++) {
+            tokens.add(new String(codePoints, start, MAX_GRAM));
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    private static String normalize (String value) {
+        return TextFolding.fold(value);
+    }
+}
@@ -0,0 +1,112 @@
+package com.personal.phonebook.search;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * The form searchable values are compared in, so that a search finds a value however it was accented, cased or composed:
+ * "jose" finds "José", "STRASSE" finds "Straße" and a full-width "１２" finds "12".
+ * <p>
+ * A value is decomposed to NFKD, which splits accented letters into the letter and its combining marks and replaces
+ * compatibility characters (ligatures, full-width forms) by their plain equivalents, the combining marks are dropped and
+ * what remains is case folded. The folded values are stored with each contact, so the store compares them as they are - no
+ * case-insensitive regex, which no index can serve.
+ */
+public final class TextFolding {
+
+    /**
+     * Version of the folding the stored values were computed with. Contacts stored with an older version, or before the
+     * folding existed, are folded again by the backfill.
+     */
+    public static final int VERSION = 1;
+
+    static final Pattern REGEX_META_CHARACTERS = Pattern.compile("[\\\\^$.|?*+()\\[\\]{}]");
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private TextFolding () {
+    }
+
+    /**
+     * The folded form of the value, null for a missing value.
+     */
+    public static String fold (String value) {
+        if (value == null) {
+            return null;
+        }
+        if (isAscii(value)) {
+            // nothing to decompose, and lower case is the case fold of ASCII
+            return value.toLowerCase(Locale.ROOT);
+        }
+        String stripped = COMBINING_MARKS.matcher(Normalizer.normalize(value, Normalizer.Form.NFKD)).replaceAll("");
+        // upper casing first folds the letters lower casing alone leaves apart, such as "ß" and "ss" or "ς" and "σ"
+        return stripped.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Folds the literal text of a regex so that it matches folded values, leaving the escapes alone: folding {@code \D} to
+     * {@code \d} or {@code \p{Lu}} to {@code \p{lu}} would change what they mean. A literal that only folds into regex syntax,
+     * such as a full-width parenthesis or full stop, is quoted so that it still matches itself.
+     */
+    public static String foldPattern (String regex) {
+        StringBuilder folded = new StringBuilder(regex.length());
+        int literalStart = 0;
+        int i = 0;
+        while (i < regex.length()) {
+            if (regex.charAt(i) != '\\' || i + 1 == regex.length()) {
+                i++;
+                continue;
+            }
+            folded.append(foldLiteral(regex.substring(literalStart, i)));
+            int end = i + 2;
+            char escaped = regex.charAt(i + 1);
+            if ((escaped == 'p' || escaped == 'P') && end < regex.length()) {
+                // a property name is one letter or a name in braces
+                int close = regex.charAt(end) == '{' ? regex.indexOf('}', end) : end;
+                end = close < 0 ? regex.length() : close + 1;
+            }
+            folded.append(regex, i, end);
+            literalStart = end;
+            i = end;
+        }
+        return folded.append(foldLiteral(regex.substring(literalStart))).toString();
+    }
+
+    // Folds the literal as a whole, except the runs of characters that fold into regex syntax, which are quoted
+    private static String foldLiteral (String literal) {
+        if (isAscii(literal)) {
+            return fold(literal);
+        }
+        StringBuilder folded = new StringBuilder(literal.length());
+        int foldedStart = 0;
+        int i = 0;
+        while (i < literal.length()) {
+            if (!foldsIntoSyntax(literal.codePointAt(i))) {
+                i += Character.charCount(literal.codePointAt(i));
+                continue;
+            }
+            int end = i;
+            while (end < literal.length() && foldsIntoSyntax(literal.codePointAt(end))) {
+                end += Character.charCount(literal.codePointAt(end));
+            }
+            folded.append(fold(literal.substring(foldedStart, i))).append(Pattern.quote(fold(literal.substring(i, end))));
+            foldedStart = end;
+            i = end;
+        }
+        return folded.append(fold(literal.substring(foldedStart))).toString();
+    }
+
+    private static boolean foldsIntoSyntax (int codePoint) {
+        return codePoint >= 0x80 && REGEX_META_CHARACTERS.matcher(fold(Character.toString(codePoint))).find();
+    }
+
+    private static boolean isAscii (String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,238 @@
+package com.personal.phonebook.service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import com.personal.phonebook.controller.response.Suggestion;
+import com.personal.phonebook.event.ContactChangedEvent;
+import com.personal.phonebook.event.ContactsImportedEvent;
+import com.personal.phonebook.metrics.ContactMetrics;
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.repository.ContactFilter;
+import com.personal.phonebook.repository.ContactRepository;
+import com.personal.phonebook.search.NameTrie;
+import com.personal.phonebook.tenant.TenantContext;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Name suggestions for typeahead, served from a {@link NameTrie} per tenant over all of its contacts instead of a search of
+ * the store. The trie of the default tenant is filled from the repository once the application is up, the one of any other
+ * tenant on its first suggestion, and each follows the writes made through this instance from then on. Like the cache,
+ * writes made by other instances are not seen.
+ * <p>
+ * The size of all tries together is published as the {@code phonebook.autocomplete.memory} and
+ * {@code phonebook.autocomplete.contacts} gauges.
+ */
+@Slf4j
+@Service
+public class ContactAutocompleteService {
+
+    @Value("${phonebook.autocomplete.max-limit:20}")
+    private int maxLimit;
+
+    @Value("${phonebook.autocomplete.build-batch-size:1000}")
+    private int buildBatchSize;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    @Autowired
+    private ContactMetrics contactMetrics;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // keyed by tenant id, guarded by the lock
+    private final Map<String, TenantTrie> tries = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    public void init () {
+        Gauge.builder("phonebook.autocomplete.memory", () -> total(NameTrie::estimatedBytes))
+             .description("Estimated heap used by the autocomplete tries")
+             .baseUnit("bytes")
+             .register(meterRegistry);
+        Gauge.builder("phonebook.autocomplete.contacts", () -> total(NameTrie::size))
+             .description("Contacts in the autocomplete tries")
+             .register(meterRegistry);
+    }
+
+    /**
+     * Builds the trie of the current tenant from the store, unless it is already built or being built. Suggestions are served
+     * from what is filled in so far while it is built.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build () {
+        String tenantId = TenantContext.tenantId();
+        TenantTrie tenant = new TenantTrie();
+        if (!write( () -> tries.putIfAbsent(tenantId, tenant) == null)) {
+            return;
+        }
+        long started = System.nanoTime();
+        boolean built = false;
+        try (Stream<Contact> contacts = contactRepository.streamContacts(ContactFilter.all(), Sort.unsorted(), buildBatchSize)) {
+            contacts.forEach(contact -> write( () -> {
+                if (!tenant.changedDuringBuild.contains(contact.getId())) {
+                    put(tenant, contact);
+                }
+                return null;
+            }));
+            built = true;
+        }
+        finally {
+            boolean complete = built;
+            write( () -> {
+                tenant.changedDuringBuild = null;
+                // the next suggestion retries a build that failed
+                if (!complete) {
+                    tries.remove(tenantId);
+                }
+                return null;
+            });
+        }
+        log.info("Autocomplete of tenant {} built over {} contacts in {} ms - {} nodes, about {} KB",
+                 tenantId,
+                 read(tenant.trie::size),
+                 (System.nanoTime() - started) / 1_000_000,
+                 read(tenant.trie::nodeCount),
+                 read(tenant.trie::estimatedBytes) / 1024);
+    }
+
+    /**
+     * Up to {@code limit} contacts with a word of their name starting with the prefix.
+     */
+    public List<Suggestion> suggest (String prefix, int limit) {
+        if (!StringUtils.hasText(prefix)) {
+            throw new IllegalArgumentException("Prefix must not be empty");
+        }
+        if (limit < 1 || limit > maxLimit) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + maxLimit);
+        }
+        return contactMetrics.record(ContactMetrics.SERVICE, Tags.of("operation", "autocomplete"), () -> {
+            if (!isBuilt()) {
+                build();
+            }
+            String tenantId = TenantContext.tenantId();
+            return read( () -> {
+                TenantTrie tenant = tries.get(tenantId);
+                // gone only when a concurrent build failed
+                return tenant == null ? List.<Suggestion> of() : tenant.trie.find(prefix, limit);
+            });
+        });
+    }
+
+    /**
+     * Whether the current tenant's trie is built or being built, so that a suggestion does not have to read the store first.
+     */
+    public boolean isBuilt () {
+        String tenantId = TenantContext.tenantId();
+        return read( () -> tries.containsKey(tenantId));
+    }
+
+    // Tenants without a trie yet are left alone, their writes are read from the store when it is built
+    @EventListener
+    public void onContactChanged (ContactChangedEvent event) {
+        Contact changed = event.getCurrent() != null ? event.getCurrent() : event.getPrevious();
+        write( () -> {
+            TenantTrie tenant = tries.get(TenantContext.tenantIdOf(changed));
+            if (tenant == null) {
+                return null;
+            }
+            if (tenant.changedDuringBuild != null) {
+                tenant.changedDuringBuild.add(event.getId());
+            }
+            if (event.getPrevious() != null) {
+                remove(tenant, event.getPrevious());
+            }
+            if (event.getCurrent() != null) {
+                put(tenant, event.getCurrent());
+            }
+            return null;
+        });
+    }
+
+    @EventListener
+    public void onContactsImported (ContactsImportedEvent event) {
+        write( () -> {
+            event.getContacts().forEach(contact -> {
+                TenantTrie tenant = tries.get(TenantContext.tenantIdOf(contact));
+                if (tenant == null) {
+                    return;
+                }
+                if (tenant.changedDuringBuild != null) {
+                    tenant.changedDuringBuild.add(contact.getId());
+                }
+                put(tenant, contact);
+            });
+            return null;
+        });
+    }
+
+    private static void put (TenantTrie tenant, Contact contact) {
+        String name = NameTrie.displayName(contact.getFirstName(), contact.getLastName());
+        if (name != null) {
+            tenant.trie.put(new Suggestion(contact.getId(), name));
+        }
+    }
+
+    private static void remove (TenantTrie tenant, Contact contact) {
+        String name = NameTrie.displayName(contact.getFirstName(), contact.getLastName());
+        if (name != null) {
+            tenant.trie.remove(contact.getId(), name);
+        }
+    }
+
+    private long total (ToLongFunction<NameTrie> measure) {
+        return read( () -> tries.values().stream().mapToLong(tenant -> measure.applyAsLong(tenant.trie)).sum());
+    }
+
+    private <T> T read (Supplier<T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.get();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private <T> T write (Supplier<T> writer) {
+        lock.writeLock().lock();
+        try {
+            return writer.get();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static class TenantTrie {
+
+        final NameTrie trie = new NameTrie();
+
+        // ids written while the trie is built, their stored state may be older than what the events already put
+        Set<String> changedDuringBuild = new HashSet<>();
+    }
+}
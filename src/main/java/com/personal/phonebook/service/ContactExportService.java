@@ -0,0 +1,146 @@
+package com.personal.phonebook.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvGenerator;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.personal.phonebook.controller.request.ContactExportRequest;
+import com.personal.phonebook.export.ExportFormat;
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.repository.ContactFilter;
+import com.personal.phonebook.repository.ContactRepository;
+import com.personal.phonebook.search.SearchMode;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Exports contacts straight from a database cursor to the response body - contacts are serialized one at a time as the
+ * cursor hands them over, so memory use does not grow with the size of the phonebook.
+ */
+@Slf4j
+@Service
+public class ContactExportService {
+
+    private static final Set<String> ALLOWED_FORMATS = Arrays.stream(ExportFormat.values()).map(Enum::name).collect(Collectors.toSet());
+
+    private static final ObjectWriter CSV_WRITER = new CsvMapper().enable(CsvGenerator.Feature.STRICT_CHECK_FOR_QUOTING)
+                                                                  .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                                                                  .enable(JsonGenerator.Feature.IGNORE_UNKNOWN)
+                                                                  .writerFor(Contact.class)
+                                                                  .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                                                                  .with(CsvSchema.builder()
+                                                                                 .addColumn("id")
+                                                                                 .addColumn("firstName")
+                                                                                 .addColumn("lastName")
+                                                                                 .addColumn("phone")
+                                                                                 .addColumn("address")
+                                                                                 .setUseHeader(true)
+                                                                                 .build());
+
+    @Value("${phonebook.export.batch-size:1000}")
+    private int batchSize;
+
+    @Autowired
+    private ContactService contactService;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Validates the request and resolves its format - called before anything is written, so that a bad request can still be
+     * answered with an error status.
+     */
+    public ExportFormat validateExportInput (ContactExportRequest request) {
+        if (!ALLOWED_FORMATS.contains(request.getFormat().toUpperCase())) {
+            throw new IllegalArgumentException(String.format("Invalid export format '%s'. Allowed values are: %s",
+                                                             request.getFormat(),
+                                                             ALLOWED_FORMATS));
+        }
+        contactService.validateSearchMode(request.getMode());
+        if (StringUtils.hasLength(request.getQuery()) && contactService.resolveSearchMode(request.getMode()) == SearchMode.TEXT) {
+            throw new IllegalArgumentException("Full-text search is not supported for export");
+        }
+        // fuzzy matches are ranked among a bounded set of candidates, which an export of all matches cannot stop at
+        if (StringUtils.hasLength(request.getQuery()) && contactService.resolveSearchMode(request.getMode()) == SearchMode.FUZZY) {
+            throw new IllegalArgumentException("Fuzzy search is not supported for export");
+        }
+        if (request.getSortBy() != null) {
+            contactService.validateSortField(request.getSortBy());
+        }
+        contactService.validateSortDirection(request.getDirection());
+        return ExportFormat.valueOf(request.getFormat().toUpperCase());
+    }
+
+    public long exportContacts (ContactExportRequest request, OutputStream out) throws IOException {
+        ExportFormat format = validateExportInput(request);
+        String query = request.getQuery();
+        SearchMode searchMode = contactService.resolveSearchMode(request.getMode());
+        ContactFilter filter = StringUtils.hasLength(query) ? ContactFilter.matching(query, searchMode) : ContactFilter.all();
+        Sort sort = exportSort(request);
+        log.debug("Exporting contacts as {} with filter: {}, sort: {}", format, filter, sort);
+
+        long exported;
+        try (Stream<Contact> contacts = contactRepository.streamContacts(filter, sort, batchSize)) {
+            exported = format == ExportFormat.CSV ? writeCsv(contacts, out) : writeNdjson(contacts, out);
+        }
+        log.info("Exported {} contacts as {}", exported, format);
+        return exported;
+    }
+
+    private long writeNdjson (Stream<Contact> contacts, OutputStream out) throws IOException {
+        // flushing is left to the output buffer, not done once per contact
+        ObjectWriter writer = objectMapper.writerFor(Contact.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long exported = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // the newline after every contact is the only separator NDJSON wants
+            generator.setRootValueSeparator(null);
+            for (Contact contact : (Iterable<Contact>) contacts::iterator) {
+                writer.writeValue(generator, contact);
+                generator.writeRaw('\n');
+                exported++;
+            }
+        }
+        return exported;
+    }
+
+    private long writeCsv (Stream<Contact> contacts, OutputStream out) throws IOException {
+        long exported = 0;
+        try (SequenceWriter rows = CSV_WRITER.writeValues(out)) {
+            for (Contact contact : (Iterable<Contact>) contacts::iterator) {
+                rows.write(contact);
+                exported++;
+            }
+        }
+        return exported;
+    }
+
+    // Unsorted unless asked for - natural order needs neither an index walk nor a sort stage
+    private Sort exportSort (ContactExportRequest request) {
+        if (request.getSortBy() == null) {
+            return Sort.unsorted();
+        }
+        Sort.Direction direction = Sort.Direction.valueOf(request.getDirection().toUpperCase());
+        return Sort.by(direction, request.getSortBy()).and(Sort.by(direction, "id"));
+    }
+}
@@ -0,0 +1,188 @@
+package com.personal.phonebook.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.personal.phonebook.controller.response.ImportResponse;
+import com.personal.phonebook.controller.response.ImportResponse.RowError;
+import com.personal.phonebook.event.ContactsImportedEvent;
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.repository.ContactRepository;
+import com.personal.phonebook.tenant.TenantContext;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Imports contacts from a request body as it is read - rows are parsed and validated one at a time and written in unordered
+ * bulk batches, so neither the body nor the parsed contacts are ever held in memory as a whole. A row that fails to parse,
+ * validate or insert is reported and the import carries on.
+ */
+@Slf4j
+@Service
+public class ContactImportService {
+
+    private static final ObjectReader CSV_READER = new CsvMapper().enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+                                                                  .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                                                                  .readerFor(Contact.class)
+                                                                  .with(CsvSchema.emptySchema().withHeader());
+
+    @Value("${phonebook.import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${phonebook.import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    @Autowired
+    private ContactService contactService;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    public ImportResponse importNdjson (InputStream body) {
+        ObjectReader reader = objectMapper.readerFor(Contact.class);
+        ImportRun run = new ImportRun();
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                long row = run.nextRow();
+                try {
+                    run.add(row, reader.readValue(line));
+                }
+                catch (JsonProcessingException e) {
+                    run.reject(row, "Malformed JSON: " + e.getOriginalMessage());
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed to read import body", e);
+        }
+        return run.finish();
+    }
+
+    public ImportResponse importCsv (InputStream body) {
+        ImportRun run = new ImportRun();
+        try (MappingIterator<Contact> rows = CSV_READER.readValues(body)) {
+            while (rows.hasNextValue()) {
+                long row = run.nextRow();
+                try {
+                    run.add(row, rows.nextValue());
+                }
+                catch (JsonProcessingException e) {
+                    run.reject(row, "Malformed CSV row: " + e.getOriginalMessage());
+                }
+            }
+        }
+        catch (JsonProcessingException e) {
+            // broken quoting or header - nothing after this point can be read reliably
+            run.reject(run.nextRow(), "Malformed CSV, import stopped: " + e.getOriginalMessage());
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed to read import body", e);
+        }
+        return run.finish();
+    }
+
+    private class ImportRun {
+
+        private final List<Contact> batch = new ArrayList<>(batchSize);
+
+        private final List<Long> batchRows = new ArrayList<>(batchSize);
+
+        private final List<RowError> errors = new ArrayList<>();
+
+        private long rows;
+
+        private long imported;
+
+        private long failed;
+
+        long nextRow () {
+            return ++rows;
+        }
+
+        void add (long row, Contact contact) {
+            try {
+                contactService.validateContact(contact);
+            }
+            catch (IllegalArgumentException e) {
+                reject(row, e.getMessage());
+                return;
+            }
+            // a bulk insert does not write the generated id back, so listeners of the import event would get none
+            if (contact.getId() == null) {
+                contact.setId(UUID.randomUUID().toString());
+            }
+            // set here as well, the bulk insert of the in-process engines bypasses the mapping events
+            contact.setTenantId(TenantContext.tenantId());
+            batch.add(contact);
+            batchRows.add(row);
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void reject (long row, String message) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new RowError(row, message));
+            }
+        }
+
+        ImportResponse finish () {
+            flush();
+            log.info("Imported {} of {} contacts, {} rows failed", imported, rows, failed);
+            return new ImportResponse(rows, imported, failed, errors, failed > errors.size());
+        }
+
+        private void flush () {
+            if (batch.isEmpty()) {
+                return;
+            }
+            Map<Integer, String> failures = contactRepository.bulkInsert(batch);
+            failures.forEach( (index, message) -> reject(batchRows.get(index), message));
+            imported += batch.size() - failures.size();
+            if (failures.size() < batch.size()) {
+                List<Contact> inserted = new ArrayList<>(batch.size() - failures.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    if (!failures.containsKey(i)) {
+                        inserted.add(batch.get(i));
+                    }
+                }
+                eventPublisher.publishEvent(new ContactsImportedEvent(inserted));
+            }
+            log.debug("Imported batch of {} contacts, {} failed", batch.size(), failures.size());
+            batch.clear();
+            batchRows.clear();
+        }
+    }
+}
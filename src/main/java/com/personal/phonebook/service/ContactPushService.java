@@ -0,0 +1,246 @@
+package com.personal.phonebook.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.personal.phonebook.push.ContactChangeBroadcaster;
+import com.personal.phonebook.push.OverflowPolicy;
+import com.personal.phonebook.push.PushSubscriber;
+import com.personal.phonebook.repository.ContactFilter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Server-sent events of the contact changes for the blocking stack. A subscriber's buffer is written to its connection on an
+ * executor of its own, one drain at a time: a virtual thread per drain when virtual threads are enabled, otherwise a pool of
+ * {@code phonebook.push.send-threads} threads with a queue of {@code phonebook.push.send-queue-capacity} drains.
+ * <p>
+ * A write to a connection blocks while the client does not read, so a subscriber whose write has been stuck for
+ * {@code phonebook.push.send-timeout} is evicted: it gets no more messages, and its connection is ended as soon as the
+ * stuck write returns - at the latest after the write timeout of the web server. Subscribers are evicted the same way when
+ * the queue of the pool is full. Evictions are counted by the {@code phonebook.push.evicted} counter.
+ */
+@Slf4j
+@Service
+@Profile("!reactive")
+public class ContactPushService {
+
+    static final String SUBSCRIBED = "subscribed";
+
+    // the client reconnects once it is over, which also drops connections nobody reads from anymore
+    @Value("${phonebook.push.timeout:30m}")
+    private Duration timeout;
+
+    @Value("${phonebook.push.send-timeout:10s}")
+    private Duration sendTimeout;
+
+    @Value("${phonebook.push.send-threads:32}")
+    private int sendThreads;
+
+    @Value("${phonebook.push.send-queue-capacity:10000}")
+    private int sendQueueCapacity;
+
+    @Autowired
+    private ContactService contactService;
+
+    @Autowired
+    private ContactChangeBroadcaster broadcaster;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private TaskExecutor sendExecutor;
+
+    private ScheduledExecutorService watchdog;
+
+    private Counter evictions;
+
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init () {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("contact-push-");
+            executor.setVirtualThreads(true);
+            sendExecutor = executor;
+        }
+        else {
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setThreadNamePrefix("contact-push-");
+            executor.setCorePoolSize(sendThreads);
+            executor.setMaxPoolSize(sendThreads);
+            executor.setQueueCapacity(sendQueueCapacity);
+            executor.initialize();
+            sendExecutor = executor;
+        }
+        evictions = Counter.builder("phonebook.push.evicted").description("Subscribers evicted for stalled writes").register(meterRegistry);
+        watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "contact-push-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, sendTimeout.toMillis() / 2);
+        watchdog.scheduleWithFixedDelay(this::evictStalled, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close () {
+        watchdog.shutdownNow();
+        if (sendExecutor instanceof ThreadPoolTaskExecutor pool) {
+            pool.shutdown();
+        }
+        else if (sendExecutor instanceof SimpleAsyncTaskExecutor perTask) {
+            perTask.close();
+        }
+    }
+
+    public SseEmitter subscribe (String query, String mode, String overflow) {
+        ContactFilter filter = StringUtils.hasLength(query) ? ContactFilter.matching(query, contactService.resolveSearchMode(mode)) : ContactFilter.all();
+        OverflowPolicy policy = OverflowPolicy.of(overflow);
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Connection connection = new Connection(emitter);
+        // a change can make the subscriber ready before subscribe returns it
+        connection.subscriber = broadcaster.subscribe(filter, policy, ready -> {
+            connection.subscriber = ready;
+            schedule(connection);
+        }, emitter::complete);
+        connections.add(connection);
+        emitter.onCompletion( () -> disconnect(connection));
+        emitter.onTimeout( () -> disconnect(connection));
+        emitter.onError(error -> disconnect(connection));
+        try {
+            // commits the response, the client knows it is subscribed before the first change
+            emitter.send(SseEmitter.event().comment(SUBSCRIBED));
+        }
+        catch (IOException e) {
+            disconnect(connection);
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    // Called on the writing thread, which must not wait for the connection
+    private void schedule (Connection connection) {
+        try {
+            sendExecutor.execute( () -> send(connection));
+        }
+        catch (TaskRejectedException e) {
+            evict(connection, "the send queue is full");
+        }
+    }
+
+    private void send (Connection connection) {
+        connection.draining = true;
+        try {
+            connection.subscriber.drain(connection::isOpen, message -> {
+                connection.sendingSince = System.nanoTime();
+                try {
+                    // already JSON, written as it is
+                    connection.emitter.send(SseEmitter.event().name(message.getType().event()).data(message.getData()));
+                }
+                catch (IOException | IllegalStateException e) {
+                    // the client went away or the emitter timed out
+                    log.debug("Failed to push contact change to subscriber: {}", e.getMessage());
+                    disconnect(connection);
+                }
+                finally {
+                    connection.sendingSince = 0;
+                }
+            });
+        }
+        finally {
+            connection.draining = false;
+        }
+        // evicted while this drain was stuck in a write, which held the emitter meanwhile
+        if (connection.evicted.get()) {
+            connection.complete();
+        }
+    }
+
+    private void evictStalled () {
+        long now = System.nanoTime();
+        for (Connection connection : connections) {
+            long since = connection.sendingSince;
+            if (since != 0 && now - since > sendTimeout.toNanos()) {
+                evict(connection, "a write has been stalled for more than " + sendTimeout);
+            }
+        }
+    }
+
+    private void evict (Connection connection, String reason) {
+        if (!connection.evicted.compareAndSet(false, true)) {
+            return;
+        }
+        log.debug("Evicting push subscriber, {}", reason);
+        evictions.increment();
+        disconnect(connection);
+        // a drain in progress holds the emitter until its write returns, and ends the connection itself then
+        if (!connection.draining) {
+            connection.complete();
+        }
+    }
+
+    private void disconnect (Connection connection) {
+        connection.open = false;
+        connections.remove(connection);
+        broadcaster.unsubscribe(connection.subscriber);
+    }
+
+    private static final class Connection {
+
+        private final SseEmitter emitter;
+
+        private volatile PushSubscriber subscriber;
+
+        private volatile boolean open = true;
+
+        private volatile boolean draining;
+
+        // System.nanoTime when the write in progress started, 0 between writes
+        private volatile long sendingSince;
+
+        private final AtomicBoolean evicted = new AtomicBoolean();
+
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        private Connection (SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private boolean isOpen () {
+            return open;
+        }
+
+        private void complete () {
+            if (completed.compareAndSet(false, true)) {
+                emitter.completeWithError(new IOException("Push subscriber evicted"));
+            }
+        }
+    }
+}
@@ -1,87 +1,518 @@
 package com.personal.phonebook.service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.TextCriteria;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import com.personal.phonebook.cache.ContactCache;
+import com.personal.phonebook.cache.SearchKey;
+import com.personal.phonebook.controller.request.ContactBatchRequest;
+import com.personal.phonebook.controller.request.ContactSearchRequest;
+import com.personal.phonebook.controller.response.BatchLookupResponse;
 import com.personal.phonebook.controller.response.ContactsResponse;
+import com.personal.phonebook.event.ContactChangedEvent;
+import com.personal.phonebook.exception.ContactConflictException;
+import com.personal.phonebook.exception.ContactVersionRequiredException;
 import com.personal.phonebook.exception.ContanctNotFoundException;
+import com.personal.phonebook.exception.DuplicatePhoneException;
+import com.personal.phonebook.exception.PhonebookException;
+import com.personal.phonebook.metrics.ContactMetrics;
 import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.pagination.ContactCursor;
+import com.personal.phonebook.pagination.TotalCountMode;
+import com.personal.phonebook.repository.ContactFilter;
 import com.personal.phonebook.repository.ContactRepository;
+import com.personal.phonebook.search.FuzzyNames;
+import com.personal.phonebook.search.PhoneMatch;
+import com.personal.phonebook.search.PhoneNumbers;
+import com.personal.phonebook.search.SearchMode;
+import com.personal.phonebook.search.SearchTokenizer;
+import com.personal.phonebook.tenant.TenantContext;
 
+import io.micrometer.core.instrument.Tags;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @Service
 public class ContactService {
 
-    private static final Set<String> ALLOWED_SORT_FIELDS = Set.of("firstName", "lastName", "address");
+    public static final Set<String> ALLOWED_SORT_FIELDS = Set.of("firstName", "lastName", "address");
+
+    public static final List<String> CONTACT_FIELDS = List.of("firstName", "lastName", "phone", "address");
+
+    private static final int MAX_PATCH_ATTEMPTS = 3;
 
     private static final Set<String> ALLOWED_SORT_DIRECTION = Set.of("ASC", "DESC");
 
+    private static final Set<String> ALLOWED_SEARCH_MODES = Arrays.stream(SearchMode.values()).map(Enum::name).collect(Collectors.toSet());
+
+    private static final Set<String> ALLOWED_TOTAL_COUNT_MODES = Arrays.stream(TotalCountMode.values())
+                                                                       .map(Enum::name)
+                                                                       .collect(Collectors.toSet());
+
+    private static final Map<String, Function<Contact, String>> SORT_PROPERTIES = Map.of("firstName",
+                                                                                         Contact::getFirstName,
+                                                                                         "lastName",
+                                                                                         Contact::getLastName,
+                                                                                         "address",
+                                                                                         Contact::getAddress,
+                                                                                         "id",
+                                                                                         Contact::getId);
+
     @Value("${phonebook.pagination.max-page-size}")
     private int maxPageSize;
 
+    @Value("${phonebook.batch.max-keys:1000}")
+    private int maxBatchKeys;
+
+    @Value("${phonebook.search.mode:NGRAM}")
+    private SearchMode searchMode;
+
+    @Value("${phonebook.pagination.count-estimate-limit:1000}")
+    private long countEstimateLimit;
+
+    // the most contacts a fuzzy search ranks, the bound on what a query sharing only common trigrams costs
+    @Value("${phonebook.search.fuzzy.max-candidates:1000}")
+    private int maxFuzzyCandidates;
+
     @Autowired
     private ContactRepository contactRepository;
 
+    @Autowired
+    private ContactCache contactCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ContactMetrics contactMetrics;
+
     public ContactsResponse searchContacts (String query, int page, int size, String direction, String sortBy) {
-        validateSearchContactInput(size, direction, sortBy);
-        Sort sort = Sort.by(Sort.Direction.valueOf(direction.toUpperCase()), sortBy);
+        return searchContacts(query, null, page, size, direction, sortBy);
+    }
+
+    public ContactsResponse searchContacts (String query, String mode, int page, int size, String direction, String sortBy) {
+        return searchContacts(new ContactSearchRequest(query, mode, page, size, direction, sortBy, null, null));
+    }
 
-        if (query == null || query.isEmpty()) {
-            return getContacts(page, size, sort);
+    public ContactsResponse searchContacts (ContactSearchRequest request) {
+        validateSearchContactInput(request);
+        Sort.Direction direction = Sort.Direction.valueOf(request.getDirection().toUpperCase());
+        String query = request.getQuery();
+        SearchMode searchMode = resolveSearchMode(request.getMode());
+        TotalCountMode totalCountMode = resolveTotalCountMode(request);
+        ContactFilter filter = StringUtils.hasLength(query) ? ContactFilter.matching(query, searchMode) : ContactFilter.all();
+        SearchKey key = new SearchKey(TenantContext.tenantId(),
+                                      filter,
+                                      request.getPage(),
+                                      request.getSize(),
+                                      direction,
+                                      request.getSortBy(),
+                                      request.getCursor(),
+                                      totalCountMode);
+        Tags tags = Tags.of("operation", "searchContacts")
+                        .and("search", String.valueOf(!filter.isAll()))
+                        .and("mode", filter.isAll() ? "none" : searchMode.name())
+                        .and("sortBy", request.getSortBy());
+        return contactMetrics.record(ContactMetrics.SERVICE,
+                                     tags,
+                                     () -> contactCache.getSearch(key, () -> findContacts(filter, request, direction, totalCountMode)));
+    }
+
+    public Contact getContact (String id) {
+        return contactMetrics.record(ContactMetrics.SERVICE, Tags.of("operation", "getContact", "projected", "false"), () -> cachedContact(id));
+    }
+
+    /**
+     * Contact with only the requested fields and its id set. Taken from the cache when the full contact is already there,
+     * otherwise only those fields are read from the store.
+     */
+    public Contact getContact (String id, List<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return getContact(id);
         }
-        log.debug("Searching contacts with query: {}, page: {}, size: {}, direction: {}, sortBy: {}", query, page, size, direction, sortBy);
-        Page<Contact> result = contactRepository.searchContacts(query, PageRequest.of(page, size, sort));
-        return new ContactsResponse(result.getContent(), result.getTotalElements());
+        validateProjectionFields(fields);
+        return contactMetrics.record(ContactMetrics.SERVICE, Tags.of("operation", "getContact", "projected", "true"), () -> {
+            Contact contact = contactCache.peekContact(id);
+            if (contact == null) {
+                log.debug("Fetching fields {} of contact with id: {}", fields, id);
+                contact = contactRepository.findContactById(id, fields).orElseThrow( () -> new ContanctNotFoundException(id));
+            }
+            return project(contact, fields);
+        });
+    }
+
+    /**
+     * Reverse lookup of the contacts with a phone number, see {@link PhoneMatch}. Served by an index for either match, so it
+     * bypasses the cache.
+     */
+    public ContactsResponse lookupPhone (String phone, String match, int limit) {
+        PhoneMatch phoneMatch = resolvePhoneMatch(match);
+        validatePhoneLookup(phone, phoneMatch, limit);
+        return contactMetrics.record(ContactMetrics.SERVICE, Tags.of("operation", "lookupPhone", "match", phoneMatch.name()), () -> {
+            log.debug("Looking up contacts by phone: {}, match: {}, limit: {}", phone, phoneMatch, limit);
+            List<Contact> contacts = switch (phoneMatch) {
+                case EXACT -> contactRepository.findByPhoneNumber(PhoneNumbers.normalize(phone), limit);
+                case SUFFIX -> contactRepository.findByPhoneSuffix(PhoneNumbers.reversed(phone), limit);
+            };
+            return new ContactsResponse(contacts, -1);
+        });
+    }
+
+    /**
+     * Resolves a whole batch of ids, or of phone numbers matched exactly, in one query. Ids that are cached are not read
+     * again and the ones that are read are cached. Every requested key is reported, either with its matches or as missing.
+     */
+    public BatchLookupResponse batchLookup (ContactBatchRequest request) {
+        validateBatchLookup(request);
+        boolean byPhone = isPhoneBatch(request);
+        List<String> keys = batchKeys(request);
+        return contactMetrics.record(ContactMetrics.SERVICE, Tags.of("operation", "batchLookup", "key", byPhone ? "phone" : "id"), () -> {
+            log.debug("Looking up a batch of {} {}", keys.size(), byPhone ? "phone numbers" : "ids");
+            if (byPhone) {
+                return batchResponse(keys, true, contactRepository.findByPhoneNumbers(normalizedPhones(keys)));
+            }
+            return batchResponse(keys, false, contactCache.getContacts(keys, contactRepository::findByIds).values());
+        });
     }
 
     public Contact createContact (Contact contact) {
+        return contactMetrics.record(ContactMetrics.SERVICE, operation("createContact"), () -> create(contact));
+    }
+
+    /**
+     * Replaces all fields in a single atomic round-trip, only if the contact is still at the version {@code contactDetails}
+     * carries. Without a version nothing is replaced, a full update never silently overwrites a concurrent one.
+     */
+    public Contact updateContact (String id, Contact contactDetails) {
+        return contactMetrics.record(ContactMetrics.SERVICE, operation("updateContact"), () -> update(id, contactDetails));
+    }
+
+    /**
+     * Applies a JSON Merge Patch: supplied fields are set, fields supplied as null are removed and everything else is left
+     * as it is. Only the fields that actually change are written, conditionally on the version they were read at - when
+     * that read was stale (the cache lags behind a write made elsewhere, or a concurrent writer won) the contact is re-read
+     * and the patch re-applied. A {@code version} in the patch is a precondition, not a change.
+     */
+    public Contact patchContact (String id, Map<String, Object> patch) {
+        return contactMetrics.record(ContactMetrics.SERVICE, operation("patchContact"), () -> patch(id, patch));
+    }
+
+    public void deleteContact (String id) {
+        contactMetrics.record(ContactMetrics.SERVICE, operation("deleteContact"), () -> delete(id));
+    }
+
+    private Contact cachedContact (String id) {
+        log.debug("Fetching contact with id: {}", id);
+        return contactCache.getContact(id, () -> requireById(id));
+    }
+
+    private Contact create (Contact contact) {
         validateContact(contact);
+        // a new contact gets a generated id and starts its own version history
+        contact.setId(null);
+        contact.setVersion(null);
+        contact.setTenantId(TenantContext.tenantId());
         log.debug("Creating new contact: {}", contact);
-        Contact savedContact = contactRepository.save(contact);
+        Contact savedContact = uniquePhone(contact.getPhone(), () -> contactRepository.save(contact));
         log.debug("Contact created successfully with id: {}", savedContact.getId());
+        eventPublisher.publishEvent(new ContactChangedEvent(null, savedContact));
         return savedContact;
     }
 
-    public Contact updateContact (String id, Contact contactDetails) {
+    private Contact update (String id, Contact contactDetails) {
         validateContact(contactDetails);
+        if (contactDetails.getVersion() == null) {
+            throw new ContactVersionRequiredException(id);
+        }
         log.debug("Attempting to update contact with id: {}", id);
-        Contact existingContact = requireById(id);
-        existingContact.setFirstName(contactDetails.getFirstName());
-        existingContact.setLastName(contactDetails.getLastName());
-        existingContact.setPhone(contactDetails.getPhone());
-        existingContact.setAddress(contactDetails.getAddress());
-        Contact updatedContact = contactRepository.save(existingContact);
+        Map<String, String> fields = fieldsOf(contactDetails);
+        Long expectedVersion = contactDetails.getVersion();
+        Optional<Contact> updated = uniquePhone(contactDetails.getPhone(),
+                                                () -> contactRepository.updateFields(id, expectedVersion, fields, SearchTokenizer.tokenize(contactDetails)));
+        Contact previousContact = updated.orElseThrow( () -> notUpdated(id, expectedVersion));
+        Contact updatedContact = applyFields(previousContact, fields);
         log.debug("Contact updated successfully: {}", updatedContact);
+        eventPublisher.publishEvent(new ContactChangedEvent(previousContact, updatedContact));
         return updatedContact;
     }
 
-    public void deleteContact (String id) {
+    private Contact patch (String id, Map<String, Object> patch) {
+        log.debug("Attempting to patch contact with id: {}", id);
+        Long expectedVersion = patchVersion(patch);
+        Map<String, String> changes = validatePatch(patch);
+        Contact current = cachedContact(id);
+        boolean fresh = false;
+        for (int attempt = 1; attempt <= MAX_PATCH_ATTEMPTS; attempt++) {
+            boolean preconditionMet = expectedVersion == null || expectedVersion.equals(current.getVersion());
+            if (!preconditionMet && fresh) {
+                throw new ContactConflictException(id, expectedVersion);
+            }
+            Map<String, String> fields = changedFields(current, changes);
+            if (preconditionMet && fields.isEmpty() && fresh) {
+                return current;
+            }
+            if (preconditionMet && !fields.isEmpty()) {
+                List<String> searchTokens = SearchTokenizer.tokenize(applyFields(current, fields));
+                // a contact stored before versioning has no version to condition on and is patched unconditionally
+                Long readVersion = current.getVersion();
+                Optional<Contact> previous = uniquePhone(changes.get("phone"),
+                                                         () -> contactRepository.updateFields(id, readVersion, fields, searchTokens));
+                if (previous.isPresent()) {
+                    Contact updatedContact = applyFields(previous.get(), fields);
+                    log.debug("Contact patched successfully, changed fields: {}", fields.keySet());
+                    eventPublisher.publishEvent(new ContactChangedEvent(previous.get(), updatedContact));
+                    return updatedContact;
+                }
+            }
+            current = requireById(id);
+            fresh = true;
+        }
+        throw new ContactConflictException(id, current.getVersion());
+    }
+
+    private void delete (String id) {
         log.debug("Attempting to delete contact with id: {}", id);
-        if (contactRepository.existsById(id)) {
-            contactRepository.deleteById(id);
-            log.debug("Contact deleted successfully with id: {}", id);
+        Contact deletedContact = contactRepository.deleteContactById(id).orElseThrow( () -> new ContanctNotFoundException(id));
+        log.debug("Contact deleted successfully with id: {}", id);
+        eventPublisher.publishEvent(new ContactChangedEvent(deletedContact, null));
+    }
+
+    private ContactsResponse findContacts (ContactFilter filter,
+                                           ContactSearchRequest request,
+                                           Sort.Direction direction,
+                                           TotalCountMode totalCountMode) {
+        // _id breaks ties so that every page boundary is a well defined keyset position
+        Sort sort = Sort.by(direction, request.getSortBy()).and(Sort.by(direction, "id"));
+        // relevance ordering has no keyset position, the text fallback relies on the count and fuzzy matches are ranked in memory
+        boolean ranked = !filter.isAll() && filter.getMode().isRanked();
+
+        if (ranked || (request.getCursor() == null && totalCountMode == TotalCountMode.EXACT)) {
+            Pageable pageable = PageRequest.of(request.getPage(), request.getSize(), sort);
+            Page<Contact> result = findPage(filter.getQuery(), filter.getMode(), pageable);
+            String nextCursor = result.hasNext() && !ranked ? cursorAfter(result.getContent(), request, direction) : null;
+            return new ContactsResponse(result.getContent(), result.getTotalElements(), false, nextCursor);
+        }
+        return findSlice(filter, request, direction, sort, totalCountMode);
+    }
+
+    private Page<Contact> findPage (String query, SearchMode searchMode, Pageable pageable) {
+        if (!StringUtils.hasLength(query)) {
+            log.debug("Fetching contacts with page: {}, size: {}, sort: {}", pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort());
+            return contactRepository.findAll(pageable);
+        }
+        log.debug("Searching contacts with query: {}, mode: {}, page: {}, size: {}, sort: {}",
+                  query,
+                  searchMode,
+                  pageable.getPageNumber(),
+                  pageable.getPageSize(),
+                  pageable.getSort());
+        return switch (searchMode) {
+            case TEXT -> findTextMatches(query, pageable);
+            case FUZZY -> findFuzzyMatches(query, pageable);
+            default -> findMatchingContacts(query, searchMode, pageable);
+        };
+    }
+
+    /**
+     * Keyset or count-free page: one extra contact is fetched to tell whether there is a next page, and the total is only
+     * counted as requested.
+     */
+    private ContactsResponse findSlice (ContactFilter filter,
+                                        ContactSearchRequest request,
+                                        Sort.Direction direction,
+                                        Sort sort,
+                                        TotalCountMode totalCountMode) {
+        ContactCursor after = request.getCursor() == null ? null : ContactCursor.decode(request.getCursor());
+        long skip = after == null ? (long) request.getPage() * request.getSize() : 0;
+        log.debug("Fetching contacts slice with filter: {}, after: {}, skip: {}, size: {}, sort: {}", filter, after, skip, request.getSize(), sort);
+
+        List<Contact> contacts = contactRepository.findContacts(filter, after, skip, sort, request.getSize() + 1);
+        boolean hasNext = contacts.size() > request.getSize();
+        if (hasNext) {
+            contacts = contacts.subList(0, request.getSize());
         }
-        else {
-            throw new ContanctNotFoundException(id);
+        String nextCursor = hasNext ? cursorAfter(contacts, request, direction) : null;
+
+        return switch (totalCountMode) {
+            case EXACT -> new ContactsResponse(contacts, contactRepository.countContacts(filter, 0), false, nextCursor);
+            case ESTIMATE -> estimateTotal(filter, contacts, nextCursor);
+            case NONE -> new ContactsResponse(contacts, -1, false, nextCursor);
+        };
+    }
+
+    private ContactsResponse estimateTotal (ContactFilter filter, List<Contact> contacts, String nextCursor) {
+        if (filter.isAll()) {
+            return new ContactsResponse(contacts, contactRepository.estimateTotalCount(), true, nextCursor);
+        }
+        long count = contactRepository.countContacts(filter, countEstimateLimit);
+        // below the cap the count is exact
+        return new ContactsResponse(contacts, count, count >= countEstimateLimit, nextCursor);
+    }
+
+    private String cursorAfter (List<Contact> contacts, ContactSearchRequest request, Sort.Direction direction) {
+        return ContactCursor.after(contacts.get(contacts.size() - 1), request.getSortBy(), direction).encode();
+    }
+
+    SearchMode resolveSearchMode (String mode) {
+        return mode == null ? searchMode : SearchMode.valueOf(mode.toUpperCase());
+    }
+
+    PhoneMatch resolvePhoneMatch (String match) {
+        return match == null ? PhoneMatch.EXACT : PhoneMatch.valueOf(match.toUpperCase());
+    }
+
+    void validatePhoneLookup (String phone, PhoneMatch match, int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + maxPageSize);
+        }
+        int digits = phone == null ? 0 : PhoneNumbers.digits(phone).length();
+        if (digits == 0) {
+            throw new IllegalArgumentException("Phone number must contain digits");
+        }
+        if (match == PhoneMatch.SUFFIX && digits < PhoneNumbers.MIN_SUFFIX_DIGITS) {
+            throw new IllegalArgumentException(String.format("A phone suffix needs at least %d digits", PhoneNumbers.MIN_SUFFIX_DIGITS));
         }
     }
 
-    private ContactsResponse getContacts (int page, int size, Sort sort) {
-        log.debug("Fetching contacts with page: {}, size: {}, sort: {}", page, size, sort);
-        Page<Contact> result = contactRepository.findAll(PageRequest.of(page, size, sort));
-        return new ContactsResponse(result.getContent(), result.getTotalElements());
+    void validateBatchLookup (ContactBatchRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("Batch request cannot be null");
+        }
+        boolean hasIds = request.getIds() != null && !request.getIds().isEmpty();
+        boolean hasPhones = request.getPhones() != null && !request.getPhones().isEmpty();
+        if (hasIds == hasPhones) {
+            throw new IllegalArgumentException("Exactly one of 'ids' and 'phones' must be given");
+        }
+        List<String> keys = hasIds ? request.getIds() : request.getPhones();
+        if (keys.size() > maxBatchKeys) {
+            throw new IllegalArgumentException("A batch cannot hold more than " + maxBatchKeys + " keys");
+        }
+        for (String key : keys) {
+            if (!StringUtils.hasText(key)) {
+                throw new IllegalArgumentException("Batch keys cannot be empty");
+            }
+            if (hasPhones && PhoneNumbers.digits(key).isEmpty()) {
+                throw new IllegalArgumentException(String.format("Phone number '%s' must contain digits", key));
+            }
+        }
     }
 
-    private void validateContact (Contact contact) {
+    static boolean isPhoneBatch (ContactBatchRequest request) {
+        return request.getIds() == null || request.getIds().isEmpty();
+    }
+
+    // A key asked for twice is looked up and reported once
+    static List<String> batchKeys (ContactBatchRequest request) {
+        return List.copyOf(new LinkedHashSet<>(isPhoneBatch(request) ? request.getPhones() : request.getIds()));
+    }
+
+    static Set<String> normalizedPhones (List<String> phones) {
+        return phones.stream().map(PhoneNumbers::normalize).collect(Collectors.toSet());
+    }
+
+    /**
+     * Groups the contacts found under the requested keys they answer - by id, or by normalized phone number, so that every
+     * spelling of a number asked for gets its matches.
+     */
+    static BatchLookupResponse batchResponse (List<String> keys, boolean byPhone, Collection<Contact> contacts) {
+        Map<String, List<Contact>> found = contacts.stream()
+                                                   .collect(Collectors.groupingBy(contact -> byPhone ? PhoneNumbers.normalize(contact.getPhone())
+                                                                                                     : contact.getId()));
+        Map<String, List<Contact>> matches = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String key : keys) {
+            List<Contact> keyMatches = found.get(byPhone ? PhoneNumbers.normalize(key) : key);
+            if (keyMatches == null) {
+                missing.add(key);
+            }
+            else {
+                matches.put(key, keyMatches);
+            }
+        }
+        return new BatchLookupResponse(matches, missing);
+    }
+
+    TotalCountMode resolveTotalCountMode (ContactSearchRequest request) {
+        if (request.getTotal() != null) {
+            return TotalCountMode.valueOf(request.getTotal().toUpperCase());
+        }
+        // offset pages keep reporting the exact total, cursor clients have to ask for it
+        return request.getCursor() == null ? TotalCountMode.EXACT : TotalCountMode.NONE;
+    }
+
+    private Page<Contact> findTextMatches (String query, Pageable pageable) {
+        Page<Contact> result = contactRepository.findAllByOrderByScoreDesc(TextCriteria.forDefaultLanguage().matching(query), pageable);
+        if (result.getTotalElements() > 0) {
+            return result;
+        }
+        // the text index only knows whole words - a fragment such as "ali" has to be found as a substring
+        log.debug("No full-text match for query: {}, falling back to substring search", query);
+        return findMatchingContacts(query, SearchMode.NGRAM, pageable);
+    }
+
+    private Page<Contact> findFuzzyMatches (String query, Pageable pageable) {
+        List<Contact> candidates = contactRepository.findFuzzyCandidates(FuzzyNames.phoneticKeys(query), FuzzyNames.trigrams(query), maxFuzzyCandidates);
+        return rankFuzzyMatches(query, candidates, pageable);
+    }
+
+    /**
+     * The page of the candidates matching the fuzzy query, closest first and in the pageable's sort among equally close
+     * ones. The total counts the matches among the candidates.
+     */
+    static Page<Contact> rankFuzzyMatches (String query, List<Contact> candidates, Pageable pageable) {
+        List<Contact> sorted = new ArrayList<>(candidates);
+        sorted.sort(sortOrder(pageable.getSort()));
+        List<Contact> matches = FuzzyNames.rank(query, sorted);
+        int from = (int) Math.min(pageable.getOffset(), matches.size());
+        return new PageImpl<>(matches.subList(from, Math.min(from + pageable.getPageSize(), matches.size())), pageable, matches.size());
+    }
+
+    // Missing values sort first, as they do in the store
+    private static Comparator<Contact> sortOrder (Sort sort) {
+        Comparator<Contact> order = (a, b) -> 0;
+        for (Sort.Order field : sort) {
+            Comparator<Contact> next = Comparator.comparing(SORT_PROPERTIES.get(field.getProperty()), Comparator.nullsFirst(Comparator.<String> naturalOrder()));
+            order = order.thenComparing(field.isAscending() ? next : next.reversed());
+        }
+        return order;
+    }
+
+    private Page<Contact> findMatchingContacts (String query, SearchMode searchMode, Pageable pageable) {
+        if (searchMode == SearchMode.NGRAM && SearchTokenizer.supports(query)) {
+            List<String> tokens = SearchTokenizer.queryTokens(query);
+            return tokens.size() == 1 ? contactRepository.searchByToken(tokens.get(0), pageable)
+                                      : contactRepository.searchByTokens(tokens, query, pageable);
+        }
+        return contactRepository.searchContacts(query, pageable);
+    }
+
+    void validateContact (Contact contact) {
         if (contact == null) {
             throw new IllegalArgumentException("Contact cannot be null");
         }
@@ -93,14 +524,174 @@ public class ContactService {
         }
     }
 
+    private static Tags operation (String operation) {
+        return Tags.of("operation", operation);
+    }
+
     private Contact requireById (String id) {
         return contactRepository.findById(id).orElseThrow( () -> new ContanctNotFoundException(id));
     }
 
-    private void validateSearchContactInput (int size, String direction, String sortBy) {
-        validatePageSize(size);
-        validateSortField(sortBy);
-        validateSortDirection(direction);
+    private static Contact project (Contact contact, List<String> fields) {
+        Contact projection = new Contact();
+        projection.setId(contact.getId());
+        projection.setFirstName(fields.contains("firstName") ? contact.getFirstName() : null);
+        projection.setLastName(fields.contains("lastName") ? contact.getLastName() : null);
+        projection.setPhone(fields.contains("phone") ? contact.getPhone() : null);
+        projection.setAddress(fields.contains("address") ? contact.getAddress() : null);
+        return projection;
+    }
+
+    private static Long patchVersion (Map<String, Object> patch) {
+        Object version = patch.get("version");
+        if (version == null) {
+            return null;
+        }
+        if (!(version instanceof Number number)) {
+            throw new IllegalArgumentException("Field 'version' must be a number");
+        }
+        return number.longValue();
+    }
+
+    // The mandatory-field rules of validateContact, applied to the fields the patch touches
+    private static Map<String, String> validatePatch (Map<String, Object> patch) {
+        if (patch == null) {
+            throw new IllegalArgumentException("Patch cannot be null");
+        }
+        Map<String, String> changes = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : patch.entrySet()) {
+            String field = entry.getKey();
+            Object value = entry.getValue();
+            if ("version".equals(field)) {
+                continue;
+            }
+            if (!CONTACT_FIELDS.contains(field)) {
+                throw new IllegalArgumentException(String.format("Field '%s' cannot be patched. Allowed fields are: %s", field, CONTACT_FIELDS));
+            }
+            if (value != null && !(value instanceof String)) {
+                throw new IllegalArgumentException(String.format("Field '%s' must be a string", field));
+            }
+            changes.put(field, (String) value);
+        }
+        if (changes.containsKey("firstName") && !StringUtils.hasText(changes.get("firstName"))) {
+            throw new IllegalArgumentException("First name is mandatory");
+        }
+        if (changes.containsKey("phone") && !StringUtils.hasText(changes.get("phone"))) {
+            throw new IllegalArgumentException("Phone number is mandatory");
+        }
+        return changes;
+    }
+
+    private static Map<String, String> changedFields (Contact current, Map<String, String> changes) {
+        BeanWrapperImpl bean = new BeanWrapperImpl(current);
+        Map<String, String> fields = new LinkedHashMap<>();
+        changes.forEach( (field, value) -> {
+            if (!Objects.equals(bean.getPropertyValue(field), value)) {
+                fields.put(field, value);
+            }
+        });
+        return fields;
+    }
+
+    // Only a violation of the phone index is the caller's conflict, any other duplicate key is left to surface as it is
+    private static <T> T uniquePhone (String phone, Supplier<T> write) {
+        try {
+            return write.get();
+        }
+        catch (DuplicateKeyException e) {
+            if (DuplicatePhoneException.violatedBy(e)) {
+                throw new DuplicatePhoneException(phone);
+            }
+            throw e;
+        }
+    }
+
+    // Only reached when the atomic update matched nothing - the extra lookup tells a missing contact from a stale version
+    private PhonebookException notUpdated (String id, Long expectedVersion) {
+        if (expectedVersion != null && contactRepository.existsById(id)) {
+            return new ContactConflictException(id, expectedVersion);
+        }
+        return new ContanctNotFoundException(id);
+    }
+
+    static Map<String, String> fieldsOf (Contact contact) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("firstName", contact.getFirstName());
+        fields.put("lastName", contact.getLastName());
+        fields.put("phone", contact.getPhone());
+        fields.put("address", contact.getAddress());
+        return fields;
+    }
+
+    // The stored contact after an update, derived from its previous state instead of being read back
+    static Contact applyFields (Contact previous, Map<String, String> fields) {
+        Contact updated = new Contact();
+        updated.setId(previous.getId());
+        updated.setTenantId(previous.getTenantId());
+        updated.setFirstName(fields.containsKey("firstName") ? fields.get("firstName") : previous.getFirstName());
+        updated.setLastName(fields.containsKey("lastName") ? fields.get("lastName") : previous.getLastName());
+        updated.setPhone(fields.containsKey("phone") ? fields.get("phone") : previous.getPhone());
+        updated.setAddress(fields.containsKey("address") ? fields.get("address") : previous.getAddress());
+        // $inc on a contact stored before versioning starts it at 1
+        updated.setVersion(previous.getVersion() == null ? 1 : previous.getVersion() + 1);
+        return updated;
+    }
+
+    void validateSearchContactInput (ContactSearchRequest request) {
+        validateSearchMode(request.getMode());
+        validatePageSize(request.getSize());
+        validateSortField(request.getSortBy());
+        validateSortDirection(request.getDirection());
+        validateTotalCountMode(request.getTotal());
+        validateCursor(request);
+    }
+
+    // A streamed search has neither pages nor totals, and ranked matches can only be returned once all of them are scored
+    void validateStreamSearchInput (ContactSearchRequest request) {
+        validateSearchMode(request.getMode());
+        validateSortField(request.getSortBy());
+        validateSortDirection(request.getDirection());
+        SearchMode mode = resolveSearchMode(request.getMode());
+        if (StringUtils.hasLength(request.getQuery()) && mode.isRanked()) {
+            throw new IllegalArgumentException(String.format("Streaming is not supported for %s search", mode == SearchMode.TEXT ? "full-text" : "fuzzy"));
+        }
+        validateCursor(request);
+    }
+
+    private void validateTotalCountMode (String total) {
+        if (total != null && !ALLOWED_TOTAL_COUNT_MODES.contains(total.toUpperCase())) {
+            throw new IllegalArgumentException(String.format("Invalid total count mode '%s'. Allowed values are: %s",
+                                                             total,
+                                                             ALLOWED_TOTAL_COUNT_MODES));
+        }
+    }
+
+    private void validateCursor (ContactSearchRequest request) {
+        if (request.getCursor() == null) {
+            return;
+        }
+        SearchMode mode = resolveSearchMode(request.getMode());
+        if (StringUtils.hasLength(request.getQuery()) && mode.isRanked()) {
+            throw new IllegalArgumentException(String.format("Cursor pagination is not supported for %s search", mode == SearchMode.TEXT ? "full-text" : "fuzzy"));
+        }
+        ContactCursor cursor = ContactCursor.decode(request.getCursor());
+        if (!cursor.getSortBy().equals(request.getSortBy()) || !cursor.getDirection().name().equalsIgnoreCase(request.getDirection())) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort");
+        }
+    }
+
+    void validateProjectionFields (List<String> fields) {
+        for (String field : fields) {
+            if (!CONTACT_FIELDS.contains(field)) {
+                throw new IllegalArgumentException(String.format("Invalid field '%s'. Allowed fields are: %s", field, CONTACT_FIELDS));
+            }
+        }
+    }
+
+    void validateSearchMode (String mode) {
+        if (mode != null && !ALLOWED_SEARCH_MODES.contains(mode.toUpperCase())) {
+            throw new IllegalArgumentException(String.format("Invalid search mode '%s'. Allowed values are: %s", mode, ALLOWED_SEARCH_MODES));
+        }
     }
 
     private void validatePageSize (int size) {
@@ -109,13 +700,13 @@ public class ContactService {
         }
     }
 
-    private void validateSortField (String sortBy) {
+    void validateSortField (String sortBy) {
         if (!ALLOWED_SORT_FIELDS.contains(sortBy)) {
             throw new IllegalArgumentException(String.format("Invalid sort field. Allowed fields are: %s", ALLOWED_SORT_FIELDS));
         }
     }
 
-    private void validateSortDirection (String direction) {
+    void validateSortDirection (String direction) {
         if (!ALLOWED_SORT_DIRECTION.contains(direction.toUpperCase())) {
             throw new IllegalArgumentException(String.format("Invalid sort direction '%s'. Allowed values are: %s",
                                                              direction,
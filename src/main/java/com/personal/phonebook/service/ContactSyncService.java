@@ -0,0 +1,120 @@
+package com.personal.phonebook.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import com.personal.phonebook.controller.response.SyncResponse;
+import com.personal.phonebook.exception.SyncTokenExpiredException;
+import com.personal.phonebook.metrics.ContactMetrics;
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.repository.ContactRepository;
+import com.personal.phonebook.sync.ChangeSequence;
+import com.personal.phonebook.sync.ContactChange;
+import com.personal.phonebook.sync.SyncToken;
+
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Incremental sync of a tenant's phonebook: a client sends the token of its last sync and gets the contacts written and
+ * deleted since, and the token to send next time. A client without a token gets every contact, the same way.
+ * <p>
+ * Sequences are handed out before the write that carries them is committed, and by instances whose clocks differ a little,
+ * so a write can become visible with a sequence below one already seen. Changes younger than the settle time are therefore
+ * held back until every write with a lower sequence is visible, and a token never moves past them.
+ */
+@Service
+public class ContactSyncService {
+
+    @Value("${phonebook.sync.max-page-size:500}")
+    private int maxPageSize;
+
+    // covers the clock skew between instances and the time a write takes; zero holds nothing back, which is only safe for a
+    // single instance
+    @Value("${phonebook.sync.settle-time:1s}")
+    private Duration settleTime;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    @Autowired
+    private ContactMetrics contactMetrics;
+
+    public SyncResponse sync (String token, int limit) {
+        SyncToken after = resolveToken(token, limit);
+        return contactMetrics.record(ContactMetrics.SERVICE, Tags.of("operation", "sync"), () -> {
+            long settled = settledSequence();
+            return page(after, contactRepository.findChanges(after, limit + 1), limit, settled);
+        });
+    }
+
+    /**
+     * The position the client syncs from, after checking the page size and that the deletions since are still known.
+     */
+    public SyncToken resolveToken (String token, int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + maxPageSize);
+        }
+        if (!StringUtils.hasText(token)) {
+            return SyncToken.START;
+        }
+        SyncToken after = SyncToken.decode(token);
+        if (after.getSequence() < contactRepository.changeHorizon()) {
+            throw new SyncTokenExpiredException();
+        }
+        return after;
+    }
+
+    /**
+     * The highest sequence whose write is surely visible, taken before the changes are read.
+     */
+    public long settledSequence () {
+        if (settleTime.isZero()) {
+            return ChangeSequence.next();
+        }
+        return ChangeSequence.at(Instant.now().minus(settleTime)) - 1;
+    }
+
+    /**
+     * The response for up to {@code limit} of the changes after the position, read with one more than the limit to tell
+     * whether more follow. Once the settled changes are exhausted the token moves on to the settled sequence, so a quiet
+     * phonebook does not keep its clients behind the tombstone horizon.
+     */
+    public static SyncResponse page (SyncToken after, List<ContactChange> changes, int limit, long settled) {
+        List<ContactChange> ready = changes.stream().takeWhile(change -> change.getSequence() <= settled).toList();
+        boolean hasMore = ready.size() > limit;
+        SyncToken next;
+        if (hasMore) {
+            ready = ready.subList(0, limit);
+            next = SyncToken.after(ready.get(limit - 1));
+        }
+        else {
+            next = after.getSequence() >= settled ? after : SyncToken.through(settled);
+        }
+        // a contact deleted and created again under its id within one page ends up as its last change says
+        Map<String, ContactChange> latest = new LinkedHashMap<>();
+        ready.forEach(change -> {
+            latest.remove(change.getId());
+            latest.put(change.getId(), change);
+        });
+        List<Contact> contacts = new ArrayList<>();
+        List<String> deleted = new ArrayList<>();
+        latest.values().forEach(change -> {
+            if (change.isDeleted()) {
+                deleted.add(change.getId());
+            }
+            else {
+                contacts.add(change.getContact());
+            }
+        });
+        return new SyncResponse(contacts, deleted, next.encode(), hasMore);
+    }
+}
@@ -0,0 +1,164 @@
+package com.personal.phonebook.service;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.model.ContactTombstone;
+import com.personal.phonebook.search.FuzzyNames;
+import com.personal.phonebook.search.PhoneNumbers;
+import com.personal.phonebook.search.SearchTokenizer;
+import com.personal.phonebook.search.TextFolding;
+import com.personal.phonebook.tenant.TenantContext;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Contacts written before the n-gram search existed have no tokens and would never be found by it, so they are tokenized once
+ * the application is up - and likewise given the phone keys of the reverse lookup and the default tenant when they were
+ * written before those. Every contact written since carries a tenant, so the contacts to backfill are the ones without one,
+ * looked up as the null range of any tenant-led index - once everything is backfilled this costs one index probe per startup.
+ * <p>
+ * The name keys of the fuzzy search and the folded fields came after tenancy, and the tokens are computed from the folded
+ * values since, so the contacts of every tenant without the current {@link TextFolding#VERSION} are looked up the same way in
+ * the search version index, once per tenant, and get all of their search fields again.
+ * <p>
+ * The backfill runs in the background, at most {@code phonebook.search.backfill-rate} contacts a second so that it does not
+ * crowd out the requests. It can stop at any point - on shutdown, on a failure - and resumes on the next startup where it
+ * left off, since the contacts it is done with no longer match its queries. A contact written while it was being backfilled
+ * is left alone, the write has computed the fields it changed and the next run completes the others.
+ * <p>
+ * The backfill runs as the default tenant, so it only looks at the collection contacts were stored in before tenancy.
+ */
+@Slf4j
+@Component
+@Profile("!memory & !mapped")
+@ConditionalOnProperty(name = "phonebook.search.backfill-on-startup", havingValue = "true", matchIfMissing = true)
+public class SearchTokenBackfill {
+
+    private static final String SEARCH_VERSION = "searchVersion";
+
+    @Value("${phonebook.search.backfill-batch-size:500}")
+    private int batchSize;
+
+    // contacts per second, 0 for no limit
+    @Value("${phonebook.search.backfill-rate:2000}")
+    private int rate;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private TaskExecutor taskExecutor;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBackfill () {
+        taskExecutor.execute(this::backfillSearchFields);
+    }
+
+    void backfillSearchFields () {
+        try {
+            long backfilled = backfill(new Query(where("tenantId").exists(false)),
+                                       contact -> searchFields(contact).set("tenantId", TenantContext.DEFAULT_TENANT));
+            if (backfilled > 0) {
+                log.info("Backfilled tenant and search fields for {} contacts", backfilled);
+            }
+
+            // distinct values of the tenant-led indexes, read without looking at the contacts
+            long folded = 0;
+            for (String tenantId : mongoTemplate.findDistinct(new Query(), "tenantId", Contact.class, String.class)) {
+                Criteria outdated = new Criteria().orOperator(where(SEARCH_VERSION).is(null), where(SEARCH_VERSION).lt(TextFolding.VERSION));
+                // a tombstone has no fields to fold
+                Query live = new Query(where("tenantId").is(tenantId).and(ContactTombstone.DELETED_AT).exists(false).andOperator(outdated));
+                folded += backfill(live, SearchTokenBackfill::searchFields);
+            }
+            if (folded > 0) {
+                log.info("Backfilled folded fields, search tokens and name keys for {} contacts", folded);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.info("Search field backfill stopped, the remaining contacts are backfilled on the next startup");
+        }
+        catch (DataAccessException e) {
+            log.warn("Search field backfill failed, the remaining contacts are backfilled on the next startup", e);
+        }
+    }
+
+    private long backfill (Query query, Function<Contact, Update> update) throws InterruptedException {
+        long backfilled = 0;
+        long read = 0;
+        long started = System.nanoTime();
+        try (Stream<Contact> contacts = mongoTemplate.stream(query.cursorBatchSize(batchSize), Contact.class)) {
+            Iterator<Contact> iterator = contacts.iterator();
+            while (iterator.hasNext()) {
+                BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Contact.class);
+                int pending = 0;
+                while (pending < batchSize && iterator.hasNext()) {
+                    Contact contact = iterator.next();
+                    // conditioned on the version read, so fields computed from an older state never overwrite a newer write
+                    bulk.updateOne(new Query(where("_id").is(contact.getId()).and("version").is(contact.getVersion())), update.apply(contact));
+                    pending++;
+                }
+                try {
+                    backfilled += bulk.execute().getModifiedCount();
+                }
+                catch (BulkOperationException e) {
+                    // the phone of a contact written before the unique phone index can belong to another contact of the tenant
+                    backfilled += e.getResult().getModifiedCount();
+                    log.warn("Skipped {} contacts whose phone number another contact already has, resolve the duplicates to backfill them",
+                             e.getErrors().size());
+                }
+                read += pending;
+                throttle(started, read);
+            }
+        }
+        return backfilled;
+    }
+
+    // Waits until the contacts done so far are due at the configured rate
+    private void throttle (long started, long done) throws InterruptedException {
+        if (rate <= 0) {
+            return;
+        }
+        long wait = started + TimeUnit.SECONDS.toNanos(done) / rate - System.nanoTime();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    private static Update searchFields (Contact contact) {
+        return Update.update("searchTokens", SearchTokenizer.tokenize(contact))
+                     .set("phoneNormalized", PhoneNumbers.normalize(contact.getPhone()))
+                     .set("phoneReversed", PhoneNumbers.reversed(contact.getPhone()))
+                     .set("firstNameKeys", FuzzyNames.keys(contact.getFirstName()))
+                     .set("lastNameKeys", FuzzyNames.keys(contact.getLastName()))
+                     .set("firstNameFolded", TextFolding.fold(contact.getFirstName()))
+                     .set("lastNameFolded", TextFolding.fold(contact.getLastName()))
+                     .set("phoneFolded", TextFolding.fold(contact.getPhone()))
+                     .set("addressFolded", TextFolding.fold(contact.getAddress()))
+                     .set(SEARCH_VERSION, TextFolding.VERSION);
+    }
+}
@@ -0,0 +1,39 @@
+package com.personal.phonebook.sync;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sequence numbers ordering the writes to contacts in the change feed. A sequence number is a hybrid timestamp: the epoch
+ * milliseconds of the write shifted left by {@link #COUNTER_BITS}, plus a counter for the writes of the same millisecond.
+ * Numbers handed out by different instances interleave by time without any coordination, and every number tells when it
+ * was handed out, and the sync service relies on both.
+ */
+public final class ChangeSequence {
+
+    static final int COUNTER_BITS = 20;
+
+    private static final AtomicLong LAST = new AtomicLong();
+
+    private ChangeSequence () {
+    }
+
+    /**
+     * A sequence number above every one handed out before by this process.
+     */
+    public static long next () {
+        long now = at(Instant.now());
+        return LAST.updateAndGet(last -> Math.max(last + 1, now));
+    }
+
+    /**
+     * The lowest sequence number handed out at or after the given time.
+     */
+    public static long at (Instant time) {
+        return time.toEpochMilli() << COUNTER_BITS;
+    }
+
+    public static Instant timeOf (long sequence) {
+        return Instant.ofEpochMilli(sequence >>> COUNTER_BITS);
+    }
+}
@@ -0,0 +1,52 @@
+package com.personal.phonebook.sync;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.model.ContactTombstone;
+
+import lombok.Value;
+
+/**
+ * An entry of the change feed: a contact as it is after its last write, or the deletion of a contact.
+ */
+@Value
+public class ContactChange {
+
+    /**
+     * Feed order, by sequence and then id. Contacts written before sequences existed all sort first, at sequence 0.
+     */
+    public static final Comparator<ContactChange> ORDER = Comparator.comparingLong(ContactChange::getSequence).thenComparing(ContactChange::getId);
+
+    long sequence;
+
+    String id;
+
+    // null for a deletion
+    Contact contact;
+
+    public static ContactChange written (long sequence, Contact contact) {
+        return new ContactChange(sequence, contact.getId(), contact);
+    }
+
+    public static ContactChange deleted (long sequence, String id) {
+        return new ContactChange(sequence, id, null);
+    }
+
+    /**
+     * The first {@code limit} changes of the written contacts and the tombstones together, each already in feed order.
+     */
+    public static List<ContactChange> merge (List<Contact> written, List<ContactTombstone> deleted, int limit) {
+        List<ContactChange> changes = new ArrayList<>(written.size() + deleted.size());
+        written.forEach(contact -> changes.add(written(contact.getSequence() == null ? 0 : contact.getSequence(), contact)));
+        deleted.forEach(tombstone -> changes.add(deleted(tombstone.getSequence(), tombstone.getId())));
+        changes.sort(ORDER);
+        return changes.size() > limit ? changes.subList(0, limit) : changes;
+    }
+
+    public boolean isDeleted () {
+        return contact == null;
+    }
+}
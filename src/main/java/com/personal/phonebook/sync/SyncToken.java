@@ -0,0 +1,77 @@
+package com.personal.phonebook.sync;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Opaque position in the change feed of a tenant: right after the change with this sequence and id, or after every change
+ * up to and including this sequence when there is no id. A client keeps the token of its last sync and sends it with the
+ * next one.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class SyncToken {
+
+    /**
+     * Before the first change, what a client without a token syncs from.
+     */
+    public static final SyncToken START = new SyncToken(-1, null);
+
+    private static final byte VERSION = 1;
+
+    long sequence;
+
+    String id;
+
+    public static SyncToken after (ContactChange change) {
+        return new SyncToken(change.getSequence(), change.getId());
+    }
+
+    public static SyncToken through (long sequence) {
+        return new SyncToken(sequence, null);
+    }
+
+    public static SyncToken decode (String token) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+            if (in.readByte() != VERSION) {
+                throw new IllegalArgumentException("Invalid sync token");
+            }
+            long sequence = in.readLong();
+            if (sequence < 0) {
+                throw new IllegalArgumentException("Invalid sync token");
+            }
+            return new SyncToken(sequence, in.readBoolean() ? in.readUTF() : null);
+        }
+        catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid sync token", e);
+        }
+    }
+
+    public boolean isStart () {
+        return sequence < 0;
+    }
+
+    public String encode () {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeLong(sequence);
+            out.writeBoolean(id != null);
+            if (id != null) {
+                out.writeUTF(id);
+            }
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Failed to encode sync token", e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+}
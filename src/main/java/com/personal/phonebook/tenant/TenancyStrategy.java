@@ -0,0 +1,14 @@
+package com.personal.phonebook.tenant;
+
+/**
+ * Where each tenant's contacts are stored. Every contact carries its tenant and every query filters on it whatever the
+ * strategy, so the strategies only differ in how far apart tenants are kept.
+ */
+public enum TenancyStrategy {
+    // one contacts collection for every tenant, its indexes all led by the tenant
+    SHARED,
+    // a contacts_<tenant> collection per tenant in the configured database
+    COLLECTION,
+    // a <database>_<tenant> database per tenant, each with its own contacts collection
+    DATABASE
+}
@@ -0,0 +1,20 @@
+package com.personal.phonebook.tenant;
+
+import lombok.Value;
+
+/**
+ * A tenant with the namespace its contacts live in under the configured {@link TenancyStrategy}.
+ */
+@Value
+public class Tenant {
+
+    String id;
+
+    String collection;
+
+    // null for the configured database
+    String database;
+
+    // whether the collection also holds other tenants, so that it cannot be counted from its metadata
+    boolean shared;
+}
@@ -0,0 +1,75 @@
+package com.personal.phonebook.tenant;
+
+import java.util.function.Supplier;
+
+import com.personal.phonebook.model.Contact;
+
+/**
+ * The tenant the current thread works for. Requests set it from their tenant header, everything running outside a request
+ * works for the default tenant - which is also the tenant of contacts stored before tenancy existed.
+ */
+public final class TenantContext {
+
+    public static final String DEFAULT_TENANT = "default";
+
+    public static final String COLLECTION = "contacts";
+
+    // how the default tenant is stored by the shared strategy, which is also where every contact was stored before tenancy
+    public static final Tenant DEFAULT = new Tenant(DEFAULT_TENANT, COLLECTION, null, true);
+
+    private static final ThreadLocal<Tenant> CURRENT = new ThreadLocal<>();
+
+    private TenantContext () {
+    }
+
+    public static Tenant current () {
+        Tenant tenant = CURRENT.get();
+        return tenant == null ? DEFAULT : tenant;
+    }
+
+    public static String tenantId () {
+        return current().getId();
+    }
+
+    /**
+     * Collection of the current tenant, the collection name of the {@link Contact} document.
+     */
+    public static String collection () {
+        return current().getCollection();
+    }
+
+    public static String tenantIdOf (Contact contact) {
+        return contact.getTenantId() == null ? DEFAULT_TENANT : contact.getTenantId();
+    }
+
+    public static void set (Tenant tenant) {
+        CURRENT.set(tenant);
+    }
+
+    public static void clear () {
+        CURRENT.remove();
+    }
+
+    public static <T> T callAs (Tenant tenant, Supplier<T> action) {
+        Tenant previous = CURRENT.get();
+        CURRENT.set(tenant);
+        try {
+            return action.get();
+        }
+        finally {
+            if (previous == null) {
+                CURRENT.remove();
+            }
+            else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public static void runAs (Tenant tenant, Runnable action) {
+        callAs(tenant, () -> {
+            action.run();
+            return null;
+        });
+    }
+}
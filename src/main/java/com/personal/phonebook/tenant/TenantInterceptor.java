@@ -0,0 +1,43 @@
+package com.personal.phonebook.tenant;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Runs every request of the blocking API as the tenant named by its tenant header, the default tenant when there is none. An
+ * invalid tenant is rejected before the handler runs, through the same exception handling as the handler's own errors.
+ */
+@Component
+@Profile("!reactive")
+public class TenantInterceptor implements AsyncHandlerInterceptor {
+
+    @Value("${phonebook.tenancy.header:X-Tenant-Id}")
+    private String header;
+
+    @Autowired
+    private Tenants tenants;
+
+    @Override
+    public boolean preHandle (HttpServletRequest request, HttpServletResponse response, Object handler) {
+        TenantContext.set(tenants.resolve(request.getHeader(header)));
+        return true;
+    }
+
+    // pooled request threads must not carry the tenant over to the next request
+    @Override
+    public void afterCompletion (HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        TenantContext.clear();
+    }
+
+    // an async handler such as the change stream never completes on this thread, the async dispatch sets the tenant again
+    @Override
+    public void afterConcurrentHandlingStarted (HttpServletRequest request, HttpServletResponse response, Object handler) {
+        TenantContext.clear();
+    }
+}
@@ -0,0 +1,11 @@
+package com.personal.phonebook.tenant;
+
+/**
+ * Prepares the collection a tenant's contacts are stored in - creates its indexes - the first time a tenant with a namespace
+ * of its own is resolved. The shared collection is prepared once at startup.
+ */
+@FunctionalInterface
+public interface TenantNamespaceInitializer {
+
+    void initialize (Tenant tenant);
+}
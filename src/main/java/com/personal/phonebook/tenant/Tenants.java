@@ -0,0 +1,97 @@
+package com.personal.phonebook.tenant;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Resolves tenant ids to the namespace their contacts live in, as configured by {@code phonebook.tenancy.strategy}. Tenant
+ * ids end up in collection and database names, so they are restricted to lower case letters, digits and dashes.
+ * <p>
+ * Only the default tenant and the tenants provisioned in {@code phonebook.tenancy.tenants} exist. A namespace is created for
+ * a tenant the first time it is seen, so any other id is rejected rather than letting a caller create them at will.
+ */
+@Slf4j
+@Component
+public class Tenants {
+
+    private static final Pattern TENANT_ID = Pattern.compile("[a-z0-9][a-z0-9-]{0,31}");
+
+    @Value("${phonebook.tenancy.strategy:SHARED}")
+    private TenancyStrategy strategy;
+
+    @Value("${phonebook.mongodb.database:contacts}")
+    private String database;
+
+    @Value("${phonebook.tenancy.tenants:}")
+    private Set<String> provisioned = Set.of();
+
+    @Autowired
+    private ObjectProvider<TenantNamespaceInitializer> namespaceInitializers;
+
+    private final Map<String, Tenant> resolved = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void validateProvisioned () {
+        for (String id : provisioned) {
+            if (!TENANT_ID.matcher(id).matches()) {
+                throw new IllegalStateException(String.format("Invalid tenant '%s' in phonebook.tenancy.tenants", id));
+            }
+        }
+    }
+
+    public TenancyStrategy getStrategy () {
+        return strategy;
+    }
+
+    /**
+     * The tenant with this id, the default tenant when none is given.
+     *
+     * @throws IllegalArgumentException when the id is not a valid tenant id, or not one of a provisioned tenant
+     */
+    public Tenant resolve (String tenantId) {
+        String id = StringUtils.hasText(tenantId) ? tenantId : TenantContext.DEFAULT_TENANT;
+        Tenant tenant = resolved.get(id);
+        if (tenant != null) {
+            return tenant;
+        }
+        if (!TENANT_ID.matcher(id).matches()) {
+            throw new IllegalArgumentException(String.format("Invalid tenant '%s'. A tenant is 1 to 32 lower case letters, digits or dashes", tenantId));
+        }
+        if (!TenantContext.DEFAULT_TENANT.equals(id) && !provisioned.contains(id)) {
+            throw new IllegalArgumentException(String.format("Unknown tenant '%s'", tenantId));
+        }
+        tenant = namespace(id);
+        if (!tenant.isShared()) {
+            Tenant initialized = tenant;
+            namespaceInitializers.orderedStream().forEach(initializer -> initializer.initialize(initialized));
+            log.info("Initialized the {} namespace of tenant {}", strategy, id);
+        }
+        resolved.putIfAbsent(id, tenant);
+        return tenant;
+    }
+
+    public Tenant defaultTenant () {
+        return resolve(TenantContext.DEFAULT_TENANT);
+    }
+
+    // The default tenant keeps the names contacts had before tenancy, so existing data stays where it is
+    private Tenant namespace (String id) {
+        boolean defaultTenant = TenantContext.DEFAULT_TENANT.equals(id);
+        return switch (strategy) {
+            case SHARED -> new Tenant(id, TenantContext.COLLECTION, null, true);
+            case COLLECTION -> new Tenant(id, defaultTenant ? TenantContext.COLLECTION : TenantContext.COLLECTION + "_" + id, null, false);
+            case DATABASE -> new Tenant(id, TenantContext.COLLECTION, defaultTenant ? null : database + "_" + id, false);
+        };
+    }
+}
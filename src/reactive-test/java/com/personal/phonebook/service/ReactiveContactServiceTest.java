@@ -0,0 +1,182 @@
+package com.personal.phonebook.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.personal.phonebook.controller.request.ContactSearchRequest;
+import com.personal.phonebook.event.ContactChangedEvent;
+import com.personal.phonebook.exception.ContactConflictException;
+import com.personal.phonebook.exception.ContactVersionRequiredException;
+import com.personal.phonebook.exception.ContanctNotFoundException;
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.model.ContactTombstone;
+import com.personal.phonebook.search.SearchMode;
+import com.personal.phonebook.tenant.TenancyStrategy;
+import com.personal.phonebook.tenant.Tenants;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveContactServiceTest {
+
+    @Mock
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Mock
+    private ReactiveMongoTemplate reactiveSearchMongoTemplate;
+
+    @Mock
+    private ContactExportService contactExportService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private ContactService contactService = new ContactService();
+
+    @Spy
+    private Tenants tenants = new Tenants();
+
+    @InjectMocks
+    private ReactiveContactService reactiveContactService;
+
+    private Contact testContact;
+
+    @BeforeEach
+    public void setUp () {
+        testContact = new Contact("John", "Doe", "123-456-7890", "123 Main St");
+        testContact.setId("test-id-123");
+        ReflectionTestUtils.setField(contactService, "maxPageSize", 10);
+        ReflectionTestUtils.setField(contactService, "searchMode", SearchMode.REGEX);
+        ReflectionTestUtils.setField(reactiveContactService, "countEstimateLimit", 1000L);
+        ReflectionTestUtils.setField(tenants, "strategy", TenancyStrategy.SHARED);
+    }
+
+    @Test
+    public void searchContacts_WithNextPage_ReturnsPageTotalAndCursor () {
+        // Given
+        Contact other = new Contact("Johnny", "Smith", "555", "Haifa");
+        when(reactiveSearchMongoTemplate.find(any(Query.class), eq(Contact.class))).thenReturn(Flux.just(testContact, other));
+        when(reactiveSearchMongoTemplate.count(any(Query.class), eq(Contact.class))).thenReturn(Mono.just(2L));
+        ContactSearchRequest request = new ContactSearchRequest("john", null, 0, 1, "ASC", "firstName", null, null);
+        // When / Then
+        StepVerifier.create(reactiveContactService.searchContacts(request)).assertNext(response -> {
+            assertEquals(List.of(testContact), response.getContacts());
+            assertEquals(2, response.getTotalCount());
+            assertNotNull(response.getNextCursor());
+        }).verifyComplete();
+        verifyNoInteractions(reactiveMongoTemplate);
+    }
+
+    @Test
+    public void searchContacts_WithInvalidSortField_ErrorsWithoutQuerying () {
+        // Given
+        ContactSearchRequest request = new ContactSearchRequest(null, null, 0, 5, "ASC", "phone", null, null);
+        // When / Then
+        StepVerifier.create(reactiveContactService.searchContacts(request)).expectError(IllegalArgumentException.class).verify();
+        verifyNoInteractions(reactiveMongoTemplate, reactiveSearchMongoTemplate);
+    }
+
+    @Test
+    public void streamSearch_WithMatches_StreamsEveryMatch () {
+        // Given
+        Contact other = new Contact("Johnny", "Smith", "555", "Haifa");
+        when(reactiveSearchMongoTemplate.find(any(Query.class), eq(Contact.class))).thenReturn(Flux.just(testContact, other));
+        ContactSearchRequest request = new ContactSearchRequest("john", null, 0, 0, "ASC", "firstName", null, null);
+        // When / Then
+        StepVerifier.create(reactiveContactService.streamSearch(request)).expectNext(testContact, other).verifyComplete();
+        verify(reactiveSearchMongoTemplate, never()).count(any(Query.class), eq(Contact.class));
+    }
+
+    @Test
+    public void streamSearch_InFuzzyMode_ErrorsWithoutQuerying () {
+        // Given
+        ContactSearchRequest request = new ContactSearchRequest("jon", "fuzzy", 0, 0, "ASC", "firstName", null, null);
+        // When / Then
+        StepVerifier.create(reactiveContactService.streamSearch(request)).expectError(IllegalArgumentException.class).verify();
+        verifyNoInteractions(reactiveMongoTemplate, reactiveSearchMongoTemplate);
+    }
+
+    @Test
+    public void getContact_WithUnknownId_ErrorsWithNotFound () {
+        // Given
+        when(reactiveMongoTemplate.findOne(any(Query.class), eq(Contact.class))).thenReturn(Mono.empty());
+        // When / Then
+        StepVerifier.create(reactiveContactService.getContact("missing", null)).expectError(ContanctNotFoundException.class).verify();
+    }
+
+    @Test
+    public void updateContact_WithCurrentVersion_ReturnsUpdatedContactAndPublishesChange () {
+        // Given
+        testContact.setVersion(3L);
+        Contact details = new Contact("Jane", "Doe", "123-456-7890", "123 Main St");
+        details.setVersion(3L);
+        when(reactiveMongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Contact.class)))
+                    .thenReturn(Mono.just(testContact));
+        // When / Then
+        StepVerifier.create(reactiveContactService.updateContact("test-id-123", details)).assertNext(updated -> {
+            assertEquals("Jane", updated.getFirstName());
+            assertEquals(4L, updated.getVersion());
+        }).verifyComplete();
+        ArgumentCaptor<ContactChangedEvent> event = ArgumentCaptor.forClass(ContactChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertSame(testContact, event.getValue().getPrevious());
+    }
+
+    @Test
+    public void updateContact_WithStaleVersion_ErrorsWithConflict () {
+        // Given
+        Contact details = new Contact("Jane", "Doe", "123-456-7890", "123 Main St");
+        details.setVersion(2L);
+        when(reactiveMongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Contact.class)))
+                    .thenReturn(Mono.empty());
+        when(reactiveMongoTemplate.exists(any(Query.class), eq(Contact.class))).thenReturn(Mono.just(true));
+        // When / Then
+        StepVerifier.create(reactiveContactService.updateContact("test-id-123", details)).expectError(ContactConflictException.class).verify();
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    public void updateContact_WithoutVersion_ErrorsWithoutWriting () {
+        // Given
+        Contact details = new Contact("Jane", "Doe", "123-456-7890", "123 Main St");
+        // When / Then
+        StepVerifier.create(reactiveContactService.updateContact("test-id-123", details)).expectError(ContactVersionRequiredException.class).verify();
+        verifyNoInteractions(reactiveMongoTemplate, eventPublisher);
+    }
+
+    @Test
+    public void deleteContact_WithExistingId_PublishesRemoval () {
+        // Given
+        when(reactiveMongoTemplate.findAndReplace(any(Query.class),
+                                                  any(ContactTombstone.class),
+                                                  any(FindAndReplaceOptions.class),
+                                                  eq(ContactTombstone.class),
+                                                  eq(Contact.class))).thenReturn(Mono.just(testContact));
+        // When / Then
+        StepVerifier.create(reactiveContactService.deleteContact("test-id-123")).verifyComplete();
+        verify(reactiveMongoTemplate, never()).findAndRemove(any(Query.class), eq(Contact.class));
+        verify(eventPublisher).publishEvent(any(ContactChangedEvent.class));
+    }
+}
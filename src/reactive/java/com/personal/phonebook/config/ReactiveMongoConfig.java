@@ -0,0 +1,68 @@
+package com.personal.phonebook.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import com.personal.phonebook.tenant.Tenant;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking client for the reactive API, next to the blocking one of {@link MongoConfig} that the startup index and
+ * backfill jobs keep using. Both share the same client settings and search routing.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveMongoConfig {
+
+    @Autowired
+    private MongoClientSettings mongoClientSettings;
+
+    @Autowired
+    private PhonebookMongoProperties properties;
+
+    @Bean
+    public MongoClient reactiveMongoClient () {
+        return MongoClients.create(mongoClientSettings);
+    }
+
+    @Bean
+    @Primary
+    public ReactiveMongoTemplate reactiveMongoTemplate () {
+        return new ReactiveMongoTemplate(new TenantDatabaseFactory(reactiveMongoClient(), properties.getDatabase()));
+    }
+
+    @Bean
+    public ReactiveMongoTemplate reactiveSearchMongoTemplate () {
+        ReactiveMongoTemplate template = new ReactiveMongoTemplate(new TenantDatabaseFactory(reactiveMongoClient(), properties.getDatabase()));
+        template.setReadPreference(MongoConfig.searchReadPreference(properties.getSearch()));
+        return template;
+    }
+
+    // The database of the tenant in the subscriber context, which the reactive service puts there as requests carry no
+    // thread of their own to hold it
+    private static class TenantDatabaseFactory extends SimpleReactiveMongoDatabaseFactory {
+
+        TenantDatabaseFactory (MongoClient mongoClient, String databaseName) {
+            super(mongoClient, databaseName);
+        }
+
+        @Override
+        public Mono<MongoDatabase> getMongoDatabase () throws DataAccessException {
+            return Mono.deferContextual(context -> context.<Tenant> getOrEmpty(Tenant.class)
+                                                          .map(Tenant::getDatabase)
+                                                          .map(this::getMongoDatabase)
+                                                          .orElseGet(super::getMongoDatabase));
+        }
+    }
+}
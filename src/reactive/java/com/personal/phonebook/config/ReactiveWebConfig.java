@@ -0,0 +1,20 @@
+package com.personal.phonebook.config;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Tomcat stays on the classpath for the blocking stack and would otherwise be picked to run WebFlux as well - Netty serves
+ * the reactive API on its event loop threads.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveWebConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory () {
+        return new NettyReactiveWebServerFactory();
+    }
+}
@@ -0,0 +1,152 @@
+package com.personal.phonebook.controller;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.personal.phonebook.controller.request.ContactBatchRequest;
+import com.personal.phonebook.controller.request.ContactExportRequest;
+import com.personal.phonebook.controller.request.ContactSearchRequest;
+import com.personal.phonebook.controller.response.BatchLookupResponse;
+import com.personal.phonebook.controller.response.ContactsResponse;
+import com.personal.phonebook.controller.response.Suggestion;
+import com.personal.phonebook.controller.response.SyncResponse;
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.service.ContactService;
+import com.personal.phonebook.service.ReactiveContactService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * The {@code /phonebook} endpoints of {@link ContactController} on WebFlux. Import and merge patch are only served by the
+ * blocking stack.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/phonebook")
+public class ReactiveContactController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    @Autowired
+    private ReactiveContactService contactService;
+
+    @PostMapping
+    public Mono<ResponseEntity<Contact>> createContact (@RequestBody Contact contact) {
+        return contactService.createContact(contact).map(savedContact -> ResponseEntity.status(HttpStatus.CREATED).body(savedContact));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<Object>> getContact (@PathVariable String id,
+                                                    @RequestParam(name = "fields", required = false) List<String> fields,
+                                                    ServerWebExchange exchange) {
+        boolean projected = fields != null && !fields.isEmpty();
+        return contactService.getContact(id, fields).flatMap(contact -> {
+            Map<String, Object> view = ContactRepresentation.view(contact, projected ? fields : ContactService.CONTACT_FIELDS);
+            String etag = ContactRepresentation.etag(view);
+            if (exchange.checkNotModified(etag)) {
+                // 304 with the ETag header already set
+                return Mono.empty();
+            }
+            return Mono.just(ResponseEntity.ok().eTag(etag).body(projected ? view : contact));
+        });
+    }
+
+    // The precondition is the version in the body, or else the contact If-Match was read at
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<Contact>> updateContact (@PathVariable String id,
+                                                        @RequestBody Contact contact,
+                                                        @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Mono<Contact> preconditioned = Mono.just(contact);
+        if (ifMatch != null) {
+            preconditioned = contactService.getContact(id, null).map(current -> {
+                long version = ContactRepresentation.matchedVersion(current, ifMatch);
+                if (contact.getVersion() == null) {
+                    contact.setVersion(version);
+                }
+                return contact;
+            });
+        }
+        return preconditioned.flatMap(details -> contactService.updateContact(id, details))
+                             .map(updatedContact -> ResponseEntity.ok().body(updatedContact));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteContact (@PathVariable String id) {
+        return contactService.deleteContact(id).then(Mono.just(ResponseEntity.noContent().build()));
+    }
+
+    @GetMapping(path = "/contacts", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ContactsResponse> getContacts (@RequestParam(name = "query", required = false) String query,
+                                               @RequestParam(name = "mode", required = false) String mode,
+                                               @RequestParam(name = "page", defaultValue = "0") int page,
+                                               @RequestParam(name = "size", defaultValue = "10") int size,
+                                               @RequestParam(name = "direction", defaultValue = "ASC") String direction,
+                                               @RequestParam(name = "sortBy", defaultValue = "firstName") String sortBy,
+                                               @RequestParam(name = "cursor", required = false) String cursor,
+                                               @RequestParam(name = "total", required = false) String total) {
+        return contactService.searchContacts(new ContactSearchRequest(query, mode, page, size, direction, sortBy, cursor, total));
+    }
+
+    // The same search streamed one line per contact instead of a page, when the client asks for ndjson
+    @GetMapping(path = "/contacts", produces = NDJSON)
+    public Flux<Contact> streamContacts (@RequestParam(name = "query", required = false) String query,
+                                         @RequestParam(name = "mode", required = false) String mode,
+                                         @RequestParam(name = "direction", defaultValue = "ASC") String direction,
+                                         @RequestParam(name = "sortBy", defaultValue = "firstName") String sortBy,
+                                         @RequestParam(name = "cursor", required = false) String cursor) {
+        return contactService.streamSearch(new ContactSearchRequest(query, mode, 0, 0, direction, sortBy, cursor, null));
+    }
+
+    @GetMapping(path = "/lookup", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ContactsResponse> lookupPhone (@RequestParam(name = "phone") String phone,
+                                               @RequestParam(name = "match", required = false) String match,
+                                               @RequestParam(name = "limit", defaultValue = "10") int limit) {
+        return contactService.lookupPhone(phone, match, limit);
+    }
+
+    @PostMapping(path = "/batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<BatchLookupResponse> batchLookup (@RequestBody ContactBatchRequest request) {
+        return contactService.batchLookup(request);
+    }
+
+    // Answered from memory under a short read lock, so apart from a tenant's first suggestion it does not leave the event loop
+    @GetMapping(path = "/autocomplete", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<List<Suggestion>> autocomplete (@RequestParam(name = "prefix") String prefix,
+                                                @RequestParam(name = "limit", defaultValue = "10") int limit) {
+        return contactService.suggest(prefix, limit);
+    }
+
+    @GetMapping(path = "/sync", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<SyncResponse> sync (@RequestParam(name = "token", required = false) String token,
+                                    @RequestParam(name = "limit", defaultValue = "100") int limit) {
+        return contactService.sync(token, limit);
+    }
+
+    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> subscribe (@RequestParam(name = "query", required = false) String query,
+                                                    @RequestParam(name = "mode", required = false) String mode,
+                                                    @RequestParam(name = "overflow", required = false) String overflow) {
+        return contactService.subscribe(query, mode, overflow);
+    }
+
+    // Written one line per contact as the cursor yields them, at the pace the client reads
+    @GetMapping(path = "/export", produces = NDJSON)
+    public Flux<Contact> exportContacts (@RequestParam(name = "query", required = false) String query,
+                                         @RequestParam(name = "mode", required = false) String mode,
+                                         @RequestParam(name = "format", defaultValue = "ndjson") String format,
+                                         @RequestParam(name = "direction", defaultValue = "ASC") String direction,
+                                         @RequestParam(name = "sortBy", required = false) String sortBy) {
+        return contactService.streamContacts(new ContactExportRequest(query, mode, format, direction, sortBy));
+    }
+}
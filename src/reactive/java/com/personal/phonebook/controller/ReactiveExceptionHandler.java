@@ -0,0 +1,68 @@
+package com.personal.phonebook.controller;
+
+import java.time.LocalDateTime;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import com.personal.phonebook.controller.response.ErrorResponse;
+import com.personal.phonebook.exception.ContactConflictException;
+import com.personal.phonebook.exception.ContactPreconditionFailedException;
+import com.personal.phonebook.exception.ContactVersionRequiredException;
+import com.personal.phonebook.exception.ContanctNotFoundException;
+import com.personal.phonebook.exception.DuplicatePhoneException;
+import com.personal.phonebook.exception.NotFoundException;
+import com.personal.phonebook.exception.PhonebookException;
+import com.personal.phonebook.exception.SyncTokenExpiredException;
+
+/**
+ * Same status mapping and error body as {@link RestExceptionHandler}, for the reactive stack.
+ */
+@RestControllerAdvice
+@Profile("reactive")
+public class ReactiveExceptionHandler {
+
+    @ExceptionHandler({ IllegalArgumentException.class })
+    public ResponseEntity<ErrorResponse> handleBadRequest (IllegalArgumentException ex, ServerHttpRequest request) {
+        return error(HttpStatus.BAD_REQUEST, "Bad Request", ex, request);
+    }
+
+    @ExceptionHandler({ ContanctNotFoundException.class })
+    public ResponseEntity<ErrorResponse> handleNotFound (NotFoundException ex, ServerHttpRequest request) {
+        return error(HttpStatus.NOT_FOUND, "Not Found", ex, request);
+    }
+
+    @ExceptionHandler({ ContactConflictException.class, DuplicatePhoneException.class })
+    public ResponseEntity<ErrorResponse> handleConflict (PhonebookException ex, ServerHttpRequest request) {
+        return error(HttpStatus.CONFLICT, "Conflict", ex, request);
+    }
+
+    @ExceptionHandler({ ContactPreconditionFailedException.class })
+    public ResponseEntity<ErrorResponse> handlePreconditionFailed (ContactPreconditionFailedException ex, ServerHttpRequest request) {
+        return error(HttpStatus.PRECONDITION_FAILED, "Precondition Failed", ex, request);
+    }
+
+    @ExceptionHandler({ ContactVersionRequiredException.class })
+    public ResponseEntity<ErrorResponse> handlePreconditionRequired (ContactVersionRequiredException ex, ServerHttpRequest request) {
+        return error(HttpStatus.PRECONDITION_REQUIRED, "Precondition Required", ex, request);
+    }
+
+    @ExceptionHandler({ SyncTokenExpiredException.class })
+    public ResponseEntity<ErrorResponse> handleGone (SyncTokenExpiredException ex, ServerHttpRequest request) {
+        return error(HttpStatus.GONE, "Gone", ex, request);
+    }
+
+    @ExceptionHandler(PhonebookException.class)
+    public ResponseEntity<ErrorResponse> handleInternalServerError (PhonebookException ex, ServerHttpRequest request) {
+        return error(HttpStatus.INTERNAL_SERVER_ERROR, "Internal Server Error", ex, request);
+    }
+
+    private ResponseEntity<ErrorResponse> error (HttpStatus status, String error, Exception ex, ServerHttpRequest request) {
+        ErrorResponse body = new ErrorResponse(LocalDateTime.now(), status.value(), error, ex.getMessage(), "uri=" + request.getPath().value());
+        return new ResponseEntity<>(body, status);
+    }
+}
@@ -0,0 +1,410 @@
+package com.personal.phonebook.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import com.personal.phonebook.controller.request.ContactBatchRequest;
+import com.personal.phonebook.controller.request.ContactExportRequest;
+import com.personal.phonebook.controller.request.ContactSearchRequest;
+import com.personal.phonebook.controller.response.BatchLookupResponse;
+import com.personal.phonebook.controller.response.ContactsResponse;
+import com.personal.phonebook.controller.response.Suggestion;
+import com.personal.phonebook.controller.response.SyncResponse;
+import com.personal.phonebook.event.ContactChangedEvent;
+import com.personal.phonebook.exception.ContactConflictException;
+import com.personal.phonebook.exception.ContactVersionRequiredException;
+import com.personal.phonebook.exception.ContanctNotFoundException;
+import com.personal.phonebook.exception.DuplicatePhoneException;
+import com.personal.phonebook.export.ExportFormat;
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.model.ContactTombstone;
+import com.personal.phonebook.pagination.ContactCursor;
+import com.personal.phonebook.pagination.TotalCountMode;
+import com.personal.phonebook.push.ContactChangeBroadcaster;
+import com.personal.phonebook.push.OverflowPolicy;
+import com.personal.phonebook.push.PushSubscriber;
+import com.personal.phonebook.repository.ContactFilter;
+import com.personal.phonebook.repository.ContactQueries;
+import com.personal.phonebook.search.FuzzyNames;
+import com.personal.phonebook.search.PhoneMatch;
+import com.personal.phonebook.search.PhoneNumbers;
+import com.personal.phonebook.search.SearchMode;
+import com.personal.phonebook.search.SearchTokenizer;
+import com.personal.phonebook.sync.ChangeSequence;
+import com.personal.phonebook.sync.ContactChange;
+import com.personal.phonebook.sync.SyncToken;
+import com.personal.phonebook.tenant.Tenant;
+import com.personal.phonebook.tenant.TenantContext;
+import com.personal.phonebook.tenant.TenantWebFilter;
+import com.personal.phonebook.tenant.Tenants;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+/**
+ * Non-blocking counterpart of {@link ContactService} on the reactive Mongo driver. Validation and request semantics are
+ * delegated to {@link ContactService} so both stacks answer the same requests the same way; only the I/O differs.
+ * <p>
+ * A request has no thread of its own to hold its tenant, so {@link TenantWebFilter} passes it in the subscriber context. Each
+ * method builds its queries as that tenant when it is subscribed, and leaves the tenant in the context for the lookup of its
+ * database.
+ */
+@Slf4j
+@Service
+@Profile("reactive")
+public class ReactiveContactService {
+
+    @Value("${phonebook.export.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${phonebook.pagination.count-estimate-limit:1000}")
+    private long countEstimateLimit;
+
+    @Value("${phonebook.search.fuzzy.max-candidates:1000}")
+    private int maxFuzzyCandidates;
+
+    @Autowired
+    private ContactService contactService;
+
+    @Autowired
+    private ContactExportService contactExportService;
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    // listing, search, count and export reads
+    @Autowired
+    @Qualifier("reactiveSearchMongoTemplate")
+    private ReactiveMongoTemplate reactiveSearchMongoTemplate;
+
+    @Autowired
+    private ContactAutocompleteService contactAutocompleteService;
+
+    @Autowired
+    private ContactSyncService contactSyncService;
+
+    @Autowired
+    private ContactChangeBroadcaster broadcaster;
+
+    @Autowired
+    private Tenants tenants;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    public Mono<ContactsResponse> searchContacts (ContactSearchRequest request) {
+        return asTenant( () -> {
+            contactService.validateSearchContactInput(request);
+            Sort.Direction direction = Sort.Direction.valueOf(request.getDirection().toUpperCase());
+            Sort sort = Sort.by(direction, request.getSortBy()).and(Sort.by(direction, "id"));
+            ContactFilter filter = filter(request.getQuery(), request.getMode());
+            if (filter.getMode() == SearchMode.TEXT) {
+                return findTextMatches(filter.getQuery(), request, direction, sort);
+            }
+            if (filter.getMode() == SearchMode.FUZZY) {
+                return findFuzzyMatches(filter.getQuery(), request, sort);
+            }
+            return findSlice(filter, request, direction, sort, contactService.resolveTotalCountMode(request));
+        });
+    }
+
+    /**
+     * The matches of a search from the start or from its cursor to the end, pulled from the cursor only as fast as the subscriber
+     * consumes them. Full-text and fuzzy matches are ranked as a whole and are only returned in pages.
+     */
+    public Flux<Contact> streamSearch (ContactSearchRequest request) {
+        return streamAsTenant( () -> {
+            contactService.validateStreamSearchInput(request);
+            Sort.Direction direction = Sort.Direction.valueOf(request.getDirection().toUpperCase());
+            Sort sort = Sort.by(direction, request.getSortBy()).and(Sort.by(direction, "id"));
+            ContactCursor after = request.getCursor() == null ? null : ContactCursor.decode(request.getCursor());
+            return reactiveSearchMongoTemplate.find(ContactQueries.stream(filter(request.getQuery(), request.getMode()), after, sort, batchSize), Contact.class);
+        });
+    }
+
+    public Mono<ContactsResponse> lookupPhone (String phone, String match, int limit) {
+        return asTenant( () -> {
+            PhoneMatch phoneMatch = contactService.resolvePhoneMatch(match);
+            contactService.validatePhoneLookup(phone, phoneMatch, limit);
+            Query query = phoneMatch == PhoneMatch.EXACT ? ContactQueries.phoneNumber(PhoneNumbers.normalize(phone), limit)
+                                                         : ContactQueries.phoneSuffix(PhoneNumbers.reversed(phone), limit);
+            return reactiveSearchMongoTemplate.find(query, Contact.class).collectList().map(contacts -> new ContactsResponse(contacts, -1));
+        });
+    }
+
+    public Mono<BatchLookupResponse> batchLookup (ContactBatchRequest request) {
+        return asTenant( () -> {
+            contactService.validateBatchLookup(request);
+            boolean byPhone = ContactService.isPhoneBatch(request);
+            List<String> keys = ContactService.batchKeys(request);
+            // ids are read from the primary like single contacts, phone numbers like the other lookups
+            Flux<Contact> contacts = byPhone ? reactiveSearchMongoTemplate.find(ContactQueries.phoneNumbers(ContactService.normalizedPhones(keys)), Contact.class)
+                                             : reactiveMongoTemplate.find(ContactQueries.byIds(keys), Contact.class);
+            return contacts.collectList().map(found -> ContactService.batchResponse(keys, byPhone, found));
+        });
+    }
+
+    /**
+     * Every matching contact in the requested order, pulled from the cursor only as fast as the subscriber consumes them.
+     */
+    public Flux<Contact> streamContacts (ContactExportRequest request) {
+        return streamAsTenant( () -> {
+            if (contactExportService.validateExportInput(request) != ExportFormat.NDJSON) {
+                throw new IllegalArgumentException("Only ndjson export is supported by the reactive API");
+            }
+            Sort sort = Sort.unsorted();
+            if (request.getSortBy() != null) {
+                Sort.Direction direction = Sort.Direction.valueOf(request.getDirection().toUpperCase());
+                sort = Sort.by(direction, request.getSortBy()).and(Sort.by(direction, "id"));
+            }
+            return reactiveSearchMongoTemplate.find(ContactQueries.stream(filter(request.getQuery(), request.getMode()), sort, batchSize), Contact.class);
+        });
+    }
+
+    public Mono<Contact> getContact (String id, List<String> fields) {
+        return asTenant( () -> {
+            Query query = ContactQueries.byId(id);
+            if (fields != null && !fields.isEmpty()) {
+                contactService.validateProjectionFields(fields);
+                query = ContactQueries.projection(id, fields);
+            }
+            return reactiveMongoTemplate.findOne(query, Contact.class).switchIfEmpty(Mono.error( () -> new ContanctNotFoundException(id)));
+        });
+    }
+
+    public Mono<Contact> createContact (Contact contact) {
+        return asTenant( () -> {
+            contactService.validateContact(contact);
+            // a new contact gets a generated id and starts its own version history
+            contact.setId(null);
+            contact.setVersion(null);
+            contact.setTenantId(TenantContext.tenantId());
+            return reactiveMongoTemplate.insert(contact)
+                                        .onErrorMap(ReactiveContactService::duplicatePhone, e -> new DuplicatePhoneException(contact.getPhone()));
+        }).doOnNext(savedContact -> eventPublisher.publishEvent(new ContactChangedEvent(null, savedContact)));
+    }
+
+    public Mono<Contact> updateContact (String id, Contact contactDetails) {
+        return asTenant( () -> {
+            contactService.validateContact(contactDetails);
+            if (contactDetails.getVersion() == null) {
+                throw new ContactVersionRequiredException(id);
+            }
+            Map<String, String> fields = ContactService.fieldsOf(contactDetails);
+            Long expectedVersion = contactDetails.getVersion();
+            return reactiveMongoTemplate.findAndModify(ContactQueries.versioned(id, expectedVersion),
+                                                       ContactQueries.setFields(fields, SearchTokenizer.tokenize(contactDetails)),
+                                                       FindAndModifyOptions.options().returnNew(false),
+                                                       Contact.class)
+                                        .map(previousContact -> {
+                                            Contact updatedContact = ContactService.applyFields(previousContact, fields);
+                                            eventPublisher.publishEvent(new ContactChangedEvent(previousContact, updatedContact));
+                                            return updatedContact;
+                                        })
+                                        .onErrorMap(ReactiveContactService::duplicatePhone, e -> new DuplicatePhoneException(contactDetails.getPhone()))
+                                        .switchIfEmpty(inTenant( () -> notUpdated(id, expectedVersion)));
+        });
+    }
+
+    public Mono<Void> deleteContact (String id) {
+        // the contact is replaced by its tombstone in one write, like the blocking delete
+        return asTenant( () -> reactiveMongoTemplate.findAndReplace(ContactQueries.byId(id),
+                                                                    ContactQueries.tombstoneOf(id, ChangeSequence.next()),
+                                                                    FindAndReplaceOptions.none(),
+                                                                    ContactTombstone.class,
+                                                                    Contact.class)
+                                                    .switchIfEmpty(Mono.error( () -> new ContanctNotFoundException(id)))
+                                                    .doOnNext(deletedContact -> eventPublisher.publishEvent(new ContactChangedEvent(deletedContact, null)))
+                                                    .then());
+    }
+
+    /**
+     * Suggestions of the request's tenant. The first suggestion of a tenant reads its contacts from the blocking repository,
+     * so only that one leaves the event loop.
+     */
+    public Mono<List<Suggestion>> suggest (String prefix, int limit) {
+        return asTenant( () -> {
+            Tenant tenant = TenantContext.current();
+            Mono<List<Suggestion>> suggestions = Mono.fromSupplier( () -> TenantContext.callAs(tenant,
+                                                                                                () -> contactAutocompleteService.suggest(prefix, limit)));
+            return contactAutocompleteService.isBuilt() ? suggestions : suggestions.subscribeOn(Schedulers.boundedElastic());
+        });
+    }
+
+    // Read from the primary like the blocking feed, the contacts and the tombstones concurrently
+    public Mono<SyncResponse> sync (String token, int limit) {
+        return asTenant( () -> {
+            SyncToken after = contactSyncService.resolveToken(token, limit);
+            long settled = contactSyncService.settledSequence();
+            Mono<List<Contact>> written = reactiveMongoTemplate.find(ContactQueries.changedAfter(after, limit + 1), Contact.class).collectList();
+            Mono<List<ContactTombstone>> deleted = reactiveMongoTemplate.find(ContactQueries.deletedAfter(after, limit + 1), ContactTombstone.class)
+                                                                        .collectList();
+            return Mono.zip(written, deleted)
+                       .map(changes -> ContactSyncService.page(after, ContactChange.merge(changes.getT1(), changes.getT2(), limit + 1), limit, settled));
+        });
+    }
+
+    /**
+     * The changes of the contacts matching the query as server-sent events, for as long as the client stays. Messages are
+     * emitted on the writing thread as far as the client has demand, the rest wait in the subscriber's buffer until it asks
+     * for more.
+     */
+    public Flux<ServerSentEvent<String>> subscribe (String query, String mode, String overflow) {
+        return streamAsTenant( () -> {
+            ContactFilter filter = filter(query, mode);
+            OverflowPolicy policy = OverflowPolicy.of(overflow);
+            return Flux.<ServerSentEvent<String>> create(sink -> {
+                Consumer<PushSubscriber> drain = subscriber -> subscriber.drain( () -> sink.requestedFromDownstream() > 0 && !sink.isCancelled(),
+                                                                                 message -> sink.next(ServerSentEvent.builder(message.getData())
+                                                                                                                    .event(message.getType().event())
+                                                                                                                    .build()));
+                PushSubscriber subscriber = broadcaster.subscribe(filter, policy, drain, sink::complete);
+                sink.onRequest(requested -> drain.accept(subscriber));
+                sink.onDispose( () -> broadcaster.unsubscribe(subscriber));
+            }).startWith(ServerSentEvent.<String> builder().comment(ContactPushService.SUBSCRIBED).build());
+        });
+    }
+
+    // The page and the count are independent queries, so they run concurrently
+    private Mono<ContactsResponse> findSlice (ContactFilter filter,
+                                              ContactSearchRequest request,
+                                              Sort.Direction direction,
+                                              Sort sort,
+                                              TotalCountMode totalCountMode) {
+        ContactCursor after = request.getCursor() == null ? null : ContactCursor.decode(request.getCursor());
+        long skip = after == null ? (long) request.getPage() * request.getSize() : 0;
+        Query query = ContactQueries.page(filter, after, skip, sort, request.getSize() + 1);
+        Mono<List<Contact>> page = reactiveSearchMongoTemplate.find(query, Contact.class).collectList();
+        Mono<Long> total = switch (totalCountMode) {
+            case EXACT -> reactiveSearchMongoTemplate.count(ContactQueries.count(filter, 0), Contact.class);
+            case ESTIMATE -> estimateTotal(filter);
+            case NONE -> Mono.just(-1L);
+        };
+        return Mono.zip(page, total).map(result -> {
+            List<Contact> contacts = result.getT1();
+            boolean hasNext = contacts.size() > request.getSize();
+            if (hasNext) {
+                contacts = contacts.subList(0, request.getSize());
+            }
+            String nextCursor = hasNext ? ContactCursor.after(contacts.get(contacts.size() - 1), request.getSortBy(), direction).encode() : null;
+            boolean estimated = totalCountMode == TotalCountMode.ESTIMATE && (filter.isAll() || result.getT2() >= countEstimateLimit);
+            return new ContactsResponse(contacts, result.getT2(), estimated, nextCursor);
+        });
+    }
+
+    // The metadata count of a collection shared with other tenants is not the tenant's, their index range is counted instead
+    private Mono<Long> estimateTotal (ContactFilter filter) {
+        if (!filter.isAll()) {
+            return reactiveSearchMongoTemplate.count(ContactQueries.count(filter, countEstimateLimit), Contact.class);
+        }
+        if (TenantContext.current().isShared()) {
+            return reactiveSearchMongoTemplate.count(ContactQueries.count(filter, 0), Contact.class);
+        }
+        return reactiveSearchMongoTemplate.estimatedCount(Contact.class);
+    }
+
+    private Mono<ContactsResponse> findTextMatches (String query, ContactSearchRequest request, Sort.Direction direction, Sort sort) {
+        TextCriteria criteria = TextCriteria.forDefaultLanguage().matching(query);
+        Query page = ContactQueries.text(criteria).sortByScore().with(PageRequest.of(request.getPage(), request.getSize(), sort));
+        return reactiveSearchMongoTemplate.count(ContactQueries.text(criteria), Contact.class).flatMap(total -> {
+            if (total > 0) {
+                return reactiveSearchMongoTemplate.find(page, Contact.class).collectList().map(contacts -> new ContactsResponse(contacts, total));
+            }
+            // the text index only knows whole words - a fragment such as "ali" has to be found as a substring
+            log.debug("No full-text match for query: {}, falling back to substring search", query);
+            ContactFilter fallback = ContactFilter.matching(query, SearchMode.NGRAM);
+            // relevance ordering has no keyset position, so text results never carry a cursor
+            return inTenant( () -> findSlice(fallback, request, direction, sort, TotalCountMode.EXACT)).map(response -> new ContactsResponse(response.getContacts(),
+                                                                                                                                          response.getTotalCount()));
+        });
+    }
+
+    // The phonetic candidates first, then the ones sharing the most trigrams up to the limit, as ContactRepository finds them
+    private Mono<ContactsResponse> findFuzzyMatches (String query, ContactSearchRequest request, Sort sort) {
+        List<String> phoneticKeys = FuzzyNames.phoneticKeys(query);
+        List<String> trigrams = FuzzyNames.trigrams(query);
+        Mono<List<Contact>> phonetic = phoneticKeys.isEmpty() ? Mono.just(List.of())
+                                                              : reactiveSearchMongoTemplate.find(ContactQueries.nameKeys(phoneticKeys, List.of(), maxFuzzyCandidates), Contact.class)
+                                                                                           .collectList();
+        return phonetic.flatMap(found -> {
+            if (found.size() >= maxFuzzyCandidates || trigrams.isEmpty()) {
+                return Mono.just(found);
+            }
+            List<String> foundIds = found.stream().map(Contact::getId).toList();
+            return inTenant( () -> reactiveSearchMongoTemplate.aggregate(ContactQueries.trigramCandidates(trigrams, foundIds, maxFuzzyCandidates - found.size()),
+                                                                         Contact.class,
+                                                                         Contact.class)
+                                                              .collectList()).map(spelled -> {
+                List<Contact> candidates = new ArrayList<>(found);
+                candidates.addAll(spelled);
+                return candidates;
+            });
+        }).map(candidates -> {
+            Page<Contact> page = ContactService.rankFuzzyMatches(query, candidates, PageRequest.of(request.getPage(), request.getSize(), sort));
+            // ranked in memory, so there is no keyset position to continue from
+            return new ContactsResponse(page.getContent(), page.getTotalElements());
+        });
+    }
+
+    private Mono<Contact> notUpdated (String id, Long expectedVersion) {
+        if (expectedVersion == null) {
+            return Mono.error( () -> new ContanctNotFoundException(id));
+        }
+        return reactiveMongoTemplate.exists(ContactQueries.byId(id), Contact.class)
+                                    .flatMap(exists -> Mono.error(exists ? new ContactConflictException(id, expectedVersion)
+                                                                         : new ContanctNotFoundException(id)));
+    }
+
+    // Only a violation of the phone index is the caller's conflict, any other duplicate key is left to surface as it is
+    private static boolean duplicatePhone (Throwable e) {
+        return e instanceof DuplicateKeyException duplicateKey && DuplicatePhoneException.violatedBy(duplicateKey);
+    }
+
+    // Builds the publisher as the tenant of the request, which it also leaves in the context for TenantDatabaseFactory
+    private <T> Mono<T> asTenant (Supplier<Mono<T>> publisher) {
+        return Mono.deferContextual(context -> {
+            Tenant tenant = tenants.resolve(context.getOrDefault(TenantWebFilter.TENANT_ID, null));
+            return TenantContext.callAs(tenant, publisher).contextWrite(Context.of(Tenant.class, tenant));
+        });
+    }
+
+    private <T> Flux<T> streamAsTenant (Supplier<Flux<T>> publisher) {
+        return Flux.deferContextual(context -> {
+            Tenant tenant = tenants.resolve(context.getOrDefault(TenantWebFilter.TENANT_ID, null));
+            return TenantContext.callAs(tenant, publisher).contextWrite(Context.of(Tenant.class, tenant));
+        });
+    }
+
+    // For publishers built in a later stage of one built by asTenant, on whatever thread that stage runs
+    private static <T> Mono<T> inTenant (Supplier<Mono<T>> publisher) {
+        return Mono.deferContextual(context -> TenantContext.callAs(context.get(Tenant.class), publisher));
+    }
+
+    private ContactFilter filter (String query, String mode) {
+        return StringUtils.hasLength(query) ? ContactFilter.matching(query, contactService.resolveSearchMode(mode)) : ContactFilter.all();
+    }
+}
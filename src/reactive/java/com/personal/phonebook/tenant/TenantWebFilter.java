@@ -0,0 +1,32 @@
+package com.personal.phonebook.tenant;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * Passes the tenant header of a reactive request on in the subscriber context. It is resolved by the service rather than here,
+ * so that an invalid tenant is answered by the same exception handling as any other invalid request.
+ */
+@Component
+@Profile("reactive")
+public class TenantWebFilter implements WebFilter {
+
+    // context key of the raw tenant header
+    public static final String TENANT_ID = TenantWebFilter.class.getName() + ".tenantId";
+
+    @Value("${phonebook.tenancy.header:X-Tenant-Id}")
+    private String header;
+
+    @Override
+    public Mono<Void> filter (ServerWebExchange exchange, WebFilterChain chain) {
+        String tenantId = exchange.getRequest().getHeaders().getFirst(header);
+        return tenantId == null ? chain.filter(exchange) : chain.filter(exchange).contextWrite(Context.of(TENANT_ID, tenantId));
+    }
+}
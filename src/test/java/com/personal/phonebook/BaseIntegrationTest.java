@@ -7,11 +7,15 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
 
+import com.personal.phonebook.cache.ContactCache;
 import com.personal.phonebook.model.Contact;
 import com.personal.phonebook.repository.ContactRepository;
 import com.personal.phonebook.service.ContactService;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "spring.data.mongodb.uri=mongodb://localhost:27017/contacts")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = { "spring.data.mongodb.uri=mongodb://localhost:27017/contacts",
+                                                                                            // the tests are the only writers, nothing to wait for
+                                                                                            "phonebook.sync.settle-time=0s",
+                                                                                            "phonebook.tenancy.tenants=acme,globex" })
 public abstract class BaseIntegrationTest {
 
     @LocalServerPort
@@ -26,10 +30,15 @@ public abstract class BaseIntegrationTest {
     @Autowired
     protected TestRestTemplate restTemplate;
 
+    @Autowired
+    protected ContactCache contactCache;
+
     protected String testContactId;
 
     @BeforeEach
     protected void setup () {
+        // the fixtures below are written around the service, cached results of a previous test would hide them
+        contactCache.invalidateAll();
         // Create test data
         testContactId = contactRepository.save(new Contact("John", "Doe", "123-456-7890", "123 Main St")).getId();
         contactRepository.save(new Contact("Jane", "Smith", "456-789-0123", "456 Oak Ave"));
@@ -41,5 +50,6 @@ public abstract class BaseIntegrationTest {
     @AfterEach
     protected void cleanup () {
         contactRepository.deleteAll();
+        contactCache.invalidateAll();
     }
 }
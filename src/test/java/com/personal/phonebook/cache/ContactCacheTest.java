@@ -0,0 +1,163 @@
+package com.personal.phonebook.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.personal.phonebook.controller.response.ContactsResponse;
+import com.personal.phonebook.event.ContactChangedEvent;
+import com.personal.phonebook.event.ContactsImportedEvent;
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.pagination.TotalCountMode;
+import com.personal.phonebook.repository.ContactFilter;
+import com.personal.phonebook.search.SearchMode;
+import com.personal.phonebook.tenant.TenantContext;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ContactCacheTest {
+
+    private ContactCache contactCache;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp () {
+        meterRegistry = new SimpleMeterRegistry();
+        contactCache = new ContactCache();
+        ReflectionTestUtils.setField(contactCache, "searchMaxSize", 100L);
+        ReflectionTestUtils.setField(contactCache, "searchTtl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(contactCache, "contactMaxSize", 100L);
+        ReflectionTestUtils.setField(contactCache, "contactTtl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(contactCache, "meterRegistry", meterRegistry);
+        contactCache.init();
+    }
+
+    @Test
+    public void getSearch_WithRepeatedKey_LoadsOnce () {
+        // Given
+        SearchKey key = key(ContactFilter.all());
+        // When
+        search(key);
+        search(key);
+        // Then
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "contactSearches").tag("result", "hit").functionCounter().count())
+                    .isEqualTo(1);
+    }
+
+    @Test
+    public void onContactChanged_InvalidatesOnlyAffectedSearches () {
+        // Given
+        SearchKey all = key(ContactFilter.all());
+        SearchKey smith = key(ContactFilter.matching("smith", SearchMode.NGRAM));
+        SearchKey johnson = key(ContactFilter.matching("johnson", SearchMode.REGEX));
+        SearchKey text = key(ContactFilter.matching("haifa", SearchMode.TEXT));
+        List.of(all, smith, johnson, text).forEach(this::search);
+        // When
+        contactCache.onContactChanged(new ContactChangedEvent(null, new Contact("Alice", "Smith", "123", "Tel Aviv")));
+        List.of(all, smith, johnson, text).forEach(this::search);
+        // Then - only the unrelated query was still cached
+        assertThat(loads.get()).isEqualTo(7);
+    }
+
+    @Test
+    public void onContactChanged_InvalidatesSearchesMatchingThePreviousState () {
+        // Given
+        SearchKey smith = key(ContactFilter.matching("smith", SearchMode.NGRAM));
+        search(smith);
+        Contact previous = new Contact("Alice", "Smith", "123", "Tel Aviv");
+        Contact current = new Contact("Alice", "Jones", "123", "Tel Aviv");
+        current.setId(previous.getId());
+        // When
+        contactCache.onContactChanged(new ContactChangedEvent(previous, current));
+        search(smith);
+        // Then
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void onContactChanged_InvalidatesTheContact () {
+        // Given
+        Contact contact = new Contact("Alice", "Smith", "123", "Tel Aviv");
+        assertThat(contactCache.getContact(contact.getId(), () -> contact)).isSameAs(contact);
+        assertThat(contactCache.getContact(contact.getId(), () -> null)).isSameAs(contact);
+        // When
+        contactCache.onContactChanged(new ContactChangedEvent(contact, null));
+        // Then
+        Contact reloaded = new Contact("Alice", "Smith", "456", "Haifa");
+        assertThat(contactCache.getContact(contact.getId(), () -> reloaded)).isSameAs(reloaded);
+    }
+
+    @Test
+    public void onContactsImported_InvalidatesAllSearches () {
+        // Given
+        SearchKey johnson = key(ContactFilter.matching("johnson", SearchMode.REGEX));
+        search(johnson);
+        // When
+        contactCache.onContactsImported(new ContactsImportedEvent(List.of(new Contact("Alice", "Smith", "123", "Tel Aviv"))));
+        search(johnson);
+        // Then
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void getSearch_WithInvalidationDuringLoad_DoesNotKeepTheResult () {
+        // Given
+        SearchKey key = key(ContactFilter.all());
+        // When
+        contactCache.getSearch(key, () -> {
+            loads.incrementAndGet();
+            contactCache.onContactChanged(new ContactChangedEvent(null, new Contact("Alice", "Smith", "123", "Tel Aviv")));
+            return new ContactsResponse(List.of(), 0);
+        });
+        search(key);
+        // Then
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void getContacts_LoadsOnlyTheIdsNotCached () {
+        // Given
+        Contact cached = new Contact("Alice", "Smith", "123", "Tel Aviv");
+        Contact stored = new Contact("Bob", "Jones", "456", "Haifa");
+        contactCache.getContact(cached.getId(), () -> cached);
+        List<Collection<String>> requested = new ArrayList<>();
+        // When
+        Map<String, Contact> first = contactCache.getContacts(List.of(cached.getId(), stored.getId(), "missing"), ids -> {
+            requested.add(List.copyOf(ids));
+            return List.of(stored);
+        });
+        Map<String, Contact> second = contactCache.getContacts(List.of(cached.getId(), stored.getId()), ids -> {
+            requested.add(List.copyOf(ids));
+            return List.of();
+        });
+        // Then
+        assertThat(requested).containsExactly(List.of(stored.getId(), "missing"));
+        assertThat(first).containsOnlyKeys(cached.getId(), stored.getId());
+        assertThat(second.get(stored.getId())).isSameAs(stored);
+    }
+
+    private void search (SearchKey key) {
+        contactCache.getSearch(key, () -> {
+            loads.incrementAndGet();
+            return new ContactsResponse(List.of(), 0);
+        });
+    }
+
+    private SearchKey key (ContactFilter filter) {
+        return new SearchKey(TenantContext.DEFAULT_TENANT, filter, 0, 10, Sort.Direction.ASC, "firstName", null, TotalCountMode.EXACT);
+    }
+}
@@ -0,0 +1,54 @@
+package com.personal.phonebook.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.mongodb.MongoCompressor;
+import com.mongodb.ReadPreference;
+import com.mongodb.TaggableReadPreference;
+
+class MongoConfigTest {
+
+    @Test
+    public void searchReadPreference_WithMaxStaleness_RoutesToSecondariesWithinStaleness () {
+        // Given
+        PhonebookMongoProperties.Search search = new PhonebookMongoProperties.Search();
+        search.setReadPreference("secondaryPreferred");
+        search.setMaxStaleness(Duration.ofSeconds(120));
+        // When
+        ReadPreference readPreference = MongoConfig.searchReadPreference(search);
+        // Then
+        assertThat(readPreference.getName()).isEqualTo("secondaryPreferred");
+        assertThat(((TaggableReadPreference) readPreference).getMaxStaleness(TimeUnit.SECONDS)).isEqualTo(120);
+    }
+
+    @Test
+    public void searchReadPreference_WithMaxStalenessOnPrimary_IsRejected () {
+        // Given
+        PhonebookMongoProperties.Search search = new PhonebookMongoProperties.Search();
+        search.setMaxStaleness(Duration.ofSeconds(120));
+        // Then
+        assertThatThrownBy( () -> MongoConfig.searchReadPreference(search)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void compressors_KeepsConfiguredOrder () {
+        // When
+        List<MongoCompressor> compressors = MongoConfig.compressors(List.of("zstd", "Snappy", "zlib"));
+        // Then
+        assertThat(compressors).extracting(MongoCompressor::getName).containsExactly("zstd", "snappy", "zlib");
+    }
+
+    @Test
+    public void compressors_WithUnknownName_IsRejected () {
+        // Then
+        assertThatThrownBy( () -> MongoConfig.compressors(List.of("lz4"))).isInstanceOf(IllegalArgumentException.class)
+                                                                           .hasMessageContaining("lz4");
+    }
+}
@@ -0,0 +1,36 @@
+package com.personal.phonebook.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+class SortIndexConfigTest {
+
+    @Test
+    public void requiresInMemorySort_WithIndexScanPlan_ReturnsFalse () {
+        // Given
+        Document explain = Document.parse("{ queryPlanner: { winningPlan: { stage: 'LIMIT', inputStage: { stage: 'FETCH', "
+                    + "inputStage: { stage: 'IXSCAN', indexName: 'lastName_1__id_1', direction: 'backward' } } } } }");
+        // Then
+        assertThat(SortIndexConfig.requiresInMemorySort(explain)).isFalse();
+    }
+
+    @Test
+    public void requiresInMemorySort_WithNestedSortStage_ReturnsTrue () {
+        // Given
+        Document explain = Document.parse("{ queryPlanner: { winningPlan: { queryPlan: { stage: 'SORT', sortPattern: { address: 1, _id: 1 }, "
+                    + "inputStage: { stage: 'COLLSCAN' } } } } }");
+        // Then
+        assertThat(SortIndexConfig.requiresInMemorySort(explain)).isTrue();
+    }
+
+    @Test
+    public void requiresInMemorySort_WithIndexBackedMerge_ReturnsFalse () {
+        // Given
+        Document explain = Document.parse("{ queryPlanner: { winningPlan: { stage: 'SORT_MERGE', inputStages: [ "
+                    + "{ stage: 'IXSCAN' }, { stage: 'IXSCAN' } ] } } }");
+        // Then
+        assertThat(SortIndexConfig.requiresInMemorySort(explain)).isFalse();
+    }
+}
@@ -0,0 +1,46 @@
+package com.personal.phonebook.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.core.util.JsonRecyclerPools;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class VirtualThreadConfigTest {
+
+    private final VirtualThreadConfig virtualThreadConfig = new VirtualThreadConfig();
+
+    @Test
+    public void verifyThreading_BelowJava21_FailsStartup () {
+        // Given
+        assumeTrue(Runtime.version().feature() < 21);
+        ReflectionTestUtils.setField(virtualThreadConfig, "environment", new MockEnvironment().withProperty("spring.threads.virtual.enabled", "true"));
+        // Then
+        assertThatThrownBy(virtualThreadConfig::verifyThreading).isInstanceOf(IllegalStateException.class).hasMessageContaining("Java 21+");
+    }
+
+    @Test
+    public void verifyThreading_WithoutVirtualThreadsEnabled_FailsStartup () {
+        // Given
+        ReflectionTestUtils.setField(virtualThreadConfig, "environment", new MockEnvironment());
+        // Then
+        assertThatThrownBy(virtualThreadConfig::verifyThreading).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void sharedBufferRecycling_UsesSharedRecyclerPool () {
+        // Given
+        Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder();
+        // When
+        virtualThreadConfig.sharedBufferRecycling().customize(builder);
+        ObjectMapper objectMapper = builder.build();
+        // Then
+        assertThat(objectMapper.getFactory()._getRecyclerPool()).isSameAs(JsonRecyclerPools.sharedConcurrentDequePool());
+    }
+}
@@ -3,28 +3,51 @@ package com.personal.phonebook.controller;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.personal.phonebook.BaseIntegrationTest;
+import com.personal.phonebook.controller.response.BatchLookupResponse;
 import com.personal.phonebook.controller.response.ContactsResponse;
+import com.personal.phonebook.controller.response.ImportResponse;
+import com.personal.phonebook.controller.response.Suggestion;
+import com.personal.phonebook.controller.response.SyncResponse;
 import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.sync.SyncToken;
 
 public class ContactControllerIT extends BaseIntegrationTest {
     private String baseUrl;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Override
     @BeforeEach
     public void setup () {
         baseUrl = "http://localhost:" + port + "/phonebook";
         contactRepository.deleteAll();
+        contactCache.invalidateAll();
     }
 
     @Test
@@ -81,16 +104,16 @@ public class ContactControllerIT extends BaseIntegrationTest {
     @Test
     void searchContacts_AcrossAllFields_ReturnsMatchingContacts () {
         // Given
-        List<Contact> testContacts = List.of(new Contact("Bobby", "Smith", "123-456", "Main St"), // matches firstName
-                                             new Contact("John", "Bibby", "123-456", "Oak St"), // matches lastName
-                                             new Contact("Alice", "Jones", "123-456", "Bobbit Ave"), // matches address
-                                             new Contact("Mike", "Wilson", "123-456", "Pine St"), // no match
-                                             new Contact("Sarah", "Davis", "123-456", "Elm St"), // no match
-                                             new Contact("Tom", "Brown", "123-456", "Cedar St"), // no match
-                                             new Contact("Emma", "Taylor", "123-456", "Maple St"), // no match
-                                             new Contact("James", "Miller", "123-456", "Birch St"), // no match
-                                             new Contact("Lucy", "Moore", "123-456", "Spruce St"), // no match
-                                             new Contact("David", "Clark", "123-456", "Willow St") // no match
+        List<Contact> testContacts = List.of(new Contact("Bobby", "Smith", "123-401", "Main St"), // matches firstName
+                                             new Contact("John", "Bibby", "123-402", "Oak St"), // matches lastName
+                                             new Contact("Alice", "Jones", "123-403", "Bobbit Ave"), // matches address
+                                             new Contact("Mike", "Wilson", "123-404", "Pine St"), // no match
+                                             new Contact("Sarah", "Davis", "123-405", "Elm St"), // no match
+                                             new Contact("Tom", "Brown", "123-406", "Cedar St"), // no match
+                                             new Contact("Emma", "Taylor", "123-407", "Maple St"), // no match
+                                             new Contact("James", "Miller", "123-408", "Birch St"), // no match
+                                             new Contact("Lucy", "Moore", "123-409", "Spruce St"), // no match
+                                             new Contact("David", "Clark", "123-410", "Willow St") // no match
         );
         contactRepository.saveAll(testContacts);
         // When
@@ -129,6 +152,139 @@ public class ContactControllerIT extends BaseIntegrationTest {
         assertThat(foundContact.getAddress()).isEqualTo("123 Main St");
     }
 
+    @Test
+    public void searchContacts_InTextModeWithWholeWord_ReturnsScoredMatches () {
+        // Given
+        prepareSmallDataForTest();
+
+        // When
+        ResponseEntity<ContactsResponse> response = restTemplate.getForEntity(String.format("%s/contacts?query=%s&mode=%s",
+                                                                                            baseUrl,
+                                                                                            "haifa",
+                                                                                            "text"),
+                                                                              ContactsResponse.class);
+
+        // Then
+        assertSearchResponse(response, 1);
+        Contact foundContact = response.getBody().getContacts().get(0);
+        assertThat(foundContact.getFirstName()).isEqualTo("Bob");
+        assertThat(foundContact.getScore()).isPositive();
+    }
+
+    @Test
+    public void searchContacts_InTextModeWithFragment_FallsBackToSubstringMatch () {
+        // Given
+        prepareSmallDataForTest();
+
+        // When
+        ResponseEntity<ContactsResponse> response = restTemplate.getForEntity(String.format("%s/contacts?query=%s&mode=%s",
+                                                                                            baseUrl,
+                                                                                            "aif",
+                                                                                            "text"),
+                                                                              ContactsResponse.class);
+
+        // Then
+        assertSearchResponse(response, 1);
+        assertContact(response.getBody().getContacts().get(0), "Bob");
+    }
+
+    @Test
+    public void searchContacts_InFuzzyMode_FindsMisspelledNamesClosestFirst () {
+        // Given
+        prepareSmallDataForTest();
+        Contact created = restTemplate.postForObject(baseUrl, new Contact("Jon", "Baker", "111-111-1111", null), Contact.class);
+        restTemplate.put(baseUrl + "/" + created.getId(), atVersionOf(created, new Contact("Jon", "Smyth", "111-111-1111", null)));
+
+        // When
+        ResponseEntity<ContactsResponse> response = restTemplate.getForEntity(String.format("%s/contacts?query=%s&mode=%s",
+                                                                                            baseUrl,
+                                                                                            "Shmit",
+                                                                                            "fuzzy"),
+                                                                              ContactsResponse.class);
+
+        // Then
+        assertSearchResponse(response, 2);
+        assertThat(response.getBody().getContacts()).extracting(Contact::getLastName).containsExactly("Smith", "Smyth");
+        assertThat(response.getBody().getNextCursor()).isNull();
+    }
+
+    @Test
+    public void searchContacts_IgnoresAccentsAndCaseOfCreatedAndUpdatedContacts () {
+        // Given
+        prepareSmallDataForTest();
+        Contact created = restTemplate.postForObject(baseUrl, new Contact("José", "Álvarez", "111-111-1111", null), Contact.class);
+        restTemplate.put(baseUrl + "/" + created.getId(), atVersionOf(created, new Contact("José", "Müller", "111-111-1111", "Straße 5")));
+
+        for (String mode : List.of("regex", "ngram")) {
+            for (String query : List.of("JOSE", "muller", "strasse 5", "m.ller")) {
+                // When
+                ResponseEntity<ContactsResponse> response = restTemplate.getForEntity(String.format("%s/contacts?query=%s&mode=%s",
+                                                                                                    baseUrl,
+                                                                                                    query,
+                                                                                                    mode),
+                                                                                      ContactsResponse.class);
+
+                // Then
+                assertSearchResponse(response, 1);
+                assertThat(response.getBody().getContacts()).extracting(Contact::getLastName).containsExactly("Müller");
+            }
+        }
+    }
+
+    @Test
+    public void getContacts_WithInvalidSearchMode_ReturnsBadRequest () {
+        // When
+        ResponseEntity<String> response = restTemplate.getForEntity(String.format("%s/contacts?query=%s&mode=%s", baseUrl, "bob", "soundex"),
+                                                                    String.class);
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(response.getBody()).contains("Invalid search mode 'soundex'. Allowed values are:");
+    }
+
+    @Test
+    public void getContacts_WithCursor_WalksAllContactsWithoutCounting () {
+        // Given
+        prepareLargeDataForTests();
+
+        // When
+        List<Contact> walked = walkWithCursor(String.format("%s/contacts?query=%s&size=%d", baseUrl, "ali", 10));
+
+        // Then
+        assertThat(walked).hasSize(26);
+        validatePageResults(walked, 'a');
+    }
+
+    @Test
+    public void getContacts_WithCursorOnFieldWithMissingValues_VisitsEveryContactOnce () {
+        // Given
+        contactRepository.saveAll(List.of(new Contact("Anna", null, "1", null),
+                                          new Contact("Ben", "Brown", "2", null),
+                                          new Contact("Carl", null, "3", null),
+                                          new Contact("Dana", "Adams", "4", null),
+                                          new Contact("Eve", "Brown", "5", null)));
+
+        for (String direction : List.of("ASC", "DESC")) {
+            // When
+            List<Contact> walked = walkWithCursor(String.format("%s/contacts?size=%d&sortBy=%s&direction=%s", baseUrl, 2, "lastName", direction));
+
+            // Then
+            assertThat(walked).extracting(Contact::getFirstName).containsExactlyInAnyOrder("Anna", "Ben", "Carl", "Dana", "Eve");
+            List<String> lastNames = walked.stream().map(contact -> contact.getLastName() == null ? "" : contact.getLastName()).toList();
+            assertThat(lastNames).isSortedAccordingTo("ASC".equals(direction) ? String::compareTo : (a, b) -> b.compareTo(a));
+        }
+    }
+
+    @Test
+    public void getContacts_WithInvalidCursor_ReturnsBadRequest () {
+        // When
+        ResponseEntity<String> response = restTemplate.getForEntity(String.format("%s/contacts?cursor=%s", baseUrl, "garbage"), String.class);
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(response.getBody()).contains("Invalid cursor");
+    }
+
     @Test
     public void getContacts_WithCustomSorting_ReturnsSortedContacts () {
         // Given
@@ -190,6 +346,31 @@ public class ContactControllerIT extends BaseIntegrationTest {
         assertThat(saved.getFirstName()).isEqualTo("Test");
     }
 
+    @Test
+    public void createContact_WithPhoneNumberOfAnotherContact_ReturnsConflict () {
+        // Given
+        restTemplate.postForEntity(baseUrl, new Contact("Test", "User", "123-456-7890", null), Contact.class);
+        // When
+        ResponseEntity<String> response = restTemplate.postForEntity(baseUrl, new Contact("Other", "User", "(123) 456 7890", null), String.class);
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(response.getBody()).contains("A contact with phone number (123) 456 7890 already exists");
+    }
+
+    @Test
+    public void createContact_WithIdOfAnotherContact_CreatesNewContact () {
+        // Given
+        Contact existing = restTemplate.postForEntity(baseUrl, new Contact("Test", "User", "123-456-7890", null), Contact.class).getBody();
+        Contact other = new Contact("Other", "User", "234-567-8901", null);
+        other.setId(existing.getId());
+        // When
+        ResponseEntity<Contact> response = restTemplate.postForEntity(baseUrl, other, Contact.class);
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(response.getBody().getId()).isNotEqualTo(existing.getId());
+        assertThat(restTemplate.getForObject(baseUrl + "/" + existing.getId(), Contact.class).getFirstName()).isEqualTo("Test");
+    }
+
     @Test
     public void createContact_WithInvalidData_ReturnsBadRequest () {
         // Given
@@ -200,11 +381,151 @@ public class ContactControllerIT extends BaseIntegrationTest {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
     }
 
+    @Test
+    public void importContacts_WithNdjson_ImportsValidRowsAndReportsInvalidOnes () {
+        // Given
+        String body = "{\"firstName\":\"Alice\",\"phone\":\"123\"}\n{\"firstName\":\"Bob\"}\n{\"firstName\":\"Carol\",\"phone\":\"456\"}\n";
+
+        // When
+        ResponseEntity<ImportResponse> response = importContacts(body, MediaType.parseMediaType("application/x-ndjson"));
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().getImported()).isEqualTo(2);
+        assertThat(response.getBody().getErrors()).containsExactly(new ImportResponse.RowError(2, "Phone number is mandatory"));
+        assertThat(contactRepository.findAll()).extracting(Contact::getFirstName).containsExactlyInAnyOrder("Alice", "Carol");
+    }
+
+    @Test
+    public void importContacts_WithCsv_ImportsSearchableContacts () {
+        // Given
+        String body = "firstName,lastName,phone,address\nAlice,Smith,123,\"Tel Aviv, Israel\"\nBob,Johnson,456,Haifa\n";
+
+        // When
+        ResponseEntity<ImportResponse> response = importContacts(body, MediaType.parseMediaType("text/csv"));
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().getImported()).isEqualTo(2);
+        ResponseEntity<ContactsResponse> searchResponse = searchContacts("aviv", 0, 10);
+        assertSearchResponse(searchResponse, 1);
+        assertThat(searchResponse.getBody().getContacts().get(0).getAddress()).isEqualTo("Tel Aviv, Israel");
+    }
+
+    @Test
+    public void exportContacts_AsNdjson_StreamsEveryContact () throws Exception {
+        // Given
+        prepareLargeDataForTests();
+        // When
+        ResponseEntity<String> response = restTemplate.getForEntity(baseUrl + "/export?sortBy=firstName", String.class);
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType().toString()).startsWith("application/x-ndjson");
+        assertThat(response.getHeaders().getContentDisposition().getFilename()).isEqualTo("contacts.ndjson");
+        List<String> lines = response.getBody().lines().toList();
+        assertThat(lines).hasSize(26);
+        assertThat(objectMapper.readValue(lines.get(0), Contact.class).getFirstName()).isEqualTo("Alicea");
+        assertThat(objectMapper.readValue(lines.get(25), Contact.class).getFirstName()).isEqualTo("Alicez");
+    }
+
+    @Test
+    public void exportContacts_AsCsvWithQuery_StreamsMatchingContactsOnly () {
+        // Given
+        prepareSmallDataForTest();
+        // When
+        ResponseEntity<String> response = restTemplate.getForEntity(baseUrl + "/export?format=csv&query=ha&sortBy=firstName", String.class);
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType().toString()).startsWith("text/csv");
+        List<String> lines = response.getBody().lines().toList();
+        assertThat(lines.get(0)).isEqualTo("id,firstName,lastName,phone,address");
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(1)).contains(",Bob,Johnson,987654321,Haifa");
+        assertThat(lines.get(2)).contains(",Charlie,Brown,555666777,Jerusalem");
+    }
+
+    @Test
+    public void exportContacts_WithInvalidFormat_ReturnsBadRequest () {
+        // When
+        ResponseEntity<String> response = restTemplate.getForEntity(baseUrl + "/export?format=xml", String.class);
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(response.getBody()).contains("Invalid export format");
+    }
+
+    @Test
+    public void getContact_WithExistingId_ReturnsContactWithETag () {
+        // Given
+        Contact contact = contactRepository.save(new Contact("John", "Doe", "123-456-7890", "123 Main St"));
+        // When
+        ResponseEntity<Contact> response = restTemplate.getForEntity(baseUrl + "/" + contact.getId(), Contact.class);
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().getFirstName()).isEqualTo("John");
+        assertThat(response.getHeaders().getETag()).isNotBlank();
+    }
+
+    @Test
+    public void getContact_WithMatchingETag_ReturnsNotModified () {
+        // Given
+        Contact contact = contactRepository.save(new Contact("John", "Doe", "123-456-7890", "123 Main St"));
+        String etag = restTemplate.getForEntity(baseUrl + "/" + contact.getId(), Contact.class).getHeaders().getETag();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(etag);
+        // When
+        ResponseEntity<String> response = restTemplate.exchange(baseUrl + "/" + contact.getId(),
+                                                                HttpMethod.GET,
+                                                                new HttpEntity<>(headers),
+                                                                String.class);
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getBody()).isNull();
+        assertThat(response.getHeaders().getETag()).isEqualTo(etag);
+    }
+
+    @Test
+    public void getContact_AfterUpdate_ReturnsNewETag () {
+        // Given
+        Contact contact = contactRepository.save(new Contact("John", "Doe", "123-456-7890", "123 Main St"));
+        String etag = restTemplate.getForEntity(baseUrl + "/" + contact.getId(), Contact.class).getHeaders().getETag();
+        restTemplate.put(baseUrl + "/" + contact.getId(), atVersionOf(contact, new Contact("John", "Doe", "000", "123 Main St")));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(etag);
+        // When
+        ResponseEntity<Contact> response = restTemplate.exchange(baseUrl + "/" + contact.getId(),
+                                                                 HttpMethod.GET,
+                                                                 new HttpEntity<>(headers),
+                                                                 Contact.class);
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().getPhone()).isEqualTo("000");
+        assertThat(response.getHeaders().getETag()).isNotEqualTo(etag);
+    }
+
+    @Test
+    public void getContact_WithFields_ReturnsOnlyThoseFields () {
+        // Given
+        Contact contact = contactRepository.save(new Contact("John", "Doe", "123-456-7890", "123 Main St"));
+        // When
+        ResponseEntity<String> response = restTemplate.getForEntity(baseUrl + "/" + contact.getId() + "?fields=phone", String.class);
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo("{\"id\":\"" + contact.getId() + "\",\"phone\":\"123-456-7890\"}");
+    }
+
+    @Test
+    public void getContact_WithNonExistingId_ReturnsNotFound () {
+        // When
+        ResponseEntity<String> response = restTemplate.getForEntity(baseUrl + "/non-existing-id", String.class);
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
     @Test
     public void updateContact_WithValidData_ReturnsUpdatedContact () {
         // Given
         Contact initial = contactRepository.save(new Contact("Initial", "User", "111-111-1111", "Initial Address"));
-        Contact updated = new Contact("Updated", "User", "222-222-2222", "Updated Address");
+        Contact updated = atVersionOf(initial, new Contact("Updated", "User", "222-222-2222", "Updated Address"));
         // When
         ResponseEntity<Contact> response = restTemplate.exchange(baseUrl + "/" + initial.getId(),
                                                                  HttpMethod.PUT,
@@ -221,10 +542,86 @@ public class ContactControllerIT extends BaseIntegrationTest {
         assertThat(savedContact.getFirstName()).isEqualTo("Updated");
     }
 
+    @Test
+    public void updateContact_WithStaleVersion_ReturnsConflict () {
+        // Given
+        Contact initial = contactRepository.save(new Contact("Initial", "User", "111-111-1111", "Initial Address"));
+        Contact stale = new Contact("Updated", "User", "222-222-2222", "Updated Address");
+        stale.setVersion(initial.getVersion());
+        restTemplate.put(baseUrl + "/" + initial.getId(), stale);
+        // When
+        ResponseEntity<String> response = restTemplate.exchange(baseUrl + "/" + initial.getId(),
+                                                                HttpMethod.PUT,
+                                                                new HttpEntity<>(stale),
+                                                                String.class);
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+    }
+
+    @Test
+    public void updateContact_WithoutVersion_ReturnsPreconditionRequired () {
+        // Given
+        Contact initial = contactRepository.save(new Contact("Initial", "User", "111-111-1111", "Initial Address"));
+        // When
+        ResponseEntity<String> response = restTemplate.exchange(baseUrl + "/" + initial.getId(),
+                                                                HttpMethod.PUT,
+                                                                new HttpEntity<>(new Contact("Updated", "User", "222-222-2222", null)),
+                                                                String.class);
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_REQUIRED);
+        assertThat(contactRepository.findById(initial.getId()).orElseThrow().getFirstName()).isEqualTo("Initial");
+    }
+
+    @Test
+    public void updateContact_WithIfMatch_UpdatesOnlyWhileTheETagIsCurrent () {
+        // Given
+        Contact initial = contactRepository.save(new Contact("Initial", "User", "111-111-1111", "Initial Address"));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfMatch(restTemplate.getForEntity(baseUrl + "/" + initial.getId(), Contact.class).getHeaders().getETag());
+        // When
+        ResponseEntity<Contact> current = restTemplate.exchange(baseUrl + "/" + initial.getId(),
+                                                                HttpMethod.PUT,
+                                                                new HttpEntity<>(new Contact("Updated", "User", "222-222-2222", null), headers),
+                                                                Contact.class);
+        ResponseEntity<String> stale = restTemplate.exchange(baseUrl + "/" + initial.getId(),
+                                                             HttpMethod.PUT,
+                                                             new HttpEntity<>(new Contact("Stale", "User", "333-333-3333", null), headers),
+                                                             String.class);
+        // Then
+        assertThat(current.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(current.getBody().getVersion()).isEqualTo(initial.getVersion() + 1);
+        assertThat(stale.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        assertThat(contactRepository.findById(initial.getId()).orElseThrow().getFirstName()).isEqualTo("Updated");
+    }
+
+    @Test
+    public void patchContact_WithMergePatch_ChangesOnlySuppliedFields () {
+        // Given
+        Contact initial = contactRepository.save(new Contact("Initial", "User", "111-111-1111", "Initial Address"));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/merge-patch+json"));
+        String patch = "{\"phone\":\"222-222-2222\",\"address\":null}";
+        // When
+        ResponseEntity<Contact> response = restTemplate.exchange(baseUrl + "/" + initial.getId(),
+                                                                 HttpMethod.PATCH,
+                                                                 new HttpEntity<>(patch, headers),
+                                                                 Contact.class);
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Contact savedContact = contactRepository.findById(initial.getId()).orElseThrow();
+        assertThat(savedContact.getFirstName()).isEqualTo("Initial");
+        assertThat(savedContact.getLastName()).isEqualTo("User");
+        assertThat(savedContact.getPhone()).isEqualTo("222-222-2222");
+        assertThat(savedContact.getAddress()).isNull();
+        assertThat(savedContact.getSearchTokens()).contains("222").doesNotContain("add");
+        assertThat(savedContact.getVersion()).isEqualTo(response.getBody().getVersion());
+    }
+
     @Test
     public void updateContact_WithNonExistingId_ReturnsNotFound () {
         // Given
         Contact updated = new Contact("Updated", "User", "222-222-2222", "Updated Address");
+        updated.setVersion(1L);
         // When
         ResponseEntity<String> response = restTemplate.exchange(baseUrl + "/non-existing-id",
                                                                 HttpMethod.PUT,
@@ -245,6 +642,21 @@ public class ContactControllerIT extends BaseIntegrationTest {
         assertThat(contactRepository.findById(contact.getId())).isEmpty();
     }
 
+    @Test
+    public void importContacts_WithIdOfDeletedContact_RestoresIt () {
+        // Given
+        Contact contact = contactRepository.save(new Contact("ToDelete", "User", "111-111-1111", "Delete Address"));
+        restTemplate.delete(baseUrl + "/" + contact.getId());
+        String body = String.format("{\"id\":\"%s\",\"firstName\":\"Restored\",\"phone\":\"111-111-1111\"}%n", contact.getId());
+        // When
+        ResponseEntity<ImportResponse> response = importContacts(body, MediaType.parseMediaType("application/x-ndjson"));
+        // Then
+        assertThat(response.getBody().getImported()).isEqualTo(1);
+        assertThat(restTemplate.getForObject(baseUrl + "/" + contact.getId(), Contact.class).getFirstName()).isEqualTo("Restored");
+        ContactsResponse page = restTemplate.getForObject(baseUrl + "/contacts", ContactsResponse.class);
+        assertThat(page.getContacts()).extracting(Contact::getId).containsExactly(contact.getId());
+    }
+
     @Test
     public void deleteContact_WithNonExistingId_ReturnsNotFound () {
         // When
@@ -253,6 +665,18 @@ public class ContactControllerIT extends BaseIntegrationTest {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
     }
 
+    private ResponseEntity<ImportResponse> importContacts (String body, MediaType contentType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(contentType);
+        return restTemplate.postForEntity(baseUrl + "/import", new HttpEntity<>(body, headers), ImportResponse.class);
+    }
+
+    // The body of a full update, made at the version the contact was read at
+    private Contact atVersionOf (Contact read, Contact update) {
+        update.setVersion(read.getVersion());
+        return update;
+    }
+
     private void validatePaginatedResults (int size) {
         int totalContactsForSearchTerm = 0;
         int totalContactsForAll = 0;
@@ -289,6 +713,20 @@ public class ContactControllerIT extends BaseIntegrationTest {
         assertThat(expectedLetterForAll).isEqualTo('{');// Verify we've seen all letters
     }
 
+    private List<Contact> walkWithCursor (String firstPageUrl) {
+        List<Contact> walked = new ArrayList<>();
+        String url = firstPageUrl + "&total=none";
+        while (true) {
+            ResponseEntity<ContactsResponse> response = restTemplate.getForEntity(url, ContactsResponse.class);
+            assertSearchResponse(response, -1);
+            walked.addAll(response.getBody().getContacts());
+            if (response.getBody().getNextCursor() == null) {
+                return walked;
+            }
+            url = firstPageUrl + "&cursor=" + response.getBody().getNextCursor();
+        }
+    }
+
     private char validatePageResults (List<Contact> pageContacts, char expectedLetter) {
         for (Contact contact : pageContacts) {
             String expectedName = "Alice" + expectedLetter;
@@ -334,4 +772,231 @@ public class ContactControllerIT extends BaseIntegrationTest {
         contactRepository.save(new Contact("Bob", "Johnson", "987654321", "Haifa"));
         contactRepository.save(new Contact("Charlie", "Brown", "555666777", "Jerusalem"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void autocomplete_FollowsCreateUpdateAndDelete () {
+        // Given
+        Contact created = restTemplate.postForObject(baseUrl, new Contact("Zebulon", "Quagmire", "111-111-1111", null), Contact.class);
+        String url = baseUrl + "/autocomplete?prefix={prefix}";
+        // When
+        Suggestion[] byFirstName = restTemplate.getForObject(url, Suggestion[].class, "zebu");
+        Suggestion[] byLastName = restTemplate.getForObject(url, Suggestion[].class, "QUAG");
+        restTemplate.put(baseUrl + "/" + created.getId(), atVersionOf(created, new Contact("Zebulon", "Xanadu", "111-111-1111", null)));
+        Suggestion[] afterRename = restTemplate.getForObject(url, Suggestion[].class, "quag");
+        Suggestion[] byNewName = restTemplate.getForObject(url, Suggestion[].class, "zebulon x");
+        restTemplate.delete(baseUrl + "/" + created.getId());
+        Suggestion[] afterDelete = restTemplate.getForObject(url, Suggestion[].class, "zebu");
+        // Then
+        assertThat(byFirstName).containsExactly(new Suggestion(created.getId(), "Zebulon Quagmire"));
+        assertThat(byLastName).containsExactly(new Suggestion(created.getId(), "Zebulon Quagmire"));
+        assertThat(afterRename).isEmpty();
+        assertThat(byNewName).containsExactly(new Suggestion(created.getId(), "Zebulon Xanadu"));
+        assertThat(afterDelete).isEmpty();
+    }
+
+    @Test
+    public void autocomplete_WithLimitAboveMaximum_ReturnsBadRequest () {
+        // When
+        ResponseEntity<String> response = restTemplate.getForEntity(baseUrl + "/autocomplete?prefix=jo&limit=1000", String.class);
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    public void lookupPhone_FollowsPhoneChanges () {
+        // Given
+        Contact contact = contactRepository.save(new Contact("Caller", "Id", "+1 555-010-1234", null));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/merge-patch+json"));
+        String url = baseUrl + "/lookup?phone={phone}&match={match}";
+        // When
+        ContactsResponse exact = restTemplate.getForObject(url, ContactsResponse.class, "+15550101234", "exact");
+        restTemplate.exchange(baseUrl + "/" + contact.getId(), HttpMethod.PATCH, new HttpEntity<>("{\"phone\":\"03-555-4321\"}", headers), Contact.class);
+        ContactsResponse oldSuffix = restTemplate.getForObject(url, ContactsResponse.class, "1234", "suffix");
+        ContactsResponse newSuffix = restTemplate.getForObject(url, ContactsResponse.class, "5554321", "suffix");
+        // Then
+        assertThat(exact.getContacts()).extracting(Contact::getId).containsExactly(contact.getId());
+        assertThat(oldSuffix.getContacts()).isEmpty();
+        assertThat(newSuffix.getContacts()).extracting(Contact::getPhone).containsExactly("03-555-4321");
+    }
+
+    @Test
+    public void lookupPhone_WithoutDigits_ReturnsBadRequest () {
+        // When
+        ResponseEntity<String> response = restTemplate.getForEntity(baseUrl + "/lookup?phone=abc", String.class);
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    public void batchLookup_ReportsEveryRequestedKey () {
+        // Given
+        Contact first = contactRepository.save(new Contact("Batch", "One", "+1 555-010-2000", null));
+        Contact second = contactRepository.save(new Contact("Batch", "Two", "555-010-2001", null));
+        Map<String, List<String>> byIds = Map.of("ids", List.of(first.getId(), "missing-id", second.getId()));
+        Map<String, List<String>> byPhones = Map.of("phones", List.of("+15550102000", "555 010 2001", "555-010-2002"));
+        // When
+        BatchLookupResponse ids = restTemplate.postForObject(baseUrl + "/batch", byIds, BatchLookupResponse.class);
+        BatchLookupResponse phones = restTemplate.postForObject(baseUrl + "/batch", byPhones, BatchLookupResponse.class);
+        // Then
+        assertThat(ids.getMatches()).containsOnlyKeys(first.getId(), second.getId());
+        assertThat(ids.getMatches().get(second.getId())).extracting(Contact::getLastName).containsExactly("Two");
+        assertThat(ids.getMissing()).containsExactly("missing-id");
+        assertThat(phones.getMatches().get("+15550102000")).extracting(Contact::getLastName).containsExactly("One");
+        assertThat(phones.getMatches().get("555 010 2001")).extracting(Contact::getLastName).containsExactly("Two");
+        assertThat(phones.getMissing()).containsExactly("555-010-2002");
+    }
+
+    @Test
+    public void batchLookup_WithoutKeys_ReturnsBadRequest () {
+        // When
+        ResponseEntity<String> response = restTemplate.postForEntity(baseUrl + "/batch", Map.of("ids", List.of()), String.class);
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    public void tenants_SeeOnlyTheirOwnContacts () {
+        // Given
+        Contact acme = exchange(baseUrl, HttpMethod.POST, "acme", new Contact("Ada", "Acme", "555-010-3000", null), Contact.class).getBody();
+        Contact globex = exchange(baseUrl, HttpMethod.POST, "globex", new Contact("Ada", "Globex", "555-010-3000", null), Contact.class).getBody();
+        Contact shared = contactRepository.save(new Contact("Ada", "Default", "555-010-3000", null));
+        // When
+        ContactsResponse acmeList = exchange(baseUrl + "/contacts?query=ada", HttpMethod.GET, "acme", null, ContactsResponse.class).getBody();
+        ContactsResponse globexLookup = exchange(baseUrl + "/lookup?phone=5550103000", HttpMethod.GET, "globex", null, ContactsResponse.class).getBody();
+        Suggestion[] acmeSuggestions = exchange(baseUrl + "/autocomplete?prefix=ada", HttpMethod.GET, "acme", null, Suggestion[].class).getBody();
+        ResponseEntity<Contact> acmeReadsGlobex = exchange(baseUrl + "/" + globex.getId(), HttpMethod.GET, "acme", null, Contact.class);
+        ResponseEntity<Contact> acmeDeletesGlobex = exchange(baseUrl + "/" + globex.getId(), HttpMethod.DELETE, "acme", null, Contact.class);
+        ContactsResponse defaultList = getContacts().getBody();
+        // Then
+        assertThat(acmeList.getContacts()).extracting(Contact::getId).containsExactly(acme.getId());
+        assertThat(globexLookup.getContacts()).extracting(Contact::getId).containsExactly(globex.getId());
+        assertThat(acmeSuggestions).containsExactly(new Suggestion(acme.getId(), "Ada Acme"));
+        assertThat(acmeReadsGlobex.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(acmeDeletesGlobex.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(defaultList.getContacts()).extracting(Contact::getId).containsExactly(shared.getId());
+    }
+
+    @Test
+    public void tenants_WithInvalidTenantHeader_ReturnsBadRequest () {
+        // When
+        ResponseEntity<String> response = exchange(baseUrl + "/contacts", HttpMethod.GET, "Not A Tenant", null, String.class);
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(response.getBody()).contains("Invalid tenant");
+    }
+
+    @Test
+    public void tenants_WithUnknownTenantHeader_ReturnsBadRequest () {
+        // When
+        ResponseEntity<String> response = exchange(baseUrl + "/contacts", HttpMethod.GET, "initech", null, String.class);
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(response.getBody()).contains("Unknown tenant 'initech'");
+    }
+
+    @Test
+    public void sync_ReturnsOnlyTheChangesSinceTheToken () {
+        // Given
+        Contact updated = contactRepository.save(new Contact("John", "Doe", "123-456-7890", "123 Main St"));
+        String token = syncAll(500, new ArrayList<>());
+        Contact created = restTemplate.postForObject(baseUrl, new Contact("Delta", "Sync", "555-010-4000", null), Contact.class);
+        restTemplate.put(baseUrl + "/" + updated.getId(), atVersionOf(updated, new Contact("John", "Synced", "123-456-7890", "123 Main St")));
+        Contact deleted = contactRepository.save(new Contact("Gone", "Soon", "555-010-4001", null));
+        restTemplate.delete(baseUrl + "/" + deleted.getId());
+        // When
+        SyncResponse delta = restTemplate.getForObject(baseUrl + "/sync?token={token}", SyncResponse.class, token);
+        SyncResponse nothingNew = restTemplate.getForObject(baseUrl + "/sync?token={token}", SyncResponse.class, delta.getToken());
+        // Then
+        assertThat(delta.getContacts()).extracting(Contact::getId).containsExactly(created.getId(), updated.getId());
+        assertThat(delta.getContacts().get(1).getLastName()).isEqualTo("Synced");
+        assertThat(delta.getDeleted()).containsExactly(deleted.getId());
+        assertThat(delta.isHasMore()).isFalse();
+        assertThat(nothingNew.getContacts()).isEmpty();
+        assertThat(nothingNew.getDeleted()).isEmpty();
+    }
+
+    @Test
+    public void sync_WithoutToken_PagesThroughEveryContact () {
+        // Given
+        prepareSmallDataForTest();
+        List<SyncResponse> pages = new ArrayList<>();
+        // When
+        syncAll(2, pages);
+        // Then
+        List<Contact> contacts = pages.stream().flatMap(page -> page.getContacts().stream()).toList();
+        assertThat(pages).hasSizeGreaterThanOrEqualTo(2);
+        assertThat(pages).allSatisfy(page -> assertThat(page.getContacts().size() + page.getDeleted().size()).isLessThanOrEqualTo(2));
+        assertThat(contacts).extracting(Contact::getId).doesNotHaveDuplicates();
+        assertThat(contacts).extracting(Contact::getFirstName).containsExactlyInAnyOrder("Alice", "Bob", "Charlie");
+    }
+
+    @Test
+    public void sync_WithInvalidToken_ReturnsBadRequest () {
+        // When
+        ResponseEntity<String> response = restTemplate.getForEntity(baseUrl + "/sync?token=garbage", String.class);
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    public void sync_WithTokenBeyondTheTombstoneRetention_ReturnsGone () {
+        // Given
+        String expired = SyncToken.through(1).encode();
+        // When
+        ResponseEntity<String> response = restTemplate.getForEntity(baseUrl + "/sync?token={token}", String.class, expired);
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.GONE);
+    }
+
+    @Test
+    public void changes_PushesMatchingWritesAsServerSentEvents () throws Exception {
+        // Given
+        HttpRequest subscription = HttpRequest.newBuilder(URI.create(baseUrl + "/changes?query=pushed")).build();
+        HttpResponse<Stream<String>> stream = HttpClient.newHttpClient().send(subscription, HttpResponse.BodyHandlers.ofLines());
+        Iterator<String> lines = stream.body().iterator();
+        // When
+        restTemplate.postForObject(baseUrl, new Contact("Not", "Matching", "555-010-5000", null), Contact.class);
+        Contact pushed = restTemplate.postForObject(baseUrl, new Contact("Pushed", "Contact", "555-010-5001", null), Contact.class);
+        List<String> event = CompletableFuture.supplyAsync( () -> nextEvent(lines)).get(10, TimeUnit.SECONDS);
+        // Then
+        assertThat(stream.headers().firstValue("Content-Type")).hasValueSatisfying(type -> assertThat(type).startsWith("text/event-stream"));
+        assertThat(event.get(0)).isEqualTo("event:created");
+        assertThat(objectMapper.readValue(event.get(1).substring("data:".length()), Contact.class).getId()).isEqualTo(pushed.getId());
+        stream.body().close();
+    }
+
+    @Test
+    public void changes_WithUnknownOverflowPolicy_ReturnsBadRequest () {
+        // When
+        ResponseEntity<String> response = restTemplate.getForEntity(baseUrl + "/changes?overflow=block", String.class);
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    // The event and data lines of the next event, skipping comments and the blank lines between events
+    private static List<String> nextEvent (Iterator<String> lines) {
+        String line = lines.next();
+        while (line.isEmpty() || line.startsWith(":")) {
+            line = lines.next();
+        }
+        return List.of(line, lines.next());
+    }
+
+    // Follows the pages of a sync without a token to its end, returning the token to sync from next time
+    private String syncAll (int limit, List<SyncResponse> pages) {
+        SyncResponse page = restTemplate.getForObject(baseUrl + "/sync?limit={limit}", SyncResponse.class, limit);
+        pages.add(page);
+        while (page.isHasMore()) {
+            page = restTemplate.getForObject(baseUrl + "/sync?token={token}&limit={limit}", SyncResponse.class, page.getToken(), limit);
+            pages.add(page);
+        }
+        return page.getToken();
+    }
+
+    private <T> ResponseEntity<T> exchange (String url, HttpMethod method, String tenant, Object body, Class<T> responseType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Tenant-Id", tenant);
+        return restTemplate.exchange(url, method, new HttpEntity<>(body, headers), responseType);
+    }
+}
@@ -0,0 +1,57 @@
+package com.personal.phonebook.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+
+class ContactMetricsTest {
+
+    private ContactMetrics contactMetrics;
+
+    private PrometheusMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setUp () {
+        meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        contactMetrics = new ContactMetrics();
+        ReflectionTestUtils.setField(contactMetrics, "meterRegistry", meterRegistry);
+    }
+
+    @Test
+    public void record_OperationsWithDifferentTags_AreAllScraped () {
+        // When
+        contactMetrics.record(ContactMetrics.SERVICE,
+                              Tags.of("operation", "searchContacts", "search", "true", "mode", "NGRAM", "sortBy", "firstName"),
+                              () -> "page");
+        contactMetrics.record(ContactMetrics.SERVICE, Tags.of("operation", "getContact", "projected", "false"), () -> "contact");
+        contactMetrics.record(ContactMetrics.SERVICE, Tags.of("operation", "lookupPhone", "match", "EXACT"), () -> "contacts");
+        contactMetrics.record(ContactMetrics.SERVICE, Tags.of("operation", "batchLookup", "key", "id"), () -> "contacts");
+        contactMetrics.record(ContactMetrics.SERVICE, Tags.of("operation", "deleteContact"), () -> {
+        });
+        contactMetrics.record(ContactMetrics.REPOSITORY, Tags.of("operation", "find", "query", "token"), () -> "page");
+
+        // Then
+        String scrape = meterRegistry.scrape();
+        assertThat(scrape).contains("operation=\"searchContacts\"",
+                                    "operation=\"getContact\"",
+                                    "operation=\"lookupPhone\"",
+                                    "operation=\"batchLookup\"",
+                                    "operation=\"deleteContact\"",
+                                    "operation=\"find\"");
+        assertThat(meterRegistry.get(ContactMetrics.SERVICE).tag("operation", "deleteContact").tag("mode", "none").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void record_WithUnknownTagKey_ThrowsException () {
+        assertThatThrownBy( () -> contactMetrics.record(ContactMetrics.SERVICE, Tags.of("operation", "export", "format", "csv"), () -> "rows"))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("format");
+    }
+}
@@ -0,0 +1,43 @@
+package com.personal.phonebook.pagination;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import com.personal.phonebook.model.Contact;
+
+class ContactCursorTest {
+
+    @Test
+    public void encode_ThenDecode_ReturnsSamePosition () {
+        // Given
+        Contact contact = new Contact("John", "Doe", "123-456-7890", "123 Main St");
+        ContactCursor cursor = ContactCursor.after(contact, "lastName", Sort.Direction.DESC);
+        // When
+        ContactCursor decoded = ContactCursor.decode(cursor.encode());
+        // Then
+        assertThat(decoded).isEqualTo(cursor);
+        assertThat(decoded.getSortValue()).isEqualTo("Doe");
+        assertThat(decoded.getId()).isEqualTo(contact.getId());
+    }
+
+    @Test
+    public void encode_WithMissingSortValue_KeepsNull () {
+        // Given
+        Contact contact = new Contact("John", null, "123-456-7890", null);
+        // When
+        ContactCursor decoded = ContactCursor.decode(ContactCursor.after(contact, "address", Sort.Direction.ASC).encode());
+        // Then
+        assertThat(decoded.getSortValue()).isNull();
+        assertThat(decoded.getDirection()).isEqualTo(Sort.Direction.ASC);
+    }
+
+    @Test
+    public void decode_WithGarbage_ThrowsIllegalArgumentException () {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> ContactCursor.decode("not-a-cursor!"));
+        assertThat(exception.getMessage()).isEqualTo("Invalid cursor");
+        assertThrows(IllegalArgumentException.class, () -> ContactCursor.decode("AQ"));
+    }
+}
@@ -0,0 +1,109 @@
+package com.personal.phonebook.push;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.personal.phonebook.event.ContactChangedEvent;
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.repository.ContactFilter;
+import com.personal.phonebook.search.SearchMode;
+import com.personal.phonebook.tenant.Tenant;
+import com.personal.phonebook.tenant.TenantContext;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ContactChangeBroadcasterTest {
+
+    private ContactChangeBroadcaster broadcaster;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private final AtomicInteger closes = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp () {
+        meterRegistry = new SimpleMeterRegistry();
+        broadcaster = new ContactChangeBroadcaster();
+        ReflectionTestUtils.setField(broadcaster, "bufferSize", 16);
+        ReflectionTestUtils.setField(broadcaster, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(broadcaster, "meterRegistry", meterRegistry);
+        broadcaster.init();
+    }
+
+    @Test
+    public void onContactChanged_WithFilteredSubscriber_SendsTheQuerysViewOfTheChange () {
+        // Given
+        List<PushMessage> all = new ArrayList<>();
+        List<PushMessage> smiths = new ArrayList<>();
+        subscribe(ContactFilter.all(), all);
+        subscribe(ContactFilter.matching("smith", SearchMode.NGRAM), smiths);
+        Contact jane = contact("1", "Jane", "Smith");
+        Contact renamed = contact("1", "Jane", "Jones");
+        // When
+        broadcaster.onContactChanged(new ContactChangedEvent(null, jane));
+        broadcaster.onContactChanged(new ContactChangedEvent(jane, renamed));
+        broadcaster.onContactChanged(new ContactChangedEvent(null, contact("2", "Bob", "Brown")));
+        broadcaster.onContactChanged(new ContactChangedEvent(renamed, null));
+        // Then
+        assertThat(all).extracting(PushMessage::getType, PushMessage::getId)
+                       .containsExactly(tuple(PushMessage.Type.CREATED, "1"),
+                                        tuple(PushMessage.Type.UPDATED, "1"),
+                                        tuple(PushMessage.Type.CREATED, "2"),
+                                        tuple(PushMessage.Type.DELETED, "1"));
+        assertThat(smiths).extracting(PushMessage::getType, PushMessage::getId)
+                          .containsExactly(tuple(PushMessage.Type.CREATED, "1"), tuple(PushMessage.Type.DELETED, "1"));
+        assertThat(all.get(1).getData()).contains("\"lastName\":\"Jones\"");
+        assertThat(all.get(3).getData()).isEqualTo("{\"id\":\"1\"}");
+        // the same message instance goes to every subscriber
+        assertThat(smiths.get(0)).isSameAs(all.get(0));
+    }
+
+    @Test
+    public void onContactChanged_InAnotherTenant_IsNotSentAndUnsubscribedSeeNothing () {
+        // Given
+        List<PushMessage> acme = new ArrayList<>();
+        List<PushMessage> gone = new ArrayList<>();
+        TenantContext.runAs(new Tenant("acme", TenantContext.COLLECTION, null, true), () -> subscribe(ContactFilter.all(), acme));
+        broadcaster.unsubscribe(subscribe(ContactFilter.all(), gone));
+        // When
+        broadcaster.onContactChanged(new ContactChangedEvent(null, contact("1", "Jane", "Smith")));
+        // Then
+        assertThat(acme).isEmpty();
+        assertThat(gone).isEmpty();
+        assertThat(meterRegistry.get("phonebook.push.subscribers").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    public void closeAll_ClosesAndUnsubscribesEverySubscriber () {
+        // Given
+        List<PushMessage> received = new ArrayList<>();
+        subscribe(ContactFilter.all(), received);
+        subscribe(ContactFilter.matching("smith", SearchMode.NGRAM), received);
+        // When
+        broadcaster.closeAll();
+        broadcaster.onContactChanged(new ContactChangedEvent(null, contact("1", "Jane", "Smith")));
+        // Then
+        assertThat(closes).hasValue(2);
+        assertThat(received).isEmpty();
+        assertThat(meterRegistry.get("phonebook.push.subscribers").gauge().value()).isZero();
+    }
+
+    private PushSubscriber subscribe (ContactFilter filter, List<PushMessage> received) {
+        return broadcaster.subscribe(filter, OverflowPolicy.DROP_NEWEST, subscriber -> subscriber.drain( () -> true, received::add), closes::incrementAndGet);
+    }
+
+    private static Contact contact (String id, String firstName, String lastName) {
+        Contact contact = new Contact(firstName, lastName, "000-" + id, null);
+        contact.setId(id);
+        return contact;
+    }
+}
@@ -0,0 +1,79 @@
+package com.personal.phonebook.push;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.personal.phonebook.repository.ContactFilter;
+
+class PushSubscriberTest {
+
+    private final AtomicInteger wakeUps = new AtomicInteger();
+
+    private final AtomicInteger drops = new AtomicInteger();
+
+    private final AtomicInteger closes = new AtomicInteger();
+
+    @Test
+    public void offer_WithCoalescePolicy_KeepsLatestMessageOfEveryContact () {
+        // Given
+        PushSubscriber subscriber = subscriber(OverflowPolicy.COALESCE, 2);
+        // When
+        subscriber.offer(message("1", "first"));
+        subscriber.offer(message("2", "second"));
+        subscriber.offer(message("1", "first again"));
+        subscriber.offer(message("3", "third"));
+        // Then
+        assertThat(drainAll(subscriber)).extracting(PushMessage::getData).containsExactly("{\"dropped\":1}", "first again", "third");
+        assertThat(drops).hasValue(1);
+    }
+
+    @Test
+    public void offer_WithDropPolicies_KeepsOldestOrNewestMessages () {
+        // Given
+        PushSubscriber dropOldest = subscriber(OverflowPolicy.DROP_OLDEST, 2);
+        PushSubscriber dropNewest = subscriber(OverflowPolicy.DROP_NEWEST, 2);
+        // When
+        for (String id : List.of("1", "2", "3")) {
+            dropOldest.offer(message(id, id));
+            dropNewest.offer(message(id, id));
+        }
+        // Then
+        assertThat(drainAll(dropOldest)).extracting(PushMessage::getData).containsExactly("{\"dropped\":1}", "2", "3");
+        assertThat(drainAll(dropNewest)).extracting(PushMessage::getData).containsExactly("{\"dropped\":1}", "1", "2");
+    }
+
+    @Test
+    public void drain_StopsWhenNotReadyAndWakesUpOnlyOnEmptyBuffer () {
+        // Given
+        PushSubscriber subscriber = subscriber(OverflowPolicy.DROP_NEWEST, 10);
+        List<PushMessage> sent = new ArrayList<>();
+        subscriber.offer(message("1", "1"));
+        subscriber.offer(message("2", "2"));
+        // When
+        subscriber.drain( () -> sent.size() < 1, sent::add);
+        subscriber.offer(message("3", "3"));
+        subscriber.drain( () -> true, sent::add);
+        // Then
+        assertThat(sent).extracting(PushMessage::getId).containsExactly("1", "2", "3");
+        assertThat(wakeUps).hasValue(1);
+    }
+
+    private PushSubscriber subscriber (OverflowPolicy policy, int capacity) {
+        return new PushSubscriber("default", ContactFilter.all(), policy, capacity, subscriber -> wakeUps.incrementAndGet(), drops::incrementAndGet, closes::incrementAndGet);
+    }
+
+    private static List<PushMessage> drainAll (PushSubscriber subscriber) {
+        List<PushMessage> sent = new ArrayList<>();
+        subscriber.drain( () -> true, sent::add);
+        return sent;
+    }
+
+    private static PushMessage message (String id, String data) {
+        return new PushMessage(PushMessage.Type.UPDATED, id, data);
+    }
+}
@@ -1,14 +1,19 @@
 package com.personal.phonebook.repository;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 
 import com.personal.phonebook.BaseIntegrationTest;
 import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.search.FuzzyNames;
 
 public class ContactRepositoryIT extends BaseIntegrationTest {
 
@@ -96,4 +101,107 @@ public class ContactRepositoryIT extends BaseIntegrationTest {
         assertThat(page1.getContent()).hasSize(2);
         assertThat(page1.getNumber()).isEqualTo(1);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void searchByToken_WithShortQuery_ReturnsSameContactsAsRegexSearch () {
+        // When
+        Page<Contact> byToken = contactRepository.searchByToken("jo", PageRequest.of(0, 10, Sort.by("firstName")));
+        Page<Contact> byRegex = contactRepository.searchContacts("Jo", PageRequest.of(0, 10, Sort.by("firstName")));
+
+        // Then
+        assertThat(byToken.getContent()).extracting(Contact::getId).containsExactlyElementsOf(byRegex.map(Contact::getId));
+        assertThat(byToken.getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    public void searchByTokens_WithLongQuery_ConfirmsSubstringMatch () {
+        // When - "oak a" shares all trigrams with "456 Oak Ave", "oaka" does not occur in any field
+        Page<Contact> matching = contactRepository.searchByTokens(List.of("oak", "ak ", "k a"), "oak a", PageRequest.of(0, 10));
+        Page<Contact> notMatching = contactRepository.searchByTokens(List.of("oak", "aka"), "oaka", PageRequest.of(0, 10));
+
+        // Then
+        assertThat(matching.getContent()).extracting(Contact::getAddress).containsExactly("456 Oak Ave");
+        assertThat(notMatching.getContent()).isEmpty();
+    }
+
+    @Test
+    public void findByPhoneNumber_MatchesTheNumberWhateverItsFormatting () {
+        // Given
+        contactRepository.save(new Contact("Dana", "White", "+1 (555) 010-9999", null));
+        contactRepository.save(new Contact("Eli", "Green", "(555) 010 1234", null));
+
+        // When
+        List<Contact> dashed = contactRepository.findByPhoneNumber("1234567890", 10);
+        List<Contact> spaced = contactRepository.findByPhoneNumber("5550101234", 10);
+        List<Contact> international = contactRepository.findByPhoneNumber("+15550109999", 10);
+
+        // Then
+        assertThat(dashed).extracting(Contact::getFirstName).containsExactly("John");
+        assertThat(spaced).extracting(Contact::getFirstName).containsExactly("Eli");
+        assertThat(international).extracting(Contact::getFirstName).containsExactly("Dana");
+    }
+
+    @Test
+    public void save_WithPhoneNumberOfAnotherContact_ThrowsDuplicateKeyException () {
+        // Given
+        Contact sameNumber = new Contact("Eli", "Green", "(123) 456 7890", null);
+
+        // When + Then
+        assertThatThrownBy( () -> contactRepository.save(sameNumber)).isInstanceOf(DuplicateKeyException.class);
+        assertThat(contactRepository.findByPhoneNumber("1234567890", 10)).extracting(Contact::getFirstName).containsExactly("John");
+    }
+
+    @Test
+    public void findByPhoneSuffix_MatchesNumbersEndingWithTheDigits () {
+        // Given
+        contactRepository.save(new Contact("Dana", "White", "+1 (555) 010-7890", null));
+
+        // When
+        List<Contact> result = contactRepository.findByPhoneSuffix("0987", 10);
+        List<Contact> limited = contactRepository.findByPhoneSuffix("0987", 1);
+
+        // Then
+        assertThat(result).extracting(Contact::getFirstName).containsExactlyInAnyOrder("John", "Dana");
+        assertThat(limited).hasSize(1);
+    }
+
+    @Test
+    public void findFuzzyCandidates_TakesTheContactsSharingTheMostTrigramsFirst () {
+        // Given
+        contactRepository.save(new Contact("Eve", "Johnsen", "555-0101", null));
+
+        // When
+        List<Contact> result = contactRepository.findFuzzyCandidates(List.of(), FuzzyNames.trigrams("Johnson"), 2);
+
+        // Then
+        assertThat(result).extracting(Contact::getLastName).containsExactly("Johnson", "Johnsen");
+        assertThat(result).allSatisfy(contact -> assertThat(contact.getFirstNameKeys()).isNull());
+    }
+
+    @Test
+    public void findByIds_ReturnsTheExistingContactsInOneQuery () {
+        // Given
+        Contact saved = contactRepository.save(new Contact("Dana", "White", "555-0100", null));
+        String johnId = contactRepository.findByPhoneNumber("1234567890", 1).get(0).getId();
+
+        // When
+        List<Contact> result = contactRepository.findByIds(List.of(saved.getId(), "missing", johnId));
+
+        // Then
+        assertThat(result).extracting(Contact::getFirstName).containsExactlyInAnyOrder("Dana", "John");
+        assertThat(result).allSatisfy(contact -> assertThat(contact.getSearchTokens()).isNull());
+    }
+
+    @Test
+    public void findByPhoneNumbers_ReturnsEveryContactWithOneOfTheNumbers () {
+        // Given
+        contactRepository.save(new Contact("Dana", "White", "+1 555-010-9999", null));
+        contactRepository.save(new Contact("Eli", "Green", "555-010-9999", null));
+
+        // When
+        List<Contact> result = contactRepository.findByPhoneNumbers(List.of("+15550109999", "1234567890", "999"));
+
+        // Then
+        assertThat(result).extracting(Contact::getFirstName).containsExactlyInAnyOrder("Dana", "John");
+    }
+}
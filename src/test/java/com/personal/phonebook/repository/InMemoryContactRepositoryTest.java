@@ -0,0 +1,246 @@
+package com.personal.phonebook.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.personal.phonebook.metrics.ContactMetrics;
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.pagination.ContactCursor;
+import com.personal.phonebook.search.FuzzyNames;
+import com.personal.phonebook.search.SearchMode;
+import com.personal.phonebook.search.SearchTokenizer;
+import com.personal.phonebook.sync.ContactChange;
+import com.personal.phonebook.sync.SyncToken;
+import com.personal.phonebook.tenant.Tenant;
+import com.personal.phonebook.tenant.TenantContext;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class InMemoryContactRepositoryTest {
+
+    @TempDir
+    private Path directory;
+
+    private InMemoryContactRepository repository;
+
+    @BeforeEach
+    public void setUp () {
+        repository = open("");
+        repository.saveAll(List.of(contact("1", "John", "Doe", "123 Main St"),
+                                   contact("2", "Jane", "Smith", "456 Oak Ave"),
+                                   contact("3", "Bob", "Johnson", "789 Pine Rd"),
+                                   contact("4", "Alice", null, "012 Elm Blvd")));
+    }
+
+    @Test
+    public void searchByTokens_ConfirmsCandidatesAsSubstrings () {
+        // When
+        Page<Contact> result = repository.searchByTokens(SearchTokenizer.queryTokens("oak av"), "oak av", PageRequest.of(0, 10));
+
+        // Then
+        assertThat(result.getContent()).extracting(Contact::getLastName).containsExactly("Smith");
+        assertThat(result.getContent().get(0).getSearchTokens()).isNull();
+    }
+
+    @Test
+    public void findFuzzyCandidates_ReturnsPhoneticMatchesFirstUpToLimit () {
+        // When
+        List<Contact> soundAlike = repository.findFuzzyCandidates(FuzzyNames.phoneticKeys("Shmit"), FuzzyNames.trigrams("Shmit"), 1);
+        List<Contact> all = repository.findFuzzyCandidates(FuzzyNames.phoneticKeys("Jon"), FuzzyNames.trigrams("Jon"), 10);
+
+        // Then
+        assertThat(soundAlike).extracting(Contact::getLastName).containsExactly("Smith");
+        assertThat(all).extracting(Contact::getId).containsExactlyInAnyOrder("1", "2", "3");
+        assertThat(repository.countContacts(ContactFilter.matching("Smyth", SearchMode.FUZZY), 0)).isEqualTo(1);
+    }
+
+    @Test
+    public void findContacts_WithCursorDescending_ContinuesAfterPositionWithMissingValuesLast () {
+        // Given
+        Sort sort = Sort.by(Sort.Direction.DESC, "lastName").and(Sort.by(Sort.Direction.DESC, "id"));
+        Contact last = repository.findById("1").orElseThrow();
+
+        // When
+        List<Contact> result = repository.findContacts(ContactFilter.all(),
+                                                       ContactCursor.after(last, "lastName", Sort.Direction.DESC),
+                                                       0,
+                                                       sort,
+                                                       10);
+
+        // Then
+        assertThat(result).extracting(Contact::getId).containsExactly("4");
+    }
+
+    @Test
+    public void countContacts_WithRegexQuery_CountsMatchesUpToLimit () {
+        // When
+        long all = repository.countContacts(ContactFilter.matching("o", SearchMode.REGEX), 0);
+        long bounded = repository.countContacts(ContactFilter.matching("o", SearchMode.REGEX), 2);
+
+        // Then
+        assertThat(all).isEqualTo(3);
+        assertThat(bounded).isEqualTo(2);
+    }
+
+    @Test
+    public void updateFields_WithStaleVersion_LeavesContactUnchanged () {
+        // When
+        Optional<Contact> stale = repository.updateFields("2", 5L, Map.of("lastName", "Jones"), List.of());
+        Optional<Contact> current = repository.updateFields("2", 0L, Map.of("lastName", "Jones"), SearchTokenizer.tokenize("Jones"));
+
+        // Then
+        assertThat(stale).isEmpty();
+        assertThat(current).map(Contact::getLastName).contains("Smith");
+        assertThat(repository.findById("2")).map(Contact::getVersion).contains(1L);
+        assertThat(repository.searchByToken("jon", PageRequest.of(0, 10)).getContent()).extracting(Contact::getId).containsExactly("2");
+    }
+
+    @Test
+    public void save_WithStaleVersionOrExistingId_Fails () {
+        // Given
+        Contact stale = repository.findById("1").orElseThrow();
+        stale.setVersion(7L);
+
+        // Then
+        assertThrows(OptimisticLockingFailureException.class, () -> repository.save(stale));
+        assertThrows(DuplicateKeyException.class, () -> repository.insert(contact("1", "Other", "Person", null)));
+    }
+
+    @Test
+    public void bulkInsert_WithDuplicateIds_ReportsThemAndInsertsTheRest () {
+        // When
+        Map<Integer, String> failures = repository.bulkInsert(List.of(contact("5", "Carol", "White", null), contact("1", "Dup", "Licate", null)));
+
+        // Then
+        assertThat(failures).containsOnlyKeys(1);
+        assertThat(repository.count()).isEqualTo(5);
+    }
+
+    @Test
+    public void findContacts_InAnotherTenant_SeesOnlyThatTenantsContacts () {
+        // Given
+        Tenant acme = new Tenant("acme", TenantContext.COLLECTION, null, true);
+        TenantContext.runAs(acme, () -> repository.save(contact("5", "John", "Acme", null)));
+
+        // When
+        List<Contact> acmeContacts = TenantContext.callAs(acme,
+                                                          () -> repository.findContacts(ContactFilter.all(), null, 0, Sort.by("firstName"), 10));
+        List<Contact> defaultContacts = repository.findContacts(ContactFilter.all(), null, 0, Sort.by("firstName"), 10);
+
+        // Then
+        assertThat(acmeContacts).extracting(Contact::getId).containsExactly("5");
+        assertThat(defaultContacts).extracting(Contact::getId).containsExactly("4", "3", "2", "1");
+        assertThat(TenantContext.callAs(acme, () -> repository.findById("1"))).isEmpty();
+        assertThat(TenantContext.callAs(acme, () -> repository.countContacts(ContactFilter.all(), 0))).isEqualTo(1);
+    }
+
+    @Test
+    public void findChanges_AfterToken_ReturnsWritesAndDeletionsSinceInOrder () {
+        // Given
+        List<ContactChange> initial = repository.findChanges(SyncToken.START, 10);
+        SyncToken token = SyncToken.after(initial.get(initial.size() - 1));
+        repository.updateFields("2", 0L, Map.of("lastName", "Jones"), SearchTokenizer.tokenize("Jones"));
+        repository.deleteContactById("3");
+
+        // When
+        List<ContactChange> changes = repository.findChanges(token, 10);
+        List<ContactChange> firstOnly = repository.findChanges(token, 1);
+
+        // Then
+        assertThat(initial).extracting(ContactChange::getId).containsExactly("1", "2", "3", "4");
+        assertThat(changes).extracting(ContactChange::getId, ContactChange::isDeleted).containsExactly(tuple("2", false), tuple("3", true));
+        assertThat(changes.get(0).getContact().getLastName()).isEqualTo("Jones");
+        assertThat(firstOnly).extracting(ContactChange::getId).containsExactly("2");
+        assertThat(repository.changeHorizon()).isLessThanOrEqualTo(token.getSequence());
+    }
+
+    @Test
+    public void init_WithLoggedWritesAndCutOffEntry_RestoresLastWrittenState () throws IOException {
+        // Given
+        InMemoryContactRepository persistent = open(directory.toString());
+        persistent.save(contact("1", "John", "Doe", null));
+        persistent.save(contact("2", "Jane", "Smith", null));
+        persistent.updateFields("1", 0L, Map.of("lastName", "Dean"), SearchTokenizer.tokenize("John", "Dean"));
+        persistent.deleteContactById("2");
+        // a crash in the middle of an append, without the shutdown snapshot
+        Files.writeString(directory.resolve("contacts.log"), "{\"contact\":{\"id\":\"3\"", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        // When
+        InMemoryContactRepository restarted = open(directory.toString());
+
+        // Then
+        assertThat(restarted.findAll()).extracting(Contact::getId, Contact::getLastName, Contact::getVersion)
+                                       .containsExactly(tuple("1", "Dean", 1L));
+        assertThat(restarted.searchByToken("de", PageRequest.of(0, 10)).getContent()).hasSize(1);
+    }
+
+    @Test
+    public void init_AfterCrashBetweenRotationAndSnapshot_ReplaysBothLogs () {
+        // Given
+        InMemoryContactRepository persistent = open(directory.toString());
+        persistent.save(contact("1", "John", "Doe", null));
+        persistent.save(contact("2", "Jane", "Smith", null));
+        ContactJournal journal = (ContactJournal) ReflectionTestUtils.getField(persistent, "journal");
+        // a snapshot that never got written after the log was set aside
+        journal.rotate();
+        persistent.updateFields("1", 0L, Map.of("lastName", "Dean"), SearchTokenizer.tokenize("John", "Dean"));
+
+        // When
+        InMemoryContactRepository restarted = open(directory.toString());
+
+        // Then
+        assertThat(restarted.findAll()).extracting(Contact::getId, Contact::getLastName).containsExactly(tuple("1", "Dean"), tuple("2", "Smith"));
+        assertThat(directory.resolve("contacts.log.previous")).doesNotExist();
+    }
+
+    @Test
+    public void close_WritesSnapshotAndEmptiesLog () throws IOException {
+        // Given
+        InMemoryContactRepository persistent = open(directory.toString());
+        persistent.save(contact("1", "John", "Doe", null));
+
+        // When
+        persistent.close();
+
+        // Then
+        assertThat(Files.size(directory.resolve("contacts.log"))).isZero();
+        assertThat(open(directory.toString()).findById("1")).map(Contact::getFirstName).contains("John");
+    }
+
+    private static InMemoryContactRepository open (String directory) {
+        ContactMetrics contactMetrics = new ContactMetrics();
+        ReflectionTestUtils.setField(contactMetrics, "meterRegistry", new SimpleMeterRegistry());
+        InMemoryContactRepository repository = new InMemoryContactRepository();
+        ReflectionTestUtils.setField(repository, "contactMetrics", contactMetrics);
+        ReflectionTestUtils.setField(repository, "directory", directory);
+        ReflectionTestUtils.setField(repository, "snapshotAfter", 1000L);
+        repository.init();
+        return repository;
+    }
+
+    private static Contact contact (String id, String firstName, String lastName, String address) {
+        Contact contact = new Contact(firstName, lastName, "000-" + id, address);
+        contact.setId(id);
+        return contact;
+    }
+}
@@ -0,0 +1,207 @@
+package com.personal.phonebook.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import com.personal.phonebook.metrics.ContactMetrics;
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.search.SearchTokenizer;
+import com.personal.phonebook.tenant.Tenant;
+import com.personal.phonebook.tenant.TenantContext;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MappedContactRepositoryTest {
+
+    @TempDir
+    private Path directory;
+
+    private MappedContactRepository repository;
+
+    @BeforeEach
+    public void setUp () {
+        repository = open(directory);
+        repository.saveAll(List.of(contact("1", "John", "Doe", "123 Main St"),
+                                   contact("2", "Jane", "Smith", "456 Oak Ave"),
+                                   contact("3", "Bob", "Johnson", "789 Pine Rd")));
+    }
+
+    @AfterEach
+    public void tearDown () {
+        repository.close();
+    }
+
+    @Test
+    public void init_AfterRestart_RestoresLastWrittenStateAndIndexes () {
+        // Given
+        repository.updateFields("1", 0L, Map.of("lastName", "Dean"), SearchTokenizer.tokenize("John", "Dean"));
+        repository.deleteContactById("2");
+        repository.close();
+
+        // When
+        repository = open(directory);
+
+        // Then
+        assertThat(repository.findAll(Sort.by("lastName"))).extracting(Contact::getId, Contact::getLastName, Contact::getVersion)
+                                                           .containsExactly(tuple("1", "Dean", 1L), tuple("3", "Johnson", 0L));
+        assertThat(repository.searchByToken("de", PageRequest.of(0, 10)).getContent()).extracting(Contact::getId).containsExactly("1");
+    }
+
+    @Test
+    public void init_WithRecordCutOffByCrash_DropsOnlyThatRecord () throws IOException {
+        // Given
+        repository.close();
+        Path segment = segments().get(0);
+        long end;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            end = 0;
+            while (channel.read(header.clear(), end) == 4 && header.getInt(0) != 0) {
+                end += ContactRecordCodec.HEADER_BYTES + header.getInt(0);
+            }
+            // a length written before a crash took the rest of the record
+            channel.write(ByteBuffer.allocate(4).putInt(0, 200), end);
+        }
+
+        // When
+        repository = open(directory);
+        repository.save(contact("4", "Alice", "White", null));
+        repository.close();
+        repository = open(directory);
+
+        // Then
+        assertThat(repository.findAll()).extracting(Contact::getId).containsExactly("1", "2", "3", "4");
+    }
+
+    @Test
+    public void init_WithRecordCutOffBeforeItsLength_ClearsTheRestOfTheRecord () throws IOException {
+        // Given
+        repository.close();
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            long end = 0;
+            while (channel.read(header.clear(), end) == 4 && header.getInt(0) != 0) {
+                end += ContactRecordCodec.HEADER_BYTES + header.getInt(0);
+            }
+            // the checksum and body written before a crash took the length
+            ByteBuffer garbage = ByteBuffer.allocate((int) (channel.size() - end - Integer.BYTES));
+            Arrays.fill(garbage.array(), (byte) 0x55);
+            channel.write(garbage, end + Integer.BYTES);
+        }
+
+        // When
+        repository = open(directory);
+        repository.saveAll(IntStream.range(0, 100).mapToObj(i -> contact("bulk-" + i, "First", "Last", null)).toList());
+        repository.close();
+        repository = open(directory);
+
+        // Then
+        assertThat(segments()).hasSizeGreaterThan(1);
+        assertThat(repository.count()).isEqualTo(103);
+    }
+
+    @Test
+    public void compact_WithMostlyOverwrittenSegments_ReclaimsThemAndKeepsLiveContacts () throws IOException {
+        // Given
+        repository.saveAll(IntStream.range(0, 50).mapToObj(i -> contact("bulk-" + i, "First", "Last", null)).toList());
+        for (int round = 0; round < 20; round++) {
+            repository.saveAll(repository.findAllById(IntStream.range(0, 50).mapToObj(i -> "bulk-" + i).toList()));
+        }
+        repository.deleteContactById("2");
+        int before = segments().size();
+
+        // When
+        int compacted = repository.compact();
+        repository.close();
+        repository = open(directory);
+
+        // Then
+        assertThat(compacted).isPositive();
+        assertThat(segments()).hasSizeLessThan(before);
+        assertThat(repository.count()).isEqualTo(52);
+        assertThat(repository.findById("2")).isEmpty();
+        assertThat(repository.findById("1")).map(Contact::getFirstName).contains("John");
+    }
+
+    @Test
+    public void deleteAll_RemovesEarlierSegments () throws IOException {
+        // Given
+        repository.saveAll(IntStream.range(0, 100).mapToObj(i -> contact("bulk-" + i, "First", "Last", null)).toList());
+
+        // When
+        repository.deleteAll();
+        repository.save(contact("5", "Carol", "White", null));
+        repository.close();
+        repository = open(directory);
+
+        // Then
+        assertThat(segments()).hasSize(1);
+        assertThat(repository.findAll()).extracting(Contact::getId).containsExactly("5");
+    }
+
+    private List<Path> segments () throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    @Test
+    public void init_AfterRestart_KeepsContactsInTheirTenant () {
+        // Given
+        Tenant acme = new Tenant("acme", TenantContext.COLLECTION, null, true);
+        TenantContext.runAs(acme, () -> repository.save(contact("4", "Johnny", "Acme", null)));
+        repository.close();
+
+        // When
+        repository = open(directory);
+
+        // Then
+        assertThat(repository.searchByToken("jo", PageRequest.of(0, 10)).getContent()).extracting(Contact::getId).containsExactly("1", "3");
+        assertThat(TenantContext.callAs(acme, () -> repository.searchByToken("jo", PageRequest.of(0, 10)).getContent()))
+                    .extracting(Contact::getId, Contact::getTenantId)
+                    .containsExactly(tuple("4", "acme"));
+        assertThat(repository.findById("4")).isEmpty();
+    }
+
+    private static MappedContactRepository open (Path directory) {
+        ContactMetrics contactMetrics = new ContactMetrics();
+        ReflectionTestUtils.setField(contactMetrics, "meterRegistry", new SimpleMeterRegistry());
+        MappedContactRepository repository = new MappedContactRepository();
+        ReflectionTestUtils.setField(repository, "contactMetrics", contactMetrics);
+        ReflectionTestUtils.setField(repository, "directory", directory.toString());
+        ReflectionTestUtils.setField(repository, "segmentSize", DataSize.ofKilobytes(4));
+        ReflectionTestUtils.setField(repository, "compactionThreshold", 0.5);
+        ReflectionTestUtils.setField(repository, "compactionInterval", Duration.ofHours(1));
+        repository.init();
+        return repository;
+    }
+
+    private static Contact contact (String id, String firstName, String lastName, String address) {
+        Contact contact = new Contact(firstName, lastName, "000-" + id, address);
+        contact.setId(id);
+        return contact;
+    }
+}
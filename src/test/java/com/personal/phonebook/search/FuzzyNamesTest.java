@@ -0,0 +1,57 @@
+package com.personal.phonebook.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.personal.phonebook.model.Contact;
+
+class FuzzyNamesTest {
+
+    @Test
+    public void keys_HoldPhoneticCodesAndPaddedTrigramsOfEveryWord () {
+        assertThat(FuzzyNames.keys("Jon")).containsExactly("#JN", "#AN", "$$j", "$jo", "jon", "on$", "n$$");
+        assertThat(FuzzyNames.keys(null)).isEmpty();
+    }
+
+    @Test
+    public void phoneticKeys_OfSpellingsThatSoundAlike_Intersect () {
+        assertThat(FuzzyNames.phoneticKeys("Shmit")).containsAnyElementsOf(FuzzyNames.phoneticKeys("Smith"));
+        assertThat(FuzzyNames.phoneticKeys("Jon")).containsAnyElementsOf(FuzzyNames.phoneticKeys("John"));
+    }
+
+    @Test
+    public void editDistance_CountsTranspositionsAsOneEdit () {
+        assertThat(FuzzyNames.editDistance("jon", "john")).isEqualTo(1);
+        assertThat(FuzzyNames.editDistance("jhon", "john")).isEqualTo(1);
+        assertThat(FuzzyNames.editDistance("smith", "smith")).isZero();
+        assertThat(FuzzyNames.editDistance("", "ann")).isEqualTo(3);
+    }
+
+    @Test
+    public void distance_MatchesEveryQueryWordToSomeName () {
+        // Given
+        Contact john = new Contact("John", "Smith", "555", null);
+        // Then
+        assertThat(FuzzyNames.distance("jon").applyAsInt(john)).isEqualTo(1);
+        assertThat(FuzzyNames.distance("Shmit").applyAsInt(john)).isEqualTo(2);
+        assertThat(FuzzyNames.distance("jhon smyth").applyAsInt(john)).isEqualTo(2);
+        assertThat(FuzzyNames.distance("jon baker").applyAsInt(john)).isEqualTo(-1);
+        assertThat(FuzzyNames.distance("jo").applyAsInt(john)).isEqualTo(-1);
+    }
+
+    @Test
+    public void rank_OrdersClosestFirstAndKeepsOrderOfTies () {
+        // Given
+        Contact jon = new Contact("Jon", "Baker", "1", null);
+        Contact john = new Contact("John", "Adams", "2", null);
+        Contact joan = new Contact("Joan", "Clark", "3", null);
+        Contact mary = new Contact("Mary", "Jones", "4", null);
+        // When
+        List<Contact> ranked = FuzzyNames.rank("jon", List.of(joan, mary, john, jon));
+        // Then
+        assertThat(ranked).containsExactly(jon, joan, john);
+    }
+}
@@ -0,0 +1,70 @@
+package com.personal.phonebook.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.personal.phonebook.controller.response.Suggestion;
+
+class NameTrieTest {
+
+    private NameTrie trie;
+
+    @BeforeEach
+    public void setUp () {
+        trie = new NameTrie();
+        trie.put(new Suggestion("1", "John Doe"));
+        trie.put(new Suggestion("2", "Johanna Smith"));
+        trie.put(new Suggestion("3", "Mary Ann Johnson"));
+        trie.put(new Suggestion("4", "Jo"));
+    }
+
+    @Test
+    public void find_MatchesTheStartOfEveryWordCaseInsensitively () {
+        // When
+        List<Suggestion> result = trie.find("JOH", 10);
+        // Then
+        assertThat(result).extracting(Suggestion::getId).containsExactly("2", "1", "3");
+    }
+
+    @Test
+    public void find_WithLimit_ReturnsShorterKeysFirstWithoutDuplicates () {
+        // Given
+        trie.put(new Suggestion("5", "Jo Jo"));
+        // When
+        List<Suggestion> result = trie.find("jo", 2);
+        // Then
+        assertThat(result).extracting(Suggestion::getId).containsExactly("4", "5");
+    }
+
+    @Test
+    public void find_AcrossWords_MatchesTheRestOfTheName () {
+        assertThat(trie.find("ann jo", 10)).extracting(Suggestion::getId).containsExactly("3");
+        assertThat(trie.find("ann x", 10)).isEmpty();
+    }
+
+    @Test
+    public void remove_DropsTheSuggestionAndPrunesItsNodes () {
+        // Given
+        int nodes = trie.nodeCount();
+        long bytes = trie.estimatedBytes();
+        trie.put(new Suggestion("6", "Zed Quill"));
+        // When
+        trie.remove("6", "Zed Quill");
+        // Then
+        assertThat(trie.find("ze", 10)).isEmpty();
+        assertThat(trie.size()).isEqualTo(4);
+        assertThat(trie.nodeCount()).isEqualTo(nodes);
+        assertThat(trie.estimatedBytes()).isEqualTo(bytes);
+    }
+
+    @Test
+    public void displayName_JoinsThePresentNames () {
+        assertThat(NameTrie.displayName(" John ", null)).isEqualTo("John");
+        assertThat(NameTrie.displayName(null, "Doe")).isEqualTo("Doe");
+        assertThat(NameTrie.displayName("", " ")).isNull();
+    }
+}
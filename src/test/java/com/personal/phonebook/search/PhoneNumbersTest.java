@@ -0,0 +1,32 @@
+package com.personal.phonebook.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class PhoneNumbersTest {
+
+    @Test
+    public void normalize_KeepsOnlyDigits () {
+        assertThat(PhoneNumbers.normalize("(123) 456-7890")).isEqualTo("1234567890");
+        assertThat(PhoneNumbers.normalize("123.456.7890 ")).isEqualTo("1234567890");
+    }
+
+    @Test
+    public void normalize_WithCountryCode_ReturnsE164 () {
+        assertThat(PhoneNumbers.normalize(" +1 (555) 010-9999")).isEqualTo("+15550109999");
+        assertThat(PhoneNumbers.normalize("00 972 3 555 4321")).isEqualTo("+97235554321");
+    }
+
+    @Test
+    public void normalize_WithoutDigits_ReturnsNull () {
+        assertThat(PhoneNumbers.normalize("n/a")).isNull();
+        assertThat(PhoneNumbers.normalize(null)).isNull();
+    }
+
+    @Test
+    public void reversed_ReturnsTheDigitsBackToFront () {
+        assertThat(PhoneNumbers.reversed("+1 555-0123")).isEqualTo("32105551");
+        assertThat(PhoneNumbers.reversed("-")).isNull();
+    }
+}
@@ -0,0 +1,73 @@
+package com.personal.phonebook.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.personal.phonebook.model.Contact;
+
+class SearchTokenizerTest {
+
+    @Test
+    public void tokenize_ReturnsLowerCasedBigramsAndTrigrams () {
+        // When
+        List<String> tokens = SearchTokenizer.tokenize("John");
+        // Then
+        assertThat(tokens).containsExactlyInAnyOrder("jo", "oh", "hn", "joh", "ohn");
+    }
+
+    @Test
+    public void tokenize_Contact_CoversAllSearchableFieldsAndSkipsMissingOnes () {
+        // Given
+        Contact contact = new Contact("Al", null, "12", "Oak");
+        // When
+        List<String> tokens = SearchTokenizer.tokenize(contact);
+        // Then
+        assertThat(tokens).containsExactlyInAnyOrder("al", "12", "oa", "ak", "oak");
+    }
+
+    @Test
+    public void queryTokens_WithShortQuery_ReturnsWholeQuery () {
+        assertThat(SearchTokenizer.queryTokens("ITH")).containsExactly("ith");
+    }
+
+    @Test
+    public void queryTokens_WithLongQuery_ReturnsDistinctTrigrams () {
+        assertThat(SearchTokenizer.queryTokens("Ananas")).containsExactly("ana", "nan", "nas");
+    }
+
+    @Test
+    public void queryTokens_AreAlwaysContainedInTokensOfMatchingValue () {
+        // Given
+        List<String> tokens = SearchTokenizer.tokenize("456 Oak Ave");
+        // Then
+        assertThat(tokens).containsAll(SearchTokenizer.queryTokens("oak a"));
+        assertThat(tokens).containsAll(SearchTokenizer.queryTokens("ak"));
+    }
+
+    @Test
+    public void supports_RejectsSingleCharactersAndRegexSyntax () {
+        assertThat(SearchTokenizer.supports("jo")).isTrue();
+        assertThat(SearchTokenizer.supports("123-456")).isTrue();
+        assertThat(SearchTokenizer.supports("j")).isFalse();
+        assertThat(SearchTokenizer.supports("^jo")).isFalse();
+        assertThat(SearchTokenizer.supports("j.hn")).isFalse();
+        assertThat(SearchTokenizer.supports(null)).isFalse();
+        // full-width forms fold into regex syntax
+        assertThat(SearchTokenizer.supports("\uFF08ab")).isFalse();
+        assertThat(SearchTokenizer.supports("j\uFF0Ehn")).isFalse();
+    }
+
+    @Test
+    public void tokens_AreFoldedSoThatAccentsAndCaseDoNotMatter () {
+        // Given
+        List<String> tokens = SearchTokenizer.tokenize("Zo\u00EB");
+        // Then
+        assertThat(tokens).containsExactlyInAnyOrder("zo", "oe", "zoe");
+        assertThat(SearchTokenizer.queryTokens("ZO\u00CB")).containsExactly("zoe");
+        // a letter and its combining mark are a single character to search for
+        assertThat(SearchTokenizer.supports("e\u0301")).isFalse();
+    }
+}
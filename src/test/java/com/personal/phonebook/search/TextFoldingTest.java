@@ -0,0 +1,50 @@
+package com.personal.phonebook.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+class TextFoldingTest {
+
+    @Test
+    public void fold_StripsAccentsAndFoldsCase () {
+        assertThat(TextFolding.fold("José Müller")).isEqualTo("jose muller");
+        assertThat(TextFolding.fold("ÅNGSTRÖM")).isEqualTo("angstrom");
+        // decomposed input folds like the precomposed one
+        assertThat(TextFolding.fold("Jose\u0301")).isEqualTo("jose");
+    }
+
+    @Test
+    public void fold_ReplacesCompatibilityCharactersAndFoldsSpecialCases () {
+        assertThat(TextFolding.fold("Straße")).isEqualTo("strasse");
+        assertThat(TextFolding.fold("ＡＢＣ１２")).isEqualTo("abc12");
+        assertThat(TextFolding.fold("ﬁle")).isEqualTo("file");
+        assertThat(TextFolding.fold(null)).isNull();
+    }
+
+    @Test
+    public void foldPattern_FoldsLiteralsAndKeepsEscapes () {
+        assertThat(TextFolding.foldPattern("^Jos[ÉE]\\D\\p{Lu}\\PL")).isEqualTo("^jos[ee]\\D\\p{Lu}\\PL");
+        assertThat(TextFolding.foldPattern("Trailing\\")).isEqualTo("trailing\\");
+    }
+
+    @Test
+    public void foldPattern_MatchesFoldedValues () {
+        // Given
+        Pattern pattern = Pattern.compile(TextFolding.foldPattern("JOSÉ\\s+m"));
+        // Then
+        assertThat(pattern.matcher(TextFolding.fold("Jose Müller")).find()).isTrue();
+    }
+
+    @Test
+    public void foldPattern_QuotesLiteralsThatFoldIntoRegexSyntax () {
+        // Given
+        Pattern pattern = Pattern.compile(TextFolding.foldPattern("\uFF08AB\uFF0E"));
+        // Then
+        assertThat(pattern.matcher("(ab.").find()).isTrue();
+        assertThat(pattern.matcher("(abc").find()).isFalse();
+        assertThat(TextFolding.foldPattern("^\uFF08Ab")).isEqualTo("^\\Q(\\Eab");
+    }
+}
@@ -0,0 +1,135 @@
+package com.personal.phonebook.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.personal.phonebook.controller.request.ContactExportRequest;
+import com.personal.phonebook.export.ExportFormat;
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.repository.ContactFilter;
+import com.personal.phonebook.repository.ContactRepository;
+import com.personal.phonebook.search.SearchMode;
+
+@ExtendWith(MockitoExtension.class)
+class ContactExportServiceTest {
+
+    @Mock
+    private ContactRepository contactRepository;
+
+    @Spy
+    private ContactService contactService;
+
+    @Spy
+    private ObjectMapper objectMapper;
+
+    @InjectMocks
+    private ContactExportService contactExportService;
+
+    @BeforeEach
+    public void setUp () {
+        ReflectionTestUtils.setField(contactExportService, "batchSize", 500);
+        ReflectionTestUtils.setField(contactService, "searchMode", SearchMode.NGRAM);
+    }
+
+    @Test
+    public void exportContacts_AsNdjson_WritesOneContactPerLine () throws IOException {
+        // Given
+        Contact john = new Contact("John", "Doe", "123-456-7890", "123 Main St");
+        Contact jane = new Contact("Jane", null, "222", null);
+        when(contactRepository.streamContacts(ContactFilter.all(), Sort.unsorted(), 500)).thenReturn(Stream.of(john, jane));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // When
+        long exported = contactExportService.exportContacts(request(null, "ndjson", null), out);
+        // Then
+        assertThat(exported).isEqualTo(2);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n", -1);
+        assertThat(lines).hasSize(3);
+        assertThat(lines[2]).isEmpty();
+        Contact first = objectMapper.readValue(lines[0], Contact.class);
+        assertThat(first.getId()).isEqualTo(john.getId());
+        assertThat(first.getFirstName()).isEqualTo("John");
+        assertThat(lines[1]).doesNotContain("searchTokens");
+        assertThat(objectMapper.readValue(lines[1], Contact.class).getFirstName()).isEqualTo("Jane");
+    }
+
+    @Test
+    public void exportContacts_AsCsv_WritesHeaderAndRows () throws IOException {
+        // Given
+        Contact john = new Contact("John", "Doe", "123-456-7890", "123 Main St, Apt 4");
+        Contact jane = new Contact("Jane", null, "222", null);
+        Sort sort = Sort.by(Sort.Direction.DESC, "lastName").and(Sort.by(Sort.Direction.DESC, "id"));
+        when(contactRepository.streamContacts(ContactFilter.matching("doe", SearchMode.NGRAM), sort, 500)).thenReturn(Stream.of(john, jane));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // When
+        long exported = contactExportService.exportContacts(new ContactExportRequest("doe", null, "CSV", "desc", "lastName"), out);
+        // Then
+        assertThat(exported).isEqualTo(2);
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("id,firstName,lastName,phone,address\n" + john.getId()
+                    + ",John,Doe,123-456-7890,\"123 Main St, Apt 4\"\n" + jane.getId() + ",Jane,,222,\n");
+    }
+
+    @Test
+    public void exportContacts_ClosesTheCursor () throws IOException {
+        // Given
+        boolean[] closed = { false };
+        when(contactRepository.streamContacts(any(), any(), eq(500))).thenReturn(Stream.<Contact> empty().onClose( () -> closed[0] = true));
+        // When
+        long exported = contactExportService.exportContacts(request(null, "ndjson", null), new ByteArrayOutputStream());
+        // Then
+        assertThat(exported).isZero();
+        assertThat(closed[0]).isTrue();
+    }
+
+    @Test
+    public void validateExportInput_WithInvalidFormat_ThrowsException () {
+        // When & Then
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                                                          () -> contactExportService.validateExportInput(request(null, "xml", null)));
+        assertThat(exception.getMessage()).startsWith("Invalid export format 'xml'");
+        verifyNoInteractions(contactRepository);
+    }
+
+    @Test
+    public void validateExportInput_WithTextSearch_ThrowsException () {
+        // Given
+        ContactExportRequest request = new ContactExportRequest("john", "text", "ndjson", "ASC", null);
+        // When & Then
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> contactExportService.validateExportInput(request));
+        assertThat(exception.getMessage()).isEqualTo("Full-text search is not supported for export");
+    }
+
+    @Test
+    public void validateExportInput_WithInvalidSortField_ThrowsException () {
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> contactExportService.validateExportInput(request(null, "csv", "phone")));
+    }
+
+    @Test
+    public void validateExportInput_ResolvesFormatIgnoringCase () {
+        // When & Then
+        assertThat(contactExportService.validateExportInput(request("doe", "Csv", "firstName"))).isEqualTo(ExportFormat.CSV);
+    }
+
+    private ContactExportRequest request (String query, String format, String sortBy) {
+        return new ContactExportRequest(query, null, format, "ASC", sortBy);
+    }
+}
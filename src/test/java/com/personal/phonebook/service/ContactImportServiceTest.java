@@ -0,0 +1,138 @@
+package com.personal.phonebook.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.personal.phonebook.controller.response.ImportResponse;
+import com.personal.phonebook.event.ContactsImportedEvent;
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.repository.ContactRepository;
+
+@ExtendWith(MockitoExtension.class)
+class ContactImportServiceTest {
+
+    @Mock
+    private ContactRepository contactRepository;
+
+    @Spy
+    private ContactService contactService;
+
+    @Spy
+    private ObjectMapper objectMapper;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private ContactImportService contactImportService;
+
+    private final List<List<String>> insertedBatches = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp () {
+        ReflectionTestUtils.setField(contactImportService, "batchSize", 2);
+        ReflectionTestUtils.setField(contactImportService, "maxReportedErrors", 10);
+        lenient().when(contactRepository.bulkInsert(anyList())).thenAnswer(invocation -> {
+            List<Contact> batch = invocation.getArgument(0);
+            insertedBatches.add(batch.stream().map(Contact::getFirstName).toList());
+            return Map.of();
+        });
+    }
+
+    @Test
+    public void importNdjson_WritesValidRowsInBatchesAndReportsInvalidOnes () {
+        // Given
+        String body = """
+                    {"firstName":"John","lastName":"Doe","phone":"123-456-7890"}
+                    {"firstName":"","phone":"111"}
+
+                    {"firstName":"Jane","phone":"222"}
+                    {not json}
+                    {"firstName":"Bob","phone":"333","address":"Oak Ave"}
+                    """;
+        // When
+        ImportResponse response = contactImportService.importNdjson(stream(body));
+        // Then
+        assertThat(response.getReceived()).isEqualTo(5);
+        assertThat(response.getImported()).isEqualTo(3);
+        assertThat(response.getFailed()).isEqualTo(2);
+        assertThat(response.getErrors()).extracting(ImportResponse.RowError::getRow).containsExactly(2L, 4L);
+        assertThat(response.getErrors().get(0).getMessage()).isEqualTo("First name is mandatory");
+        assertThat(insertedBatches).containsExactly(List.of("John", "Jane"), List.of("Bob"));
+    }
+
+    @Test
+    public void importCsv_MapsHeaderColumnsAndReportsInvalidRows () {
+        // Given
+        String body = """
+                    firstName,lastName,phone,address
+                    John,Doe,123-456-7890,"123 Main St, Springfield"
+                    Jane,,,
+                    Bob,Johnson,333,
+                    """;
+        // When
+        ImportResponse response = contactImportService.importCsv(stream(body));
+        // Then
+        assertThat(response.getReceived()).isEqualTo(3);
+        assertThat(response.getImported()).isEqualTo(2);
+        assertThat(response.getErrors()).extracting(ImportResponse.RowError::getMessage).containsExactly("Phone number is mandatory");
+        assertThat(response.getErrors().get(0).getRow()).isEqualTo(2);
+        assertThat(insertedBatches).containsExactly(List.of("John", "Bob"));
+    }
+
+    @Test
+    public void importNdjson_ReportsRowsRejectedByTheBulkWrite () {
+        // Given
+        when(contactRepository.bulkInsert(anyList())).thenReturn(Map.of(1, "E11000 duplicate key error"));
+        String body = """
+                    {"id":"a","firstName":"John","phone":"1"}
+                    {"id":"a","firstName":"Jane","phone":"2"}
+                    """;
+        // When
+        ImportResponse response = contactImportService.importNdjson(stream(body));
+        // Then
+        assertThat(response.getImported()).isEqualTo(1);
+        assertThat(response.getErrors()).containsExactly(new ImportResponse.RowError(2, "E11000 duplicate key error"));
+        ArgumentCaptor<ContactsImportedEvent> event = ArgumentCaptor.forClass(ContactsImportedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().getContacts()).extracting(Contact::getFirstName).containsExactly("John");
+    }
+
+    @Test
+    public void importNdjson_WithMoreErrorsThanReported_TruncatesTheReport () {
+        // Given
+        ReflectionTestUtils.setField(contactImportService, "maxReportedErrors", 1);
+        // When
+        ImportResponse response = contactImportService.importNdjson(stream("{\"phone\":\"1\"}\n{\"phone\":\"2\"}\n"));
+        // Then
+        assertThat(response.getFailed()).isEqualTo(2);
+        assertThat(response.getErrors()).hasSize(1);
+        assertThat(response.isErrorsTruncated()).isTrue();
+        verify(contactRepository, never()).bulkInsert(anyList());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    private InputStream stream (String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
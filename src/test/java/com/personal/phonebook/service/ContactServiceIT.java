@@ -3,10 +3,13 @@ package com.personal.phonebook.service;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 
 import com.personal.phonebook.BaseIntegrationTest;
 import com.personal.phonebook.controller.response.ContactsResponse;
+import com.personal.phonebook.exception.ContactConflictException;
 import com.personal.phonebook.exception.ContanctNotFoundException;
 import com.personal.phonebook.model.Contact;
 
@@ -149,6 +152,7 @@ public class ContactServiceIT extends BaseIntegrationTest {
     public void updateContact_WithExistingId_ReturnsUpdatedContact () {
         // Given
         Contact updatedDetails = new Contact("John", "Updated", "999-999-9999", "999 Updated Ave");
+        updatedDetails.setVersion(contactService.getContact(testContactId).getVersion());
 
         // When
         Contact result = contactService.updateContact(testContactId, updatedDetails);
@@ -168,11 +172,45 @@ public class ContactServiceIT extends BaseIntegrationTest {
         assertThat(fromDb.getAddress()).isEqualTo("999 Updated Ave");
     }
 
+    @Test
+    public void updateContact_KeepsSearchTokensAndVersionInStep () {
+        // Given
+        Contact updatedDetails = new Contact("John", "Renamed", "999-999-9999", null);
+        updatedDetails.setVersion(contactService.getContact(testContactId).getVersion());
+
+        // When
+        Contact result = contactService.updateContact(testContactId, updatedDetails);
+
+        // Then
+        Contact fromDb = contactRepository.findById(testContactId).orElseThrow();
+        assertThat(fromDb.getVersion()).isEqualTo(result.getVersion());
+        assertThat(fromDb.getAddress()).isNull();
+        assertThat(fromDb.getSearchTokens()).contains("ren", "999").doesNotContain("mai");
+        List<Contact> found = searchContacts("renamed", 0, 10, "ASC", "firstName").getContacts();
+        assertThat(found).extracting(Contact::getId).containsExactly(testContactId);
+    }
+
+    @Test
+    public void updateContact_WithStaleVersion_ThrowsConflictAndKeepsTheFirstUpdate () {
+        // Given
+        Long version = contactService.getContact(testContactId).getVersion();
+        Contact first = new Contact("John", "First", "111", null);
+        first.setVersion(version);
+        Contact second = new Contact("John", "Second", "222", null);
+        second.setVersion(version);
+        contactService.updateContact(testContactId, first);
+
+        // When + Then
+        assertThrows(ContactConflictException.class, () -> contactService.updateContact(testContactId, second));
+        assertThat(contactRepository.findById(testContactId).orElseThrow().getLastName()).isEqualTo("First");
+    }
+
     @Test
     public void updateContact_WithNonExistingId_ThrowsNotFoundException () {
         // Given
         String nonExistingId = "non-existing-id";
         Contact updatedDetails = new Contact("John", "Updated", "999-999-9999", "999 Updated Ave");
+        updatedDetails.setVersion(1L);
 
         // When + Then
         assertThrows(ContanctNotFoundException.class, () -> contactService.updateContact(nonExistingId, updatedDetails));
@@ -4,24 +4,54 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.TextCriteria;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import com.personal.phonebook.cache.ContactCache;
+import com.personal.phonebook.cache.SearchKey;
+import com.personal.phonebook.controller.request.ContactBatchRequest;
+import com.personal.phonebook.controller.request.ContactSearchRequest;
+import com.personal.phonebook.controller.response.BatchLookupResponse;
 import com.personal.phonebook.controller.response.ContactsResponse;
+import com.personal.phonebook.event.ContactChangedEvent;
+import com.personal.phonebook.exception.ContactConflictException;
+import com.personal.phonebook.exception.ContactVersionRequiredException;
 import com.personal.phonebook.exception.ContanctNotFoundException;
+import com.personal.phonebook.metrics.ContactMetrics;
 import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.pagination.ContactCursor;
+import com.personal.phonebook.pagination.TotalCountMode;
+import com.personal.phonebook.repository.ContactFilter;
 import com.personal.phonebook.repository.ContactRepository;
+import com.personal.phonebook.search.FuzzyNames;
+import com.personal.phonebook.search.SearchMode;
+import com.personal.phonebook.search.SearchTokenizer;
+import com.personal.phonebook.tenant.TenantContext;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 @ExtendWith(MockitoExtension.class)
 class ContactServiceTest {
@@ -29,9 +59,20 @@ class ContactServiceTest {
     @Mock
     private ContactRepository contactRepository;
 
+    @Mock
+    private ContactCache contactCache;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private ContactMetrics contactMetrics = new ContactMetrics();
+
     @InjectMocks
     private ContactService contactService;
 
+    private SimpleMeterRegistry meterRegistry;
+
     private Contact testContact;
     private Page<Contact> contactPage;
 
@@ -40,7 +81,14 @@ class ContactServiceTest {
         testContact = new Contact("John", "Doe", "123-456-7890", "123 Main St");
         testContact.setId("test-id-123");
         contactPage = new PageImpl<>(List.of(testContact));
+        meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(contactMetrics, "meterRegistry", meterRegistry);
         ReflectionTestUtils.setField(contactService, "maxPageSize", 10);
+        ReflectionTestUtils.setField(contactService, "maxBatchKeys", 100);
+        ReflectionTestUtils.setField(contactService, "searchMode", SearchMode.REGEX);
+        // read through to the repository, caching itself is covered by ContactCacheTest
+        lenient().when(contactCache.getSearch(any(), any())).thenAnswer(invocation -> invocation.<Supplier<?>> getArgument(1).get());
+        lenient().when(contactCache.getContact(any(), any())).thenAnswer(invocation -> invocation.<Supplier<?>> getArgument(1).get());
     }
 
     @Test
@@ -56,6 +104,126 @@ class ContactServiceTest {
         verify(contactRepository).searchContacts(eq("John"), any(PageRequest.class));
     }
 
+    @Test
+    public void searchContacts_RecordsTimerTaggedBySearchModeAndSort () {
+        // Given
+        when(contactRepository.searchContacts(eq("John"), any(PageRequest.class))).thenReturn(contactPage);
+        // When
+        contactService.searchContacts("John", 0, 5, "ASC", "lastName");
+        // Then
+        assertEquals(1,
+                     meterRegistry.get(ContactMetrics.SERVICE)
+                                  .tags("operation", "searchContacts", "search", "true", "mode", "REGEX", "sortBy", "lastName", "outcome", "success")
+                                  .timer()
+                                  .count());
+    }
+
+    @Test
+    public void deleteContact_WithNonExistingId_RecordsFailedTimer () {
+        // Given
+        when(contactRepository.deleteContactById("missing")).thenReturn(Optional.empty());
+        // When
+        assertThrows(ContanctNotFoundException.class, () -> contactService.deleteContact("missing"));
+        // Then
+        assertEquals(1,
+                     meterRegistry.get(ContactMetrics.SERVICE)
+                                  .tags("operation", "deleteContact", "outcome", "error", "exception", "ContanctNotFoundException")
+                                  .timer()
+                                  .count());
+    }
+
+    @Test
+    public void searchContacts_WithShortQueryInNgramMode_LooksUpSingleToken () {
+        // Given
+        ReflectionTestUtils.setField(contactService, "searchMode", SearchMode.NGRAM);
+        when(contactRepository.searchByToken(eq("jo"), any(PageRequest.class))).thenReturn(contactPage);
+        // When
+        ContactsResponse response = contactService.searchContacts("Jo", 0, 5, "ASC", "firstName");
+        // Then
+        assertEquals(1, response.getContacts().size());
+        verify(contactRepository, never()).searchContacts(anyString(), any(PageRequest.class));
+    }
+
+    @Test
+    public void searchContacts_WithLongQueryInNgramMode_IntersectsTokens () {
+        // Given
+        ReflectionTestUtils.setField(contactService, "searchMode", SearchMode.NGRAM);
+        when(contactRepository.searchByTokens(eq(List.of("joh", "ohn")), eq("John"), any(PageRequest.class))).thenReturn(contactPage);
+        // When
+        ContactsResponse response = contactService.searchContacts("John", 0, 5, "ASC", "firstName");
+        // Then
+        assertEquals(1, response.getContacts().size());
+        verify(contactRepository, never()).searchContacts(anyString(), any(PageRequest.class));
+    }
+
+    @Test
+    public void searchContacts_WithRegexQueryInNgramMode_FallsBackToRegex () {
+        // Given
+        ReflectionTestUtils.setField(contactService, "searchMode", SearchMode.NGRAM);
+        when(contactRepository.searchContacts(eq("J.hn"), any(PageRequest.class))).thenReturn(contactPage);
+        // When
+        contactService.searchContacts("J.hn", 0, 5, "ASC", "firstName");
+        // Then
+        verify(contactRepository).searchContacts(eq("J.hn"), any(PageRequest.class));
+    }
+
+    @Test
+    public void searchContacts_WithWholeWordInTextMode_ReturnsTextMatches () {
+        // Given
+        when(contactRepository.findAllByOrderByScoreDesc(any(TextCriteria.class), any(PageRequest.class))).thenReturn(contactPage);
+        // When
+        ContactsResponse response = contactService.searchContacts("John", "text", 0, 5, "ASC", "firstName");
+        // Then
+        assertEquals(1, response.getTotalCount());
+        verify(contactRepository, never()).searchByTokens(anyList(), anyString(), any(PageRequest.class));
+    }
+
+    @Test
+    public void searchContacts_WithFragmentInTextMode_FallsBackToSubstringSearch () {
+        // Given
+        when(contactRepository.findAllByOrderByScoreDesc(any(TextCriteria.class), any(PageRequest.class))).thenReturn(Page.empty());
+        when(contactRepository.searchByToken(eq("ith"), any(PageRequest.class))).thenReturn(contactPage);
+        // When
+        ContactsResponse response = contactService.searchContacts("ith", "TEXT", 0, 5, "ASC", "firstName");
+        // Then
+        assertEquals(1, response.getTotalCount());
+        assertEquals("John", response.getContacts().get(0).getFirstName());
+    }
+
+    @Test
+    public void searchContacts_InFuzzyMode_RanksCandidatesByEditDistance () {
+        // Given
+        Contact jon = new Contact("Jon", "Baker", "1", null);
+        Contact joan = new Contact("Joan", "Adams", "2", null);
+        Contact mary = new Contact("Mary", "Jones", "3", null);
+        when(contactRepository.findFuzzyCandidates(FuzzyNames.phoneticKeys("John"), FuzzyNames.trigrams("John"), 1000)).thenReturn(List.of(mary, joan, jon));
+        ReflectionTestUtils.setField(contactService, "maxFuzzyCandidates", 1000);
+        // When
+        ContactsResponse response = contactService.searchContacts("John", "fuzzy", 0, 5, "ASC", "lastName");
+        // Then
+        assertEquals(2, response.getTotalCount());
+        assertEquals(List.of(joan, jon), response.getContacts());
+        assertNull(response.getNextCursor());
+    }
+
+    @Test
+    public void searchContacts_WithCursorInFuzzyMode_ThrowsException () {
+        // Given
+        String cursor = ContactCursor.after(testContact, "firstName", Sort.Direction.ASC).encode();
+        // When + Then
+        IllegalArgumentException actualException = assertThrows(IllegalArgumentException.class,
+                                                                () -> contactService.searchContacts(new ContactSearchRequest("John", "FUZZY", 0, 5, "ASC", "firstName", cursor, null)));
+        assertEquals("Cursor pagination is not supported for fuzzy search", actualException.getMessage());
+    }
+
+    @Test
+    public void searchContacts_WithInvalidSearchMode_ThrowsException () {
+        // When + Then
+        IllegalArgumentException actualException = assertThrows(IllegalArgumentException.class,
+                                                                () -> contactService.searchContacts("John", "soundex", 0, 5, "ASC", "firstName"));
+        assertTrue(actualException.getMessage().contains("Invalid search mode 'soundex'"));
+    }
+
     @Test
     public void searchContacts_WithoutQuery_ReturnsAllContacts () {
         // Given
@@ -77,12 +245,72 @@ class ContactServiceTest {
         assertTrue(actualException.getMessage().contains("Page size cannot be larger than 10"));
     }
 
+    @Test
+    public void searchContacts_WithoutTotal_SkipsCountAndReturnsNextCursor () {
+        // Given
+        Contact nextContact = new Contact("Johnny", "Doe", "123-456-7891", "123 Main St");
+        when(contactRepository.findContacts(eq(ContactFilter.all()), isNull(), eq(0L), any(Sort.class), eq(2))).thenReturn(List.of(testContact,
+                                                                                                                               nextContact));
+        // When
+        ContactsResponse response = contactService.searchContacts(new ContactSearchRequest(null, null, 0, 1, "ASC", "firstName", null, "none"));
+        // Then
+        assertEquals(List.of(testContact), response.getContacts());
+        assertEquals(-1, response.getTotalCount());
+        assertEquals(ContactCursor.after(testContact, "firstName", Sort.Direction.ASC), ContactCursor.decode(response.getNextCursor()));
+        verify(contactRepository, never()).countContacts(any(), anyLong());
+        verify(contactRepository, never()).findAll(any(PageRequest.class));
+    }
+
+    @Test
+    public void searchContacts_WithCursor_ContinuesAfterCursorPosition () {
+        // Given
+        ContactCursor cursor = ContactCursor.after(testContact, "firstName", Sort.Direction.ASC);
+        when(contactRepository.findContacts(eq(ContactFilter.all()), eq(cursor), eq(0L), any(Sort.class), eq(6))).thenReturn(List.of(testContact));
+        // When
+        ContactsResponse response = contactService.searchContacts(new ContactSearchRequest(null, null, 0, 5, "ASC", "firstName", cursor.encode(), null));
+        // Then
+        assertEquals(1, response.getContacts().size());
+        assertEquals(-1, response.getTotalCount());
+        assertNull(response.getNextCursor());
+    }
+
+    @Test
+    public void searchContacts_WithEstimatedTotalForSearch_CapsTheCount () {
+        // Given
+        ReflectionTestUtils.setField(contactService, "countEstimateLimit", 1000L);
+        ContactFilter filter = ContactFilter.matching("John", SearchMode.REGEX);
+        when(contactRepository.findContacts(eq(filter), isNull(), eq(0L), any(Sort.class), eq(6))).thenReturn(List.of(testContact));
+        when(contactRepository.countContacts(filter, 1000L)).thenReturn(1000L);
+        // When
+        ContactsResponse response = contactService.searchContacts(new ContactSearchRequest("John", null, 0, 5, "ASC", "firstName", null, "estimate"));
+        // Then
+        assertEquals(1000, response.getTotalCount());
+        assertTrue(response.isTotalCountEstimated());
+    }
+
+    @Test
+    public void searchContacts_WithCursorForDifferentSort_ThrowsException () {
+        // Given
+        String cursor = ContactCursor.after(testContact, "lastName", Sort.Direction.ASC).encode();
+        // When + Then
+        IllegalArgumentException actualException = assertThrows(IllegalArgumentException.class,
+                                                                () -> contactService.searchContacts(new ContactSearchRequest(null,
+                                                                                                                             null,
+                                                                                                                             0,
+                                                                                                                             5,
+                                                                                                                             "ASC",
+                                                                                                                             "firstName",
+                                                                                                                             cursor,
+                                                                                                                             null)));
+        assertEquals("Cursor does not match the requested sort", actualException.getMessage());
+    }
+
     @Test
     public void createContact_ReturnsCreatedContact () {
         // Given
         when(contactRepository.save(any(Contact.class))).thenReturn(testContact);
         // When
-        Contact result = contactService.createContact(testContact);
+        Contact result = contactService.createContact(new Contact("John", "Doe", "123-456-7890", "123 Main St"));
         // Then
         assertEquals("John", result.getFirstName());
         assertEquals("test-id-123", result.getId());
@@ -92,48 +320,345 @@ class ContactServiceTest {
     public void updateContact_WithExistingId_ReturnsUpdatedContact () {
         // Given
         Contact updatedContact = new Contact("Jane", "Doe", "987-654-3210", "456 New St");
-        when(contactRepository.findById("test-id-123")).thenReturn(Optional.of(testContact));
-        when(contactRepository.save(any(Contact.class))).thenAnswer(invocation -> {
-            Contact savedContact = invocation.getArgument(0);
-            assertEquals("Jane", savedContact.getFirstName());
-            assertEquals("test-id-123", savedContact.getId());
-            return savedContact;
-        });
+        updatedContact.setVersion(3L);
+        testContact.setVersion(3L);
+        when(contactRepository.updateFields(eq("test-id-123"), eq(3L), anyMap(), anyList())).thenReturn(Optional.of(testContact));
         // When
         Contact result = contactService.updateContact("test-id-123", updatedContact);
         // Then
         assertEquals("Jane", result.getFirstName());
+        assertEquals("test-id-123", result.getId());
+        assertEquals(4L, result.getVersion());
+        verify(contactRepository, never()).findById(anyString());
+        verify(contactRepository, never()).save(any(Contact.class));
+    }
+
+    @Test
+    public void updateContact_SetsAllFieldsAndTheirSearchTokensInOneOperation () {
+        // Given
+        Contact updatedContact = new Contact("Jane", null, "987-654-3210", "456 New St");
+        updatedContact.setVersion(3L);
+        when(contactRepository.updateFields(any(), any(), anyMap(), anyList())).thenReturn(Optional.of(testContact));
+        // When
+        contactService.updateContact("test-id-123", updatedContact);
+        // Then
+        Map<String, String> expectedFields = new HashMap<>();
+        expectedFields.put("firstName", "Jane");
+        expectedFields.put("lastName", null);
+        expectedFields.put("phone", "987-654-3210");
+        expectedFields.put("address", "456 New St");
+        verify(contactRepository).updateFields("test-id-123", 3L, expectedFields, SearchTokenizer.tokenize(updatedContact));
+    }
+
+    @Test
+    public void updateContact_WithStaleVersion_ThrowsConflictException () {
+        // Given
+        testContact.setVersion(2L);
+        when(contactRepository.updateFields(eq("test-id-123"), eq(2L), anyMap(), anyList())).thenReturn(Optional.empty());
+        when(contactRepository.existsById("test-id-123")).thenReturn(true);
+        // When + Then
+        ContactConflictException actualException = assertThrows(ContactConflictException.class,
+                                                                () -> contactService.updateContact("test-id-123", testContact));
+        assertEquals("Contact with id test-id-123 was modified concurrently, expected version 2 is no longer current", actualException.getMessage());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    public void updateContact_WithoutVersion_ThrowsVersionRequiredException () {
+        // When + Then
+        ContactVersionRequiredException actualException = assertThrows(ContactVersionRequiredException.class,
+                                                                        () -> contactService.updateContact("test-id-123", testContact));
+        assertEquals("Updating contact with id test-id-123 requires the version it was read at, in the body or as If-Match", actualException.getMessage());
+        verify(contactRepository, never()).updateFields(any(), any(), anyMap(), anyList());
     }
 
     @Test
     public void updateContact_WithNonExistingId_ThrowsNotFoundException () {
         // When
-        when(contactRepository.findById("nonexistent-id")).thenReturn(Optional.empty());
+        testContact.setVersion(1L);
+        when(contactRepository.updateFields(eq("nonexistent-id"), eq(1L), anyMap(), anyList())).thenReturn(Optional.empty());
         // Then
         ContanctNotFoundException actualException = assertThrows(ContanctNotFoundException.class,
                                                                  () -> contactService.updateContact("nonexistent-id", testContact));
         assertEquals("Contact with id nonexistent-id not found", actualException.getMessage());
     }
 
+    @Test
+    public void searchContacts_ResolvesDefaultsIntoTheCacheKey () {
+        // Given
+        when(contactRepository.searchContacts(eq("John"), any(PageRequest.class))).thenReturn(contactPage);
+        // When
+        contactService.searchContacts("John", 0, 5, "asc", "firstName");
+        // Then
+        SearchKey expectedKey = new SearchKey(TenantContext.DEFAULT_TENANT,
+                                              ContactFilter.matching("John", SearchMode.REGEX),
+                                              0,
+                                              5,
+                                              Sort.Direction.ASC,
+                                              "firstName",
+                                              null,
+                                              TotalCountMode.EXACT);
+        verify(contactCache).getSearch(eq(expectedKey), any());
+    }
+
+    @Test
+    public void getContact_WithExistingId_ReturnsContact () {
+        // Given
+        when(contactRepository.findById("test-id-123")).thenReturn(Optional.of(testContact));
+        // When
+        Contact result = contactService.getContact("test-id-123");
+        // Then
+        assertEquals("John", result.getFirstName());
+        verify(contactCache).getContact(eq("test-id-123"), any());
+    }
+
+    @Test
+    public void getContact_WithNonExistingId_ThrowsNotFoundException () {
+        // Given
+        when(contactRepository.findById("nonexistent-id")).thenReturn(Optional.empty());
+        // When + Then
+        assertThrows(ContanctNotFoundException.class, () -> contactService.getContact("nonexistent-id"));
+    }
+
+    @Test
+    public void getContact_WithFields_ReadsOnlyThoseFields () {
+        // Given
+        Contact stored = new Contact();
+        stored.setId("test-id-123");
+        stored.setPhone("123-456-7890");
+        when(contactRepository.findContactById("test-id-123", List.of("phone"))).thenReturn(Optional.of(stored));
+        // When
+        Contact result = contactService.getContact("test-id-123", List.of("phone"));
+        // Then
+        assertEquals("test-id-123", result.getId());
+        assertEquals("123-456-7890", result.getPhone());
+        assertNull(result.getFirstName());
+        verify(contactRepository, never()).findById(anyString());
+    }
+
+    @Test
+    public void getContact_WithFieldsOfCachedContact_ProjectsWithoutReading () {
+        // Given
+        when(contactCache.peekContact("test-id-123")).thenReturn(testContact);
+        // When
+        Contact result = contactService.getContact("test-id-123", List.of("firstName", "phone"));
+        // Then
+        assertEquals("John", result.getFirstName());
+        assertEquals("123-456-7890", result.getPhone());
+        assertNull(result.getAddress());
+        verifyNoInteractions(contactRepository);
+    }
+
+    @Test
+    public void getContact_WithInvalidField_ThrowsException () {
+        // When + Then
+        IllegalArgumentException actualException = assertThrows(IllegalArgumentException.class,
+                                                                 () -> contactService.getContact("test-id-123", List.of("searchTokens")));
+        assertEquals("Invalid field 'searchTokens'. Allowed fields are: [firstName, lastName, phone, address]", actualException.getMessage());
+    }
+
+    @Test
+    public void updateContact_PublishesPreviousAndCurrentState () {
+        // Given
+        Contact updatedContact = new Contact("Jane", "Doe", "987-654-3210", "456 New St");
+        updatedContact.setVersion(1L);
+        when(contactRepository.updateFields(eq("test-id-123"), eq(1L), anyMap(), anyList())).thenReturn(Optional.of(testContact));
+        // When
+        contactService.updateContact("test-id-123", updatedContact);
+        // Then
+        ArgumentCaptor<ContactChangedEvent> event = ArgumentCaptor.forClass(ContactChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals("John", event.getValue().getPrevious().getFirstName());
+        assertEquals("Jane", event.getValue().getCurrent().getFirstName());
+        assertEquals("test-id-123", event.getValue().getId());
+    }
+
+    @Test
+    public void patchContact_SetsOnlyChangedFieldsConditionallyOnTheReadVersion () {
+        // Given
+        testContact.setVersion(5L);
+        when(contactRepository.findById("test-id-123")).thenReturn(Optional.of(testContact));
+        when(contactRepository.updateFields(eq("test-id-123"), eq(5L), anyMap(), anyList())).thenReturn(Optional.of(testContact));
+        Map<String, Object> patch = new HashMap<>();
+        patch.put("phone", "000");
+        patch.put("firstName", "John");
+        patch.put("address", null);
+        // When
+        Contact result = contactService.patchContact("test-id-123", patch);
+        // Then
+        Map<String, String> expectedFields = new HashMap<>();
+        expectedFields.put("phone", "000");
+        expectedFields.put("address", null);
+        verify(contactRepository).updateFields("test-id-123", 5L, expectedFields, SearchTokenizer.tokenize("John", "Doe", "000", null));
+        assertEquals("000", result.getPhone());
+        assertEquals("Doe", result.getLastName());
+        assertNull(result.getAddress());
+        assertEquals(6L, result.getVersion());
+    }
+
+    @Test
+    public void patchContact_WithStaleRead_RereadsAndRetries () {
+        // Given
+        Contact cached = new Contact("John", "Doe", "123-456-7890", "123 Main St");
+        cached.setId("test-id-123");
+        cached.setVersion(1L);
+        testContact.setVersion(2L);
+        doReturn(cached).when(contactCache).getContact(eq("test-id-123"), any());
+        when(contactRepository.updateFields(eq("test-id-123"), eq(1L), anyMap(), anyList())).thenReturn(Optional.empty());
+        when(contactRepository.findById("test-id-123")).thenReturn(Optional.of(testContact));
+        when(contactRepository.updateFields(eq("test-id-123"), eq(2L), anyMap(), anyList())).thenReturn(Optional.of(testContact));
+        // When
+        Contact result = contactService.patchContact("test-id-123", Map.of("lastName", "Smith"));
+        // Then
+        assertEquals("Smith", result.getLastName());
+        assertEquals(3L, result.getVersion());
+    }
+
+    @Test
+    public void patchContact_WithoutChanges_DoesNotWrite () {
+        // Given
+        when(contactRepository.findById("test-id-123")).thenReturn(Optional.of(testContact));
+        // When
+        Contact result = contactService.patchContact("test-id-123", Map.of("firstName", "John"));
+        // Then
+        assertEquals("John", result.getFirstName());
+        verify(contactRepository, never()).updateFields(any(), any(), anyMap(), anyList());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    public void patchContact_WithStaleVersion_ThrowsConflictException () {
+        // Given
+        testContact.setVersion(4L);
+        when(contactRepository.findById("test-id-123")).thenReturn(Optional.of(testContact));
+        // When + Then
+        assertThrows(ContactConflictException.class, () -> contactService.patchContact("test-id-123", Map.of("phone", "000", "version", 3)));
+        verify(contactRepository, never()).updateFields(any(), any(), anyMap(), anyList());
+    }
+
+    @Test
+    public void patchContact_RemovingMandatoryField_ThrowsException () {
+        // Given
+        Map<String, Object> patch = new HashMap<>();
+        patch.put("phone", null);
+        // When + Then
+        IllegalArgumentException actualException = assertThrows(IllegalArgumentException.class,
+                                                                 () -> contactService.patchContact("test-id-123", patch));
+        assertEquals("Phone number is mandatory", actualException.getMessage());
+        verifyNoInteractions(contactRepository);
+    }
+
+    @Test
+    public void patchContact_WithUnknownField_ThrowsException () {
+        // When + Then
+        IllegalArgumentException actualException = assertThrows(IllegalArgumentException.class,
+                                                                 () -> contactService.patchContact("test-id-123", Map.of("id", "other")));
+        assertEquals("Field 'id' cannot be patched. Allowed fields are: [firstName, lastName, phone, address]", actualException.getMessage());
+    }
+
     @Test
     public void deleteContact_WithExistingId_DeletesContact () {
         // Given
-        when(contactRepository.existsById("test-id-123")).thenReturn(true);
-        doNothing().when(contactRepository).deleteById("test-id-123");
+        when(contactRepository.deleteContactById("test-id-123")).thenReturn(Optional.of(testContact));
         // When
         contactService.deleteContact("test-id-123");
         // Then
-        verify(contactRepository).deleteById("test-id-123");
+        verify(contactRepository).deleteContactById("test-id-123");
+        verify(contactRepository, never()).existsById(anyString());
+        verify(eventPublisher).publishEvent(new ContactChangedEvent(testContact, null));
     }
 
     @Test
     public void deleteContact_WithNonExistingId_ThrowsNotFoundException () {
         // Given
-        when(contactRepository.existsById("nonexistent-id")).thenReturn(false);
+        when(contactRepository.deleteContactById("nonexistent-id")).thenReturn(Optional.empty());
         // When + Then
         ContanctNotFoundException actualException = assertThrows(ContanctNotFoundException.class,
                                                                  () -> contactService.deleteContact("nonexistent-id"));
         assertEquals("Contact with id nonexistent-id not found", actualException.getMessage());
-        verify(contactRepository, never()).deleteById(anyString());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    public void lookupPhone_WithSuffix_LooksUpTheReversedDigits () {
+        // Given
+        when(contactRepository.findByPhoneSuffix("0987", 5)).thenReturn(List.of(testContact));
+        // When
+        ContactsResponse result = contactService.lookupPhone("78-90", "suffix", 5);
+        // Then
+        assertEquals(List.of(testContact), result.getContacts());
+        assertEquals(-1, result.getTotalCount());
+    }
+
+    @Test
+    public void lookupPhone_WithoutMatch_LooksUpTheNormalizedNumber () {
+        // Given
+        when(contactRepository.findByPhoneNumber("+11234567890", 10)).thenReturn(List.of(testContact));
+        // When
+        ContactsResponse result = contactService.lookupPhone("+1 123-456-7890", null, 10);
+        // Then
+        assertEquals(List.of(testContact), result.getContacts());
+    }
+
+    @Test
+    public void lookupPhone_WithTooShortSuffix_ThrowsException () {
+        // When + Then
+        IllegalArgumentException actualException = assertThrows(IllegalArgumentException.class,
+                                                                 () -> contactService.lookupPhone("890", "SUFFIX", 10));
+        assertEquals("A phone suffix needs at least 4 digits", actualException.getMessage());
+        verifyNoInteractions(contactRepository);
+    }
+
+    @Test
+    public void batchLookup_WithIds_ReportsMatchesAndMissingInRequestOrder () {
+        // Given
+        Contact other = new Contact("Jane", "Roe", "555-0100", null);
+        when(contactCache.getContacts(eq(List.of("missing", other.getId(), "test-id-123")), any())).thenAnswer(invocation -> {
+            List<Contact> loaded = invocation.<Function<Collection<String>, List<Contact>>> getArgument(1).apply(invocation.getArgument(0));
+            return loaded.stream().collect(Collectors.toMap(Contact::getId, contact -> contact));
+        });
+        when(contactRepository.findByIds(List.of("missing", other.getId(), "test-id-123"))).thenReturn(List.of(testContact, other));
+        // When
+        BatchLookupResponse response = contactService.batchLookup(new ContactBatchRequest(List.of("missing", other.getId(), "test-id-123", "missing"),
+                                                                                          null));
+        // Then
+        assertEquals(List.of(other.getId(), "test-id-123"), List.copyOf(response.getMatches().keySet()));
+        assertEquals(List.of(testContact), response.getMatches().get("test-id-123"));
+        assertEquals(List.of("missing"), response.getMissing());
+    }
+
+    @Test
+    public void batchLookup_WithPhones_GroupsMatchesUnderEverySpellingOfTheNumber () {
+        // Given
+        Contact sameNumber = new Contact("Jane", "Doe", "(123) 456 7890", null);
+        when(contactRepository.findByPhoneNumbers(Set.of("1234567890", "5550100"))).thenReturn(List.of(testContact, sameNumber));
+        // When
+        BatchLookupResponse response = contactService.batchLookup(new ContactBatchRequest(null, List.of("1234567890", "123.456.7890", "555-0100")));
+        // Then
+        assertEquals(List.of(testContact, sameNumber), response.getMatches().get("1234567890"));
+        assertEquals(List.of(testContact, sameNumber), response.getMatches().get("123.456.7890"));
+        assertEquals(List.of("555-0100"), response.getMissing());
+        verifyNoInteractions(contactCache);
+    }
+
+    @Test
+    public void batchLookup_WithIdsAndPhones_ThrowsException () {
+        // When + Then
+        IllegalArgumentException actualException = assertThrows(IllegalArgumentException.class,
+                                                                 () -> contactService.batchLookup(new ContactBatchRequest(List.of("id"),
+                                                                                                                          List.of("123"))));
+        assertEquals("Exactly one of 'ids' and 'phones' must be given", actualException.getMessage());
+    }
+
+    @Test
+    public void batchLookup_WithTooManyKeys_ThrowsException () {
+        // Given
+        ReflectionTestUtils.setField(contactService, "maxBatchKeys", 2);
+        // When + Then
+        IllegalArgumentException actualException = assertThrows(IllegalArgumentException.class,
+                                                                 () -> contactService.batchLookup(new ContactBatchRequest(List.of("a", "b", "c"),
+                                                                                                                          null)));
+        assertEquals("A batch cannot hold more than 2 keys", actualException.getMessage());
+        verifyNoInteractions(contactRepository);
     }
-}
\ No newline at end of file
+}
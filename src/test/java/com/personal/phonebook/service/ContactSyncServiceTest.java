@@ -0,0 +1,92 @@
+package com.personal.phonebook.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.personal.phonebook.controller.response.SyncResponse;
+import com.personal.phonebook.exception.SyncTokenExpiredException;
+import com.personal.phonebook.model.Contact;
+import com.personal.phonebook.repository.ContactRepository;
+import com.personal.phonebook.sync.ContactChange;
+import com.personal.phonebook.sync.SyncToken;
+
+@ExtendWith(MockitoExtension.class)
+class ContactSyncServiceTest {
+
+    @Mock
+    private ContactRepository contactRepository;
+
+    @InjectMocks
+    private ContactSyncService contactSyncService;
+
+    @BeforeEach
+    public void setUp () {
+        ReflectionTestUtils.setField(contactSyncService, "maxPageSize", 500);
+        ReflectionTestUtils.setField(contactSyncService, "settleTime", Duration.ofSeconds(1));
+    }
+
+    @Test
+    public void page_WithUnsettledChanges_HoldsThemBackAndStopsTheTokenBeforeThem () {
+        // Given
+        List<ContactChange> changes = List.of(written(10, "a"), ContactChange.deleted(20, "b"), written(40, "c"));
+        // When
+        SyncResponse response = ContactSyncService.page(SyncToken.START, changes, 10, 30);
+        // Then
+        assertThat(response.getContacts()).extracting(Contact::getId).containsExactly("a");
+        assertThat(response.getDeleted()).containsExactly("b");
+        assertThat(response.isHasMore()).isFalse();
+        assertThat(SyncToken.decode(response.getToken())).isEqualTo(SyncToken.through(30));
+    }
+
+    @Test
+    public void page_WithMoreThanLimit_ContinuesAfterLastChangeOfPage () {
+        // Given
+        List<ContactChange> changes = List.of(written(10, "a"), written(10, "b"), written(11, "c"));
+        // When
+        SyncResponse response = ContactSyncService.page(SyncToken.START, changes, 2, 30);
+        // Then
+        assertThat(response.getContacts()).extracting(Contact::getId).containsExactly("a", "b");
+        assertThat(response.isHasMore()).isTrue();
+        assertThat(SyncToken.decode(response.getToken())).isEqualTo(SyncToken.after(changes.get(1)));
+    }
+
+    @Test
+    public void page_WithContactDeletedAndCreatedAgain_ReportsOnlyItsLastChange () {
+        // Given
+        List<ContactChange> changes = List.of(ContactChange.deleted(10, "a"), written(12, "a"));
+        // When
+        SyncResponse response = ContactSyncService.page(SyncToken.through(5), changes, 10, 30);
+        // Then
+        assertThat(response.getContacts()).extracting(Contact::getId).containsExactly("a");
+        assertThat(response.getDeleted()).isEmpty();
+    }
+
+    @Test
+    public void resolveToken_BehindChangeHorizon_ThrowsSyncTokenExpiredException () {
+        // Given
+        String token = SyncToken.through(5).encode();
+        when(contactRepository.changeHorizon()).thenReturn(6L);
+        // Then
+        assertThrows(SyncTokenExpiredException.class, () -> contactSyncService.resolveToken(token, 100));
+        assertThrows(IllegalArgumentException.class, () -> contactSyncService.resolveToken(token, 501));
+        assertThat(contactSyncService.resolveToken(null, 100)).isEqualTo(SyncToken.START);
+    }
+
+    private static ContactChange written (long sequence, String id) {
+        Contact contact = new Contact("John", "Doe", "123-456-7890", null);
+        contact.setId(id);
+        return ContactChange.written(sequence, contact);
+    }
+}
@@ -0,0 +1,51 @@
+package com.personal.phonebook.sync;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import com.personal.phonebook.model.Contact;
+
+class SyncTokenTest {
+
+    @Test
+    public void encode_ThenDecode_ReturnsSamePosition () {
+        // Given
+        Contact contact = new Contact("John", "Doe", "123-456-7890", "123 Main St");
+        SyncToken token = SyncToken.after(ContactChange.written(ChangeSequence.next(), contact));
+        // When
+        SyncToken decoded = SyncToken.decode(token.encode());
+        // Then
+        assertThat(decoded).isEqualTo(token);
+        assertThat(decoded.getId()).isEqualTo(contact.getId());
+    }
+
+    @Test
+    public void encode_ThroughSequence_KeepsMissingId () {
+        // When
+        SyncToken decoded = SyncToken.decode(SyncToken.through(42).encode());
+        // Then
+        assertThat(decoded.getSequence()).isEqualTo(42);
+        assertThat(decoded.getId()).isNull();
+        assertThat(decoded.isStart()).isFalse();
+    }
+
+    @Test
+    public void decode_WithGarbageOrNegativeSequence_ThrowsIllegalArgumentException () {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> SyncToken.decode("not-a-token!"));
+        assertThat(exception.getMessage()).isEqualTo("Invalid sync token");
+        assertThrows(IllegalArgumentException.class, () -> SyncToken.decode("AQ"));
+        assertThrows(IllegalArgumentException.class, () -> SyncToken.decode(SyncToken.START.encode()));
+    }
+
+    @Test
+    public void next_IsAboveEveryEarlierSequenceAndTellsItsTime () {
+        // When
+        long first = ChangeSequence.next();
+        long second = ChangeSequence.next();
+        // Then
+        assertThat(second).isGreaterThan(first);
+        assertThat(ChangeSequence.timeOf(first)).isEqualTo(ChangeSequence.timeOf(ChangeSequence.at(ChangeSequence.timeOf(first))));
+    }
+}
@@ -0,0 +1,53 @@
+package com.personal.phonebook.tenant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+class TenantInterceptorTest {
+
+    private static final Tenant ACME = new Tenant("acme", "contacts", null, true);
+
+    @Mock
+    private Tenants tenants;
+
+    private TenantInterceptor tenantInterceptor;
+
+    @BeforeEach
+    public void setUp () {
+        tenantInterceptor = new TenantInterceptor();
+        ReflectionTestUtils.setField(tenantInterceptor, "header", "X-Tenant-Id");
+        ReflectionTestUtils.setField(tenantInterceptor, "tenants", tenants);
+    }
+
+    @AfterEach
+    public void tearDown () {
+        TenantContext.clear();
+    }
+
+    @Test
+    public void afterConcurrentHandlingStarted_ClearsTheTenantOfTheRequestThread () {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("X-Tenant-Id", "acme");
+        when(tenants.resolve("acme")).thenReturn(ACME);
+        tenantInterceptor.preHandle(request, new MockHttpServletResponse(), new Object());
+        assertThat(TenantContext.current()).isEqualTo(ACME);
+
+        // When
+        tenantInterceptor.afterConcurrentHandlingStarted(request, new MockHttpServletResponse(), new Object());
+
+        // Then
+        assertThat(TenantContext.current()).isEqualTo(TenantContext.DEFAULT);
+    }
+}
@@ -0,0 +1,107 @@
+package com.personal.phonebook.tenant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+class TenantsTest {
+
+    @Mock
+    private ObjectProvider<TenantNamespaceInitializer> namespaceInitializers;
+
+    @Mock
+    private TenantNamespaceInitializer namespaceInitializer;
+
+    private Tenants tenants;
+
+    @BeforeEach
+    public void setUp () {
+        tenants = new Tenants();
+        ReflectionTestUtils.setField(tenants, "database", "contacts");
+        ReflectionTestUtils.setField(tenants, "namespaceInitializers", namespaceInitializers);
+        ReflectionTestUtils.setField(tenants, "provisioned", Set.of("acme"));
+    }
+
+    @Test
+    public void resolve_WithSharedStrategy_KeepsEveryTenantInTheContactsCollection () {
+        // Given
+        ReflectionTestUtils.setField(tenants, "strategy", TenancyStrategy.SHARED);
+
+        // When
+        Tenant tenant = tenants.resolve("acme");
+
+        // Then
+        assertThat(tenant).isEqualTo(new Tenant("acme", "contacts", null, true));
+        verify(namespaceInitializers, never()).orderedStream();
+    }
+
+    @Test
+    public void resolve_WithCollectionStrategy_InitializesTheTenantCollectionOnce () {
+        // Given
+        ReflectionTestUtils.setField(tenants, "strategy", TenancyStrategy.COLLECTION);
+        when(namespaceInitializers.orderedStream()).thenAnswer(invocation -> Stream.of(namespaceInitializer));
+
+        // When
+        Tenant first = tenants.resolve("acme");
+        Tenant second = tenants.resolve("acme");
+
+        // Then
+        assertThat(first).isSameAs(second).isEqualTo(new Tenant("acme", "contacts_acme", null, false));
+        verify(namespaceInitializer, times(1)).initialize(any());
+    }
+
+    @Test
+    public void resolve_WithDatabaseStrategyAndNoTenant_KeepsTheConfiguredDatabase () {
+        // Given
+        ReflectionTestUtils.setField(tenants, "strategy", TenancyStrategy.DATABASE);
+        when(namespaceInitializers.orderedStream()).thenAnswer(invocation -> Stream.of(namespaceInitializer));
+
+        // When
+        Tenant defaultTenant = tenants.resolve(null);
+        Tenant acme = tenants.resolve("acme");
+
+        // Then
+        assertThat(defaultTenant).isEqualTo(new Tenant(TenantContext.DEFAULT_TENANT, "contacts", null, false));
+        assertThat(acme).isEqualTo(new Tenant("acme", "contacts", "contacts_acme", false));
+    }
+
+    @Test
+    public void resolve_WithInvalidTenant_ThrowsIllegalArgumentException () {
+        // Given
+        ReflectionTestUtils.setField(tenants, "strategy", TenancyStrategy.COLLECTION);
+
+        // Then
+        assertThrows(IllegalArgumentException.class, () -> tenants.resolve("Acme"));
+        assertThrows(IllegalArgumentException.class, () -> tenants.resolve("acme.contacts"));
+        assertThrows(IllegalArgumentException.class, () -> tenants.resolve("-acme"));
+    }
+
+    @Test
+    public void resolve_WithUnknownTenant_ThrowsWithoutCreatingItsNamespace () {
+        // Given
+        ReflectionTestUtils.setField(tenants, "strategy", TenancyStrategy.COLLECTION);
+
+        // When
+        IllegalArgumentException actualException = assertThrows(IllegalArgumentException.class, () -> tenants.resolve("initech"));
+
+        // Then
+        assertThat(actualException.getMessage()).isEqualTo("Unknown tenant 'initech'");
+        verify(namespaceInitializers, never()).orderedStream();
+    }
+}